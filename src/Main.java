@@ -1,10 +1,17 @@
 import controller.DatabaseController;
 import java.util.List;
 import java.util.Map;
+import model.Column;
+import model.ColumnType;
 import model.Database;
 import model.Record;
+import model.Schema;
 import model.Table;
+import util.checkpoint.Checkpointer;
+import util.transaction.Recovery;
 import util.transaction.TransactionManager;
+import util.vacuum.Vacuum;
+import util.verify.IndexVerifier;
 import util.wal.Wal;
 import view.InputView;
 import view.OutputView;
@@ -17,14 +24,23 @@ public class Main {
     public static void main(String[] args) throws Exception {
 
         Database db = Database.openOrCreate(DB_PATH, d -> {
-            Table users = new Table("users", List.of("id", "name", "age"), "id");
+            Table users = new Table("users", new Schema(List.of(
+                    Column.notNull("id", ColumnType.INT),
+                    Column.notNull("name", ColumnType.VARCHAR),
+                    Column.of("age", ColumnType.INT)), "id"));
+            users.createIndex("idx_name", List.of("name"));
             d.addTable(users);
         });
 
-        var log = Wal.readAll(WAL_PATH);
-        TransactionManager.recover(db, log);
+        Recovery.Report recovery = Recovery.run(db, WAL_PATH, Recovery.DEFAULT_WORKERS);
+        if (recovery.transactions > 0) {
+            System.out.println(recovery);
+        }
 
-        try (Wal wal = new Wal(WAL_PATH)) {
+        try (db; Wal wal = new Wal(WAL_PATH); Checkpointer checkpointer = new Checkpointer(db, DB_PATH, wal)) {
+            wal.advanceTo(db.lastAppliedLsn());
+            checkpointer.checkpoint();
+            checkpointer.start();
             TransactionManager tm = new TransactionManager(db, wal);
 
             Table users = db.getTable("users");
@@ -37,8 +53,14 @@ public class Main {
                 db.saveToFile(DB_PATH);
             }
 
-            DatabaseController databaseController = new DatabaseController(db, DB_PATH, tm, new InputView(), new OutputView());
-            databaseController.run();
+            try (Vacuum vacuum = new Vacuum(db, tm.snapshots()); IndexVerifier verifier = new IndexVerifier(db)) {
+                vacuum.start();
+                verifier.start();
+                DatabaseController databaseController =
+                        new DatabaseController(db, DB_PATH, tm, checkpointer, vacuum, verifier,
+                                new InputView(), new OutputView());
+                databaseController.run();
+            }
         }
     }
 }
\ No newline at end of file
@@ -3,13 +3,20 @@ package controller;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import model.Database;
 import model.MenuAction;
 import model.Record;
 import model.Table;
+import util.checkpoint.Checkpointer;
+import util.sql.PlanCache;
+import util.sql.SqlEngine;
+import util.sql.SqlResult;
 import util.transaction.TransactionManager;
+import util.vacuum.Vacuum;
+import util.verify.IndexVerifier;
 import view.InputView;
 import view.OutputView;
 
@@ -20,11 +27,23 @@ public class DatabaseController {
     private final TransactionManager tm;
     private final InputView inputView;
     private final OutputView outputView;
+    private final IndexVerifier verifier;
+    private final Checkpointer checkpointer;
+    private final Vacuum vacuum;
+    private SqlEngine sql;
+    private long reportedCheckpointFailures;
+    private long reportedVacuumFailures;
+    private long reportedVerifierFailures;
+    private long reportedMismatchRuns;
 
-    public DatabaseController(Database db, String dbPath, TransactionManager tm, InputView inputView, OutputView outputView) {
+    public DatabaseController(Database db, String dbPath, TransactionManager tm, Checkpointer checkpointer, Vacuum vacuum,
+                              IndexVerifier verifier, InputView inputView, OutputView outputView) {
         this.db = db;
         this.dbPath = dbPath;
         this.tm = tm;
+        this.checkpointer = checkpointer;
+        this.vacuum = vacuum;
+        this.verifier = verifier;
         this.inputView = inputView;
         this.outputView = outputView;
     }
@@ -43,10 +62,11 @@ public class DatabaseController {
     private void mainLoop(Table table) {
         while (true) {
             try {
+                reportBackgroundFailures();
                 outputView.printTables(db.tableNames());
                 outputView.printMenu();
 
-                int selection = inputView.readMenuSelection(0, 11);
+                int selection = inputView.readMenuSelection(MenuAction.minCode(), MenuAction.maxCode());
 
                 if (selection == MenuAction.EXIT.code()) {
                     saveQuiet(); outputView.printMessage("종료합니다."); break;
@@ -72,6 +92,14 @@ public class DatabaseController {
                     handleCommit();
                 } else if (selection == MenuAction.ROLLBACK.code()) {
                     handleRollback();
+                } else if (selection == MenuAction.CREATE_INDEX.code()) {
+                    handleCreateIndex(table);
+                } else if (selection == MenuAction.DROP_INDEX.code()) {
+                    handleDropIndex(table);
+                } else if (selection == MenuAction.VERIFY_INDEX.code()) {
+                    handleVerifyIndex(table);
+                } else if (selection == MenuAction.SQL.code()) {
+                    handleSql();
                 } else {
                     throw new IllegalArgumentException("[ERROR] 잘못된 선택입니다.");
                 }
@@ -91,14 +119,13 @@ public class DatabaseController {
     }
 
     void handlePatchByPk(Table table) throws IOException {
-        String pkCol = table.getPrimaryKeyColumn();
-        String key = inputView.readPrimaryKey(pkCol);
-        long snap = db.currentCommitSequence();
-        var old = table.selectByIdAt(key, snap);
+        List<String> pkCols = table.getPrimaryKeyColumns();
+        String key = inputView.readPrimaryKey(pkCols);
+        var old = tm.selectById(table.getName(), key);
         if (old == null) { outputView.printMessage("[ERROR] 존재하지 않는 레코드: " + key); return; }
 
         var changes = inputView.readPatchPairs(Set.copyOf(table.getColumns()));
-        changes.remove(pkCol);
+        changes.keySet().removeAll(pkCols);
         Map<String,String> merged = new HashMap<>(old.values());
         merged.putAll(changes);
         var newRec = new Record(merged);
@@ -108,8 +135,8 @@ public class DatabaseController {
     }
 
     void handleDeleteByPk(Table table) throws IOException {
-        String pkCol = table.getPrimaryKeyColumn();
-        String key = inputView.readPrimaryKey(pkCol);
+        List<String> pkCols = table.getPrimaryKeyColumns();
+        String key = inputView.readPrimaryKey(pkCols);
         inAutoTx(() -> tm.delete(table.getName(), key));
         outputView.printMessage("삭제 완료");
     }
@@ -117,8 +144,7 @@ public class DatabaseController {
     void handleFindAllBy(Table table) {
         String col = inputView.promptNonEmpty("검색 컬럼 ▶ ");
         String val = inputView.promptNonEmpty("값 ▶ ");
-        long snap = db.currentCommitSequence();
-        outputView.printRecords(table, table.findAllByAt(col, val, snap));
+        outputView.printRecords(table, tm.findAllBy(table.getName(), col, val));
     }
 
     void handleBegin() {
@@ -150,6 +176,81 @@ public class DatabaseController {
         outputView.printMessage("ROLLBACK 완료");
     }
 
+    // 인덱스 정의는 카탈로그에 있으므로 바로 저장해 둔다
+    void handleCreateIndex(Table table) {
+        outputView.printMessage("인덱스: " + table.getIndexes());
+        String name = inputView.promptNonEmpty("인덱스 이름 ▶ ");
+        List<String> columns = inputView.readColumnList(table.getColumns());
+        int rows = table.createIndex(name, columns);
+        trySave();
+        outputView.printMessage("인덱스 생성 완료: " + name + " " + columns + ", 행 " + rows + "개");
+    }
+
+    void handleDropIndex(Table table) {
+        outputView.printMessage("인덱스: " + table.getIndexes());
+        String name = inputView.promptNonEmpty("삭제할 인덱스 이름 ▶ ");
+        table.dropIndex(name);
+        trySave();
+        outputView.printMessage("인덱스 삭제 완료: " + name);
+    }
+
+    void handleVerifyIndex(Table table) {
+        outputView.printMessage("인덱스: " + table.getIndexes());
+        boolean repair = inputView.promptNonEmpty("어긋난 항목을 복구할까요? (y/n) ▶ ").equalsIgnoreCase("y");
+        long found = verifier.verifyTable(table, repair);
+        outputView.printMessage("인덱스 검증 완료: 어긋난 항목 " + found + "개" + (repair ? " (복구함)" : ""));
+        outputView.printMessage(verifier.toString());
+    }
+
+    // 빈 줄을 입력할 때까지 한 줄에 문장 하나씩 실행한다. 메뉴의 트랜잭션과 같은 세션을 쓴다.
+    void handleSql() {
+        if (sql == null) {
+            sql = new SqlEngine(db, dbPath, tm, tm.currentSession(), new PlanCache());
+        }
+        outputView.printMessage("SQL 입력 (빈 줄이면 메뉴로)");
+        while (true) {
+            reportBackgroundFailures();
+            System.out.print("SQL ▶ ");
+            String line = inputView.readLine();
+            if (line == null || line.isBlank()) {
+                return;
+            }
+            try {
+                SqlResult result = sql.execute(line);
+                if (result.hasRows()) {
+                    outputView.printRecords(result.columns, result.rows);
+                } else {
+                    outputView.printMessage(result.message);
+                }
+            } catch (IllegalArgumentException | IOException e) {
+                outputView.printMessage(e.getMessage());
+            }
+        }
+    }
+
+    // 백그라운드 스레드는 메뉴/프롬프트 사이에 출력하지 않고 실패를 세어 두므로, 입력을 받기 전에 새로 생긴 실패만 알린다
+    private void reportBackgroundFailures() {
+        if (checkpointer != null && checkpointer.failures() > reportedCheckpointFailures) {
+            reportedCheckpointFailures = checkpointer.failures();
+            outputView.printMessage("[ERROR] 체크포인트 실패: " + checkpointer.lastError());
+        }
+        if (vacuum != null && vacuum.failures() > reportedVacuumFailures) {
+            reportedVacuumFailures = vacuum.failures();
+            outputView.printMessage("[ERROR] vacuum 실패: " + vacuum.lastError());
+        }
+        if (verifier == null) {
+            return;
+        }
+        if (verifier.failures() > reportedVerifierFailures) {
+            reportedVerifierFailures = verifier.failures();
+            outputView.printMessage("[ERROR] 인덱스 검증 실패: " + verifier.lastError());
+        }
+        if (verifier.mismatchRuns() > reportedMismatchRuns) {
+            reportedMismatchRuns = verifier.mismatchRuns();
+            outputView.printMessage(verifier.toString());
+        }
+    }
+
     private Table selectTable() {
         ArrayList<String> names = new ArrayList<>(db.tableNames());
         if (names.isEmpty()) {
@@ -192,23 +293,20 @@ public class DatabaseController {
     }
 
     private void runList(Table table) {
-        long snap = db.currentCommitSequence();
-        outputView.printRecords(table, table.selectAllAt(snap));
+        outputView.printRecords(table, tm.selectAll(table.getName()));
     }
 
     private void runFindByPk(Table table) {
-        String pkCol = table.getPrimaryKeyColumn();
-        String key = inputView.readPrimaryKey(pkCol);
-        long snap = db.currentCommitSequence();
-        var r = table.selectByIdAt(key, snap);
+        List<String> pkCols = table.getPrimaryKeyColumns();
+        String key = inputView.readPrimaryKey(pkCols);
+        var r = tm.selectById(table.getName(), key);
         if (r == null) outputView.printMessage("(없음)"); else outputView.printRecord(table, r);
     }
 
     private void runRange(Table table) {
         String from = inputView.promptNonEmpty("PK from ▶ ");
         String to   = inputView.promptNonEmpty("PK to   ▶ ");
-        long snap = db.currentCommitSequence();
-        outputView.printRecords(table, table.findAllByPkBetweenAt(from, true, to, true, snap));
+        outputView.printRecords(table, tm.findAllByPkBetween(table.getName(), from, true, to, true));
     }
 
     private void inAutoTx(Runnable r) throws IOException {
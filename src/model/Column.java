@@ -0,0 +1,46 @@
+package model;
+
+import java.io.Serializable;
+
+public class Column implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final ColumnType type;
+    private final boolean nullable;
+
+    public Column(String name, ColumnType type, boolean nullable) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("[ERROR] 컬럼 이름이 비어 있습니다.");
+        }
+        this.name = name;
+        this.type = type;
+        this.nullable = nullable;
+    }
+
+    public static Column of(String name, ColumnType type) {
+        return new Column(name, type, true);
+    }
+
+    public static Column notNull(String name, ColumnType type) {
+        return new Column(name, type, false);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + type + (nullable ? "" : " NOT NULL");
+    }
+}
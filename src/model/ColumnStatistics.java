@@ -0,0 +1,105 @@
+package model;
+
+/*
+ * 컬럼 하나의 값 분포. ANALYZE 가 표본으로 만든다.
+ * bounds 는 equi-depth 히스토그램 경계로, bounds[0] 은 최솟값, bounds[i] 는 i/B 분위 값, 마지막은 최댓값이다.
+ * commonValues 는 표본에서 자주 나온 값과 그 비율(commonFractions)이고, 나머지 값은 고르게 나뉜다고 본다.
+ * 비율은 모두 테이블 전체 행(NULL 포함) 기준이다.
+ */
+public class ColumnStatistics {
+
+    private final ColumnType type;
+    public final double nullFraction;
+    public final long distinct;
+    private final String[] bounds;
+    private final String[] commonValues;
+    private final double[] commonFractions;
+
+    ColumnStatistics(ColumnType type, double nullFraction, long distinct, String[] bounds,
+                     String[] commonValues, double[] commonFractions) {
+        this.type = type;
+        this.nullFraction = nullFraction;
+        this.distinct = distinct;
+        this.bounds = bounds;
+        this.commonValues = commonValues;
+        this.commonFractions = commonFractions;
+    }
+
+    public String min() {
+        return (bounds.length == 0) ? null : bounds[0];
+    }
+
+    public String max() {
+        return (bounds.length == 0) ? null : bounds[bounds.length - 1];
+    }
+
+    // value 를 모르면(파라미터) null 이고, 값 하나의 평균 비율을 준다
+    public double equalsFraction(String value) {
+        if (bounds.length == 0) {
+            return 0;
+        }
+        if (value == null) {
+            return (1 - nullFraction) / Math.max(distinct, 1);
+        }
+        if (type.compare(value, min()) < 0 || type.compare(value, max()) > 0) {
+            return 0;
+        }
+        double common = 0;
+        for (int i = 0; i < commonValues.length; i++) {
+            if (type.compare(value, commonValues[i]) == 0) {
+                return commonFractions[i];
+            }
+            common += commonFractions[i];
+        }
+        long rest = distinct - commonValues.length;
+        return (rest <= 0) ? 0 : Math.max(0, 1 - nullFraction - common) / rest;
+    }
+
+    // value 보다 작은(inclusive 면 작거나 같은) 값의 비율
+    public double belowFraction(String value, boolean inclusive) {
+        if (bounds.length == 0) {
+            return 0;
+        }
+        double eq = equalsFraction(value);
+        if (type.compare(value, min()) < 0) {
+            return 0;
+        }
+        if (type.compare(value, max()) > 0) {
+            return 1 - nullFraction;
+        }
+
+        int buckets = bounds.length - 1;
+        double below;
+        if (buckets == 0) {
+            below = 0;
+        } else {
+            int i = 0;
+            while (i < buckets - 1 && type.compare(bounds[i + 1], value) <= 0) i++;
+            below = (i + within(bounds[i], bounds[i + 1], value)) / buckets;
+        }
+        below = below * (1 - nullFraction);
+        return Math.min(1 - nullFraction, Math.max(0, inclusive ? below + eq : below));
+    }
+
+    // 구간 [lo, hi] 안에서 value 의 위치. 수로 셀 수 없으면 가운데로 본다.
+    private double within(String lo, String hi, String value) {
+        double l = type.numeric(lo);
+        double h = type.numeric(hi);
+        double v = type.numeric(value);
+        if (Double.isNaN(v) || Double.isNaN(l) || Double.isNaN(h)) {
+            return 0.5;
+        }
+        if (h <= l) {
+            return (v < l) ? 0 : 1;
+        }
+        return Math.max(0, Math.min(1, (v - l) / (h - l)));
+    }
+
+    @Override
+    public String toString() {
+        return "null " + String.format("%.3f", nullFraction) + ", distinct " + distinct
+                + ((bounds.length == 0) ? "" : ", 범위 " + min() + " ~ " + max() + ", 경계 " + bounds.length + "개")
+                + ((commonValues.length == 0) ? "" : String.format(", 최빈값 %d개(가장 많은 값 %s %.3f)",
+                commonValues.length, commonValues[0], commonFractions[0]));
+    }
+}
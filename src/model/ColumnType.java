@@ -0,0 +1,171 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/*
+ * 컬럼 타입. width 는 행의 고정 영역에서 차지하는 바이트 수이고, VARCHAR 는 가변 영역에서 자기 값이 끝나는 위치(int)만 고정 영역에 둔다.
+ * 조회/입력은 문자열로 주고받으므로 타입마다 문자열 <-> 바이트 변환과, 같은 값을 같은 문자열로 돌려주는 정규화를 가진다.
+ * TIMESTAMP 는 UTC 기준 epoch 밀리초로 담고 ISO-8601(2024-01-02T03:04:05) 형식으로 주고받는다. 날짜만 주면 그날 0시.
+ */
+public enum ColumnType {
+
+    INT(Integer.BYTES),
+    BIGINT(Long.BYTES),
+    DOUBLE(Double.BYTES),
+    VARCHAR(Integer.BYTES),
+    BOOLEAN(1),
+    TIMESTAMP(Long.BYTES);
+
+    private final int width;
+
+    ColumnType(int width) {
+        this.width = width;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public boolean isVariable() {
+        return this == VARCHAR;
+    }
+
+    public static ColumnType of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("[ERROR] 지원하지 않는 컬럼 타입입니다: " + name);
+        }
+    }
+
+    // 같은 값은 항상 같은 문자열이 되도록 다듬는다 ("024" -> "24", "TRUE" -> "true")
+    public String normalize(String text) {
+        return (this == VARCHAR) ? text : format(parse(text));
+    }
+
+    // 정규화된 두 값의 순서. VARCHAR 는 코드 포인트 순서(= UTF-8 바이트 순서)라 PK 키 순서와 같다.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public int compare(String a, String b) {
+        if (this != VARCHAR) {
+            return ((Comparable) parse(a)).compareTo(parse(b));
+        }
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return Integer.compare(ca, cb);
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    // 배치 실행기가 long 으로 다루는 타입 (Schema.longAt 과 같은 값)
+    public boolean isIntegral() {
+        return this == INT || this == BIGINT || this == TIMESTAMP || this == BOOLEAN;
+    }
+
+    public long longValue(String text) {
+        Object v = parse(text);
+        return switch (this) {
+            case INT, BIGINT, TIMESTAMP -> ((Number) v).longValue();
+            case BOOLEAN -> ((Boolean) v) ? 1 : 0;
+            default -> throw new IllegalArgumentException("[ERROR] 정수로 다룰 수 없는 타입입니다: " + this);
+        };
+    }
+
+    // longValue 의 반대. 행에서 읽은 값과 같은 문자열이 된다.
+    public String text(long value) {
+        return switch (this) {
+            case INT, BIGINT -> Long.toString(value);
+            case BOOLEAN -> Boolean.toString(value != 0);
+            case TIMESTAMP -> formatTimestamp(value);
+            default -> throw new IllegalArgumentException("[ERROR] 정수로 다룰 수 없는 타입입니다: " + this);
+        };
+    }
+
+    // 히스토그램 구간 안 위치를 셈할 수 있는 값. VARCHAR 는 NaN.
+    double numeric(String text) {
+        return switch (this) {
+            case VARCHAR -> Double.NaN;
+            case BOOLEAN -> ((Boolean) parse(text)) ? 1 : 0;
+            default -> ((Number) parse(text)).doubleValue();
+        };
+    }
+
+    // 고정 영역 값. VARCHAR 는 쓰지 않는다.
+    void write(ByteBuffer buf, int at, String text) {
+        Object v = parse(text);
+        switch (this) {
+            case INT -> buf.putInt(at, (Integer) v);
+            case BIGINT, TIMESTAMP -> buf.putLong(at, (Long) v);
+            case DOUBLE -> buf.putDouble(at, (Double) v);
+            case BOOLEAN -> buf.put(at, (byte) ((Boolean) v ? 1 : 0));
+            default -> throw new IllegalStateException("[ERROR] 가변 길이 타입입니다: " + this);
+        }
+    }
+
+    String read(ByteBuffer buf, int at) {
+        return switch (this) {
+            case INT -> Integer.toString(buf.getInt(at));
+            case BIGINT -> Long.toString(buf.getLong(at));
+            case DOUBLE -> Double.toString(buf.getDouble(at));
+            case BOOLEAN -> Boolean.toString(buf.get(at) != 0);
+            case TIMESTAMP -> formatTimestamp(buf.getLong(at));
+            default -> throw new IllegalStateException("[ERROR] 가변 길이 타입입니다: " + this);
+        };
+    }
+
+    static byte[] encodeText(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String decodeText(byte[] row, int from, int to) {
+        return new String(row, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private Object parse(String text) {
+        String s = text.trim();
+        try {
+            return switch (this) {
+                case INT -> Integer.parseInt(s);
+                case BIGINT -> Long.parseLong(s);
+                case DOUBLE -> Double.parseDouble(s);
+                case BOOLEAN -> parseBoolean(s);
+                case TIMESTAMP -> parseTimestamp(s);
+                case VARCHAR -> text;
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("[ERROR] " + this + " 값이 아닙니다: " + text);
+        }
+    }
+
+    private String format(Object v) {
+        return (this == TIMESTAMP) ? formatTimestamp((Long) v) : String.valueOf(v);
+    }
+
+    private static String formatTimestamp(long epochMillis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC).toString();
+    }
+
+    private static Boolean parseBoolean(String s) {
+        if (s.equalsIgnoreCase("true")) return true;
+        if (s.equalsIgnoreCase("false")) return false;
+        throw new IllegalArgumentException("[ERROR] BOOLEAN 값이 아닙니다: " + s);
+    }
+
+    private static Long parseTimestamp(String s) {
+        LocalDateTime t = (s.indexOf('T') < 0) ? LocalDate.parse(s).atStartOfDay() : LocalDateTime.parse(s);
+        return t.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
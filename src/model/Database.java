@@ -1,33 +1,68 @@
 package model;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import util.storage.PageStore;
+import util.storage.legacy.SerializedSnapshot;
+import util.wal.Wal;
 
-public class Database implements Serializable {
+public class Database implements Serializable, Closeable {
 
     private static final long serialVersionUID = 1L;
 
-    private Map<String, Table> tables = new HashMap<>();
+    // SQL 의 CREATE TABLE 은 체크포인트/vacuum 스레드가 테이블 목록을 도는 중에도 테이블을 더한다
+    private Map<String, Table> tables = new ConcurrentHashMap<>();
+    // 읽기에 보이는 마지막 시퀀스. 반영까지 마친 시퀀스(reservedSequence)는 WAL fsync 가 끝난 뒤에야 여기로 올라온다.
     private long commitSequence = 0L;
+    private long reservedSequence = 0L;
+    private long lastAppliedLsn = 0L;
+    private transient PageStore store;
+    // 커밋은 이 WAL 의 fsync 전에 반영되므로, 저장은 반영된 LSN 까지 이 WAL 을 먼저 동기화해야 한다
+    private transient Wal wal;
 
-    public long currentCommitSequence() {
+    // 커밋은 이 객체의 모니터 안에서 시퀀스를 받고 반영까지 마친 뒤 fsync 후에 publish 하므로, 읽기 쪽은 디스크에 내려간 커밋만 본다
+    public synchronized long currentCommitSequence() {
         return commitSequence;
     }
 
-    public long nextCommitSequence() {
-        return ++commitSequence;
+    // 바로 보이는 시퀀스를 받는다. 기다릴 fsync 가 없는 복구용.
+    public synchronized long nextCommitSequence() {
+        commitSequence = ++reservedSequence;
+        return commitSequence;
+    }
+
+    // 반영에 쓸 시퀀스만 받는다. 읽기에는 publish(ts) 뒤에 보인다.
+    public synchronized long reserveCommitSequence() {
+        return ++reservedSequence;
+    }
+
+    // ts 까지의 커밋을 보이게 한다. 시퀀스는 로그 순서대로 매기므로 ts 의 fsync 가 끝났으면 그 앞 커밋도 모두 디스크에 있다.
+    public synchronized void publish(long ts) {
+        commitSequence = Math.max(commitSequence, Math.min(ts, reservedSequence));
+    }
+
+    public synchronized void restoreCommitSequence(long commitSequence) {
+        this.commitSequence = commitSequence;
+        this.reservedSequence = commitSequence;
+    }
+
+    // 마지막으로 반영된 커밋의 WAL LSN. 저장 시 카탈로그에 체크포인트 LSN 으로 기록된다.
+    public synchronized long lastAppliedLsn() {
+        return lastAppliedLsn;
+    }
+
+    public synchronized void markApplied(long lsn) {
+        lastAppliedLsn = Math.max(lastAppliedLsn, lsn);
     }
 
     public void addTable(Table table) {
@@ -42,28 +77,40 @@ public class Database implements Serializable {
         return Collections.unmodifiableSet(tables.keySet());
     }
 
-    public void saveToFile(String path) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
-            oos.writeObject(this);
-            oos.flush();
-        }
+    public synchronized void attachWal(Wal wal) {
+        this.wal = wal;
+    }
+
+    // 로그 선행 기록: 반영만 되고 fsync 전인 커밋이 데이터 파일에 먼저 내려가지 않도록 WAL 부터 동기화한다. 카탈로그에 적은 LSN 을 돌려준다.
+    // 디스크 쓰기 동안 이 모니터를 잡지 않으므로 커밋과 동시에 진행된다.
+    public long saveToFile(String path) throws IOException {
+        Wal log = attachedWal();
+        return storeFor(path).flush(this, lsn -> {
+            if (log != null) log.sync(lsn);
+        });
     }
 
-    public static Database loadFromFile(String path) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(path)))) {
-            return (Database) ois.readObject();
+    public static Database loadFromFile(String path) throws IOException {
+        PageStore store = PageStore.open(path);
+        try {
+            Database database = new Database();
+            store.load(database);
+            database.store = store;
+            return database;
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
         }
     }
 
+    // 읽을 수 없는 파일이면 새 DB 로 덮지 않고 [ERROR] 로 멈춘다. 직렬화 형식 시절 파일은 페이지 형식으로 옮긴 뒤 연다.
     public static Database openOrCreate(String path, Consumer<Database> init) throws IOException {
         File file = new File(path);
         if (file.exists() && file.length() > 0) {
-            try {
-                return loadFromFile(path);
-            } catch (Exception e) {
-                File backup = new File(path + ".backup");
-                file.renameTo(backup);
+            if (SerializedSnapshot.matches(path)) {
+                convertSerialized(path);
             }
+            return loadFromFile(path);
         }
 
         Database database = new Database();
@@ -74,4 +121,45 @@ public class Database implements Serializable {
         database.saveToFile(path);
         return database;
     }
+
+    // 새 형식을 옆 파일에 다 쓴 뒤 원본을 백업으로 복사하고 바꿔 넣는다. 도중에 멈추면 원본이 그대로 남아 다음 실행 때 다시 옮긴다.
+    private static void convertSerialized(String path) throws IOException {
+        Path converted = Path.of(path + ".converting");
+        Files.deleteIfExists(converted);
+        try (Database database = new Database()) {
+            SerializedSnapshot.load(path, database);
+            database.saveToFile(converted.toString());
+        }
+        Files.copy(Path.of(path), backupPath(path));
+        Files.move(converted, Path.of(path), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path backupPath(String path) {
+        Path backup = Path.of(path + ".backup");
+        for (int i = 1; Files.exists(backup); i++) {
+            backup = Path.of(path + ".backup." + i);
+        }
+        return backup;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (store != null) {
+            store.close();
+            store = null;
+        }
+    }
+
+    private synchronized Wal attachedWal() {
+        return wal;
+    }
+
+    private synchronized PageStore storeFor(String path) throws IOException {
+        if (store == null) {
+            store = PageStore.open(path);
+        } else if (!store.path().equals(path)) {
+            throw new IllegalArgumentException("[ERROR] 열려 있는 데이터 파일과 경로가 다릅니다: " + path);
+        }
+        return store;
+    }
 }
@@ -0,0 +1,19 @@
+package model;
+
+// 보조 인덱스 검증 한 배치의 결과. resumeAfter 가 null 이면 끝까지 봤다.
+public class IndexCheckResult {
+
+    public final int visited;
+    public final int missing;
+    public final int stale;
+    public final int repaired;
+    public final String resumeAfter;
+
+    public IndexCheckResult(int visited, int missing, int stale, int repaired, String resumeAfter) {
+        this.visited = visited;
+        this.missing = missing;
+        this.stale = stale;
+        this.repaired = repaired;
+        this.resumeAfter = resumeAfter;
+    }
+}
@@ -0,0 +1,99 @@
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/*
+ * PK 값을 memcmp 로 비교할 수 있는 바이트열로 인코딩한다. 바이트 하나를 글자 하나(0x00..0xFF)로 담은 문자열이라
+ * JVM 이 Latin-1 byte[] 로 저장하고, String.compareTo 가 곧 부호 없는 바이트 비교다. 인덱스/외부 정렬/SSI 구간이 모두 이 순서를 따른다.
+ * INT, BIGINT, TIMESTAMP: 부호 비트를 뒤집은 big-endian. DOUBLE: 음수는 모든 비트를, 양수는 부호 비트만 뒤집는다. BOOLEAN: 0/1.
+ * VARCHAR: UTF-8 바이트(코드 포인트 순서)에서 0x00 을 0x00 0xFF 로 바꾸고 0x00 0x00 으로 끝낸다. 복합 키에서 앞 컬럼 값이 짧으면 먼저 온다.
+ * 컬럼마다 이어 붙이므로 앞쪽 컬럼 값만 인코딩한 것은 그 값들로 시작하는 모든 키의 접두사다.
+ */
+final class KeyEncoding {
+
+    private static final int MAX_FIXED_WIDTH = Long.BYTES;
+
+    private KeyEncoding() {
+    }
+
+    // 행의 고정 칸(at 부터 type.width() 바이트)을 키 바이트로 옮긴다
+    static void appendFixed(StringBuilder sb, ColumnType type, byte[] row, int at) {
+        int width = type.width();
+        int flip = switch (type) {
+            case INT, BIGINT, TIMESTAMP -> 0x80;
+            case DOUBLE -> ((row[at] & 0x80) != 0) ? 0xFF : 0x80;
+            default -> 0;
+        };
+        sb.append((char) ((row[at] ^ flip) & 0xFF));
+        int rest = (type == ColumnType.DOUBLE && flip == 0xFF) ? 0xFF : 0;
+        for (int i = 1; i < width; i++) {
+            sb.append((char) ((row[at + i] ^ rest) & 0xFF));
+        }
+    }
+
+    // VARCHAR 값의 UTF-8 바이트 [from, to)
+    static void appendText(StringBuilder sb, byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int b = bytes[i] & 0xFF;
+            sb.append((char) b);
+            if (b == 0) sb.append((char) 0xFF);
+        }
+        sb.append((char) 0).append((char) 0);
+    }
+
+    // 정규화된 문자열 값 하나
+    static void append(StringBuilder sb, ColumnType type, String value) {
+        if (type.isVariable()) {
+            byte[] bytes = ColumnType.encodeText(value);
+            appendText(sb, bytes, 0, bytes.length);
+            return;
+        }
+        byte[] slot = new byte[MAX_FIXED_WIDTH];
+        type.write(ByteBuffer.wrap(slot), 0, value);
+        appendFixed(sb, type, slot, 0);
+    }
+
+    // key 의 at 에서 컬럼 값 하나를 읽어 문자열로 out 에 붙이고 다음 위치를 돌려준다
+    static int decode(String key, int at, ColumnType type, StringBuilder out) {
+        if (type.isVariable()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            int i = at;
+            while (true) {
+                int b = key.charAt(i++);
+                if (b != 0) {
+                    bytes.write(b);
+                } else if (key.charAt(i++) == 0) {
+                    break;
+                } else {
+                    bytes.write(0);
+                }
+            }
+            byte[] text = bytes.toByteArray();
+            out.append(ColumnType.decodeText(text, 0, text.length));
+            return i;
+        }
+
+        int width = type.width();
+        byte[] slot = new byte[width];
+        int first = key.charAt(at);
+        int flip = switch (type) {
+            case INT, BIGINT, TIMESTAMP -> 0x80;
+            case DOUBLE -> ((first & 0x80) == 0) ? 0xFF : 0x80;
+            default -> 0;
+        };
+        int rest = (type == ColumnType.DOUBLE && flip == 0xFF) ? 0xFF : 0;
+        slot[0] = (byte) (first ^ flip);
+        for (int i = 1; i < width; i++) {
+            slot[i] = (byte) (key.charAt(at + i) ^ rest);
+        }
+        out.append(type.read(ByteBuffer.wrap(slot), 0));
+        return at + width;
+    }
+
+    // prefix 로 시작하는 모든 키보다 크고, 그렇지 않으면서 prefix 보다 큰 키 이하인 경계.
+    // 키의 글자는 0xFF 이하이므로 0x100 을 붙이면 된다. 비교에만 쓰는 값이라 Latin-1 이 아니어도 된다.
+    static String successor(String prefix) {
+        return prefix + '\u0100';
+    }
+}
@@ -16,7 +16,11 @@ public enum MenuAction {
     PK_RANGE(8, "PK 범위 조회"),
     BEGIN(9, "Tx Begin"),
     COMMIT(10, "Tx Commit"),
-    ROLLBACK(11, "Tx Rollback");
+    ROLLBACK(11, "Tx Rollback"),
+    CREATE_INDEX(12, "인덱스 생성(CREATE INDEX)"),
+    DROP_INDEX(13, "인덱스 삭제(DROP INDEX)"),
+    VERIFY_INDEX(14, "인덱스 검증"),
+    SQL(15, "SQL 실행");
 
     private final int code;
     private final String label;
@@ -61,6 +65,10 @@ public enum MenuAction {
     }
 
     public static int maxCode() {
-        return 8;
+        int max = 0;
+        for (MenuAction a : values()) {
+            max = Math.max(max, a.code);
+        }
+        return max;
     }
 }
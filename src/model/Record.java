@@ -1,29 +1,54 @@
 package model;
 
 import java.io.Serializable;
-import java.util.Collections;
 import java.util.Map;
 
+/*
+ * 입력으로 만든 레코드는 값 맵을, 테이블에서 읽은 레코드는 스키마와 행 바이트(row)를 가진다.
+ * 행 레코드의 get 은 그 컬럼만 풀어 읽고, values() 는 처음 부를 때 맵을 만든다.
+ */
 public class Record implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
     private Map<String, String> values;
+    private final Schema schema;
+    private final byte[] row;
 
+    // 이미 불변인 맵(다른 Record 의 values())은 Map.copyOf 가 그대로 돌려주므로 다시 복사하지 않는다
     public Record(Map<String, String> values) {
         this.values = Map.copyOf(values);
+        this.schema = null;
+        this.row = null;
+    }
+
+    Record(Schema schema, byte[] row) {
+        this.schema = schema;
+        this.row = row;
     }
 
     public String get(String column) {
-        return values.get(column);
+        if (row == null) {
+            return values.get(column);
+        }
+        int i = schema.indexOf(column);
+        return (i < 0) ? null : schema.text(row, i);
     }
 
     public Map<String, String> values() {
-        return Collections.unmodifiableMap(values);
+        if (values == null) {
+            values = schema.toMap(row);
+        }
+        return values;
+    }
+
+    // schema 의 행이면 그 바이트, 아니면 null
+    byte[] rowOf(Schema schema) {
+        return (this.schema == schema) ? row : null;
     }
 
     @Override
     public String toString() {
-        return values.toString();
+        return values().toString();
     }
 }
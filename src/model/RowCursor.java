@@ -0,0 +1,9 @@
+package model;
+
+// Table.cursorAt 의 당김(pull) 순회. next() 가 true 를 돌려준 뒤에만 row() 가 스냅샷에서 보이는 행 바이트다. 바꾸면 안 된다.
+public interface RowCursor {
+
+    boolean next();
+
+    byte[] row();
+}
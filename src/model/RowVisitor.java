@@ -0,0 +1,8 @@
+package model;
+
+// Table 순회 콜백. row 는 커밋된 행 바이트 위의 뷰라 바꿀 수 없고, false 를 돌려주면 순회를 멈춘다.
+@FunctionalInterface
+public interface RowVisitor {
+
+    boolean visit(Record row);
+}
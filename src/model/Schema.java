@@ -0,0 +1,300 @@
+package model;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * 테이블의 컬럼 정의와 행의 바이너리 형식.
+ * 행 = [NULL 비트맵 ceil(n/8) 바이트][고정 영역: 컬럼마다 타입 width 바이트][가변 영역: VARCHAR 값의 UTF-8 을 컬럼 순서대로 이어 붙임]
+ * VARCHAR 의 고정 칸에는 가변 영역 안에서 그 값이 끝나는 위치를 두고, 시작 위치는 앞 VARCHAR 의 끝(없으면 0)이다.
+ * NULL 인 고정 칸은 0 으로, VARCHAR 칸은 앞 값의 끝으로 둔다. 만든 행 배열은 바꾸지 않으므로 여러 Record 가 그대로 나눠 본다.
+ * PK 는 컬럼 하나 또는 여러 개이고, 주 인덱스 키는 PK 컬럼 값들을 KeyEncoding 으로 이어 붙인 문자열이다.
+ * 사용자가 입력하는 복합 PK 는 PK 컬럼 순서대로 쉼표로 구분한다 (예: 3,42).
+ */
+public class Schema implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    // ByteBuffer 기본 순서(big endian)로 쓴 고정 칸을 버퍼 없이 읽는다
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle DOUBLES = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+    private final List<Column> columns;
+    private final List<String> names;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final int[] primaryKeyIndexes;
+    private final List<String> primaryKeyColumns;
+    private final int[] offsets;
+    // 앞쪽에서 가장 가까운 VARCHAR 컬럼 번호, 없으면 -1
+    private final int[] previousVariable;
+    private final int fixedEnd;
+
+    public Schema(List<Column> columns, String primaryKeyColumn) {
+        this(columns, List.of(primaryKeyColumn));
+    }
+
+    // PK 컬럼은 NULL 을 허용하지 않는다
+    public Schema(List<Column> columns, List<String> primaryKeyColumns) {
+        if (columns == null || columns.isEmpty()) {
+            throw new IllegalArgumentException("[ERROR] 컬럼이 없습니다.");
+        }
+        if (primaryKeyColumns.isEmpty() || new HashSet<>(primaryKeyColumns).size() != primaryKeyColumns.size()) {
+            throw new IllegalArgumentException("[ERROR] PK 컬럼이 없거나 중복되었습니다.");
+        }
+        List<Column> defs = new ArrayList<>(columns.size());
+        List<String> columnNames = new ArrayList<>(columns.size());
+        for (Column c : columns) {
+            if (positions.put(c.getName(), defs.size()) != null) {
+                throw new IllegalArgumentException("[ERROR] 컬럼 이름이 중복되었습니다: " + c.getName());
+            }
+            defs.add(primaryKeyColumns.contains(c.getName()) ? Column.notNull(c.getName(), c.getType()) : c);
+            columnNames.add(c.getName());
+        }
+        primaryKeyIndexes = new int[primaryKeyColumns.size()];
+        for (int k = 0; k < primaryKeyIndexes.length; k++) {
+            Integer pk = positions.get(primaryKeyColumns.get(k));
+            if (pk == null) {
+                throw new IllegalArgumentException("[ERROR] PK는 반드시 컬럼에 존재해야 합니다.");
+            }
+            primaryKeyIndexes[k] = pk;
+        }
+        this.columns = List.copyOf(defs);
+        this.names = List.copyOf(columnNames);
+        this.primaryKeyColumns = List.copyOf(primaryKeyColumns);
+
+        int n = defs.size();
+        offsets = new int[n];
+        previousVariable = new int[n];
+        int at = (n + 7) / 8;
+        int lastVariable = -1;
+        for (int i = 0; i < n; i++) {
+            ColumnType type = defs.get(i).getType();
+            offsets[i] = at;
+            at += type.width();
+            previousVariable[i] = lastVariable;
+            if (type.isVariable()) lastVariable = i;
+        }
+        fixedEnd = at;
+    }
+
+    // 타입 정보가 없던 테이블. 모든 컬럼을 NULL 허용 VARCHAR 로 본다.
+    public static Schema untyped(List<String> columnNames, String primaryKeyColumn) {
+        List<Column> defs = new ArrayList<>(columnNames.size());
+        for (String name : columnNames) {
+            defs.add(Column.of(name, ColumnType.VARCHAR));
+        }
+        return new Schema(defs, primaryKeyColumn);
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    public List<String> names() {
+        return names;
+    }
+
+    public List<String> primaryKeyColumns() {
+        return primaryKeyColumns;
+    }
+
+    // 없는 컬럼이면 -1
+    public int indexOf(String column) {
+        Integer i = positions.get(column);
+        return (i == null) ? -1 : i;
+    }
+
+    public Column column(String name) {
+        int i = indexOf(name);
+        if (i < 0) {
+            throw new IllegalArgumentException("[ERROR] 존재하지 않는 컬럼입니다: " + name);
+        }
+        return columns.get(i);
+    }
+
+    // 컬럼 타입에 맞게 정규화한 값. 타입에 맞지 않으면 예외.
+    public String normalize(String column, String value) {
+        return (value == null) ? null : column(column).getType().normalize(value);
+    }
+
+    public Record view(byte[] row) {
+        return new Record(this, row);
+    }
+
+    // 이 스키마로 읽은 레코드면 행 배열을 그대로, 아니면 값을 검사해 새로 만든다
+    public byte[] encode(Record record) {
+        byte[] own = record.rowOf(this);
+        if (own != null) {
+            return own;
+        }
+        Map<String, String> values = record.values();
+        for (String column : values.keySet()) {
+            if (!positions.containsKey(column)) {
+                throw new IllegalArgumentException("[ERROR] 존재하지 않는 컬럼입니다: " + column);
+            }
+        }
+
+        int n = columns.size();
+        byte[][] texts = new byte[n][];
+        int variableLength = 0;
+        for (int i = 0; i < n; i++) {
+            Column c = columns.get(i);
+            String v = values.get(c.getName());
+            if (v == null) {
+                if (!c.isNullable()) {
+                    throw new IllegalArgumentException("[ERROR] NULL 을 허용하지 않는 컬럼입니다: " + c.getName());
+                }
+            } else if (c.getType().isVariable()) {
+                texts[i] = ColumnType.encodeText(v);
+                variableLength += texts[i].length;
+            }
+        }
+
+        byte[] row = new byte[fixedEnd + variableLength];
+        ByteBuffer buf = ByteBuffer.wrap(row);
+        int variableAt = 0;
+        for (int i = 0; i < n; i++) {
+            Column c = columns.get(i);
+            String v = values.get(c.getName());
+            if (v == null) {
+                row[i >>> 3] |= (byte) (1 << (i & 7));
+            } else if (texts[i] != null) {
+                System.arraycopy(texts[i], 0, row, fixedEnd + variableAt, texts[i].length);
+                variableAt += texts[i].length;
+            } else {
+                c.getType().write(buf, offsets[i], v);
+            }
+            if (c.getType().isVariable()) buf.putInt(offsets[i], variableAt);
+        }
+        return row;
+    }
+
+    String text(byte[] row, int i) {
+        if ((row[i >>> 3] & (1 << (i & 7))) != 0) {
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.wrap(row);
+        ColumnType type = columns.get(i).getType();
+        if (!type.isVariable()) {
+            return type.read(buf, offsets[i]);
+        }
+        int prev = previousVariable[i];
+        int from = (prev < 0) ? 0 : buf.getInt(offsets[prev]);
+        return ColumnType.decodeText(row, fixedEnd + from, fixedEnd + buf.getInt(offsets[i]));
+    }
+
+    // 아래 넷은 배치 실행기가 문자열을 만들지 않고 값을 읽을 때 쓴다. i 는 indexOf 의 컬럼 번호.
+    public boolean isNull(byte[] row, int i) {
+        return (row[i >>> 3] & (1 << (i & 7))) != 0;
+    }
+
+    // INT, BIGINT, TIMESTAMP 는 그 값, BOOLEAN 은 0/1. NULL 칸은 0.
+    public long longAt(byte[] row, int i) {
+        int at = offsets[i];
+        return switch (columns.get(i).getType()) {
+            case INT -> (int) INTS.get(row, at);
+            case BIGINT, TIMESTAMP -> (long) LONGS.get(row, at);
+            case BOOLEAN -> row[at];
+            default -> throw new IllegalArgumentException("[ERROR] 정수로 읽을 수 없는 컬럼입니다: " + names.get(i));
+        };
+    }
+
+    public double doubleAt(byte[] row, int i) {
+        if (columns.get(i).getType() != ColumnType.DOUBLE) {
+            throw new IllegalArgumentException("[ERROR] DOUBLE 컬럼이 아닙니다: " + names.get(i));
+        }
+        return (double) DOUBLES.get(row, offsets[i]);
+    }
+
+    public String textAt(byte[] row, int i) {
+        return text(row, i);
+    }
+
+    // 행의 PK 컬럼 바이트를 문자열로 풀지 않고 바로 키 바이트로 옮긴다
+    public String keyOf(byte[] row) {
+        StringBuilder sb = new StringBuilder();
+        for (int i : primaryKeyIndexes) {
+            ColumnType type = columns.get(i).getType();
+            if (!type.isVariable()) {
+                KeyEncoding.appendFixed(sb, type, row, offsets[i]);
+                continue;
+            }
+            ByteBuffer buf = ByteBuffer.wrap(row);
+            int prev = previousVariable[i];
+            int from = (prev < 0) ? 0 : buf.getInt(offsets[prev]);
+            KeyEncoding.appendText(sb, row, fixedEnd + from, fixedEnd + buf.getInt(offsets[i]));
+        }
+        return sb.toString();
+    }
+
+    // 입력한 PK 문자열의 키. 복합 PK 는 모든 PK 컬럼 값이 있어야 한다.
+    public String keyOf(String text) {
+        List<String> parts = keyParts(text);
+        if (parts.size() != primaryKeyIndexes.length) {
+            throw new IllegalArgumentException("[ERROR] PK 값 개수가 맞지 않습니다: " + text);
+        }
+        return keyPrefix(parts);
+    }
+
+    // 앞쪽 PK 컬럼 값들만으로 만든 키 접두사. 모든 값을 주면 키 그 자체다.
+    public String keyPrefix(List<String> values) {
+        if (values.isEmpty() || values.size() > primaryKeyIndexes.length) {
+            throw new IllegalArgumentException("[ERROR] PK 값 개수가 맞지 않습니다: " + values);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < values.size(); k++) {
+            Column c = columns.get(primaryKeyIndexes[k]);
+            KeyEncoding.append(sb, c.getType(), c.getType().normalize(values.get(k)));
+        }
+        return sb.toString();
+    }
+
+    // 단일 PK 는 입력 그대로(쉼표도 값의 일부), 복합 PK 는 쉼표로 나눈다
+    public List<String> keyParts(String text) {
+        if (primaryKeyIndexes.length == 1) {
+            return List.of(text);
+        }
+        List<String> parts = new ArrayList<>();
+        for (String part : text.split(",", -1)) {
+            parts.add(part.trim());
+        }
+        return parts;
+    }
+
+    public boolean isFullKey(int parts) {
+        return parts == primaryKeyIndexes.length;
+    }
+
+    // 키를 사용자에게 보여 줄 PK 문자열로 되돌린다
+    public String keyText(String key) {
+        StringBuilder sb = new StringBuilder();
+        int at = 0;
+        for (int k = 0; k < primaryKeyIndexes.length && at < key.length(); k++) {
+            if (k > 0) sb.append(',');
+            at = KeyEncoding.decode(key, at, columns.get(primaryKeyIndexes[k]).getType(), sb);
+        }
+        return sb.toString();
+    }
+
+    Map<String, String> toMap(byte[] row) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            String v = text(row, i);
+            if (v != null) values.put(names.get(i), v);
+        }
+        return Map.copyOf(values);
+    }
+
+    @Override
+    public String toString() {
+        return columns.toString();
+    }
+}
@@ -0,0 +1,239 @@
+package model;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import model.index.IndexCursor;
+import model.index.OrderedIndex;
+import model.index.PackedBPlusTree;
+
+/*
+ * 컬럼 하나 또는 여러 개의 값 -> PK 집합. 컬럼 값들을 순서를 지키는 문자열 하나로 이어 붙여 키로 쓴다.
+ * 값마다 끝에 \u0000 을 붙이고 값 안의 \u0000, \u0001 은 \u0001 로 시작하는 두 글자로 바꾸므로
+ * 키 순서가 (첫 컬럼, 둘째 컬럼, ...) 사전순과 같고, 앞쪽 컬럼 값만으로도 구간 조회할 수 있다.
+ * 살아 있는 버전뿐 아니라 vacuum 이 아직 회수하지 않은 지난 버전의 값도 담아, 오래된 스냅샷도 그때 값으로 행을 찾는다.
+ * 그래서 한 PK 가 여러 키 아래에 있을 수 있고, 조회하는 쪽이 스냅샷 값으로 조건을 다시 확인한다.
+ * 인덱스 컬럼 값이 하나라도 없는 행은 담지 않는다. Table 의 잠금 아래에서만 쓴다.
+ */
+public class SecondaryIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final double LOAD_FILL_FACTOR = 0.9;
+
+    private final String name;
+    private final List<String> columns;
+    private final OrderedIndex<String, Set<String>> tree = PackedBPlusTree.forStrings();
+    // 생성 중일 때만 있다. PK 순으로 훑은 구간(builtUpTo 이하)의 행만 담고, 다 훑으면 tree 로 bulk load 한다.
+    private TreeMap<String, Set<String>> staging;
+    private String builtUpTo;
+    // 지우려던 (키, PK) 가 인덱스에 없던 횟수. 0 이 아니면 인덱스가 이미 어긋나 있었다는 뜻이다.
+    private long maintenanceMisses;
+
+    SecondaryIndex(String name, List<String> columns) {
+        validateName(name);
+        validateColumns(columns);
+        this.name = name;
+        this.columns = List.copyOf(columns);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public boolean isReady() {
+        return staging == null;
+    }
+
+    // 서로 다른 인덱스 키 수
+    public int keyCount() {
+        return tree.size();
+    }
+
+    public long maintenanceMisses() {
+        return maintenanceMisses;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + String.join(", ", columns) + ")";
+    }
+
+    void beginBuild() {
+        staging = new TreeMap<>();
+        builtUpTo = null;
+    }
+
+    void buildRow(String pk, Record row) {
+        String key = keyOf(row);
+        if (key != null) addTo(staging, key, pk);
+    }
+
+    void advanceBuild(String pk) {
+        builtUpTo = pk;
+    }
+
+    void finishBuild() {
+        tree.bulkLoad(staging.entrySet().iterator(), LOAD_FILL_FACTOR);
+        staging = null;
+        builtUpTo = null;
+    }
+
+    void add(String pk, Record row) {
+        String key = keyOf(row);
+        if (key == null) {
+            return;
+        }
+        if (staging == null) {
+            addEntry(key, pk);
+        } else if (covered(pk)) {
+            addTo(staging, key, pk);
+        }
+    }
+
+    void remove(String pk, Record row) {
+        String key = keyOf(row);
+        if (key == null) {
+            return;
+        }
+        if (staging == null) {
+            if (!removeEntry(key, pk)) maintenanceMisses++;
+        } else if (covered(pk)) {
+            Set<String> set = staging.get(key);
+            if (set != null) {
+                set.remove(pk);
+                if (set.isEmpty()) staging.remove(key);
+            }
+        }
+    }
+
+    // 이전 값의 항목은 남겨 둔다. 그 버전을 vacuum 이 잘라낼 때 remove 로 지운다.
+    void update(String pk, Record before, Record after) {
+        if (Objects.equals(keyOf(before), keyOf(after))) {
+            return;
+        }
+        add(pk, after);
+    }
+
+    // 조건 컬럼 집합으로 덮이는 앞쪽 인덱스 컬럼 수. 생성 중이면 쓸 수 없으므로 0.
+    int matchingPrefix(Set<String> predicateColumns) {
+        if (!isReady()) {
+            return 0;
+        }
+        int n = 0;
+        while (n < columns.size() && predicateColumns.contains(columns.get(n))) n++;
+        return n;
+    }
+
+    // 앞쪽 컬럼 값들이 leading 과 같은 행의 PK. 모든 컬럼 값이 주어지면 한 키만 찾는다.
+    void forEachPk(List<String> leading, Consumer<String> sink) {
+        StringBuilder sb = new StringBuilder();
+        for (String v : leading) appendEncoded(sb, v);
+        String prefix = sb.toString();
+
+        if (leading.size() == columns.size()) {
+            Set<String> set = tree.get(prefix);
+            if (set != null) set.forEach(sink);
+            return;
+        }
+
+        // prefix 는 \u0000 으로 끝나므로 마지막 글자를 \u0001 로 바꾼 값이 prefix 로 시작하는 모든 키의 바로 위 경계다
+        String upper = prefix.substring(0, prefix.length() - 1) + '\u0001';
+        IndexCursor<String, Set<String>> cursor = tree.cursor(prefix, true, upper, false);
+        while (cursor.next()) {
+            cursor.value().forEach(sink);
+        }
+    }
+
+    // 행 값에 해당하는 인덱스 키. 인덱스 컬럼 값이 하나라도 없으면 null.
+    String keyOf(Record row) {
+        if (row == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String column : columns) {
+            String v = row.get(column);
+            if (v == null) return null;
+            appendEncoded(sb, v);
+        }
+        return sb.toString();
+    }
+
+    boolean containsEntry(String key, String pk) {
+        Set<String> set = tree.get(key);
+        return set != null && set.contains(pk);
+    }
+
+    void addEntry(String key, String pk) {
+        Set<String> set = tree.get(key);
+        if (set == null) {
+            set = new LinkedHashSet<>();
+            tree.put(key, set);
+        }
+        set.add(pk);
+    }
+
+    boolean removeEntry(String key, String pk) {
+        Set<String> set = tree.get(key);
+        if (set == null || !set.remove(pk)) {
+            return false;
+        }
+        if (set.isEmpty()) tree.remove(key);
+        return true;
+    }
+
+    // 인덱스 키 afterKey 다음부터 (null 이면 처음부터)
+    IndexCursor<String, Set<String>> cursorAfter(String afterKey) {
+        return tree.cursor(afterKey, false, null, true);
+    }
+
+    void compact() {
+        if (isReady()) tree.compact();
+    }
+
+    private boolean covered(String pk) {
+        return builtUpTo != null && pk.compareTo(builtUpTo) <= 0;
+    }
+
+    private static void appendEncoded(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\u0000') {
+                sb.append('\u0001').append('\u0001');
+            } else if (c == '\u0001') {
+                sb.append('\u0001').append('\u0002');
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('\u0000');
+    }
+
+    private static void addTo(Map<String, Set<String>> map, String key, String pk) {
+        map.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(pk);
+    }
+
+    private static void validateName(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("[ERROR] 인덱스 이름이 비어 있습니다.");
+        }
+    }
+
+    private static void validateColumns(List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            throw new IllegalArgumentException("[ERROR] 인덱스 컬럼이 없습니다.");
+        }
+        if (new HashSet<>(columns).size() != columns.size()) {
+            throw new IllegalArgumentException("[ERROR] 인덱스 컬럼이 중복되었습니다.");
+        }
+    }
+}
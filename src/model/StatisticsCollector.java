@@ -0,0 +1,104 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * 스냅샷 하나를 PK 순으로 한 번 훑어 행 수를 세고, reservoir 표본(최대 SAMPLE_ROWS 행)으로 컬럼 분포를 만든다.
+ * distinct 는 표본에서 한 번만 나온 값의 수(f1)로 전체를 추정한다(Haas-Stokes Duj1: n*d / (n - f1 + f1*n/N)).
+ * 표본에서 평균보다 자주 나온 값은 최대 COMMON_VALUES 개까지 빈도를 따로 적어 치우친 분포의 = 조건도 맞게 어림한다.
+ */
+final class StatisticsCollector {
+
+    static final int SAMPLE_ROWS = 30_000;
+    static final int BUCKETS = 32;
+    static final int COMMON_VALUES = 16;
+
+    private StatisticsCollector() {
+    }
+
+    static TableStatistics collect(Table table, long snapTs) {
+        Schema schema = table.getSchema();
+        Record[] sample = new Record[SAMPLE_ROWS];
+        long[] rows = {0};
+        Random random = new Random(snapTs);
+        table.scanAt(snapTs, r -> {
+            long seen = rows[0]++;
+            if (seen < SAMPLE_ROWS) {
+                sample[(int) seen] = r;
+            } else {
+                long j = (long) (random.nextDouble() * (seen + 1));
+                if (j < SAMPLE_ROWS) sample[(int) j] = r;
+            }
+            return true;
+        });
+
+        int n = (int) Math.min(rows[0], SAMPLE_ROWS);
+        Map<String, ColumnStatistics> columns = new HashMap<>();
+        for (Column c : schema.getColumns()) {
+            columns.put(c.getName(), column(c, sample, n, rows[0]));
+        }
+        return new TableStatistics(rows[0], n, snapTs, columns, schema.names());
+    }
+
+    private static ColumnStatistics column(Column c, Record[] sample, int n, long total) {
+        ColumnType type = c.getType();
+        List<String> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String v = sample[i].get(c.getName());
+            if (v != null) values.add(v);
+        }
+        double nullFraction = (n == 0) ? 0 : (double) (n - values.size()) / n;
+        int m = values.size();
+        if (m == 0) {
+            return new ColumnStatistics(type, nullFraction, 0, new String[0], new String[0], new double[0]);
+        }
+        values.sort(type::compare);
+
+        long d = 0;
+        long f1 = 0;
+        List<int[]> runs = new ArrayList<>();
+        for (int i = 0; i < m; ) {
+            int j = i + 1;
+            while (j < m && type.compare(values.get(i), values.get(j)) == 0) j++;
+            d++;
+            if (j - i == 1) f1++;
+            runs.add(new int[]{i, j - i});
+            i = j;
+        }
+        long distinct = d;
+        double nonNull = total * (1 - nullFraction);
+        if (n < total && m > f1) {
+            double estimate = m * (double) d / (m - f1 + f1 * m / nonNull);
+            distinct = Math.max(d, Math.min((long) nonNull, Math.round(estimate)));
+        } else if (n < total) {
+            // 표본의 값이 모두 한 번씩이면 전부 다른 값으로 본다
+            distinct = Math.max(d, (long) nonNull);
+        }
+
+        int buckets = Math.min(BUCKETS, m - 1);
+        String[] bounds = new String[buckets + 1];
+        for (int i = 0; i <= buckets; i++) {
+            bounds[i] = values.get((buckets == 0) ? 0 : (int) ((long) i * (m - 1) / buckets));
+        }
+
+        // (시작 위치, 개수) 를 개수 내림차순으로. 두 번 이상, 그리고 평균보다 많이 나온 값만 남긴다.
+        runs.sort((x, y) -> Integer.compare(y[1], x[1]));
+        double average = (double) m / d;
+        int common = 0;
+        while (common < Math.min(COMMON_VALUES, runs.size())
+                && runs.get(common)[1] > 1 && runs.get(common)[1] > average) {
+            common++;
+        }
+        String[] commonValues = new String[common];
+        double[] commonFractions = new double[common];
+        for (int i = 0; i < common; i++) {
+            commonValues[i] = values.get(runs.get(i)[0]);
+            commonFractions[i] = (double) runs.get(i)[1] / n;
+        }
+        return new ColumnStatistics(type, nullFraction, distinct, bounds, commonValues, commonFractions);
+    }
+}
@@ -2,29 +2,60 @@ package model;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import model.index.BPlusTree;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import model.index.ConcurrentBPlusTree;
+import model.index.IndexCursor;
 import model.index.OrderedIndex;
 
 public class Table implements Serializable {
 
     private static final long serialVersionUID = 1L;
+    private static final int COMPACT_MIN_REMOVED = 1024;
+    // 적재 뒤에도 삽입이 이어지므로 리프에 여유를 남겨 곧바로 분할이 몰리지 않게 한다
+    private static final double LOAD_FILL_FACTOR = 0.9;
+    // 온라인 인덱스 생성이 쓰기 잠금을 한 번에 잡고 훑는 PK 수
+    private static final int INDEX_BUILD_BATCH = 1024;
+    // 마지막 ANALYZE 뒤 이만큼(최소 행 수 + 그때 행 수의 비율) 바뀌면 통계가 낡았다고 본다
+    private static final long STALE_MIN_CHANGES = 500;
+    private static final double STALE_FRACTION = 0.1;
 
     private final String name;
-    private final List<String> columns;
-    private final String primaryKeyColumn;
-    private final OrderedIndex<String, VersionChain> index = new BPlusTree<>();
-    private final OrderedIndex<String, Set<String>> idxName = new BPlusTree<>();
-
+    private final Schema schema;
+    // 키는 PK 컬럼 값을 KeyEncoding 으로 인코딩한 문자열이라 숫자/복합 PK 도 값 순서대로 놓인다. key 를 받는 메서드는 모두 keyOf 로 만든 키를 받는다.
+    private final OrderedIndex<String, VersionChain> index = new ConcurrentBPlusTree<>();
+    private final Map<String, SecondaryIndex> secondaryIndexes = new LinkedHashMap<>();
+    private final Set<String> dirtyKeys = new LinkedHashSet<>();
+    // 지난 버전이 생긴 키. vacuum 이 여기서만 회수 대상을 찾는다.
+    private final Set<String> vacuumKeys = new LinkedHashSet<>();
+    private int removedSinceCompact;
+    // 살아 있는 행 수와 마지막 ANALYZE 뒤로 바뀐 행 수. 커밋 반영과 ANALYZE 의 쓰기 잠금 안에서만 바꾼다.
+    private volatile long liveRows;
+    private volatile long modifiedSinceAnalyze;
+    private volatile TableStatistics statistics;
+    // 인덱스 목록이나 통계가 바뀔 때마다 쓰기 잠금 안에서 올린다. 캐시된 실행 계획이 아직 유효한지 이것으로 본다.
+    private volatile int planVersion;
+    // 주 인덱스와 VersionChain 은 스스로 동기화하므로 PK 조회/범위 조회는 잠금 없이 읽는다.
+    // 커밋 반영과 vacuum 은 쓰기 잠금으로 서로 직렬화하고, 보조 인덱스를 읽는 조회와 인덱스 목록 조회만 읽기 잠금을 잡는다.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 타입 없이 만든 테이블은 모든 컬럼을 VARCHAR 로 본다
     public Table(String name, List<String> columns, String primaryKeyColumn) {
-        validatePkInColumn(columns, primaryKeyColumn);
+        this(name, Schema.untyped(columns, primaryKeyColumn));
+    }
+
+    public Table(String name, Schema schema) {
         this.name = name;
-        this.columns = columns;
-        this.primaryKeyColumn = primaryKeyColumn;
+        this.schema = schema;
     }
 
     public String getName() {
@@ -32,11 +63,56 @@ public class Table implements Serializable {
     }
 
     public List<String> getColumns() {
-        return Collections.unmodifiableList(columns);
+        return schema.names();
+    }
+
+    public List<String> getPrimaryKeyColumns() {
+        return schema.primaryKeyColumns();
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    // 입력한 PK 문자열("024", 복합 PK 는 "3,42")의 주 인덱스 키. 타입에 맞지 않거나 값 개수가 다르면 예외.
+    public String keyOf(String text) {
+        return schema.keyOf(text);
     }
 
-    public String getPrimaryKeyColumn() {
-        return primaryKeyColumn;
+    public String keyOf(Record record) {
+        return schema.keyOf(schema.encode(record));
+    }
+
+    // PK 구간 경계. 복합 PK 의 앞쪽 컬럼 값만 주면 그 값들로 시작하는 키 전체가 구간 안(inclusive) 또는 밖(!inclusive)에 들도록 넓힌다.
+    // 접두사 자체는 어떤 키와도 같지 않으므로 접두사를 쓸지 그 다음 경계를 쓸지로 inclusive 를 나타낸다.
+    public String keyBound(String text, boolean lower, boolean inclusive) {
+        List<String> parts = schema.keyParts(text);
+        String prefix = schema.keyPrefix(parts);
+        if (schema.isFullKey(parts.size()) || lower == inclusive) {
+            return prefix;
+        }
+        return KeyEncoding.successor(prefix);
+    }
+
+    public String keyText(String key) {
+        return schema.keyText(key);
+    }
+
+    // 컬럼 타입에 맞게 다듬은 값. 없는 컬럼이거나 타입에 맞지 않는 값이면 어떤 행과도 같을 수 없으므로 null.
+    public String normalizeValue(String column, String value) {
+        if (schema.indexOf(column) < 0) {
+            return null;
+        }
+        try {
+            return schema.normalize(column, value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // 입력 레코드를 이 테이블의 행 형식으로 검사/변환한 레코드. 값은 타입에 맞게 다듬어진다.
+    public Record normalize(Record record) {
+        return schema.view(schema.encode(record));
     }
 
     public Record selectByIdAt(String key, long snapTs) {
@@ -45,153 +121,584 @@ public class Table implements Serializable {
             return null;
         }
 
-        Version version = chain.visibleAt(snapTs);
-        if (version == null) {
+        byte[] row = chain.rowAt(snapTs);
+        if (row == null) {
             return null;
         }
 
-        return new Record(version.values);
+        return schema.view(row);
     }
 
-    public List<Record> selectAllAt(long snapTs) {
-        var out = new java.util.ArrayList<Record>();
-        for (var e : index.entries()) {
-            var v = e.getValue().visibleAt(snapTs);
-            if (v != null) out.add(new Record(v.values));
+    public Record selectLatest(String key) {
+        VersionChain chain = index.get(key);
+        if (chain == null || !chain.alive()) {
+            return null;
         }
+
+        return schema.view(chain.latestRow());
+    }
+
+    public long lastCommitTs(String key) {
+        VersionChain chain = index.get(key);
+        return (chain == null) ? 0L : chain.lastCommitTs();
+    }
+
+    // 저장 형식이 바뀌어 살아 있는 모든 행을 다시 써야 할 때
+    public void markAllDirty() {
+        lock.writeLock().lock();
+        try {
+            IndexCursor<String, VersionChain> cursor = index.cursor();
+            while (cursor.next()) {
+                if (cursor.value().alive()) dirtyKeys.add(cursor.key());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Set<String> drainDirtyKeys() {
+        lock.writeLock().lock();
+        try {
+            Set<String> out = new LinkedHashSet<>(dirtyKeys);
+            dirtyKeys.clear();
+            return out;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Record> selectAllAt(long snapTs) {
+        List<Record> out = new ArrayList<>();
+        scanAt(snapTs, out::add);
         return out;
     }
 
     public List<Record> findAllByPkBetweenAt(String from, boolean fromInc, String to, boolean toInc, long snapTs) {
-        ArrayList<Record> out = new ArrayList<>();
-        for (var e : index.range(from, fromInc, to, toInc)) {
-            Version v = e.getValue().visibleAt(snapTs);
-            if (v != null) out.add(new Record(v.values));
-        }
+        List<Record> out = new ArrayList<>();
+        scanPkBetweenAt(from, fromInc, to, toInc, snapTs, out::add);
         return out;
     }
 
+    // 스냅샷에서 보이는 행을 PK 순으로 넘긴다. 행 바이트를 복사하지 않고 그 위의 뷰만 만든다.
+    public void scanAt(long snapTs, RowVisitor visitor) {
+        scanPkBetweenAt(null, true, null, true, snapTs, visitor);
+    }
+
+    // null 경계는 열린 끝이다
+    public void scanPkBetweenAt(String from, boolean fromInc, String to, boolean toInc, long snapTs, RowVisitor visitor) {
+        IndexCursor<String, VersionChain> cursor = index.cursor(from, fromInc, to, toInc);
+        while (cursor.next()) {
+            byte[] row = cursor.value().rowAt(snapTs);
+            if (row != null && !visitor.visit(schema.view(row))) return;
+        }
+    }
+
+    // scanPkBetweenAt 과 같은 순서/일관성으로, 부르는 쪽이 원할 때마다 한 행씩 당겨 읽는다 (배치 실행기용)
+    public RowCursor cursorAt(String from, boolean fromInc, String to, boolean toInc, long snapTs) {
+        IndexCursor<String, VersionChain> cursor = index.cursor(from, fromInc, to, toInc);
+        return new RowCursor() {
+            private byte[] row;
+
+            @Override
+            public boolean next() {
+                while (cursor.next()) {
+                    row = cursor.value().rowAt(snapTs);
+                    if (row != null) return true;
+                }
+                row = null;
+                return false;
+            }
+
+            @Override
+            public byte[] row() {
+                return row;
+            }
+        };
+    }
+
     public void insertCommitted(Record record, long ts) {
-        String key = requirePk(record);
-        VersionChain ch = index.get(key);
-        if (ch == null) {
-            ch = new VersionChain();
-            index.put(key, ch);
+        lock.writeLock().lock();
+        try {
+            byte[] row = schema.encode(record);
+            String key = schema.keyOf(row);
+            VersionChain ch = index.get(key);
+            if (ch == null) {
+                ch = new VersionChain();
+                index.put(key, ch);
+            }
+            if (ch.alive()) throw new IllegalArgumentException("[ERROR] PK 중복");
+            if (ch.hasObsolete()) vacuumKeys.add(key);
+            ch.commitInsert(row, ts);
+            Record view = schema.view(row);
+            for (SecondaryIndex idx : secondaryIndexes.values()) {
+                idx.add(key, view);
+            }
+            dirtyKeys.add(key);
+            liveRows++;
+            modifiedSinceAnalyze++;
+        } finally {
+            lock.writeLock().unlock();
         }
-        if (ch.alive()) throw new IllegalArgumentException("[ERROR] PK 중복");
-        ch.commitInsert(record.values(), ts);
-        secAddName(record.get("name"), key);
     }
 
-    public void updateCommitted(String key, Record newRecord, long ts) {
-        validatePkNotChanged(key, newRecord);
-        VersionChain ch = index.get(key);
-        if (ch == null || !ch.alive()) throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
+    // 비어 있는 테이블을 PK 오름차순 행으로 한 번에 채운다. 주 인덱스는 행을 읽는 대로 쌓고, 보조 인덱스는 모아서 쌓는다.
+    public void loadSorted(Iterator<Record> rows, long ts) {
+        lock.writeLock().lock();
+        try {
+            if (!index.isEmpty()) {
+                throw new IllegalStateException("[ERROR] 비어 있는 테이블에만 일괄 적재할 수 있습니다.");
+            }
 
-        Version old = ch.latest();
-        String oldName = old.values.get("name");
+            for (SecondaryIndex idx : secondaryIndexes.values()) {
+                idx.beginBuild();
+            }
+            index.bulkLoad(new Iterator<>() {
+                String last;
 
-        ch.commitUpdate(newRecord.values(), ts);
+                @Override
+                public boolean hasNext() {
+                    return rows.hasNext();
+                }
 
-        String newName = newRecord.get("name");
-        if (Objects.equals(oldName, newName)) {
-            secRemoveName(oldName, key);
-            secAddName(newName, key);
+                @Override
+                public Map.Entry<String, VersionChain> next() {
+                    byte[] row = schema.encode(rows.next());
+                    String key = schema.keyOf(row);
+                    if (key.equals(last)) throw new IllegalArgumentException("[ERROR] PK 중복");
+                    last = key;
+
+                    VersionChain ch = new VersionChain();
+                    ch.commitInsert(row, ts);
+                    liveRows++;
+                    Record view = schema.view(row);
+                    for (SecondaryIndex idx : secondaryIndexes.values()) {
+                        idx.buildRow(key, view);
+                    }
+                    return Map.entry(key, ch);
+                }
+            }, LOAD_FILL_FACTOR);
+            for (SecondaryIndex idx : secondaryIndexes.values()) {
+                idx.finishBuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateCommitted(String key, Record newRecord, long ts) {
+        lock.writeLock().lock();
+        try {
+            byte[] row = schema.encode(newRecord);
+            validatePkNotChanged(key, schema.keyOf(row));
+            VersionChain ch = index.get(key);
+            if (ch == null || !ch.alive()) throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
+
+            Record old = schema.view(ch.latestRow());
+
+            ch.commitUpdate(row, ts);
+            vacuumKeys.add(key);
+            Record view = schema.view(row);
+            for (SecondaryIndex idx : secondaryIndexes.values()) {
+                idx.update(key, old, view);
+            }
+            dirtyKeys.add(key);
+            modifiedSinceAnalyze++;
+        } finally {
+            lock.writeLock().unlock();
         }
     }
 
     public void deleteCommitted(String key, long ts) {
-        VersionChain ch = index.get(key);
-        if (ch == null || !ch.alive()) throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
-        Version old = ch.latest();
+        lock.writeLock().lock();
+        try {
+            VersionChain ch = index.get(key);
+            if (ch == null || !ch.alive()) throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
+
+            // 보조 인덱스 항목은 지운 버전을 아직 보는 스냅샷을 위해 남긴다. vacuum 이 버전과 함께 지운다.
+            ch.commitDelete(ts);
+            vacuumKeys.add(key);
+            dirtyKeys.add(key);
+            liveRows--;
+            modifiedSinceAnalyze++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
 
-        ch.commitDelete(ts);
-        secRemoveName(old.values.get("name"), key);
+    public int vacuumBacklog() {
+        lock.readLock().lock();
+        try {
+            return vacuumKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 대상 키를 최대 maxKeys 개만 정리해 쓰기 잠금을 짧게 유지한다. 아직 볼 수 있는 지난 버전이 남은 키는 뒤로 돌린다.
+    // 잘라낸 버전에만 있던 값의 보조 인덱스 항목도 여기서 지운다.
+    public VacuumResult vacuum(long horizon, int maxKeys) {
+        lock.writeLock().lock();
+        try {
+            int visited = 0;
+            int versions = 0;
+            int chains = 0;
+            List<String> retry = new ArrayList<>();
+            Iterator<String> it = vacuumKeys.iterator();
+            while (it.hasNext() && visited < maxKeys) {
+                String key = it.next();
+                it.remove();
+                visited++;
+
+                VersionChain ch = index.get(key);
+                if (ch == null) continue;
+                List<byte[]> pruned = new ArrayList<>();
+                versions += ch.prune(horizon, pruned::add);
+                if (!pruned.isEmpty()) removeIndexEntries(key, ch, pruned);
+                if (ch.isEmpty()) {
+                    index.remove(key);
+                    chains++;
+                } else if (ch.hasObsolete()) {
+                    retry.add(key);
+                }
+            }
+            vacuumKeys.addAll(retry);
+            removedSinceCompact += chains;
+            return new VacuumResult(visited, versions, chains, vacuumKeys.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // 남은 버전 중 같은 인덱스 키를 가진 것이 있으면 그 항목은 아직 쓰인다
+    private void removeIndexEntries(String key, VersionChain ch, List<byte[]> pruned) {
+        for (SecondaryIndex idx : secondaryIndexes.values()) {
+            Set<String> kept = indexKeys(idx, ch);
+            for (byte[] row : pruned) {
+                Record view = schema.view(row);
+                String k = idx.keyOf(view);
+                if (k != null && kept.add(k)) idx.remove(key, view);
+            }
+        }
+    }
+
+    private Set<String> indexKeys(SecondaryIndex idx, VersionChain ch) {
+        Set<String> keys = new HashSet<>();
+        ch.forEachRow(row -> {
+            String k = idx.keyOf(schema.view(row));
+            if (k != null) keys.add(k);
+        });
+        return keys;
+    }
+
+    // 지운 체인이 남은 키의 1/4 을 넘으면 인덱스를 다시 채워 빈 리프를 없앤다
+    public boolean compactIfFragmented() {
+        lock.writeLock().lock();
+        try {
+            if (removedSinceCompact < Math.max(COMPACT_MIN_REMOVED, index.size() / 4)) {
+                return false;
+            }
+            index.compact();
+            for (SecondaryIndex idx : secondaryIndexes.values()) {
+                idx.compact();
+            }
+            removedSinceCompact = 0;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     public List<Record> findAllByAt(String column, String value, long snapTs) {
-        if ("name".equals(column)) {
-            ArrayList<Record> out = new ArrayList<>();
-            Set<String> set = idxName.get(value);
-            if (set == null) return out;
+        return findAllByAt(Map.of(column, value), snapTs);
+    }
 
-            for (String pk : set) {
-                VersionChain chain = index.get(pk);
-                if (chain == null) continue;
-                Version v = chain.visibleAt(snapTs);
-                if (v != null && Objects.equals(v.values.get("name"), value)) {
-                    out.add(new Record(v.values));
+    // 조건 컬럼을 앞에서부터 가장 많이 덮는 인덱스로 후보 PK 를 얻는다. 인덱스는 회수 전의 모든 버전 값을 담으므로 스냅샷 값으로 조건을 다시 확인한다.
+    public List<Record> findAllByAt(Map<String, String> conditions, long snapTs) {
+        return findAllByAt(conditions, null, snapTs);
+    }
+
+    // indexNames 를 주면 그 인덱스들이 덮는 조건으로 각각 PK 를 얻어 교집합만 읽는다 (비용 기반 계획이 고른 인덱스).
+    // 그 사이 삭제되었거나 조건을 덮지 못하는 인덱스는 건너뛰고, 쓸 인덱스가 없으면 전체를 훑는다.
+    public List<Record> findAllByAt(Map<String, String> conditions, List<String> indexNames, long snapTs) {
+        Map<String, String> equals = new HashMap<>();
+        for (Map.Entry<String, String> e : conditions.entrySet()) {
+            String v = normalizeValue(e.getKey(), e.getValue());
+            if (v == null) return new ArrayList<>();
+            equals.put(e.getKey(), v);
+        }
+
+        lock.readLock().lock();
+        try {
+            ArrayList<Record> out = new ArrayList<>();
+            List<SecondaryIndex> chosen = new ArrayList<>();
+            if (indexNames == null) {
+                SecondaryIndex best = null;
+                int covered = 0;
+                for (SecondaryIndex idx : secondaryIndexes.values()) {
+                    int n = idx.matchingPrefix(equals.keySet());
+                    if (n > covered) {
+                        best = idx;
+                        covered = n;
+                    }
+                }
+                if (best != null) chosen.add(best);
+            } else {
+                for (String name : indexNames) {
+                    SecondaryIndex idx = secondaryIndexes.get(name);
+                    if (idx != null && idx.matchingPrefix(equals.keySet()) > 0) chosen.add(idx);
                 }
             }
 
+            if (chosen.isEmpty()) {
+                scanAt(snapTs, row -> {
+                    if (matches(row, equals)) out.add(row);
+                    return true;
+                });
+                return out;
+            }
+
+            Set<String> pks = null;
+            for (SecondaryIndex idx : chosen) {
+                int covered = idx.matchingPrefix(equals.keySet());
+                List<String> leading = new ArrayList<>(covered);
+                for (String column : idx.getColumns().subList(0, covered)) {
+                    leading.add(equals.get(column));
+                }
+                Set<String> found = new LinkedHashSet<>();
+                idx.forEachPk(leading, found::add);
+                if (pks == null) {
+                    pks = found;
+                } else {
+                    pks.retainAll(found);
+                }
+                if (pks.isEmpty()) break;
+            }
+            for (String pk : pks) {
+                VersionChain chain = index.get(pk);
+                byte[] row = (chain == null) ? null : chain.rowAt(snapTs);
+                if (row == null) continue;
+                Record v = schema.view(row);
+                if (matches(v, equals)) out.add(v);
+            }
             return out;
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    public long rowCount() {
+        return liveRows;
+    }
 
-        ArrayList<Record> out = new ArrayList<>();
-        for (var e : index.entries()) {
-            Version v = e.getValue().visibleAt(snapTs);
-            if (v != null && Objects.equals(v.values.get(column), value)) {
-                out.add(new Record(v.values));
+    // 아직 ANALYZE 하지 않았으면 null
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    public boolean isStatisticsStale() {
+        TableStatistics s = statistics;
+        return s == null || modifiedSinceAnalyze > STALE_MIN_CHANGES + (long) (s.rowCount * STALE_FRACTION);
+    }
+
+    public int planVersion() {
+        return planVersion;
+    }
+
+    // 스냅샷 하나를 잠금 없이 훑어 통계를 새로 만든다. 훑는 동안의 변경은 다음 ANALYZE 몫으로 센다.
+    // 카운터를 비우는 것과 통계/planVersion 을 바꾸는 것은 쓰기 잠금 안에서 한다 (여러 세션이 동시에 ANALYZE 할 수 있다).
+    public TableStatistics analyze(long snapTs) {
+        lock.writeLock().lock();
+        try {
+            modifiedSinceAnalyze = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        TableStatistics s = StatisticsCollector.collect(this, snapTs);
+        lock.writeLock().lock();
+        try {
+            // 더 늦은 스냅샷으로 먼저 끝난 ANALYZE 가 있으면 그 통계를 남긴다
+            TableStatistics current = statistics;
+            if (current == null || current.analyzedAt <= s.analyzedAt) {
+                statistics = s;
             }
+            planVersion++;
+            return statistics;
+        } finally {
+            lock.writeLock().unlock();
         }
-
-        return out;
     }
 
-    private void secAddName(String name, String pk) {
-        if (name == null) {
-            return;
+    public List<SecondaryIndex> getIndexes() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(secondaryIndexes.values());
+        } finally {
+            lock.readLock().unlock();
         }
+    }
 
-        Set<String> set = idxName.get(name);
-        if (set == null) {
-            set = new LinkedHashSet<>();
-            idxName.put(name, set);
+    /*
+     * 온라인 생성. PK 순으로 INDEX_BUILD_BATCH 개씩 훑어 staging 에 모으고, 배치 사이에는 잠금을 풀어 커밋이 끼어들 수 있게 한다.
+     * 이미 훑은 PK 구간의 커밋은 커밋 반영 쪽에서 staging 에 바로 반영하고, 아직 안 훑은 구간은 나중에 훑을 때 담긴다.
+     * 훑을 때는 체인에 남은 모든 버전의 값을 담아, 생성 전에 시작한 스냅샷도 이 인덱스로 찾을 수 있게 한다.
+     * 마지막 배치와 같은 잠금 안에서 bulk load 하고 조회에 쓰기 시작한다. 담은 행 수를 돌려준다.
+     */
+    public int createIndex(String indexName, List<String> indexColumns) {
+        SecondaryIndex idx = new SecondaryIndex(indexName, indexColumns);
+        lock.writeLock().lock();
+        try {
+            if (secondaryIndexes.containsKey(indexName)) {
+                throw new IllegalArgumentException("[ERROR] 이미 있는 인덱스입니다: " + indexName);
+            }
+            for (String column : indexColumns) {
+                validateContainsColumn(column);
+            }
+            idx.beginBuild();
+            secondaryIndexes.put(indexName, idx);
+        } finally {
+            lock.writeLock().unlock();
         }
 
-        set.add(pk);
+        try {
+            int rows = 0;
+            String after = null;
+            while (true) {
+                lock.writeLock().lock();
+                try {
+                    if (secondaryIndexes.get(indexName) != idx) {
+                        throw new IllegalStateException("[ERROR] 생성 중에 인덱스가 삭제되었습니다: " + indexName);
+                    }
+                    IndexCursor<String, VersionChain> cursor = index.cursor(after, false, null, true);
+                    int visited = 0;
+                    while (visited < INDEX_BUILD_BATCH && cursor.next()) {
+                        String pk = cursor.key();
+                        after = pk;
+                        visited++;
+                        VersionChain ch = cursor.value();
+                        ch.forEachRow(row -> idx.buildRow(pk, schema.view(row)));
+                        if (ch.alive()) rows++;
+                    }
+                    if (visited < INDEX_BUILD_BATCH) {
+                        idx.finishBuild();
+                        planVersion++;
+                        return rows;
+                    }
+                    idx.advanceBuild(after);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                secondaryIndexes.remove(indexName, idx);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
     }
 
-    private void secRemoveName(String name, String pk) {
-        if (name == null) {
-            return;
+    public void dropIndex(String indexName) {
+        lock.writeLock().lock();
+        try {
+            if (secondaryIndexes.remove(indexName) == null) {
+                throw new IllegalArgumentException("[ERROR] 존재하지 않는 인덱스입니다: " + indexName);
+            }
+            planVersion++;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
-        Set<String> set = idxName.get(name);
-        if (set != null) {
-            set.remove(pk);
-            if (set.isEmpty()) {
-                idxName.remove(name);
+    // 주 인덱스를 afterPk 다음부터 maxKeys 개 보며, 살아 있는 행이 보조 인덱스의 제 키 아래에 있는지 확인한다
+    public IndexCheckResult verifyIndexRows(String indexName, String afterPk, int maxKeys, boolean repair) {
+        Lock l = repair ? lock.writeLock() : lock.readLock();
+        l.lock();
+        try {
+            SecondaryIndex idx = readyIndex(indexName);
+            IndexCursor<String, VersionChain> cursor = index.cursor(afterPk, false, null, true);
+            int visited = 0;
+            int missing = 0;
+            int repaired = 0;
+            String last = null;
+            while (visited < maxKeys && cursor.next()) {
+                last = cursor.key();
+                visited++;
+                VersionChain ch = cursor.value();
+                if (!ch.alive()) continue;
+
+                String key = idx.keyOf(schema.view(ch.latestRow()));
+                if (key == null || idx.containsEntry(key, last)) continue;
+                missing++;
+                if (repair) {
+                    idx.addEntry(key, last);
+                    repaired++;
+                }
             }
+            return new IndexCheckResult(visited, missing, 0, repaired, (visited < maxKeys) ? null : last);
+        } finally {
+            l.unlock();
         }
     }
 
-    private void validateContainsColumn(String column) {
-        if (!columns.contains(column)) {
-            throw new IllegalArgumentException("[ERROR] 해당 칼럼을 찾을 수 없습니다.");
+    // 보조 인덱스를 afterKey 다음부터 maxKeys 개 키만큼 보며, 가리키는 PK 에 같은 키를 가진 버전이 남아 있는지 확인한다
+    public IndexCheckResult verifyIndexEntries(String indexName, String afterKey, int maxKeys, boolean repair) {
+        Lock l = repair ? lock.writeLock() : lock.readLock();
+        l.lock();
+        try {
+            SecondaryIndex idx = readyIndex(indexName);
+            IndexCursor<String, Set<String>> cursor = idx.cursorAfter(afterKey);
+            List<String[]> staleEntries = new ArrayList<>();
+            int visited = 0;
+            String last = null;
+            while (visited < maxKeys && cursor.next()) {
+                last = cursor.key();
+                visited++;
+                for (String pk : cursor.value()) {
+                    VersionChain ch = index.get(pk);
+                    if (ch == null || !indexKeys(idx, ch).contains(last)) staleEntries.add(new String[]{last, pk});
+                }
+            }
+
+            // 커서가 끝난 뒤에 지워야 순회 중인 노드가 바뀌지 않는다
+            int repaired = 0;
+            if (repair) {
+                for (String[] e : staleEntries) {
+                    if (idx.removeEntry(e[0], e[1])) repaired++;
+                }
+            }
+            return new IndexCheckResult(visited, 0, staleEntries.size(), repaired, (visited < maxKeys) ? null : last);
+        } finally {
+            l.unlock();
         }
     }
 
-    private void validatePkNotChanged(String key, Record newRec) {
-        String newKey = newRec.get(primaryKeyColumn);
-        if (!Objects.equals(key, newKey)) throw new IllegalArgumentException("[ERROR] PK는 변경할 수 없습니다.");
+    private SecondaryIndex readyIndex(String indexName) {
+        SecondaryIndex idx = secondaryIndexes.get(indexName);
+        if (idx == null) {
+            throw new IllegalArgumentException("[ERROR] 존재하지 않는 인덱스입니다: " + indexName);
+        }
+        if (!idx.isReady()) {
+            throw new IllegalStateException("[ERROR] 생성 중인 인덱스는 검증할 수 없습니다: " + indexName);
+        }
+        return idx;
     }
 
-    private static void validatePkInColumn(List<String> columns, String primaryKeyColumn) {
-        if (!columns.contains(primaryKeyColumn)) {
-            throw new IllegalArgumentException("[ERROR] PK는 반드시 컬럼에 존재해야 합니다.");
+    private static boolean matches(Record row, Map<String, String> equals) {
+        for (Map.Entry<String, String> e : equals.entrySet()) {
+            if (!Objects.equals(row.get(e.getKey()), e.getValue())) return false;
         }
+        return true;
     }
 
-    private String requirePk(Record record) {
-        String key = record.get(primaryKeyColumn);
-        validateRequirePk(key);
-        return key;
+    private void validateContainsColumn(String column) {
+        if (schema.indexOf(column) < 0) {
+            throw new IllegalArgumentException("[ERROR] 해당 칼럼을 찾을 수 없습니다.");
+        }
     }
 
-    private static void validateRequirePk(String key) {
-        if (key == null) {
-            throw new IllegalArgumentException("[ERROR] PK 값이 없습니다.");
-        }
+    private static void validatePkNotChanged(String key, String newKey) {
+        if (!Objects.equals(key, newKey)) throw new IllegalArgumentException("[ERROR] PK는 변경할 수 없습니다.");
     }
 }
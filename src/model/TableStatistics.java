@@ -0,0 +1,35 @@
+package model;
+
+import java.util.List;
+import java.util.Map;
+
+// ANALYZE 한 시점의 테이블 통계. 행 수는 Table.rowCount() 가 따로 늘 맞춰 두므로 분포를 볼 때만 쓴다.
+public class TableStatistics {
+
+    public final long rowCount;
+    public final int sampled;
+    public final long analyzedAt;
+    private final Map<String, ColumnStatistics> columns;
+    private final List<String> order;
+
+    TableStatistics(long rowCount, int sampled, long analyzedAt, Map<String, ColumnStatistics> columns, List<String> order) {
+        this.rowCount = rowCount;
+        this.sampled = sampled;
+        this.analyzedAt = analyzedAt;
+        this.columns = Map.copyOf(columns);
+        this.order = List.copyOf(order);
+    }
+
+    public ColumnStatistics column(String name) {
+        return columns.get(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("행 " + rowCount + "개 (표본 " + sampled + "개)");
+        for (String name : order) {
+            sb.append(System.lineSeparator()).append("  ").append(name).append(": ").append(columns.get(name));
+        }
+        return sb.toString();
+    }
+}
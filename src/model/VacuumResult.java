@@ -0,0 +1,16 @@
+package model;
+
+public class VacuumResult {
+
+    public final int keysVisited;
+    public final int versionsReclaimed;
+    public final int chainsReclaimed;
+    public final int backlog;
+
+    public VacuumResult(int keysVisited, int versionsReclaimed, int chainsReclaimed, int backlog) {
+        this.keysVisited = keysVisited;
+        this.versionsReclaimed = versionsReclaimed;
+        this.chainsReclaimed = chainsReclaimed;
+        this.backlog = backlog;
+    }
+}
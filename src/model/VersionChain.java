@@ -1,48 +1,131 @@
 package model;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.function.Consumer;
 
+/*
+ * 한 PK 의 버전들을 오래된 것부터 나란한 배열에 담는다.
+ * begin 은 오름차순이고 각 버전의 [begin, end) 구간은 겹치지 않으므로, 스냅샷에서 보이는 버전은 이분 탐색으로 찾는다.
+ * end == Long.MAX_VALUE 이면 현재 살아 있는 버전이다. 값은 테이블 Schema 형식의 행 바이트로 담는다.
+ * 조회는 테이블 잠금 없이 들어오므로 모든 공개 메서드는 이 객체로 동기화한다.
+ */
 public class VersionChain implements Serializable {
 
-    private final List<Version> vs = new ArrayList<>();
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 2;
 
-    public Version latest() {
-        if (vs.isEmpty()) return null;
-        return vs.get(vs.size() - 1);
+    private long[] begins = new long[INITIAL_CAPACITY];
+    private long[] ends = new long[INITIAL_CAPACITY];
+    private byte[][] rows = new byte[INITIAL_CAPACITY][];
+    private int size;
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
     }
 
-    public Version visibleAt(long snap) {
-        for (int i = vs.size() - 1; i >= 0; i--) {
-            Version v = vs.get(i);
-            if (v.visibleAt(snap)) return v;
+    public synchronized byte[] latestRow() {
+        return (size == 0) ? null : rows[size - 1];
+    }
+
+    public synchronized byte[] rowAt(long snap) {
+        int i = floor(snap);
+        if (i < 0 || snap >= ends[i]) {
+            return null;
         }
-        return null;
+        return rows[i];
     }
 
-    public boolean alive() {
-        return !vs.isEmpty() && vs.get(vs.size() - 1).endTs == Long.MAX_VALUE;
+    // 이 키를 마지막으로 바꾼 커밋의 시퀀스 (삭제됐으면 삭제 시점)
+    public synchronized long lastCommitTs() {
+        if (size == 0) return 0L;
+        return alive() ? begins[size - 1] : ends[size - 1];
     }
 
-    public void commitInsert(Map<String, String> v, long ts) {
-        vs.add(new Version(v, ts, Long.MAX_VALUE));
+    public synchronized boolean alive() {
+        return size > 0 && ends[size - 1] == Long.MAX_VALUE;
     }
 
-    public void commitUpdate(Map<String,String> v, long ts) {
+    // 최신 버전 말고도 남아 있는 버전이 있는가 (삭제된 체인은 마지막 버전도 지난 버전이다)
+    public synchronized boolean hasObsolete() {
+        return size > 1 || (size == 1 && !alive());
+    }
+
+    // 남아 있는 버전의 행을 오래된 것부터
+    public synchronized void forEachRow(Consumer<byte[]> sink) {
+        for (int i = 0; i < size; i++) sink.accept(rows[i]);
+    }
+
+    // horizon 이하에서 끝난 버전은 어떤 스냅샷에서도 보이지 않는다. end 도 오름차순이므로 앞부분만 잘라낸다.
+    // 잘라낸 버전의 행은 pruned 로 넘긴다 (보조 인덱스에서 그 값의 항목을 지우는 데 쓴다).
+    public synchronized int prune(long horizon, Consumer<byte[]> pruned) {
+        int n = 0;
+        while (n < size && ends[n] <= horizon) n++;
+        if (n == 0) {
+            return 0;
+        }
+        for (int i = 0; i < n; i++) pruned.accept(rows[i]);
+
+        int rest = size - n;
+        System.arraycopy(begins, n, begins, 0, rest);
+        System.arraycopy(ends, n, ends, 0, rest);
+        System.arraycopy(rows, n, rows, 0, rest);
+        Arrays.fill(rows, rest, size, null);
+        size = rest;
+        return n;
+    }
+
+    public synchronized void commitInsert(byte[] row, long ts) {
+        append(row, ts);
+    }
+
+    public synchronized void commitUpdate(byte[] row, long ts) {
         validateIsEmpty("[ERROR] UPDATE 대상 없음");
-        vs.get(vs.size()-1).endTs = ts;
-        vs.add(new Version(v, ts, Long.MAX_VALUE));
+        ends[size - 1] = ts;
+        append(row, ts);
     }
 
-    public void commitDelete(long ts) {
+    public synchronized void commitDelete(long ts) {
         validateIsEmpty("[ERROR] DELETE 대상 없음");
-        vs.get(vs.size()-1).endTs = ts;
+        ends[size - 1] = ts;
+    }
+
+    // begin <= snap 인 마지막 버전. 같은 커밋 안에서 여러 번 바뀐 키는 begin 이 같으므로 가장 뒤(최신)를 고른다.
+    private int floor(long snap) {
+        int lo = 0;
+        int hi = size - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (begins[mid] <= snap) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private void append(byte[] row, long ts) {
+        if (size == begins.length) {
+            int capacity = size * 2;
+            begins = Arrays.copyOf(begins, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+        }
+        begins[size] = ts;
+        ends[size] = Long.MAX_VALUE;
+        rows[size] = row;
+        size++;
     }
 
     private void validateIsEmpty(String s) {
-        if (vs.isEmpty()) {
+        if (size == 0) {
             throw new IllegalStateException(s);
         }
     }
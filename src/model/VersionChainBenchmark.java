@@ -0,0 +1,187 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/*
+ * VersionChain 의 스냅샷 조회(이분 탐색, 행 바이트)와 예전 구현(Version 객체 목록을 뒤에서부터 훑기, 값은 Map)을 비교한다.
+ * 체인 길이마다 전체 버전 수가 비슷하도록 키 수를 정하고, 임의의 키를 임의의 (대개 오래된) 스냅샷으로 조회한다.
+ * 조회 시간과 함께 버전 하나당 힙 사용량도 잰다.
+ * 사용: java -Xmx2g -cp out model.VersionChainBenchmark [체인 길이들=1,8,64,512] [조회 수=2000000] [측정 횟수=5]
+ * 측정 전에 두 구현이 같은 버전을 돌려주는지 확인하고 두 번씩 돌려 JIT 를 데운다.
+ */
+public final class VersionChainBenchmark {
+
+    private static final int TOTAL_VERSIONS = 1 << 19;
+    private static final Schema SCHEMA = new Schema(List.of(
+            Column.notNull("id", ColumnType.INT),
+            Column.of("name", ColumnType.VARCHAR),
+            Column.of("age", ColumnType.INT)), "id");
+
+    private VersionChainBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        String[] lengths = (args.length > 0) ? args[0].split(",") : new String[]{"1", "8", "64", "512"};
+        int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000_000;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        for (String s : lengths) {
+            int length = Integer.parseInt(s.trim());
+            int keys = Math.max(1, TOTAL_VERSIONS / length);
+            System.out.printf("체인 길이 %d, 키 %,d개%n", length, keys);
+
+            long before = usedHeap();
+            LinearChain[] linear = buildLinear(keys, length);
+            long linearBytes = usedHeap() - before;
+            before = usedHeap();
+            VersionChain[] chains = build(keys, length);
+            long chainBytes = usedHeap() - before;
+            System.out.printf("  버전당 힙: 예전 %.0fB, VersionChain %.0fB%n",
+                    linearBytes / (double) (keys * length), chainBytes / (double) (keys * length));
+
+            Random random = new Random(length);
+            int[] keyAt = new int[lookups];
+            long[] snapAt = new long[lookups];
+            for (int i = 0; i < lookups; i++) {
+                keyAt[i] = random.nextInt(keys);
+                snapAt[i] = 1 + random.nextInt(length);
+            }
+            verify(linear, chains, keyAt, snapAt);
+            lookupLinear(linear, keyAt, snapAt);
+            lookupLinear(linear, keyAt, snapAt);
+            lookup(chains, keyAt, snapAt);
+            lookup(chains, keyAt, snapAt);
+
+            double linearMillis = measure("예전(선형)", lookups, iterations, () -> lookupLinear(linear, keyAt, snapAt));
+            double chainMillis = measure("VersionChain", lookups, iterations, () -> lookup(chains, keyAt, snapAt));
+            System.out.printf("  VersionChain 이 %.1f배 빠름%n", linearMillis / chainMillis);
+        }
+    }
+
+    // 버전 j (0부터) 는 시퀀스 j + 1 에 커밋되어 다음 버전이 커밋될 때까지 보인다
+    private static VersionChain[] build(int keys, int length) {
+        VersionChain[] chains = new VersionChain[keys];
+        for (int k = 0; k < keys; k++) {
+            VersionChain ch = new VersionChain();
+            ch.commitInsert(SCHEMA.encode(row(k, 0)), 1);
+            for (int j = 1; j < length; j++) {
+                ch.commitUpdate(SCHEMA.encode(row(k, j)), j + 1);
+            }
+            chains[k] = ch;
+        }
+        return chains;
+    }
+
+    private static LinearChain[] buildLinear(int keys, int length) {
+        LinearChain[] chains = new LinearChain[keys];
+        for (int k = 0; k < keys; k++) {
+            LinearChain ch = new LinearChain();
+            ch.commitInsert(row(k, 0).values(), 1);
+            for (int j = 1; j < length; j++) {
+                ch.commitUpdate(row(k, j).values(), j + 1);
+            }
+            chains[k] = ch;
+        }
+        return chains;
+    }
+
+    private static Record row(int key, int version) {
+        Map<String, String> values = new HashMap<>();
+        values.put("id", Integer.toString(key));
+        values.put("name", "user" + key);
+        values.put("age", Integer.toString(version));
+        return new Record(values);
+    }
+
+    private static void verify(LinearChain[] linear, VersionChain[] chains, int[] keyAt, long[] snapAt) {
+        for (int i = 0; i < Math.min(keyAt.length, 100_000); i++) {
+            Version v = linear[keyAt[i]].visibleAt(snapAt[i]);
+            String expected = (v == null) ? null : v.values.get("age");
+            byte[] row = chains[keyAt[i]].rowAt(snapAt[i]);
+            String actual = (row == null) ? null : SCHEMA.view(row).get("age");
+            if (expected == null || !expected.equals(actual)) {
+                throw new IllegalStateException("[ERROR] 두 구현의 결과가 다릅니다: " + expected + " / " + actual);
+            }
+        }
+    }
+
+    private static long lookupLinear(LinearChain[] chains, int[] keyAt, long[] snapAt) {
+        long hits = 0;
+        for (int i = 0; i < keyAt.length; i++) {
+            if (chains[keyAt[i]].visibleAt(snapAt[i]) != null) hits++;
+        }
+        return hits;
+    }
+
+    private static long lookup(VersionChain[] chains, int[] keyAt, long[] snapAt) {
+        long hits = 0;
+        for (int i = 0; i < keyAt.length; i++) {
+            if (chains[keyAt[i]].rowAt(snapAt[i]) != null) hits++;
+        }
+        return hits;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static double measure(String name, int lookups, int iterations, Runnable work) {
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            work.run();
+            double millis = (System.nanoTime() - start) / 1e6;
+            best = Math.min(best, millis);
+            total += millis;
+        }
+        System.out.printf("  %s: 평균 %.1fms, 최소 %.1fms, %,.0f건/초%n", name, total / iterations, best, lookups / (best / 1000));
+        return best;
+    }
+
+    // 예전 구현: 버전마다 객체 하나와 값 Map 하나, 보이는 버전은 뒤에서부터 훑어 찾는다. 지금 구현과 같은 조건이 되도록 동기화만 더했다.
+    private static final class Version {
+        final Map<String, String> values;
+        final long beginTs;
+        long endTs;
+
+        Version(Map<String, String> values, long beginTs, long endTs) {
+            this.values = values;
+            this.beginTs = beginTs;
+            this.endTs = endTs;
+        }
+
+        boolean visibleAt(long snap) {
+            return beginTs <= snap && snap < endTs;
+        }
+    }
+
+    private static final class LinearChain {
+        private final List<Version> vs = new ArrayList<>();
+
+        synchronized Version visibleAt(long snap) {
+            for (int i = vs.size() - 1; i >= 0; i--) {
+                Version v = vs.get(i);
+                if (v.visibleAt(snap)) return v;
+            }
+            return null;
+        }
+
+        synchronized void commitInsert(Map<String, String> v, long ts) {
+            vs.add(new Version(v, ts, Long.MAX_VALUE));
+        }
+
+        synchronized void commitUpdate(Map<String, String> v, long ts) {
+            vs.get(vs.size() - 1).endTs = ts;
+            vs.add(new Version(v, ts, Long.MAX_VALUE));
+        }
+    }
+}
@@ -5,22 +5,23 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NoSuchElementException;
 
 public class BPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V>, Serializable {
 
+    private static final long serialVersionUID = 1L;
     private static final int DEFAULT_ORDER = 32;
     private final int order;
 
     private abstract static class Node<K extends Comparable<K>, V> implements Serializable {
+        private static final long serialVersionUID = 1L;
         final ArrayList<K> keys = new ArrayList<>();
         abstract boolean isLeaf();
     }
 
     private static final class LeafNode<K extends Comparable<K>, V> extends Node<K, V> {
 
+        private static final long serialVersionUID = 1L;
         final ArrayList<V> values = new ArrayList<>();
         LeafNode<K, V> next;
 
@@ -32,6 +33,7 @@ public class BPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V>
 
     private static final class InternalNode<K extends Comparable<K>, V> extends Node<K, V> {
 
+        private static final long serialVersionUID = 1L;
         final ArrayList<Node<K, V>> children = new ArrayList<>();
 
         @Override
@@ -85,72 +87,147 @@ public class BPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V>
 
     @Override
     public V remove(K key) {
-        return deleteNoRebalance(root, key);
+        V removed = delete(root, key);
+        // 루트 내부 노드의 자식이 하나만 남으면 높이를 줄인다
+        if (!root.isLeaf() && root.keys.isEmpty()) {
+            root = ((InternalNode<K, V>) root).children.get(0);
+        }
+        return removed;
     }
 
+    // 리프를 꽉 채워 다시 만든다. 삭제가 많았던 트리의 높이와 리프 수를 줄인다.
+    // 새 노드는 옛 노드와 따로 만들어지므로 옛 트리를 순회하면서 그대로 쌓아도 된다.
     @Override
-    public int size() {
-        return size;
+    public void compact() {
+        bulkLoad(entries().iterator(), 1.0);
     }
 
+    // 정렬된 항목으로 아래에서부터 트리를 다시 쌓는다. 기존 내용은 버린다.
+    // 리프는 입력을 읽는 대로 채우므로 항목 전체를 따로 모아 두지 않는다.
     @Override
-    public Iterable<Entry<K, V>> entries() {
-        LeafNode<K,V> l = leftmostLeaf(root);
-        return () -> new Iterator<>() {
-            LeafNode<K,V> curLeaf = l;
-            int i = 0;
-            @Override public boolean hasNext() {
-                while (curLeaf != null) {
-                    if (i < curLeaf.keys.size()) return true;
-                    curLeaf = curLeaf.next; i = 0;
-                }
-                return false;
+    public void bulkLoad(Iterator<Entry<K, V>> sorted, double fillFactor) {
+        int perNode = perNode(fillFactor);
+        List<Node<K,V>> level = new ArrayList<>();
+        List<K> firstKeys = new ArrayList<>();
+        LeafNode<K,V> leaf = null;
+        K last = null;
+        int count = 0;
+
+        while (sorted.hasNext()) {
+            Entry<K,V> e = sorted.next();
+            K key = e.getKey();
+            if (last != null && last.compareTo(key) >= 0) {
+                throw new IllegalArgumentException("[ERROR] bulk load 입력이 키 오름차순이 아닙니다: " + key);
             }
-            @Override public Map.Entry<K,V> next() {
-                if (!hasNext()) throw new NoSuchElementException();
-                Map.Entry<K,V> e = Map.entry(curLeaf.keys.get(i), curLeaf.values.get(i));
-                i++;
-                return e;
+            if (leaf == null || leaf.keys.size() == perNode) {
+                LeafNode<K,V> next = new LeafNode<>();
+                if (leaf != null) leaf.next = next;
+                leaf = next;
+                level.add(leaf);
+                firstKeys.add(key);
             }
-        };
+            leaf.keys.add(key);
+            leaf.values.add(e.getValue());
+            last = key;
+            count++;
+        }
+
+        if (level.isEmpty()) {
+            root = new LeafNode<>();
+            size = 0;
+            return;
+        }
+        balanceLastLeaf(level, firstKeys);
+
+        while (level.size() > 1) {
+            List<Node<K,V>> parents = new ArrayList<>();
+            List<K> parentFirstKeys = new ArrayList<>();
+            for (int[] chunk : chunks(level.size(), perNode + 1)) {
+                InternalNode<K,V> in = new InternalNode<>();
+                for (int i = chunk[0]; i < chunk[1]; i++) {
+                    if (i > chunk[0]) in.keys.add(firstKeys.get(i));
+                    in.children.add(level.get(i));
+                }
+                parents.add(in);
+                parentFirstKeys.add(firstKeys.get(chunk[0]));
+            }
+            level = parents;
+            firstKeys = parentFirstKeys;
+        }
+        root = level.get(0);
+        size = count;
     }
 
     @Override
-    public Iterable<Entry<K, V>> range(K from, boolean fromInc, K to, boolean toInc) {
-        if (from.compareTo(to) > 0) return List.<Map.Entry<K,V>>of();
-        LeafNode<K,V> leaf = findLeaf(root, from);
-        int i = lowerBound(leaf.keys, from);
-        return () -> new Iterator<>() {
-            LeafNode<K,V> curLeaf = leaf;
-            int idx = adjustStart(i, from, fromInc);
-
-            @Override public boolean hasNext() {
-                while (curLeaf != null) {
-                    if (idx < curLeaf.keys.size()) {
-                        K k = curLeaf.keys.get(idx);
-                        int cmp = k.compareTo(to);
-                        if (cmp < 0) return true;
-                        if (cmp == 0) return toInc;
-                        return false;
-                    }
-                    curLeaf = curLeaf.next; idx = 0;
-                }
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public IndexCursor<K, V> cursor() {
+        return new LeafCursor();
+    }
+
+    private final class LeafCursor implements IndexCursor<K, V> {
+        private LeafNode<K,V> leaf;
+        private int idx;
+        private K to;
+        private boolean toInc;
+
+        LeafCursor() {
+            seek(null, true, null, true);
+        }
+
+        // 첫 next() 가 idx 를 하나 올리므로 시작 위치 바로 앞에 둔다
+        @Override
+        public void seek(K from, boolean fromInc, K to, boolean toInc) {
+            this.to = to;
+            this.toInc = toInc;
+            if (from == null) {
+                leaf = leftmostLeaf(root);
+                idx = -1;
+            } else {
+                leaf = findLeaf(root, from);
+                idx = adjustStart(leaf.keys, lowerBound(leaf.keys, from), from, fromInc) - 1;
+            }
+        }
+
+        @Override
+        public boolean next() {
+            idx++;
+            while (leaf != null && idx >= leaf.keys.size()) {
+                leaf = leaf.next;
+                idx = 0;
+            }
+            if (leaf == null) {
                 return false;
             }
-            @Override public Map.Entry<K,V> next() {
-                if (!hasNext()) throw new NoSuchElementException();
-                Map.Entry<K,V> e = Map.entry(curLeaf.keys.get(idx), curLeaf.values.get(idx));
-                idx++;
-                return e;
+            if (to != null) {
+                int cmp = leaf.keys.get(idx).compareTo(to);
+                if (cmp > 0 || (cmp == 0 && !toInc)) {
+                    leaf = null;
+                    return false;
+                }
             }
-        };
+            return true;
+        }
+
+        @Override
+        public K key() {
+            return leaf.keys.get(idx);
+        }
+
+        @Override
+        public V value() {
+            return leaf.values.get(idx);
+        }
     }
 
-    private int adjustStart(int i, K from, boolean fromInc) {
-        if (!fromInc) {
-            return (i < 0) ? 0 : i + ((i < rootMaxKeys() && getKeyAt(i).compareTo(from) == 0) ? 1 : 0);
+    private int adjustStart(List<K> leafKeys, int i, K from, boolean fromInc) {
+        if (!fromInc && i < leafKeys.size() && leafKeys.get(i).compareTo(from) == 0) {
+            return i + 1;
         }
-        return Math.max(i, 0);
+        return i;
     }
 
     private LeafNode<K, V> findLeaf(Node<K, V> n, K key) {
@@ -268,8 +345,12 @@ public class BPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V>
         return (pos >= 0) ? pos : -(pos + 1);
     }
 
-    // (데모) 리밸런싱 없는 삭제
-    private V deleteNoRebalance(Node<K,V> n, K key) {
+    // 분할 직후 노드가 가지는 최소 키 수. 이보다 적어지면 형제에게서 빌리거나 합친다.
+    private int minKeys() {
+        return order / 2;
+    }
+
+    private V delete(Node<K,V> n, K key) {
         if (n.isLeaf()) {
             LeafNode<K,V> leaf = (LeafNode<K,V>) n;
             int pos = Collections.binarySearch(leaf.keys, key);
@@ -278,19 +359,127 @@ public class BPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V>
             leaf.keys.remove(pos);
             size--;
             return prev;
+        }
+
+        InternalNode<K,V> in = (InternalNode<K,V>) n;
+        int idx = childIndex(in.keys, key);
+        V prev = delete(in.children.get(idx), key);
+        if (prev != null && in.children.get(idx).keys.size() < minKeys()) {
+            rebalance(in, idx);
+        }
+        return prev;
+    }
+
+    // 모자란 자식은 왼쪽, 오른쪽 형제 순으로 키를 빌리고, 둘 다 여유가 없으면 형제와 합친다
+    private void rebalance(InternalNode<K,V> parent, int idx) {
+        Node<K,V> child = parent.children.get(idx);
+        Node<K,V> left = (idx > 0) ? parent.children.get(idx - 1) : null;
+        Node<K,V> right = (idx + 1 < parent.children.size()) ? parent.children.get(idx + 1) : null;
+
+        if (left != null && left.keys.size() > minKeys()) {
+            borrowFromLeft(parent, idx, left, child);
+        } else if (right != null && right.keys.size() > minKeys()) {
+            borrowFromRight(parent, idx, child, right);
+        } else if (left != null) {
+            merge(parent, idx - 1, left, child);
+        } else if (right != null) {
+            merge(parent, idx, child, right);
+        }
+    }
+
+    private void borrowFromLeft(InternalNode<K,V> parent, int idx, Node<K,V> left, Node<K,V> child) {
+        int last = left.keys.size() - 1;
+        if (child.isLeaf()) {
+            LeafNode<K,V> l = (LeafNode<K,V>) left;
+            LeafNode<K,V> c = (LeafNode<K,V>) child;
+            c.keys.add(0, l.keys.remove(last));
+            c.values.add(0, l.values.remove(last));
+            parent.keys.set(idx - 1, c.keys.get(0));
         } else {
-            InternalNode<K,V> in = (InternalNode<K,V>) n;
-            int idx = childIndex(in.keys, key);
-            return deleteNoRebalance(in.children.get(idx), key);
+            InternalNode<K,V> l = (InternalNode<K,V>) left;
+            InternalNode<K,V> c = (InternalNode<K,V>) child;
+            c.keys.add(0, parent.keys.get(idx - 1));
+            c.children.add(0, l.children.remove(l.children.size() - 1));
+            parent.keys.set(idx - 1, l.keys.remove(last));
         }
     }
 
-    private int rootMaxKeys() {
-        return (root.isLeaf()) ? ((LeafNode<K,V>) root).keys.size()
-                : ((InternalNode<K,V>) root).keys.size();
+    private void borrowFromRight(InternalNode<K,V> parent, int idx, Node<K,V> child, Node<K,V> right) {
+        if (child.isLeaf()) {
+            LeafNode<K,V> c = (LeafNode<K,V>) child;
+            LeafNode<K,V> r = (LeafNode<K,V>) right;
+            c.keys.add(r.keys.remove(0));
+            c.values.add(r.values.remove(0));
+            parent.keys.set(idx, r.keys.get(0));
+        } else {
+            InternalNode<K,V> c = (InternalNode<K,V>) child;
+            InternalNode<K,V> r = (InternalNode<K,V>) right;
+            c.keys.add(parent.keys.get(idx));
+            c.children.add(r.children.remove(0));
+            parent.keys.set(idx, r.keys.remove(0));
+        }
+    }
+
+    // right 를 left 에 붙이고 둘 사이 구분 키(parent.keys[sep])를 없앤다
+    private void merge(InternalNode<K,V> parent, int sep, Node<K,V> left, Node<K,V> right) {
+        if (left.isLeaf()) {
+            LeafNode<K,V> l = (LeafNode<K,V>) left;
+            LeafNode<K,V> r = (LeafNode<K,V>) right;
+            l.keys.addAll(r.keys);
+            l.values.addAll(r.values);
+            l.next = r.next;
+        } else {
+            InternalNode<K,V> l = (InternalNode<K,V>) left;
+            InternalNode<K,V> r = (InternalNode<K,V>) right;
+            l.keys.add(parent.keys.get(sep));
+            l.keys.addAll(r.keys);
+            l.children.addAll(r.children);
+        }
+        parent.keys.remove(sep);
+        parent.children.remove(sep + 1);
+    }
+
+    // 노드 하나에 채울 키 수. 1.0 이면 꽉 채우고, 뒤이어 삽입이 많을 트리는 여유를 남겨 분할을 늦춘다.
+    private int perNode(double fillFactor) {
+        if (!(fillFactor > 0.0 && fillFactor <= 1.0)) {
+            throw new IllegalArgumentException("[ERROR] fill factor 는 0 초과 1 이하여야 합니다: " + fillFactor);
+        }
+        return Math.max(2, Math.min(order, (int) Math.round(order * fillFactor)));
+    }
+
+    // 마지막 리프가 최소 크기보다 작으면 직전 리프와 반씩 나눠 갖는다
+    private void balanceLastLeaf(List<Node<K,V>> level, List<K> firstKeys) {
+        int n = level.size();
+        if (n < 2 || level.get(n - 1).keys.size() >= minKeys() + 1) {
+            return;
+        }
+        LeafNode<K,V> prev = (LeafNode<K,V>) level.get(n - 2);
+        LeafNode<K,V> tail = (LeafNode<K,V>) level.get(n - 1);
+        int move = (prev.keys.size() - tail.keys.size()) / 2;
+        if (move <= 0) {
+            return;
+        }
+        int from = prev.keys.size() - move;
+        tail.keys.addAll(0, prev.keys.subList(from, prev.keys.size()));
+        tail.values.addAll(0, prev.values.subList(from, prev.values.size()));
+        prev.keys.subList(from, prev.keys.size()).clear();
+        prev.values.subList(from, prev.values.size()).clear();
+        firstKeys.set(n - 1, tail.keys.get(0));
     }
-    private K getKeyAt(int i) {
-        if (root.isLeaf()) return ((LeafNode<K,V>) root).keys.get(i);
-        return ((InternalNode<K,V>) root).keys.get(i);
+
+    // [from, to) 구간들. 마지막 구간이 최소 크기보다 작으면 직전 구간과 합쳐 반으로 나눈다.
+    private List<int[]> chunks(int total, int perNode) {
+        List<int[]> out = new ArrayList<>();
+        for (int from = 0; from < total; from += perNode) {
+            out.add(new int[]{from, Math.min(total, from + perNode)});
+        }
+        int n = out.size();
+        if (n > 1 && out.get(n - 1)[1] - out.get(n - 1)[0] < minKeys() + 1) {
+            int from = out.get(n - 2)[0];
+            int mid = from + (total - from + 1) / 2;
+            out.set(n - 2, new int[]{from, mid});
+            out.set(n - 1, new int[]{mid, total});
+        }
+        return out;
     }
 }
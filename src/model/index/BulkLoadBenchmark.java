@@ -0,0 +1,122 @@
+package model.index;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/*
+ * 같은 키로 주 인덱스(ConcurrentBPlusTree)를 bulkLoad 로 쌓을 때와 put 을 반복할 때의 적재 시간과 키당 힙을 비교한다.
+ * put 은 PK 순서대로 넣는 경우와 섞은 순서(bulk load 이전 부팅이 페이지 순서로 넣던 경우)로 넣는 경우를 따로 잰다.
+ * 키는 인코딩한 PK 처럼 생긴 문자열이고, 값은 모든 항목이 같은 객체 하나를 가리켜 값 크기는 재지 않는다.
+ * 사용: java -Xmx4g -cp out model.index.BulkLoadBenchmark [키 수=1000000] [측정 횟수=5] [fill factor=0.9]
+ * 측정 전에 세 방식이 같은 내용을 만드는지 확인하고 한 번씩 돌려 JIT 를 데운다.
+ */
+public final class BulkLoadBenchmark {
+
+    private static final Object VALUE = new Object();
+
+    private BulkLoadBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+        double fillFactor = (args.length > 2) ? Double.parseDouble(args[2]) : 0.9;
+
+        String[] sorted = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            sorted[i] = String.format("user%012d", i);
+        }
+        String[] shuffled = sorted.clone();
+        Collections.shuffle(Arrays.asList(shuffled), new Random(keys));
+
+        Supplier<OrderedIndex<String, Object>> bulk = () -> bulkLoad(sorted, fillFactor);
+        Supplier<OrderedIndex<String, Object>> inOrder = () -> putAll(sorted);
+        Supplier<OrderedIndex<String, Object>> random = () -> putAll(shuffled);
+        verify(sorted, bulk.get());
+        verify(sorted, inOrder.get());
+        verify(sorted, random.get());
+
+        System.out.printf("키 %,d개, fill factor %.2f%n", keys, fillFactor);
+        double bulkMillis = measure("bulkLoad", keys, iterations, bulk);
+        double inOrderMillis = measure("put(PK 순)", keys, iterations, inOrder);
+        double randomMillis = measure("put(섞은 순)", keys, iterations, random);
+        System.out.printf("bulkLoad 가 PK 순 put 보다 %.1f배, 섞은 순 put 보다 %.1f배 빠름%n",
+                inOrderMillis / bulkMillis, randomMillis / bulkMillis);
+    }
+
+    private static OrderedIndex<String, Object> bulkLoad(String[] sorted, double fillFactor) {
+        ConcurrentBPlusTree<String, Object> tree = new ConcurrentBPlusTree<>();
+        tree.bulkLoad(new Iterator<>() {
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < sorted.length;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                return new AbstractMap.SimpleImmutableEntry<>(sorted[i++], VALUE);
+            }
+        }, fillFactor);
+        return tree;
+    }
+
+    private static OrderedIndex<String, Object> putAll(String[] keys) {
+        ConcurrentBPlusTree<String, Object> tree = new ConcurrentBPlusTree<>();
+        for (String k : keys) {
+            tree.put(k, VALUE);
+        }
+        return tree;
+    }
+
+    private static void verify(String[] sorted, OrderedIndex<String, Object> tree) {
+        IndexCursor<String, Object> cursor = tree.cursor();
+        int i = 0;
+        while (cursor.next()) {
+            if (i >= sorted.length || !sorted[i].equals(cursor.key())) {
+                throw new IllegalStateException("[ERROR] 적재 결과가 다릅니다: " + i + "번째 " + cursor.key());
+            }
+            i++;
+        }
+        if (i != sorted.length || tree.size() != sorted.length) {
+            throw new IllegalStateException("[ERROR] 적재한 키 수가 다릅니다: " + i + " / " + sorted.length);
+        }
+    }
+
+    // 시간은 가장 빠른 회차, 힙은 마지막 회차에서 만든 트리 하나가 차지하는 크기다
+    private static double measure(String name, int keys, int iterations, Supplier<OrderedIndex<String, Object>> load) {
+        load.get();
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        long bytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long before = usedHeap();
+            long start = System.nanoTime();
+            OrderedIndex<String, Object> tree = load.get();
+            double millis = (System.nanoTime() - start) / 1e6;
+            bytes = usedHeap() - before;
+            if (tree.size() != keys) {
+                throw new IllegalStateException("[ERROR] 적재한 키 수가 다릅니다: " + tree.size() + " / " + keys);
+            }
+            best = Math.min(best, millis);
+            total += millis;
+        }
+        System.out.printf("%s: 평균 %.1fms, 최소 %.1fms, %,.0f건/초, 키당 힙 %.1fB%n",
+                name, total / iterations, best, keys / (best / 1000), bytes / (double) keys);
+        return best;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,526 @@
+package model.index;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * 노드마다 읽기/쓰기 래치를 두는 B+Tree (latch crabbing).
+ * - 조회: 자식 래치를 잡은 뒤 부모 래치를 놓으며 내려간다.
+ * - 삽입: 먼저 내부 노드는 읽기 래치, 리프만 쓰기 래치로 내려가 분할이 필요 없으면 끝낸다(낙관적).
+ *         분할이 필요하면 쓰기 래치로 다시 내려가며, 분할이 위로 번지지 않는 노드를 만나면 그 위 래치를 모두 놓는다.
+ * - 삭제: 리프에서만 지우고 병합하지 않는다. 노드가 사라지지 않으므로 순회는 리프 사이 next 를 안전하게 따라간다.
+ * - 순회: 리프 하나씩 읽기 래치 아래에서 복사한다. 마지막으로 돌려준 키보다 큰 키만 이어서 돌려주므로
+ *         순회 도중 분할이 일어나도 빠지거나 중복되는 키가 없다(약한 일관성).
+ */
+public class ConcurrentBPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_ORDER = 32;
+    private final int order;
+
+    private abstract static class Node<K extends Comparable<K>, V> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final ArrayList<K> keys = new ArrayList<>();
+        final ReentrantReadWriteLock latch = new ReentrantReadWriteLock();
+        abstract boolean isLeaf();
+    }
+
+    private static final class LeafNode<K extends Comparable<K>, V> extends Node<K, V> {
+
+        private static final long serialVersionUID = 1L;
+        final ArrayList<V> values = new ArrayList<>();
+        LeafNode<K, V> next;
+
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+    }
+
+    private static final class InternalNode<K extends Comparable<K>, V> extends Node<K, V> {
+
+        private static final long serialVersionUID = 1L;
+        final ArrayList<Node<K, V>> children = new ArrayList<>();
+
+        @Override
+        boolean isLeaf() {
+            return false;
+        }
+    }
+
+    // root 참조를 바꾸는 것은 루트 분할뿐이며, 그때는 이 래치를 쓰기로 잡는다
+    private final ReentrantReadWriteLock rootLatch = new ReentrantReadWriteLock();
+    private Node<K, V> root = new LeafNode<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    public ConcurrentBPlusTree() {
+        this(DEFAULT_ORDER);
+    }
+
+    public ConcurrentBPlusTree(int order) {
+        if (order < 4) {
+            throw new IllegalArgumentException("[ERROR] order >= 4");
+        }
+        this.order = order;
+    }
+
+    @Override
+    public V get(K key) {
+        LeafNode<K, V> leaf = readLatchedLeaf(key);
+        try {
+            int idx = Collections.binarySearch(leaf.keys, key);
+            return (idx >= 0) ? leaf.values.get(idx) : null;
+        } finally {
+            leaf.latch.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        if (!putOptimistic(key, value)) {
+            putPessimistic(key, value);
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        LeafNode<K, V> leaf = writeLatchedLeaf(key);
+        try {
+            int pos = Collections.binarySearch(leaf.keys, key);
+            if (pos < 0) return null;
+            leaf.keys.remove(pos);
+            size.decrementAndGet();
+            return leaf.values.remove(pos);
+        } finally {
+            leaf.latch.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    // 삭제만 하고 병합하지 않으므로 빈 리프가 쌓인다. 새 트리를 만든 뒤 루트만 바꿔 끼운다.
+    // 진행 중인 조회는 옛 노드에서 끝까지 읽는다. 쓰기는 호출자가 막아야 한다.
+    @Override
+    public void compact() {
+        bulkLoad(entries().iterator(), 1.0);
+    }
+
+    // 새 노드만으로 트리를 쌓고 마지막에 루트를 바꿔 끼우므로, 쌓는 동안에도 조회는 옛 트리를 본다
+    @Override
+    public void bulkLoad(Iterator<Entry<K, V>> sorted, double fillFactor) {
+        int perNode = perNode(fillFactor);
+        List<Node<K, V>> level = new ArrayList<>();
+        List<K> firstKeys = new ArrayList<>();
+        LeafNode<K, V> leaf = null;
+        K last = null;
+        int count = 0;
+
+        while (sorted.hasNext()) {
+            Entry<K, V> e = sorted.next();
+            K key = e.getKey();
+            if (last != null && last.compareTo(key) >= 0) {
+                throw new IllegalArgumentException("[ERROR] bulk load 입력이 키 오름차순이 아닙니다: " + key);
+            }
+            if (leaf == null || leaf.keys.size() == perNode) {
+                LeafNode<K, V> next = new LeafNode<>();
+                if (leaf != null) leaf.next = next;
+                leaf = next;
+                level.add(leaf);
+                firstKeys.add(key);
+            }
+            leaf.keys.add(key);
+            leaf.values.add(e.getValue());
+            last = key;
+            count++;
+        }
+
+        Node<K, V> rebuilt = level.isEmpty() ? new LeafNode<>() : build(level, firstKeys, perNode);
+        rootLatch.writeLock().lock();
+        try {
+            root = rebuilt;
+            size.set(count);
+        } finally {
+            rootLatch.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public IndexCursor<K, V> cursor() {
+        return new LeafCursor();
+    }
+
+    private boolean putOptimistic(K key, V value) {
+        LeafNode<K, V> leaf = writeLatchedLeaf(key);
+        try {
+            int pos = Collections.binarySearch(leaf.keys, key);
+            if (pos >= 0) {
+                leaf.values.set(pos, value);
+                return true;
+            }
+            if (leaf.keys.size() >= order) {
+                return false; // 분할이 필요하다
+            }
+
+            int ip = -(pos + 1);
+            leaf.keys.add(ip, key);
+            leaf.values.add(ip, value);
+            size.incrementAndGet();
+            return true;
+        } finally {
+            leaf.latch.writeLock().unlock();
+        }
+    }
+
+    private void putPessimistic(K key, V value) {
+        Deque<Node<K, V>> path = new ArrayDeque<>(); // 쓰기 래치를 쥔 노드 (위 -> 아래)
+        rootLatch.writeLock().lock();
+        boolean rootHeld = true;
+        try {
+            Node<K, V> cur = root;
+            cur.latch.writeLock().lock();
+            path.addLast(cur);
+            if (isSafe(cur)) {
+                rootLatch.writeLock().unlock();
+                rootHeld = false;
+            }
+
+            while (!cur.isLeaf()) {
+                InternalNode<K, V> in = (InternalNode<K, V>) cur;
+                Node<K, V> child = in.children.get(childIndex(in.keys, key));
+                child.latch.writeLock().lock();
+                if (isSafe(child)) {
+                    releaseAll(path);
+                    if (rootHeld) {
+                        rootLatch.writeLock().unlock();
+                        rootHeld = false;
+                    }
+                }
+                path.addLast(child);
+                cur = child;
+            }
+
+            SplitResult<K, V> split = insertIntoLeaf((LeafNode<K, V>) cur, key, value);
+            path.pollLast().latch.writeLock().unlock();
+            while (split != null && !path.isEmpty()) {
+                InternalNode<K, V> parent = (InternalNode<K, V>) path.pollLast();
+                split = insertIntoInternal(parent, key, split);
+                parent.latch.writeLock().unlock();
+            }
+
+            if (split != null) {
+                // 루트까지 분할됐다. 안전한 노드가 없었으므로 rootLatch 를 아직 쥐고 있다.
+                InternalNode<K, V> newRoot = new InternalNode<>();
+                newRoot.keys.add(split.pivot);
+                newRoot.children.add(split.left);
+                newRoot.children.add(split.right);
+                root = newRoot;
+            }
+        } finally {
+            releaseAll(path);
+            if (rootHeld) {
+                rootLatch.writeLock().unlock();
+            }
+        }
+    }
+
+    // 키 하나가 늘어도 분할되지 않는 노드
+    private boolean isSafe(Node<K, V> node) {
+        return node.keys.size() < order;
+    }
+
+    private static <K extends Comparable<K>, V> void releaseAll(Deque<Node<K, V>> path) {
+        while (!path.isEmpty()) {
+            path.pollFirst().latch.writeLock().unlock();
+        }
+    }
+
+    private LeafNode<K, V> readLatchedLeaf(K key) {
+        rootLatch.readLock().lock();
+        Node<K, V> cur = root;
+        cur.latch.readLock().lock();
+        rootLatch.readLock().unlock();
+
+        while (!cur.isLeaf()) {
+            InternalNode<K, V> in = (InternalNode<K, V>) cur;
+            Node<K, V> child = (key == null) ? in.children.get(0) : in.children.get(childIndex(in.keys, key));
+            child.latch.readLock().lock();
+            in.latch.readLock().unlock();
+            cur = child;
+        }
+        return (LeafNode<K, V>) cur;
+    }
+
+    // 내부 노드는 읽기 래치로 지나가고 리프만 쓰기 래치로 잡는다
+    private LeafNode<K, V> writeLatchedLeaf(K key) {
+        rootLatch.readLock().lock();
+        Node<K, V> cur = root;
+        lockForDescent(cur);
+        rootLatch.readLock().unlock();
+
+        while (!cur.isLeaf()) {
+            InternalNode<K, V> in = (InternalNode<K, V>) cur;
+            Node<K, V> child = in.children.get(childIndex(in.keys, key));
+            lockForDescent(child);
+            in.latch.readLock().unlock();
+            cur = child;
+        }
+        return (LeafNode<K, V>) cur;
+    }
+
+    private static <K extends Comparable<K>, V> void lockForDescent(Node<K, V> node) {
+        if (node.isLeaf()) {
+            node.latch.writeLock().lock();
+        } else {
+            node.latch.readLock().lock();
+        }
+    }
+
+    private int childIndex(List<K> keys, K key) {
+        int pos = Collections.binarySearch(keys, key);
+
+        if (pos >= 0) {
+            return pos + 1;
+        }
+
+        return -(pos + 1);
+    }
+
+    private static final class SplitResult<K extends Comparable<K>, V> {
+        final K pivot;
+        final Node<K, V> left;
+        final Node<K, V> right;
+
+        SplitResult(K pivot, Node<K, V> left, Node<K, V> right) {
+            this.pivot = pivot;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private SplitResult<K, V> insertIntoLeaf(LeafNode<K, V> leaf, K key, V value) {
+        int pos = Collections.binarySearch(leaf.keys, key);
+        if (pos >= 0) {
+            leaf.values.set(pos, value);
+            return null;
+        }
+
+        int ip = -(pos + 1);
+        leaf.keys.add(ip, key);
+        leaf.values.add(ip, value);
+        size.incrementAndGet();
+        if (leaf.keys.size() <= order) {
+            return null;
+        }
+
+        int mid = (leaf.keys.size() + 1) / 2;
+        LeafNode<K, V> right = new LeafNode<>();
+        right.keys.addAll(leaf.keys.subList(mid, leaf.keys.size()));
+        right.values.addAll(leaf.values.subList(mid, leaf.values.size()));
+        leaf.keys.subList(mid, leaf.keys.size()).clear();
+        leaf.values.subList(mid, leaf.values.size()).clear();
+        right.next = leaf.next;
+        leaf.next = right;
+        return new SplitResult<>(right.keys.get(0), leaf, right);
+    }
+
+    private SplitResult<K, V> insertIntoInternal(InternalNode<K, V> in, K key, SplitResult<K, V> childSplit) {
+        int childIdx = childIndex(in.keys, key);
+        in.keys.add(childIdx, childSplit.pivot);
+        in.children.set(childIdx, childSplit.left);
+        in.children.add(childIdx + 1, childSplit.right);
+        if (in.keys.size() <= order) {
+            return null;
+        }
+
+        int mid = in.keys.size() / 2;
+        K pivot = in.keys.get(mid);
+        InternalNode<K, V> right = new InternalNode<>();
+        right.keys.addAll(in.keys.subList(mid + 1, in.keys.size()));
+        right.children.addAll(in.children.subList(mid + 1, in.children.size()));
+        in.keys.subList(mid, in.keys.size()).clear();
+        in.children.subList(mid + 1, in.children.size()).clear();
+        return new SplitResult<>(pivot, in, right);
+    }
+
+    private int perNode(double fillFactor) {
+        if (!(fillFactor > 0.0 && fillFactor <= 1.0)) {
+            throw new IllegalArgumentException("[ERROR] fill factor 는 0 초과 1 이하여야 합니다: " + fillFactor);
+        }
+        return Math.max(2, Math.min(order, (int) Math.round(order * fillFactor)));
+    }
+
+    // 리프 층 위로 내부 노드를 쌓는다. 마지막 리프가 너무 작으면 먼저 직전 리프와 반씩 나눈다.
+    private Node<K, V> build(List<Node<K, V>> level, List<K> firstKeys, int perNode) {
+        int n = level.size();
+        if (n > 1 && level.get(n - 1).keys.size() < order / 2 + 1) {
+            LeafNode<K, V> prev = (LeafNode<K, V>) level.get(n - 2);
+            LeafNode<K, V> tail = (LeafNode<K, V>) level.get(n - 1);
+            int move = (prev.keys.size() - tail.keys.size()) / 2;
+            if (move > 0) {
+                int from = prev.keys.size() - move;
+                tail.keys.addAll(0, prev.keys.subList(from, prev.keys.size()));
+                tail.values.addAll(0, prev.values.subList(from, prev.values.size()));
+                prev.keys.subList(from, prev.keys.size()).clear();
+                prev.values.subList(from, prev.values.size()).clear();
+                firstKeys.set(n - 1, tail.keys.get(0));
+            }
+        }
+
+        while (level.size() > 1) {
+            List<Node<K, V>> parents = new ArrayList<>();
+            List<K> parentFirstKeys = new ArrayList<>();
+            for (int[] chunk : chunks(level.size(), perNode + 1)) {
+                InternalNode<K, V> in = new InternalNode<>();
+                for (int i = chunk[0]; i < chunk[1]; i++) {
+                    if (i > chunk[0]) in.keys.add(firstKeys.get(i));
+                    in.children.add(level.get(i));
+                }
+                parents.add(in);
+                parentFirstKeys.add(firstKeys.get(chunk[0]));
+            }
+            level = parents;
+            firstKeys = parentFirstKeys;
+        }
+        return level.get(0);
+    }
+
+    private List<int[]> chunks(int total, int perNode) {
+        List<int[]> out = new ArrayList<>();
+        for (int from = 0; from < total; from += perNode) {
+            out.add(new int[]{from, Math.min(total, from + perNode)});
+        }
+        int n = out.size();
+        if (n > 1 && out.get(n - 1)[1] - out.get(n - 1)[0] < order / 2 + 1) {
+            int from = out.get(n - 2)[0];
+            int mid = from + (total - from + 1) / 2;
+            out.set(n - 2, new int[]{from, mid});
+            out.set(n - 1, new int[]{mid, total});
+        }
+        return out;
+    }
+
+    // 리프 하나를 래치 아래에서 키/값 배열에 복사해 두고 읽는다. 배열은 커서가 끝날 때까지 다시 쓴다.
+    private final class LeafCursor implements IndexCursor<K, V> {
+        private K to;
+        private boolean toInc;
+        private K lower;          // 다음에 돌려줄 키의 하한
+        private boolean lowerInc;
+        private LeafNode<K, V> leaf;
+        private Object[] keyBuf = new Object[order + 1];
+        private Object[] valueBuf = new Object[order + 1];
+        private int n;
+        private int i;
+        private boolean done;
+
+        LeafCursor() {
+            seek(null, true, null, true);
+        }
+
+        @Override
+        public void seek(K from, boolean fromInc, K to, boolean toInc) {
+            this.lower = from;
+            this.lowerInc = fromInc;
+            this.to = to;
+            this.toInc = toInc;
+            this.done = false;
+            this.leaf = readLatchedLeaf(from);
+            try {
+                copy(leaf);
+            } finally {
+                leaf.latch.readLock().unlock();
+            }
+        }
+
+        @Override
+        public boolean next() {
+            while (i + 1 >= n) {
+                if (done) return false;
+                advance();
+            }
+            i++;
+            lower = key();
+            lowerInc = false;
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K key() {
+            return (K) keyBuf[i];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V value() {
+            return (V) valueBuf[i];
+        }
+
+        // 지금 리프의 next 는 매번 래치 아래에서 다시 읽어 순회 중 생긴 오른쪽 형제도 따라간다
+        private void advance() {
+            LeafNode<K, V> next;
+            leaf.latch.readLock().lock();
+            try {
+                next = leaf.next;
+            } finally {
+                leaf.latch.readLock().unlock();
+            }
+            if (next == null) {
+                done = true;
+                return;
+            }
+
+            next.latch.readLock().lock();
+            try {
+                copy(next);
+            } finally {
+                next.latch.readLock().unlock();
+            }
+            leaf = next;
+        }
+
+        private void copy(LeafNode<K, V> node) {
+            if (node.keys.size() > keyBuf.length) {
+                keyBuf = new Object[node.keys.size()];
+                valueBuf = new Object[node.keys.size()];
+            }
+            Arrays.fill(keyBuf, 0, n, null);
+            Arrays.fill(valueBuf, 0, n, null);
+            n = 0;
+            i = -1;
+            for (int k = 0; k < node.keys.size(); k++) {
+                K key = node.keys.get(k);
+                if (lower != null) {
+                    int c = key.compareTo(lower);
+                    if (c < 0 || (c == 0 && !lowerInc)) continue;
+                }
+                if (to != null) {
+                    int c = key.compareTo(to);
+                    if (c > 0 || (c == 0 && !toInc)) {
+                        done = true;
+                        break;
+                    }
+                }
+                keyBuf[n] = key;
+                valueBuf[n] = node.values.get(k);
+                n++;
+            }
+        }
+    }
+}
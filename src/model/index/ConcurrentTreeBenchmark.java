@@ -0,0 +1,119 @@
+package model.index;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * ConcurrentBPlusTree 를 스레드 수를 늘려 가며 돌려 처리량이 코어 수에 따라 느는지 본다.
+ * 부하: PK 조회만 / PK 조회 90% + 삽입 10% / 100개씩 구간 조회. 키는 주 인덱스처럼 인코딩된 문자열 모양이다.
+ * 사용: java -Xmx2g -cp out model.index.ConcurrentTreeBenchmark [키 수=1000000] [스레드 수들=1,4,16] [측정 초=3]
+ * 스레드 수마다 1초 데운 뒤 측정하고, 스레드 하나일 때와의 비율을 함께 찍는다. 코어보다 많은 스레드는 늘지 않는 것이 정상이다.
+ */
+public final class ConcurrentTreeBenchmark {
+
+    private static final int RANGE = 100;
+
+    private ConcurrentTreeBenchmark() {
+    }
+
+    private enum Workload {
+        GET("조회"),
+        MIXED("조회 90% + 삽입 10%"),
+        RANGE_SCAN("구간 조회(" + RANGE + "개)");
+
+        final String label;
+
+        Workload(String label) {
+            this.label = label;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        String[] threadCounts = (args.length > 1) ? args[1].split(",") : new String[]{"1", "4", "16"};
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        System.out.printf("키 %,d개, 코어 %d개%n", keys, Runtime.getRuntime().availableProcessors());
+        // 측정 중에 문자열을 만들지 않도록 키를 미리 만든다
+        String[] names = new String[2 * keys];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format("user%012d", i);
+        }
+
+        for (Workload workload : Workload.values()) {
+            System.out.println(workload.label);
+            double single = 0;
+            for (String s : threadCounts) {
+                int threads = Integer.parseInt(s.trim());
+                ConcurrentBPlusTree<String, String> tree = load(names);
+                run(tree, workload, names, threads, 1);
+                double opsPerSecond = run(tree, workload, names, threads, seconds) / (double) seconds;
+                if (single == 0) single = opsPerSecond;
+                System.out.printf("  스레드 %2d: %,.0f건/초 (%.1f배)%n", threads, opsPerSecond, opsPerSecond / single);
+            }
+        }
+    }
+
+    // 짝수 번째 키만 채워 두고, 삽입은 비어 있는 홀수 번째 키에 한다
+    private static ConcurrentBPlusTree<String, String> load(String[] names) {
+        ConcurrentBPlusTree<String, String> tree = new ConcurrentBPlusTree<>();
+        tree.bulkLoad(new Iterator<>() {
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < names.length;
+            }
+
+            @Override
+            public Map.Entry<String, String> next() {
+                String key = names[i];
+                i += 2;
+                return new AbstractMap.SimpleImmutableEntry<>(key, key);
+            }
+        }, 0.9);
+        return tree;
+    }
+
+    private static long run(ConcurrentBPlusTree<String, String> tree, Workload workload, String[] names, int threads, int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long[] ops = new long[threads];
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long n = 0;
+                // 시계는 256 번에 한 번만 본다
+                while ((n & 255) != 0 || System.nanoTime() < deadline) {
+                    int k = 2 * random.nextInt(names.length / 2);
+                    if (workload == Workload.GET) {
+                        tree.get(names[k]);
+                    } else if (workload == Workload.MIXED) {
+                        if (random.nextInt(10) == 0) {
+                            tree.put(names[k + 1], names[k + 1]);
+                        } else {
+                            tree.get(names[k]);
+                        }
+                    } else {
+                        IndexCursor<String, String> cursor = tree.cursor(names[k], true, null, true);
+                        for (int i = 0; i < RANGE && cursor.next(); i++) {
+                            cursor.key();
+                        }
+                    }
+                    n++;
+                }
+                ops[id] = n;
+            });
+            workers[t].start();
+        }
+        long total = 0;
+        for (int t = 0; t < threads; t++) {
+            workers[t].join();
+            total += ops[t];
+        }
+        return total;
+    }
+}
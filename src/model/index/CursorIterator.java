@@ -0,0 +1,33 @@
+package model.index;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// entries()/range() 처럼 Map.Entry 를 돌려줘야 하는 호출자를 위해 커서를 감싼다
+final class CursorIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+    private final IndexCursor<K, V> cursor;
+    private boolean ready;
+    private boolean hasNext;
+
+    CursorIterator(IndexCursor<K, V> cursor) {
+        this.cursor = cursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            hasNext = cursor.next();
+            ready = true;
+        }
+        return hasNext;
+    }
+
+    @Override
+    public Map.Entry<K, V> next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        ready = false;
+        return Map.entry(cursor.key(), cursor.value());
+    }
+}
@@ -0,0 +1,14 @@
+package model.index;
+
+// 항목마다 객체를 만들지 않는 순회. next() 가 true 를 돌려준 뒤에만 key()/value() 가 의미 있다.
+public interface IndexCursor<K, V> {
+
+    boolean next();
+
+    K key();
+
+    V value();
+
+    // 같은 커서로 다른 구간을 처음부터 다시 훑는다. null 경계는 열린 끝이다.
+    void seek(K from, boolean fromInc, K to, boolean toInc);
+}
@@ -0,0 +1,63 @@
+package model.index;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+// 노드 하나의 키를 한 배열에 모아 담는다. 키 객체를 노드마다 따로 두지 않으므로 탐색이 연속된 메모리만 훑는다.
+abstract class KeyBlock<K extends Comparable<K>> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // 같은 종류의 새 블록. keys 는 오름차순이어야 한다.
+    abstract KeyBlock<K> of(List<K> keys);
+
+    abstract int size();
+
+    abstract K get(int i);
+
+    // Collections.binarySearch 와 같은 반환 규칙
+    abstract int search(K key);
+
+    // get(i).compareTo(key) 와 같은 부호. 키 객체를 만들지 않고 비교할 수 있는 종류는 재정의한다.
+    int compareAt(int i, K key) {
+        return get(i).compareTo(key);
+    }
+
+    abstract void insert(int i, K key);
+
+    abstract void remove(int i);
+
+    // 왼쪽 마지막 키보다 크고 오른쪽 첫 키 이하인 구분 키. 짧게 잘라낼 수 있는 키 종류만 재정의한다.
+    K separator(K leftLast, K rightFirst) {
+        return rightFirst;
+    }
+
+    void set(int i, K key) {
+        remove(i);
+        insert(i, key);
+    }
+
+    void add(K key) {
+        insert(size(), key);
+    }
+
+    // [from, size) 를 떼어 새 블록으로 돌려준다
+    KeyBlock<K> splitOff(int from) {
+        List<K> all = toList();
+        KeyBlock<K> right = of(all.subList(from, all.size()));
+        for (int i = size() - 1; i >= from; i--) remove(i);
+        return right;
+    }
+
+    // other 의 키는 모두 이 블록의 키보다 커야 한다
+    void addAll(KeyBlock<K> other) {
+        for (int i = 0; i < other.size(); i++) add(other.get(i));
+    }
+
+    List<K> toList() {
+        List<K> out = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) out.add(get(i));
+        return out;
+    }
+}
@@ -0,0 +1,88 @@
+package model.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+// long 키를 박싱하지 않고 long[] 하나에 담는다
+final class LongKeys extends KeyBlock<Long> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private long[] keys;
+    private int size;
+
+    LongKeys() {
+        this(new long[INITIAL_CAPACITY], 0);
+    }
+
+    private LongKeys(long[] keys, int size) {
+        this.keys = keys;
+        this.size = size;
+    }
+
+    @Override
+    KeyBlock<Long> of(List<Long> sorted) {
+        long[] arr = new long[Math.max(INITIAL_CAPACITY, sorted.size())];
+        for (int i = 0; i < sorted.size(); i++) arr[i] = sorted.get(i);
+        return new LongKeys(arr, sorted.size());
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    Long get(int i) {
+        return keys[i];
+    }
+
+    @Override
+    int search(Long key) {
+        long k = key;
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long v = keys[mid];
+            if (v < k) {
+                lo = mid + 1;
+            } else if (v > k) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    @Override
+    int compareAt(int i, Long key) {
+        return Long.compare(keys[i], key);
+    }
+
+    @Override
+    void insert(int i, Long key) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        keys[i] = key;
+        size++;
+    }
+
+    @Override
+    void remove(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        size--;
+    }
+
+    @Override
+    KeyBlock<Long> splitOff(int from) {
+        int n = size - from;
+        LongKeys right = new LongKeys(Arrays.copyOfRange(keys, from, from + Math.max(INITIAL_CAPACITY, n)), n);
+        size = from;
+        return right;
+    }
+}
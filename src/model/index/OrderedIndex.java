@@ -1,6 +1,8 @@
 package model.index;
 
 import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public interface OrderedIndex<K extends Comparable<K>, V> extends Serializable {
@@ -14,6 +16,29 @@ public interface OrderedIndex<K extends Comparable<K>, V> extends Serializable {
         return size() == 0;
     }
 
-    Iterable<Map.Entry<K,V>> entries();
-    Iterable<Map.Entry<K,V>> range(K from, boolean fromInc, K to, boolean toInc);
+    // 맨 앞에서 시작하는 전체 순회 커서
+    IndexCursor<K,V> cursor();
+
+    default IndexCursor<K,V> cursor(K from, boolean fromInc, K to, boolean toInc) {
+        IndexCursor<K,V> c = cursor();
+        c.seek(from, fromInc, to, toInc);
+        return c;
+    }
+
+    default Iterable<Map.Entry<K,V>> entries() {
+        return () -> new CursorIterator<>(cursor());
+    }
+
+    // null 경계는 열린 끝이다
+    default Iterable<Map.Entry<K,V>> range(K from, boolean fromInc, K to, boolean toInc) {
+        if (from != null && to != null && from.compareTo(to) > 0) return List.of();
+        return () -> new CursorIterator<>(cursor(from, fromInc, to, toInc));
+    }
+
+    // 삭제로 성긴 노드를 다시 채워 트리를 재구성한다. 호출하는 동안 다른 쓰기가 없어야 한다.
+    void compact();
+
+    // 키 오름차순 항목으로 트리를 아래에서부터 다시 쌓는다. 기존 내용은 버리며, 호출하는 동안 다른 쓰기가 없어야 한다.
+    // fillFactor(0 초과 1 이하)만큼 노드를 채운다.
+    void bulkLoad(Iterator<Map.Entry<K,V>> sorted, double fillFactor);
 }
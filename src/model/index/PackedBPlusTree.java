@@ -0,0 +1,516 @@
+package model.index;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+/*
+ * BPlusTree 와 같은 규칙(분할, 빌리기/병합, bulk load)을 따르되 노드 배치만 다른 B+Tree.
+ * - 키: 노드마다 KeyBlock 하나에 모아 담는다. long 키는 long[], 문자열 키는 공통 접두사 + char[] 접미사.
+ * - 값/자식: ArrayList 대신 고정 크기 배열.
+ * - 문자열 리프가 분할될 때 부모로 올리는 구분 키는 두 리프를 가를 만큼만 남기고 잘라낸다.
+ * 한 스레드에서만 쓰거나 호출자가 잠가야 한다.
+ */
+public class PackedBPlusTree<K extends Comparable<K>, V> implements OrderedIndex<K, V> {
+
+    private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_ORDER = 32;
+    private final int order;
+    private final KeyBlock<K> blocks;
+
+    private abstract static class Node<K extends Comparable<K>> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final KeyBlock<K> keys;
+
+        Node(KeyBlock<K> keys) {
+            this.keys = keys;
+        }
+
+        abstract boolean isLeaf();
+    }
+
+    private static final class LeafNode<K extends Comparable<K>> extends Node<K> {
+
+        private static final long serialVersionUID = 1L;
+        final Object[] values;
+        LeafNode<K> next;
+
+        LeafNode(KeyBlock<K> keys, int capacity) {
+            super(keys);
+            this.values = new Object[capacity];
+        }
+
+        @Override
+        boolean isLeaf() {
+            return true;
+        }
+    }
+
+    // 자식 수는 항상 keys.size() + 1
+    private static final class InternalNode<K extends Comparable<K>> extends Node<K> {
+
+        private static final long serialVersionUID = 1L;
+        final Object[] children;
+
+        InternalNode(KeyBlock<K> keys, int capacity) {
+            super(keys);
+            this.children = new Object[capacity];
+        }
+
+        @Override
+        boolean isLeaf() {
+            return false;
+        }
+    }
+
+    private Node<K> root;
+    private int size = 0;
+
+    private PackedBPlusTree(int order, KeyBlock<K> blocks) {
+        if (order < 4) {
+            throw new IllegalArgumentException("[ERROR] order >= 4");
+        }
+        this.order = order;
+        this.blocks = blocks;
+        this.root = newLeaf(List.of());
+    }
+
+    public static <V> PackedBPlusTree<String, V> forStrings() {
+        return forStrings(DEFAULT_ORDER);
+    }
+
+    public static <V> PackedBPlusTree<String, V> forStrings(int order) {
+        return new PackedBPlusTree<>(order, new PrefixStringKeys());
+    }
+
+    public static <V> PackedBPlusTree<Long, V> forLongs() {
+        return forLongs(DEFAULT_ORDER);
+    }
+
+    public static <V> PackedBPlusTree<Long, V> forLongs(int order) {
+        return new PackedBPlusTree<>(order, new LongKeys());
+    }
+
+    @Override
+    public V get(K key) {
+        LeafNode<K> leaf = findLeaf(key);
+        int idx = leaf.keys.search(key);
+        return (idx >= 0) ? valueOf(leaf, idx) : null;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        SplitResult<K> split = insert(root, key, value);
+        if (split != null) {
+            InternalNode<K> newRoot = newInternal(List.of(split.pivot));
+            newRoot.children[0] = split.left;
+            newRoot.children[1] = split.right;
+            root = newRoot;
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        V removed = delete(root, key);
+        if (!root.isLeaf() && root.keys.size() == 0) {
+            root = childOf((InternalNode<K>) root, 0);
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void compact() {
+        bulkLoad(entries().iterator(), 1.0);
+    }
+
+    @Override
+    public void bulkLoad(Iterator<Entry<K, V>> sorted, double fillFactor) {
+        int perNode = perNode(fillFactor);
+        List<Node<K>> level = new ArrayList<>();
+        List<K> firstKeys = new ArrayList<>();
+        List<K> pendingKeys = new ArrayList<>(perNode);
+        List<V> pendingValues = new ArrayList<>(perNode);
+        LeafNode<K> prev = null;
+        K last = null;
+        int count = 0;
+
+        while (sorted.hasNext()) {
+            Entry<K, V> e = sorted.next();
+            K key = e.getKey();
+            if (last != null && last.compareTo(key) >= 0) {
+                throw new IllegalArgumentException("[ERROR] bulk load 입력이 키 오름차순이 아닙니다: " + key);
+            }
+            if (pendingKeys.size() == perNode) {
+                prev = closeLeaf(pendingKeys, pendingValues, prev, level);
+                firstKeys.add(blocks.separator(last, key));
+            } else if (pendingKeys.isEmpty()) {
+                firstKeys.add(key);
+            }
+            pendingKeys.add(key);
+            pendingValues.add(e.getValue());
+            last = key;
+            count++;
+        }
+
+        if (pendingKeys.isEmpty()) {
+            root = newLeaf(List.of());
+            size = 0;
+            return;
+        }
+        closeLeaf(pendingKeys, pendingValues, prev, level);
+        balanceLastLeaf(level, firstKeys);
+
+        while (level.size() > 1) {
+            List<Node<K>> parents = new ArrayList<>();
+            List<K> parentFirstKeys = new ArrayList<>();
+            for (int[] chunk : chunks(level.size(), perNode + 1)) {
+                InternalNode<K> in = newInternal(firstKeys.subList(chunk[0] + 1, chunk[1]));
+                for (int i = chunk[0]; i < chunk[1]; i++) {
+                    in.children[i - chunk[0]] = level.get(i);
+                }
+                parents.add(in);
+                parentFirstKeys.add(firstKeys.get(chunk[0]));
+            }
+            level = parents;
+            firstKeys = parentFirstKeys;
+        }
+        root = level.get(0);
+        size = count;
+    }
+
+    @Override
+    public IndexCursor<K, V> cursor() {
+        return new LeafCursor();
+    }
+
+    // 문자열 키는 key() 를 부를 때만 접두사와 접미사를 이어 만든다. value() 만 쓰는 순회는 항목마다 할당하지 않는다.
+    private final class LeafCursor implements IndexCursor<K, V> {
+        private LeafNode<K> leaf;
+        private int idx;
+        private K to;
+        private boolean toInc;
+
+        LeafCursor() {
+            seek(null, true, null, true);
+        }
+
+        @Override
+        public void seek(K from, boolean fromInc, K to, boolean toInc) {
+            this.to = to;
+            this.toInc = toInc;
+            if (from == null) {
+                leaf = leftmostLeaf();
+                idx = -1;
+            } else {
+                leaf = findLeaf(from);
+                int pos = leaf.keys.search(from);
+                idx = ((pos >= 0) ? (fromInc ? pos : pos + 1) : -(pos + 1)) - 1;
+            }
+        }
+
+        @Override
+        public boolean next() {
+            idx++;
+            while (leaf != null && idx >= leaf.keys.size()) {
+                leaf = leaf.next;
+                idx = 0;
+            }
+            if (leaf == null) {
+                return false;
+            }
+            if (to != null) {
+                int cmp = leaf.keys.compareAt(idx, to);
+                if (cmp > 0 || (cmp == 0 && !toInc)) {
+                    leaf = null;
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public K key() {
+            return leaf.keys.get(idx);
+        }
+
+        @Override
+        public V value() {
+            return valueOf(leaf, idx);
+        }
+    }
+
+    private static final class SplitResult<K extends Comparable<K>> {
+        final K pivot;
+        final Node<K> left;
+        final Node<K> right;
+
+        SplitResult(K pivot, Node<K> left, Node<K> right) {
+            this.pivot = pivot;
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    private SplitResult<K> insert(Node<K> node, K key, V value) {
+        if (node.isLeaf()) {
+            LeafNode<K> leaf = (LeafNode<K>) node;
+            int pos = leaf.keys.search(key);
+            if (pos >= 0) {
+                leaf.values[pos] = value;
+                return null;
+            }
+            int ip = -(pos + 1);
+            insertAt(leaf.values, leaf.keys.size(), ip, value);
+            leaf.keys.insert(ip, key);
+            size++;
+            return (leaf.keys.size() > order) ? splitLeaf(leaf) : null;
+        }
+
+        InternalNode<K> in = (InternalNode<K>) node;
+        int childIdx = childIndex(in.keys, key);
+        SplitResult<K> childSplit = insert(childOf(in, childIdx), key, value);
+        if (childSplit == null) return null;
+
+        insertAt(in.children, in.keys.size() + 1, childIdx + 1, childSplit.right);
+        in.keys.insert(childIdx, childSplit.pivot);
+        return (in.keys.size() > order) ? splitInternal(in) : null;
+    }
+
+    private SplitResult<K> splitLeaf(LeafNode<K> leaf) {
+        int n = leaf.keys.size();
+        int mid = (n + 1) / 2;
+        LeafNode<K> right = new LeafNode<>(leaf.keys.splitOff(mid), order + 1);
+        System.arraycopy(leaf.values, mid, right.values, 0, n - mid);
+        Arrays.fill(leaf.values, mid, n, null);
+        right.next = leaf.next;
+        leaf.next = right;
+
+        K pivot = blocks.separator(leaf.keys.get(mid - 1), right.keys.get(0));
+        return new SplitResult<>(pivot, leaf, right);
+    }
+
+    private SplitResult<K> splitInternal(InternalNode<K> in) {
+        int n = in.keys.size();
+        int mid = n / 2;
+        K pivot = in.keys.get(mid);
+
+        InternalNode<K> right = new InternalNode<>(in.keys.splitOff(mid + 1), order + 2);
+        in.keys.remove(mid);
+        System.arraycopy(in.children, mid + 1, right.children, 0, n - mid);
+        Arrays.fill(in.children, mid + 1, n + 1, null);
+        return new SplitResult<>(pivot, in, right);
+    }
+
+    private int minKeys() {
+        return order / 2;
+    }
+
+    private V delete(Node<K> n, K key) {
+        if (n.isLeaf()) {
+            LeafNode<K> leaf = (LeafNode<K>) n;
+            int pos = leaf.keys.search(key);
+            if (pos < 0) return null;
+            V prev = valueOf(leaf, pos);
+            removeAt(leaf.values, leaf.keys.size(), pos);
+            leaf.keys.remove(pos);
+            size--;
+            return prev;
+        }
+
+        InternalNode<K> in = (InternalNode<K>) n;
+        int idx = childIndex(in.keys, key);
+        V prev = delete(childOf(in, idx), key);
+        if (prev != null && childOf(in, idx).keys.size() < minKeys()) {
+            rebalance(in, idx);
+        }
+        return prev;
+    }
+
+    private void rebalance(InternalNode<K> parent, int idx) {
+        int children = parent.keys.size() + 1;
+        Node<K> child = childOf(parent, idx);
+        Node<K> left = (idx > 0) ? childOf(parent, idx - 1) : null;
+        Node<K> right = (idx + 1 < children) ? childOf(parent, idx + 1) : null;
+
+        if (left != null && left.keys.size() > minKeys()) {
+            borrowFromLeft(parent, idx, left, child);
+        } else if (right != null && right.keys.size() > minKeys()) {
+            borrowFromRight(parent, idx, child, right);
+        } else if (left != null) {
+            merge(parent, idx - 1, left, child);
+        } else if (right != null) {
+            merge(parent, idx, child, right);
+        }
+    }
+
+    private void borrowFromLeft(InternalNode<K> parent, int idx, Node<K> left, Node<K> child) {
+        int last = left.keys.size() - 1;
+        if (child.isLeaf()) {
+            LeafNode<K> l = (LeafNode<K>) left;
+            LeafNode<K> c = (LeafNode<K>) child;
+            insertAt(c.values, c.keys.size(), 0, removeAt(l.values, last + 1, last));
+            c.keys.insert(0, l.keys.get(last));
+            l.keys.remove(last);
+            parent.keys.set(idx - 1, blocks.separator(l.keys.get(last - 1), c.keys.get(0)));
+        } else {
+            InternalNode<K> l = (InternalNode<K>) left;
+            InternalNode<K> c = (InternalNode<K>) child;
+            insertAt(c.children, c.keys.size() + 1, 0, removeAt(l.children, last + 2, last + 1));
+            c.keys.insert(0, parent.keys.get(idx - 1));
+            parent.keys.set(idx - 1, l.keys.get(last));
+            l.keys.remove(last);
+        }
+    }
+
+    private void borrowFromRight(InternalNode<K> parent, int idx, Node<K> child, Node<K> right) {
+        if (child.isLeaf()) {
+            LeafNode<K> c = (LeafNode<K>) child;
+            LeafNode<K> r = (LeafNode<K>) right;
+            c.values[c.keys.size()] = removeAt(r.values, r.keys.size(), 0);
+            c.keys.add(r.keys.get(0));
+            r.keys.remove(0);
+            parent.keys.set(idx, blocks.separator(c.keys.get(c.keys.size() - 1), r.keys.get(0)));
+        } else {
+            InternalNode<K> c = (InternalNode<K>) child;
+            InternalNode<K> r = (InternalNode<K>) right;
+            c.children[c.keys.size() + 1] = removeAt(r.children, r.keys.size() + 1, 0);
+            c.keys.add(parent.keys.get(idx));
+            parent.keys.set(idx, r.keys.get(0));
+            r.keys.remove(0);
+        }
+    }
+
+    // right 를 left 에 붙이고 둘 사이 구분 키(parent.keys[sep])를 없앤다
+    private void merge(InternalNode<K> parent, int sep, Node<K> left, Node<K> right) {
+        if (left.isLeaf()) {
+            LeafNode<K> l = (LeafNode<K>) left;
+            LeafNode<K> r = (LeafNode<K>) right;
+            System.arraycopy(r.values, 0, l.values, l.keys.size(), r.keys.size());
+            l.keys.addAll(r.keys);
+            l.next = r.next;
+        } else {
+            InternalNode<K> l = (InternalNode<K>) left;
+            InternalNode<K> r = (InternalNode<K>) right;
+            System.arraycopy(r.children, 0, l.children, l.keys.size() + 1, r.keys.size() + 1);
+            l.keys.add(parent.keys.get(sep));
+            l.keys.addAll(r.keys);
+        }
+        removeAt(parent.children, parent.keys.size() + 1, sep + 1);
+        parent.keys.remove(sep);
+    }
+
+    private LeafNode<K> closeLeaf(List<K> keys, List<V> values, LeafNode<K> prev, List<Node<K>> level) {
+        LeafNode<K> leaf = newLeaf(keys);
+        for (int i = 0; i < values.size(); i++) leaf.values[i] = values.get(i);
+        if (prev != null) prev.next = leaf;
+        level.add(leaf);
+        keys.clear();
+        values.clear();
+        return leaf;
+    }
+
+    // 마지막 리프가 최소 크기보다 작으면 직전 리프와 반씩 나눠 갖는다
+    private void balanceLastLeaf(List<Node<K>> level, List<K> firstKeys) {
+        int n = level.size();
+        if (n < 2 || level.get(n - 1).keys.size() >= minKeys() + 1) {
+            return;
+        }
+        LeafNode<K> prev = (LeafNode<K>) level.get(n - 2);
+        LeafNode<K> tail = (LeafNode<K>) level.get(n - 1);
+        int move = (prev.keys.size() - tail.keys.size()) / 2;
+        for (int i = 0; i < move; i++) {
+            int last = prev.keys.size() - 1;
+            insertAt(tail.values, tail.keys.size(), 0, removeAt(prev.values, last + 1, last));
+            tail.keys.insert(0, prev.keys.get(last));
+            prev.keys.remove(last);
+        }
+        if (move > 0) {
+            firstKeys.set(n - 1, blocks.separator(prev.keys.get(prev.keys.size() - 1), tail.keys.get(0)));
+        }
+    }
+
+    private int perNode(double fillFactor) {
+        if (!(fillFactor > 0.0 && fillFactor <= 1.0)) {
+            throw new IllegalArgumentException("[ERROR] fill factor 는 0 초과 1 이하여야 합니다: " + fillFactor);
+        }
+        return Math.max(2, Math.min(order, (int) Math.round(order * fillFactor)));
+    }
+
+    private List<int[]> chunks(int total, int perNode) {
+        List<int[]> out = new ArrayList<>();
+        for (int from = 0; from < total; from += perNode) {
+            out.add(new int[]{from, Math.min(total, from + perNode)});
+        }
+        int n = out.size();
+        if (n > 1 && out.get(n - 1)[1] - out.get(n - 1)[0] < minKeys() + 1) {
+            int from = out.get(n - 2)[0];
+            int mid = from + (total - from + 1) / 2;
+            out.set(n - 2, new int[]{from, mid});
+            out.set(n - 1, new int[]{mid, total});
+        }
+        return out;
+    }
+
+    private LeafNode<K> findLeaf(K key) {
+        Node<K> cur = root;
+        while (!cur.isLeaf()) {
+            InternalNode<K> in = (InternalNode<K>) cur;
+            cur = childOf(in, childIndex(in.keys, key));
+        }
+        return (LeafNode<K>) cur;
+    }
+
+    private LeafNode<K> leftmostLeaf() {
+        Node<K> cur = root;
+        while (!cur.isLeaf()) cur = childOf((InternalNode<K>) cur, 0);
+        return (LeafNode<K>) cur;
+    }
+
+    private int childIndex(KeyBlock<K> keys, K key) {
+        int pos = keys.search(key);
+        return (pos >= 0) ? pos + 1 : -(pos + 1);
+    }
+
+    private LeafNode<K> newLeaf(List<K> keys) {
+        return new LeafNode<>(blocks.of(keys), order + 1);
+    }
+
+    private InternalNode<K> newInternal(List<K> keys) {
+        return new InternalNode<>(blocks.of(keys), order + 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<K> childOf(InternalNode<K> in, int i) {
+        return (Node<K>) in.children[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueOf(LeafNode<K> leaf, int i) {
+        return (V) leaf.values[i];
+    }
+
+    private static void insertAt(Object[] arr, int count, int i, Object v) {
+        System.arraycopy(arr, i, arr, i + 1, count - i);
+        arr[i] = v;
+    }
+
+    private static Object removeAt(Object[] arr, int count, int i) {
+        Object v = arr[i];
+        System.arraycopy(arr, i + 1, arr, i, count - i - 1);
+        arr[count - 1] = null;
+        return v;
+    }
+}
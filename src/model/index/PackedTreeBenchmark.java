@@ -0,0 +1,121 @@
+package model.index;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/*
+ * PackedBPlusTree 와 BPlusTree 를 같은 키로 채워 힙 사용량과 조회 속도를 비교한다.
+ * 문자열 키(보조 인덱스 키처럼 긴 공통 접두사가 있는 값)와 long 키를 따로 잰다.
+ * 키 객체는 트리마다 새로 만들어 넘기므로, 키를 그대로 쥐는 BPlusTree 는 키 객체까지, PackedBPlusTree 는 자기 배열만 남는다.
+ * 값은 모든 항목이 같은 객체 하나를 가리켜 값 크기는 재지 않는다.
+ * 사용: java -Xmx4g -cp out model.index.PackedTreeBenchmark [키 수=1000000] [조회 수=2000000] [측정 횟수=5]
+ * 측정 전에 두 트리가 같은 값을 돌려주는지 확인하고 두 번씩 돌려 JIT 를 데운다.
+ */
+public final class PackedTreeBenchmark {
+
+    private static final double FILL_FACTOR = 0.9;
+    private static final Object VALUE = new Object();
+    private static long hitCount;
+
+    private PackedTreeBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int keys = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int lookups = (args.length > 1) ? Integer.parseInt(args[1]) : 2_000_000;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        System.out.println("문자열 키");
+        compare(keys, lookups, iterations, i -> String.format("city=Seoul\u0000name=user%09d\u0000", i),
+                new BPlusTree<>(), PackedBPlusTree.forStrings());
+        System.out.println("long 키");
+        compare(keys, lookups, iterations, i -> 1_000_000_000_000L + 7L * i,
+                new BPlusTree<>(), PackedBPlusTree.forLongs());
+        System.out.printf("(조회 중 찾은 키 %,d개)%n", hitCount);
+    }
+
+    // key(i) 는 i 가 커질수록 커야 하고, 트리에는 key(0), key(2), key(4), ... 를 넣는다
+    private static <K extends Comparable<K>> void compare(int keys, int lookups, int iterations, IntFunction<K> key,
+                                                          OrderedIndex<K, Object> boxed, OrderedIndex<K, Object> packed) {
+        long before = usedHeap();
+        boxed.bulkLoad(sorted(keys, key), FILL_FACTOR);
+        long boxedBytes = usedHeap() - before;
+        before = usedHeap();
+        packed.bulkLoad(sorted(keys, key), FILL_FACTOR);
+        long packedBytes = usedHeap() - before;
+        System.out.printf("  키당 힙: BPlusTree %.1fB, PackedBPlusTree %.1fB (%.0f%% 감소)%n",
+                boxedBytes / (double) keys, packedBytes / (double) keys, (1 - packedBytes / (double) boxedBytes) * 100);
+
+        // 트리에는 짝수 번째 키만 있으므로 조회의 절반쯤은 없는 키다
+        Random random = new Random(keys);
+        @SuppressWarnings("unchecked")
+        K[] probes = (K[]) new Comparable<?>[lookups];
+        for (int i = 0; i < lookups; i++) {
+            probes[i] = key.apply(random.nextInt(2 * keys));
+        }
+        for (K probe : probes) {
+            if (boxed.get(probe) != packed.get(probe)) {
+                throw new IllegalStateException("[ERROR] 두 트리의 결과가 다릅니다: " + probe);
+            }
+        }
+        lookup(boxed, probes);
+        lookup(packed, probes);
+        lookup(boxed, probes);
+        lookup(packed, probes);
+
+        double boxedMillis = measure("BPlusTree", lookups, iterations, () -> lookup(boxed, probes));
+        double packedMillis = measure("PackedBPlusTree", lookups, iterations, () -> lookup(packed, probes));
+        System.out.printf("  PackedBPlusTree 가 %.1f배 빠름%n", boxedMillis / packedMillis);
+    }
+
+    private static <K extends Comparable<K>> Iterator<Map.Entry<K, Object>> sorted(int keys, IntFunction<K> key) {
+        return new Iterator<>() {
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < keys;
+            }
+
+            @Override
+            public Map.Entry<K, Object> next() {
+                K k = key.apply(2 * i++);
+                return new AbstractMap.SimpleImmutableEntry<>(k, VALUE);
+            }
+        };
+    }
+
+    private static <K extends Comparable<K>> void lookup(OrderedIndex<K, Object> tree, K[] probes) {
+        int hits = 0;
+        for (K probe : probes) {
+            if (tree.get(probe) != null) hits++;
+        }
+        // 결과를 쓰지 않으면 JIT 가 조회를 걷어낼 수 있다
+        hitCount += hits;
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    private static double measure(String name, int lookups, int iterations, Runnable work) {
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            work.run();
+            double millis = (System.nanoTime() - start) / 1e6;
+            best = Math.min(best, millis);
+            total += millis;
+        }
+        System.out.printf("  %s: 평균 %.1fms, 최소 %.1fms, %,.0f건/초%n", name, total / iterations, best, lookups / (best / 1000));
+        return best;
+    }
+}
@@ -0,0 +1,176 @@
+package model.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * 문자열 키를 공통 접두사(head) 하나와 나머지 접미사들을 이어 붙인 char[] 로 담는다. offsets[i]..offsets[i+1] 이 i 번째 접미사다.
+ * String.compareTo 와 같은 순서를 지키려고 UTF-8 바이트 대신 char 단위로 담고 비교한다.
+ * 새 키가 접두사로 시작하지 않으면 접두사를 줄여 다시 채운다. 분할/병합 뒤에는 첫 키와 마지막 키의 공통 접두사로 다시 잡는다.
+ */
+final class PrefixStringKeys extends KeyBlock<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    private String prefix = "";
+    private char[] chars = new char[0];
+    private int[] offsets = new int[1];
+    private int size;
+
+    @Override
+    KeyBlock<String> of(List<String> sorted) {
+        PrefixStringKeys block = new PrefixStringKeys();
+        block.fill(sorted);
+        return block;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    String get(int i) {
+        int from = offsets[i];
+        int len = offsets[i + 1] - from;
+        return new StringBuilder(prefix.length() + len).append(prefix).append(chars, from, len).toString();
+    }
+
+    @Override
+    int search(String key) {
+        if (!key.startsWith(prefix)) {
+            // 모든 키가 prefix 로 시작하므로 key 는 전부보다 작거나 전부보다 크다
+            return (key.compareTo(prefix) < 0) ? -1 : -(size + 1);
+        }
+
+        int p = prefix.length();
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareSuffix(mid, key, p);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    @Override
+    int compareAt(int i, String key) {
+        if (!key.startsWith(prefix)) {
+            return (key.compareTo(prefix) < 0) ? 1 : -1;
+        }
+        return compareSuffix(i, key, prefix.length());
+    }
+
+    @Override
+    void insert(int i, String key) {
+        if (size == 0) {
+            prefix = key;
+        } else if (!key.startsWith(prefix)) {
+            List<String> all = toList();
+            all.add(i, key);
+            fill(all);
+            return;
+        }
+
+        int p = prefix.length();
+        int len = key.length() - p;
+        int used = offsets[size];
+        if (used + len > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(used + len, chars.length * 2));
+        }
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(size + 2, offsets.length * 2));
+        }
+
+        int at = offsets[i];
+        System.arraycopy(chars, at, chars, at + len, used - at);
+        key.getChars(p, key.length(), chars, at);
+        System.arraycopy(offsets, i + 1, offsets, i + 2, size - i);
+        for (int j = i + 2; j <= size + 1; j++) offsets[j] += len;
+        offsets[i + 1] = at + len;
+        size++;
+    }
+
+    @Override
+    void remove(int i) {
+        int at = offsets[i];
+        int len = offsets[i + 1] - at;
+        int used = offsets[size];
+        System.arraycopy(chars, at + len, chars, at, used - at - len);
+        System.arraycopy(offsets, i + 2, offsets, i + 1, size - i - 1);
+        size--;
+        for (int j = i + 1; j <= size; j++) offsets[j] -= len;
+        if (size == 0) {
+            prefix = "";
+        }
+    }
+
+    // 구분 키는 오른쪽 첫 키에서 왼쪽 마지막 키와 달라지는 첫 글자까지만 남긴다
+    @Override
+    String separator(String leftLast, String rightFirst) {
+        int common = commonPrefixLength(leftLast, rightFirst);
+        return rightFirst.substring(0, Math.min(common + 1, rightFirst.length()));
+    }
+
+    @Override
+    KeyBlock<String> splitOff(int from) {
+        List<String> all = toList();
+        KeyBlock<String> right = of(all.subList(from, all.size()));
+        fill(all.subList(0, from));
+        return right;
+    }
+
+    @Override
+    void addAll(KeyBlock<String> other) {
+        List<String> all = toList();
+        all.addAll(other.toList());
+        fill(all);
+    }
+
+    // 오름차순 목록은 첫 키와 마지막 키의 공통 접두사가 곧 전체의 공통 접두사다
+    private void fill(List<String> sorted) {
+        size = sorted.size();
+        prefix = (size == 0) ? "" : sorted.get(0).substring(0, commonPrefixLength(sorted.get(0), sorted.get(size - 1)));
+
+        int p = prefix.length();
+        int total = 0;
+        for (String key : sorted) total += key.length() - p;
+        chars = new char[total];
+        offsets = new int[size + 1];
+        int at = 0;
+        for (int i = 0; i < size; i++) {
+            String key = sorted.get(i);
+            key.getChars(p, key.length(), chars, at);
+            at += key.length() - p;
+            offsets[i + 1] = at;
+        }
+    }
+
+    // i 번째 접미사와 key[from..] 를 String.compareTo 규칙으로 비교한다
+    private int compareSuffix(int i, String key, int from) {
+        int start = offsets[i];
+        int len = offsets[i + 1] - start;
+        int keyLen = key.length() - from;
+        int n = Math.min(len, keyLen);
+        for (int k = 0; k < n; k++) {
+            char a = chars[start + k];
+            char b = key.charAt(from + k);
+            if (a != b) return a - b;
+        }
+        return len - keyLen;
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+}
@@ -0,0 +1,114 @@
+package util.checkpoint;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import model.Database;
+import util.wal.Wal;
+
+/*
+ * 체크포인트: 반영된 마지막 커밋 LSN 까지 WAL 을 동기화 → 변경 페이지와 카탈로그(체크포인트 LSN) 저장 → 지난 WAL 세그먼트 재사용.
+ * 백그라운드 스레드가 WAL 크기 또는 마지막 체크포인트 이후 경과 시간을 보고 주기적으로 실행한다.
+ * 백그라운드 실패는 출력하지 않고 횟수와 마지막 메시지만 남긴다. CLI 가 failures()/lastError() 로 알린다.
+ */
+public class Checkpointer implements Closeable {
+
+    public static final long DEFAULT_MAX_WAL_BYTES = 16L * 1024 * 1024;
+    public static final long DEFAULT_INTERVAL_MILLIS = 60_000L;
+    private static final long POLL_MILLIS = 1_000L;
+
+    private final Database db;
+    private final String dbPath;
+    private final Wal wal;
+    private final long maxWalBytes;
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    private volatile long lastCheckpointAt = System.currentTimeMillis();
+    private volatile long lastCheckpointLsn = -1L;
+    private volatile long checkpoints;
+    private long failures;
+    private String lastError;
+
+    public Checkpointer(Database db, String dbPath, Wal wal) {
+        this(db, dbPath, wal, DEFAULT_MAX_WAL_BYTES, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public Checkpointer(Database db, String dbPath, Wal wal, long maxWalBytes, long intervalMillis) {
+        this.db = db;
+        this.dbPath = dbPath;
+        this.wal = wal;
+        this.maxWalBytes = maxWalBytes;
+        this.intervalMillis = intervalMillis;
+        db.attachWal(wal);
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpointIfNeeded, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void checkpoint() throws IOException {
+        // 저장은 db 모니터 안에서 LSN 과 바뀐 행만 잡고, lsn 까지의 WAL 동기화와 쓰기는 모니터 밖에서 한다
+        long lsn = db.saveToFile(dbPath);
+        wal.truncateUpTo(lsn);
+        lastCheckpointLsn = Math.max(lastCheckpointLsn, lsn);
+        lastCheckpointAt = System.currentTimeMillis();
+        checkpoints++;
+    }
+
+    public long checkpoints() {
+        return checkpoints;
+    }
+
+    public synchronized long failures() {
+        return failures;
+    }
+
+    public synchronized String lastError() {
+        return lastError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("[CHECKPOINT] %d회, 마지막 LSN %d, 실패 %d회%s",
+                checkpoints, lastCheckpointLsn, failures, (lastError == null) ? "" : " (마지막 실패: " + lastError + ")");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private void checkpointIfNeeded() {
+        boolean pending = wal.lastLsn() > lastCheckpointLsn;
+        boolean bySize = wal.sizeBytes() >= maxWalBytes;
+        boolean byTime = System.currentTimeMillis() - lastCheckpointAt >= intervalMillis;
+        if (!pending || !(bySize || byTime)) {
+            return;
+        }
+
+        try {
+            checkpoint();
+        } catch (IOException | RuntimeException e) {
+            recordFailure(e);
+        }
+    }
+
+    private synchronized void recordFailure(Exception e) {
+        failures++;
+        lastError = e.getMessage();
+    }
+}
@@ -0,0 +1,66 @@
+package util.exec;
+
+import java.util.List;
+import model.Column;
+
+/*
+ * 연산자 사이에 오가는 행 묶음. 컬럼마다 ColumnVector 하나이고, 살아 있는 행 번호는 selection 의 앞 count 칸이다.
+ * Filter/Limit 은 값은 그대로 두고 selection 만 줄인다. 돌려받은 배치는 다음 next() 전까지만 유효하다.
+ */
+public final class Batch {
+
+    public static final int CAPACITY = 1024;
+
+    final List<Column> columns;
+    final ColumnVector[] vectors;
+    int[] selection;
+    int count;
+
+    Batch(List<Column> columns, ColumnVector[] vectors, int[] selection) {
+        this.columns = columns;
+        this.vectors = vectors;
+        this.selection = selection;
+    }
+
+    static Batch allocate(List<Column> columns) {
+        ColumnVector[] vectors = new ColumnVector[columns.size()];
+        for (int c = 0; c < vectors.length; c++) {
+            vectors[c] = new ColumnVector(columns.get(c).getType(), CAPACITY);
+        }
+        return new Batch(columns, vectors, new int[CAPACITY]);
+    }
+
+    public List<Column> columns() {
+        return columns;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public ColumnVector vector(int column) {
+        return vectors[column];
+    }
+
+    // k 번째 살아 있는 행의 벡터 안 위치
+    public int row(int k) {
+        return selection[k];
+    }
+
+    public String text(int column, int k) {
+        return vectors[column].text(selection[k]);
+    }
+
+    void selectAll(int n) {
+        int[] sel = selection;
+        for (int i = 0; i < n; i++) sel[i] = i;
+        count = n;
+    }
+
+    static int indexOf(List<Column> columns, String name) {
+        for (int c = 0; c < columns.size(); c++) {
+            if (columns.get(c).getName().equals(name)) return c;
+        }
+        throw new IllegalArgumentException("[ERROR] 존재하지 않는 컬럼입니다: " + name);
+    }
+}
@@ -0,0 +1,53 @@
+package util.exec;
+
+import java.util.List;
+import model.Column;
+
+// 아래 연산자의 살아 있는 행을 모두 모아 둔 컬럼 벡터들. Sort 의 입력과 HashJoin 의 build 쪽에 쓴다.
+final class ColumnBuffer {
+
+    final List<Column> columns;
+    final ColumnVector[] vectors;
+    int size;
+
+    ColumnBuffer(List<Column> columns) {
+        this.columns = columns;
+        this.vectors = new ColumnVector[columns.size()];
+        for (int c = 0; c < vectors.length; c++) {
+            vectors[c] = new ColumnVector(columns.get(c).getType(), Batch.CAPACITY);
+        }
+    }
+
+    static ColumnBuffer drain(Operator child) {
+        ColumnBuffer buffer = new ColumnBuffer(child.columns());
+        for (Batch b = child.next(); b != null; b = child.next()) {
+            buffer.append(b);
+        }
+        return buffer;
+    }
+
+    void append(Batch b) {
+        int n = b.count;
+        int[] sel = b.selection;
+        for (int c = 0; c < vectors.length; c++) {
+            ColumnVector to = vectors[c];
+            ColumnVector from = b.vectors[c];
+            to.grow(size + n);
+            for (int k = 0; k < n; k++) {
+                to.copy(size + k, from, sel[k]);
+            }
+        }
+        size += n;
+    }
+
+    // rows[from..from+n) 번째 행들을 out 의 앞 n 칸에 차례로 담는다
+    void gather(int[] rows, int from, int n, ColumnVector[] out, int firstColumn) {
+        for (int c = 0; c < vectors.length; c++) {
+            ColumnVector to = out[firstColumn + c];
+            ColumnVector v = vectors[c];
+            for (int t = 0; t < n; t++) {
+                to.copy(t, v, rows[from + t]);
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package util.exec;
+
+import java.util.Arrays;
+import model.ColumnType;
+
+/*
+ * 컬럼 하나의 값 배열. 정수류(INT, BIGINT, TIMESTAMP, BOOLEAN)는 long[], DOUBLE 은 double[], VARCHAR 는 String[] 에 담는다.
+ * NULL 칸은 nulls 가 true 이고 값 배열에는 0(또는 null)을 둔다.
+ * 배치의 벡터는 Batch.CAPACITY 칸이고, Sort/HashJoin 이 모아 두는 벡터는 grow 로 늘린다.
+ */
+public final class ColumnVector {
+
+    enum Kind {
+        LONG, DOUBLE, TEXT
+    }
+
+    final ColumnType type;
+    final Kind kind;
+    long[] longs;
+    double[] doubles;
+    String[] texts;
+    boolean[] nulls;
+
+    ColumnVector(ColumnType type, int capacity) {
+        this.type = type;
+        this.kind = kindOf(type);
+        switch (kind) {
+            case LONG -> longs = new long[capacity];
+            case DOUBLE -> doubles = new double[capacity];
+            default -> texts = new String[capacity];
+        }
+        nulls = new boolean[capacity];
+    }
+
+    static Kind kindOf(ColumnType type) {
+        if (type.isIntegral()) return Kind.LONG;
+        return (type == ColumnType.DOUBLE) ? Kind.DOUBLE : Kind.TEXT;
+    }
+
+    public ColumnType type() {
+        return type;
+    }
+
+    public boolean isNull(int i) {
+        return nulls[i];
+    }
+
+    public long longAt(int i) {
+        return longs[i];
+    }
+
+    public double doubleAt(int i) {
+        return doubles[i];
+    }
+
+    // 행에서 읽은 것과 같은 문자열. NULL 이면 null.
+    public String text(int i) {
+        if (nulls[i]) {
+            return null;
+        }
+        return switch (kind) {
+            case LONG -> type.text(longs[i]);
+            case DOUBLE -> Double.toString(doubles[i]);
+            default -> texts[i];
+        };
+    }
+
+    int capacity() {
+        return nulls.length;
+    }
+
+    void grow(int capacity) {
+        if (capacity <= nulls.length) {
+            return;
+        }
+        int n = Math.max(capacity, nulls.length * 2);
+        nulls = Arrays.copyOf(nulls, n);
+        switch (kind) {
+            case LONG -> longs = Arrays.copyOf(longs, n);
+            case DOUBLE -> doubles = Arrays.copyOf(doubles, n);
+            default -> texts = Arrays.copyOf(texts, n);
+        }
+    }
+
+    // from 의 at 칸을 이 벡터의 to 칸으로
+    void copy(int to, ColumnVector from, int at) {
+        nulls[to] = from.nulls[at];
+        switch (kind) {
+            case LONG -> longs[to] = from.longs[at];
+            case DOUBLE -> doubles[to] = from.doubles[at];
+            default -> texts[to] = from.texts[at];
+        }
+    }
+
+    void setNull(int i) {
+        nulls[i] = true;
+        switch (kind) {
+            case LONG -> longs[i] = 0;
+            case DOUBLE -> doubles[i] = 0;
+            default -> texts[i] = null;
+        }
+    }
+
+    // 같은 종류 벡터의 두 칸 순서. NULL 이 앞이다 (SQL ORDER BY 와 같음).
+    int compare(int i, ColumnVector other, int j) {
+        boolean a = nulls[i];
+        boolean b = other.nulls[j];
+        if (a || b) {
+            return (a == b) ? 0 : (a ? -1 : 1);
+        }
+        return switch (kind) {
+            case LONG -> Long.compare(longs[i], other.longs[j]);
+            case DOUBLE -> Double.compare(doubles[i], other.doubles[j]);
+            default -> type.compare(texts[i], other.texts[j]);
+        };
+    }
+}
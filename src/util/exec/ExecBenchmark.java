@@ -0,0 +1,146 @@
+package util.exec;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import model.Column;
+import model.ColumnType;
+import model.Record;
+import model.Schema;
+import model.Table;
+
+/*
+ * 필터 + 집계를 행 단위 경로와 배치 경로로 돌려 시간을 비교한다.
+ *   SELECT grp, COUNT(*), SUM(amount), AVG(price) FROM bench WHERE amount < 500 AND price >= 10 GROUP BY grp
+ * 행 단위: Table.selectAllAt 으로 Record 목록을 만든 뒤 Record.get + ColumnType.compare 로 거르고 문자열을 풀어 더한다 (SqlEngine 의 기존 방식).
+ * 배치: Scan -> Filter -> Filter -> HashAggregate.
+ * 사용: java -Xmx4g -cp out util.exec.ExecBenchmark [행 수=10000000] [측정 횟수=5]
+ * 측정 전에 두 경로를 두 번씩 돌려 JIT 를 데우고, 두 경로의 결과가 같은지 확인한다.
+ */
+public final class ExecBenchmark {
+
+    private static final long TS = 1;
+    private static final int GROUPS = 16;
+
+    private ExecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int rows = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000_000;
+        int iterations = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+
+        long start = System.nanoTime();
+        Table table = load(rows);
+        System.out.printf("적재 %,d행: %.0fms%n", rows, (System.nanoTime() - start) / 1e6);
+
+        Map<String, String> expected = perRow(table);
+        Map<String, String> actual = batched(table);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("[ERROR] 두 경로의 결과가 다릅니다: " + expected + " / " + actual);
+        }
+        perRow(table);
+        batched(table);
+
+        double rowMillis = measure("행 단위", rows, iterations, () -> perRow(table));
+        double batchMillis = measure("배치", rows, iterations, () -> batched(table));
+        System.out.printf("배치가 %.1f배 빠름 (그룹 %d개, 결과 일치)%n", rowMillis / batchMillis, actual.size());
+    }
+
+    private static Table load(int rows) {
+        Schema schema = new Schema(List.of(
+                Column.notNull("id", ColumnType.BIGINT),
+                Column.of("grp", ColumnType.INT),
+                Column.of("amount", ColumnType.BIGINT),
+                Column.of("price", ColumnType.DOUBLE),
+                Column.of("tag", ColumnType.VARCHAR)), "id");
+        Table table = new Table("bench", schema);
+        table.loadSorted(new Iterator<>() {
+            long id;
+
+            @Override
+            public boolean hasNext() {
+                return id < rows;
+            }
+
+            @Override
+            public Record next() {
+                long x = id++;
+                long mixed = (x * 0x9E3779B97F4A7C15L) >>> 1;
+                Map<String, String> values = new HashMap<>();
+                values.put("id", Long.toString(x));
+                values.put("grp", Long.toString(mixed % GROUPS));
+                values.put("amount", Long.toString((mixed >>> 8) % 1000));
+                // 100행에 1행은 price 가 NULL
+                if (x % 100 != 0) values.put("price", Double.toString(((mixed >>> 20) % 10_000) / 100.0));
+                values.put("tag", "t" + (x % 7));
+                return new Record(values);
+            }
+        }, TS);
+        return table;
+    }
+
+    private static Map<String, String> perRow(Table table) {
+        ColumnType bigint = ColumnType.BIGINT;
+        ColumnType dbl = ColumnType.DOUBLE;
+        Map<String, long[]> counts = new HashMap<>();
+        Map<String, double[]> prices = new HashMap<>();
+        for (Record r : table.selectAllAt(TS)) {
+            String amount = r.get("amount");
+            String price = r.get("price");
+            if (amount == null || price == null) continue;
+            if (bigint.compare(amount, "500") >= 0 || dbl.compare(price, "10.0") < 0) continue;
+            String grp = r.get("grp");
+            long[] c = counts.computeIfAbsent(grp, k -> new long[2]);
+            c[0]++;
+            c[1] += Long.parseLong(amount);
+            prices.computeIfAbsent(grp, k -> new double[1])[0] += Double.parseDouble(price);
+        }
+        Map<String, String> out = new TreeMap<>();
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            long[] c = e.getValue();
+            out.put(e.getKey(), c[0] + "/" + c[1] + "/" + format(prices.get(e.getKey())[0] / c[0]));
+        }
+        return out;
+    }
+
+    private static Map<String, String> batched(Table table) {
+        Operator op = new Scan(table, List.of("grp", "amount", "price"), null, true, null, true, TS, () -> { });
+        op = new Filter(op, "amount", Filter.Op.LT, "500");
+        op = new Filter(op, "price", Filter.Op.GE, "10");
+        op = new HashAggregate(op, List.of("grp"), List.of(
+                HashAggregate.Aggregate.countAll(),
+                new HashAggregate.Aggregate(HashAggregate.Function.SUM, "amount"),
+                new HashAggregate.Aggregate(HashAggregate.Function.AVG, "price")));
+        Map<String, String> out = new TreeMap<>();
+        try (Operator result = op) {
+            for (Batch b = result.next(); b != null; b = result.next()) {
+                for (int k = 0; k < b.size(); k++) {
+                    int i = b.row(k);
+                    out.put(b.text(0, k), b.vector(1).longAt(i) + "/" + b.vector(2).longAt(i) + "/" + format(b.vector(3).doubleAt(i)));
+                }
+            }
+        }
+        return out;
+    }
+
+    // 더하는 순서가 같아도 경로마다 평균의 마지막 자리는 다를 수 있어 소수 넷째 자리까지만 비교한다
+    private static String format(double v) {
+        return String.format("%.4f", v);
+    }
+
+    private static double measure(String name, int rows, int iterations, Runnable work) {
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            work.run();
+            double millis = (System.nanoTime() - start) / 1e6;
+            best = Math.min(best, millis);
+            total += millis;
+        }
+        System.out.printf("%s: 평균 %.1fms, 최소 %.1fms, %,.0f행/초%n", name, total / iterations, best, rows / (best / 1000));
+        return best;
+    }
+}
@@ -0,0 +1,148 @@
+package util.exec;
+
+import java.util.List;
+import model.Column;
+import model.ColumnType;
+
+/*
+ * "컬럼 연산자 값" 하나로 배치의 selection 을 줄인다. 값은 만들 때 컬럼 타입으로 한 번만 풀어 두고,
+ * 정수/실수 컬럼은 연산자마다 따로 쓴 기본형 배열 루프로 비교한다 (분기 대신 조건 결과만큼 출력 위치를 민다).
+ * NULL 은 어떤 조건도 만족하지 않는다. 여러 조건의 AND 는 Filter 를 겹쳐 쓴다.
+ */
+public final class Filter implements Operator {
+
+    public enum Op {
+        EQ, NE, LT, LE, GT, GE;
+
+        boolean test(int cmp) {
+            return switch (this) {
+                case EQ -> cmp == 0;
+                case NE -> cmp != 0;
+                case LT -> cmp < 0;
+                case LE -> cmp <= 0;
+                case GT -> cmp > 0;
+                case GE -> cmp >= 0;
+            };
+        }
+    }
+
+    private final Operator child;
+    private final int column;
+    private final Op op;
+    private final ColumnType type;
+    private final ColumnVector.Kind kind;
+    private final long longValue;
+    private final double doubleValue;
+    private final String textValue;
+
+    public Filter(Operator child, String columnName, Op op, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("[ERROR] NULL 과는 비교할 수 없습니다: " + columnName);
+        }
+        this.child = child;
+        this.column = Batch.indexOf(child.columns(), columnName);
+        this.op = op;
+        this.type = child.columns().get(column).getType();
+        this.kind = ColumnVector.kindOf(type);
+        String normalized = type.normalize(value);
+        this.longValue = (kind == ColumnVector.Kind.LONG) ? type.longValue(normalized) : 0;
+        this.doubleValue = (kind == ColumnVector.Kind.DOUBLE) ? Double.parseDouble(normalized) : 0;
+        this.textValue = normalized;
+    }
+
+    @Override
+    public List<Column> columns() {
+        return child.columns();
+    }
+
+    @Override
+    public Batch next() {
+        for (Batch b = child.next(); b != null; b = child.next()) {
+            ColumnVector v = b.vectors[column];
+            b.count = switch (kind) {
+                case LONG -> filterLongs(v.longs, v.nulls, b.selection, b.count);
+                case DOUBLE -> filterDoubles(v.doubles, v.nulls, b.selection, b.count);
+                default -> filterTexts(v.texts, v.nulls, b.selection, b.count);
+            };
+            if (b.count > 0) return b;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    private int filterLongs(long[] values, boolean[] nulls, int[] sel, int count) {
+        long x = longValue;
+        int out = 0;
+        switch (op) {
+            case EQ -> {
+                for (int k = 0; k < count; k++) {
+                    int i = sel[k];
+                    sel[out] = i;
+                    out += (values[i] == x & !nulls[i]) ? 1 : 0;
+                }
+            }
+            case NE -> {
+                for (int k = 0; k < count; k++) {
+                    int i = sel[k];
+                    sel[out] = i;
+                    out += (values[i] != x & !nulls[i]) ? 1 : 0;
+                }
+            }
+            case LT -> {
+                for (int k = 0; k < count; k++) {
+                    int i = sel[k];
+                    sel[out] = i;
+                    out += (values[i] < x & !nulls[i]) ? 1 : 0;
+                }
+            }
+            case LE -> {
+                for (int k = 0; k < count; k++) {
+                    int i = sel[k];
+                    sel[out] = i;
+                    out += (values[i] <= x & !nulls[i]) ? 1 : 0;
+                }
+            }
+            case GT -> {
+                for (int k = 0; k < count; k++) {
+                    int i = sel[k];
+                    sel[out] = i;
+                    out += (values[i] > x & !nulls[i]) ? 1 : 0;
+                }
+            }
+            case GE -> {
+                for (int k = 0; k < count; k++) {
+                    int i = sel[k];
+                    sel[out] = i;
+                    out += (values[i] >= x & !nulls[i]) ? 1 : 0;
+                }
+            }
+        }
+        return out;
+    }
+
+    // Double.compare 순서 (ColumnType.compare 와 같음: -0.0 < 0.0, NaN 이 가장 큼)
+    private int filterDoubles(double[] values, boolean[] nulls, int[] sel, int count) {
+        double x = doubleValue;
+        int out = 0;
+        for (int k = 0; k < count; k++) {
+            int i = sel[k];
+            sel[out] = i;
+            out += (!nulls[i] && op.test(Double.compare(values[i], x))) ? 1 : 0;
+        }
+        return out;
+    }
+
+    private int filterTexts(String[] values, boolean[] nulls, int[] sel, int count) {
+        int out = 0;
+        for (int k = 0; k < count; k++) {
+            int i = sel[k];
+            sel[out] = i;
+            out += (!nulls[i] && op.test(type.compare(values[i], textValue))) ? 1 : 0;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,385 @@
+package util.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.Column;
+import model.ColumnType;
+
+/*
+ * GROUP BY 집계. 배치마다 먼저 살아 있는 행의 그룹 번호를 한 배열에 구해 두고, 집계 함수마다 그 배열과 값 배열을 같이 도는 루프로 누적한다.
+ * 그룹 키가 정수 컬럼 하나면 기본형 open addressing 표로, 아니면 HashMap 으로 그룹 번호를 찾는다.
+ * 아래를 모두 읽은 뒤 그룹이 처음 나온 순서로 넘긴다. 그룹 컬럼이 없으면 입력이 비어도 한 행(COUNT 0, 나머지 NULL)을 낸다.
+ */
+public final class HashAggregate implements Operator {
+
+    public enum Function {
+        COUNT, SUM, MIN, MAX, AVG
+    }
+
+    public static final class Aggregate {
+        final Function function;
+        // COUNT(*) 면 null
+        final String column;
+
+        public Aggregate(Function function, String column) {
+            if (column == null && function != Function.COUNT) {
+                throw new IllegalArgumentException("[ERROR] " + function + " 에는 컬럼이 필요합니다.");
+            }
+            this.function = function;
+            this.column = column;
+        }
+
+        public static Aggregate countAll() {
+            return new Aggregate(Function.COUNT, null);
+        }
+
+        String name() {
+            return function.name().toLowerCase(Locale.ROOT) + "(" + ((column == null) ? "*" : column) + ")";
+        }
+    }
+
+    private final Operator child;
+    private final int[] groupColumns;
+    private final Accumulator[] accumulators;
+    private final List<Column> columns;
+    private final ColumnVector[] keys;
+    private final int[] groupOf = new int[Batch.CAPACITY];
+    private Map<List<Object>, Integer> groupIds;
+    private LongGroups longGroups;
+    private int groups;
+    private boolean consumed;
+    private int emitted;
+    private Batch out;
+
+    public HashAggregate(Operator child, List<String> groupBy, List<Aggregate> aggregates) {
+        this.child = child;
+        List<Column> input = child.columns();
+        List<Column> output = new ArrayList<>();
+        groupColumns = new int[groupBy.size()];
+        keys = new ColumnVector[groupBy.size()];
+        for (int g = 0; g < groupColumns.length; g++) {
+            groupColumns[g] = Batch.indexOf(input, groupBy.get(g));
+            Column c = input.get(groupColumns[g]);
+            output.add(c);
+            keys[g] = new ColumnVector(c.getType(), Batch.CAPACITY);
+        }
+        accumulators = new Accumulator[aggregates.size()];
+        for (int a = 0; a < accumulators.length; a++) {
+            Aggregate agg = aggregates.get(a);
+            int column = (agg.column == null) ? -1 : Batch.indexOf(input, agg.column);
+            accumulators[a] = new Accumulator(agg.function, column, (column < 0) ? null : input.get(column).getType());
+            output.add(Column.of(agg.name(), accumulators[a].resultType()));
+        }
+        this.columns = List.copyOf(output);
+
+        if (groupColumns.length == 1 && keys[0].kind == ColumnVector.Kind.LONG) {
+            longGroups = new LongGroups();
+        } else if (groupColumns.length > 0) {
+            groupIds = new HashMap<>();
+        } else {
+            newGroup(null, 0);
+        }
+    }
+
+    @Override
+    public List<Column> columns() {
+        return columns;
+    }
+
+    @Override
+    public Batch next() {
+        if (!consumed) {
+            for (Batch b = child.next(); b != null; b = child.next()) {
+                assignGroups(b);
+                for (Accumulator acc : accumulators) {
+                    acc.add(b, groupOf);
+                }
+            }
+            consumed = true;
+            out = Batch.allocate(columns);
+        }
+        int n = Math.min(Batch.CAPACITY, groups - emitted);
+        if (n <= 0) {
+            return null;
+        }
+        for (int g = 0; g < keys.length; g++) {
+            for (int t = 0; t < n; t++) {
+                out.vectors[g].copy(t, keys[g], emitted + t);
+            }
+        }
+        for (int a = 0; a < accumulators.length; a++) {
+            accumulators[a].write(out.vectors[keys.length + a], emitted, n);
+        }
+        emitted += n;
+        out.selectAll(n);
+        return out;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    private void assignGroups(Batch b) {
+        int n = b.count;
+        int[] sel = b.selection;
+        if (groupColumns.length == 0) {
+            Arrays.fill(groupOf, 0, n, 0);
+        } else if (longGroups != null) {
+            ColumnVector v = b.vectors[groupColumns[0]];
+            for (int k = 0; k < n; k++) {
+                int i = sel[k];
+                groupOf[k] = v.nulls[i] ? longGroups.nullGroup(b, i) : longGroups.find(v.longs[i], b, i);
+            }
+        } else {
+            for (int k = 0; k < n; k++) {
+                int i = sel[k];
+                Object[] key = new Object[groupColumns.length];
+                for (int g = 0; g < key.length; g++) {
+                    ColumnVector v = b.vectors[groupColumns[g]];
+                    key[g] = v.nulls[i] ? null : switch (v.kind) {
+                        case LONG -> v.longs[i];
+                        case DOUBLE -> v.doubles[i];
+                        default -> v.texts[i];
+                    };
+                }
+                List<Object> group = Arrays.asList(key);
+                Integer id = groupIds.get(group);
+                if (id == null) {
+                    id = newGroup(b, i);
+                    groupIds.put(group, id);
+                }
+                groupOf[k] = id;
+            }
+        }
+    }
+
+    // 배치 b 의 i 칸 값을 키로 하는 그룹을 만든다 (그룹 컬럼이 없으면 b 는 null)
+    private int newGroup(Batch b, int i) {
+        int id = groups++;
+        for (int g = 0; g < keys.length; g++) {
+            keys[g].grow(groups);
+            keys[g].copy(id, b.vectors[groupColumns[g]], i);
+        }
+        for (Accumulator acc : accumulators) {
+            acc.grow(groups);
+        }
+        return id;
+    }
+
+    // 정수 그룹 키 -> 그룹 번호. 선형 탐사, 채움 비율 1/2 를 넘으면 두 배로.
+    private final class LongGroups {
+        private long[] slots = new long[64];
+        private int[] ids = new int[64];
+        private int used;
+        private int nullId = -1;
+
+        int find(long key, Batch b, int i) {
+            int mask = slots.length - 1;
+            int h = hash(key) & mask;
+            while (ids[h] != 0) {
+                if (slots[h] == key) return ids[h] - 1;
+                h = (h + 1) & mask;
+            }
+            int id = newGroup(b, i);
+            slots[h] = key;
+            ids[h] = id + 1;
+            if (++used * 2 > slots.length) rehash();
+            return id;
+        }
+
+        int nullGroup(Batch b, int i) {
+            if (nullId < 0) nullId = newGroup(b, i);
+            return nullId;
+        }
+
+        private void rehash() {
+            long[] oldSlots = slots;
+            int[] oldIds = ids;
+            slots = new long[oldSlots.length * 2];
+            ids = new int[oldIds.length * 2];
+            int mask = slots.length - 1;
+            for (int s = 0; s < oldSlots.length; s++) {
+                if (oldIds[s] == 0) continue;
+                int h = hash(oldSlots[s]) & mask;
+                while (ids[h] != 0) h = (h + 1) & mask;
+                slots[h] = oldSlots[s];
+                ids[h] = oldIds[s];
+            }
+        }
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /*
+     * 집계 함수 하나의 그룹별 누적값. counts 는 NULL 이 아닌 값의 수(COUNT(*) 는 행 수)다.
+     * 벡터의 NULL 칸 값은 0 이므로 SUM/AVG 는 NULL 을 따지지 않고 더하고 counts 만 NULL 을 뺀다.
+     */
+    private static final class Accumulator {
+        private final Function function;
+        private final int column;
+        private final ColumnType type;
+        private final ColumnVector.Kind kind;
+        private long[] counts = new long[0];
+        private long[] longs = new long[0];
+        private double[] doubles = new double[0];
+        private String[] texts = new String[0];
+
+        Accumulator(Function function, int column, ColumnType type) {
+            if ((function == Function.SUM || function == Function.AVG)
+                    && type != ColumnType.INT && type != ColumnType.BIGINT && type != ColumnType.DOUBLE) {
+                throw new IllegalArgumentException("[ERROR] " + function + " 는 INT, BIGINT, DOUBLE 컬럼에만 쓸 수 있습니다: " + type);
+            }
+            this.function = function;
+            this.column = column;
+            this.type = type;
+            this.kind = (type == null) ? null : ColumnVector.kindOf(type);
+        }
+
+        ColumnType resultType() {
+            return switch (function) {
+                case COUNT -> ColumnType.BIGINT;
+                case AVG -> ColumnType.DOUBLE;
+                case SUM -> (type == ColumnType.DOUBLE) ? ColumnType.DOUBLE : ColumnType.BIGINT;
+                default -> type;
+            };
+        }
+
+        void grow(int groups) {
+            if (groups <= counts.length) {
+                return;
+            }
+            int n = Math.max(groups, counts.length * 2);
+            counts = Arrays.copyOf(counts, n);
+            switch (function) {
+                case COUNT -> {
+                }
+                case AVG -> doubles = Arrays.copyOf(doubles, n);
+                default -> {
+                    switch (kind) {
+                        case LONG -> longs = Arrays.copyOf(longs, n);
+                        case DOUBLE -> doubles = Arrays.copyOf(doubles, n);
+                        default -> texts = Arrays.copyOf(texts, n);
+                    }
+                }
+            }
+        }
+
+        void add(Batch b, int[] groupOf) {
+            int n = b.count;
+            int[] sel = b.selection;
+            long[] counts = this.counts;
+            if (column < 0) {
+                for (int k = 0; k < n; k++) counts[groupOf[k]]++;
+                return;
+            }
+            ColumnVector v = b.vectors[column];
+            boolean[] nulls = v.nulls;
+            switch (function) {
+                case COUNT -> {
+                    for (int k = 0; k < n; k++) counts[groupOf[k]] += nulls[sel[k]] ? 0 : 1;
+                }
+                case SUM -> {
+                    if (kind == ColumnVector.Kind.LONG) {
+                        long[] values = v.longs;
+                        long[] sums = longs;
+                        for (int k = 0; k < n; k++) {
+                            int i = sel[k];
+                            int g = groupOf[k];
+                            sums[g] += values[i];
+                            counts[g] += nulls[i] ? 0 : 1;
+                        }
+                    } else {
+                        addDoubles(v, sel, n, groupOf);
+                    }
+                }
+                case AVG -> {
+                    if (kind == ColumnVector.Kind.LONG) {
+                        long[] values = v.longs;
+                        double[] sums = doubles;
+                        for (int k = 0; k < n; k++) {
+                            int i = sel[k];
+                            int g = groupOf[k];
+                            sums[g] += values[i];
+                            counts[g] += nulls[i] ? 0 : 1;
+                        }
+                    } else {
+                        addDoubles(v, sel, n, groupOf);
+                    }
+                }
+                default -> addExtreme(v, sel, n, groupOf, function == Function.MIN ? 1 : -1);
+            }
+        }
+
+        private void addDoubles(ColumnVector v, int[] sel, int n, int[] groupOf) {
+            double[] values = v.doubles;
+            boolean[] nulls = v.nulls;
+            double[] sums = doubles;
+            for (int k = 0; k < n; k++) {
+                int i = sel[k];
+                int g = groupOf[k];
+                sums[g] += values[i];
+                counts[g] += nulls[i] ? 0 : 1;
+            }
+        }
+
+        // MIN 이면 sign 1(지금 값보다 작으면 바꿈), MAX 면 -1
+        private void addExtreme(ColumnVector v, int[] sel, int n, int[] groupOf, int sign) {
+            boolean[] nulls = v.nulls;
+            for (int k = 0; k < n; k++) {
+                int i = sel[k];
+                if (nulls[i]) continue;
+                int g = groupOf[k];
+                boolean first = counts[g]++ == 0;
+                switch (kind) {
+                    case LONG -> {
+                        long x = v.longs[i];
+                        if (first || Long.compare(x, longs[g]) * sign < 0) longs[g] = x;
+                    }
+                    case DOUBLE -> {
+                        double x = v.doubles[i];
+                        if (first || Double.compare(x, doubles[g]) * sign < 0) doubles[g] = x;
+                    }
+                    default -> {
+                        String x = v.texts[i];
+                        if (first || Integer.signum(type.compare(x, texts[g])) * sign < 0) texts[g] = x;
+                    }
+                }
+            }
+        }
+
+        // 그룹 from..from+n 의 결과를 out 의 앞 n 칸에
+        void write(ColumnVector out, int from, int n) {
+            for (int t = 0; t < n; t++) {
+                int g = from + t;
+                if (function == Function.COUNT) {
+                    out.nulls[t] = false;
+                    out.longs[t] = counts[g];
+                    continue;
+                }
+                if (counts[g] == 0) {
+                    out.setNull(t);
+                    continue;
+                }
+                out.nulls[t] = false;
+                switch (function) {
+                    case AVG -> out.doubles[t] = doubles[g] / counts[g];
+                    default -> {
+                        switch (out.kind) {
+                            case LONG -> out.longs[t] = longs[g];
+                            case DOUBLE -> out.doubles[t] = doubles[g];
+                            default -> out.texts[t] = texts[g];
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package util.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import model.Column;
+
+/*
+ * 한 컬럼 = 한 컬럼 내부 조인. build 쪽을 모두 모아 키 해시 -> 행 번호 체인(heads/next 배열)을 만들고,
+ * probe 쪽 배치마다 맞는 (probe 행, build 행) 쌍을 한 배치 분량 모은 뒤 컬럼별로 한꺼번에 옮긴다.
+ * 결과 컬럼은 probe 컬럼 다음에 build 컬럼이고, build 컬럼 이름에는 buildPrefix 를 붙인다. NULL 키는 맞지 않는다.
+ */
+public final class HashJoin implements Operator {
+
+    private final Operator probe;
+    private final Operator build;
+    private final int probeKey;
+    private final int buildKey;
+    private final List<Column> columns;
+    private ColumnBuffer rows;
+    private int[] heads;
+    private int[] chain;
+    private int mask;
+
+    private Batch probeBatch;
+    private int probeAt;
+    private int probeRow;
+    private int nextMatch = -1;
+    private final int[] probeRows = new int[Batch.CAPACITY];
+    private final int[] buildRows = new int[Batch.CAPACITY];
+    private Batch out;
+    private boolean done;
+
+    public HashJoin(Operator probe, String probeKeyColumn, Operator build, String buildKeyColumn, String buildPrefix) {
+        this.probe = probe;
+        this.build = build;
+        this.probeKey = Batch.indexOf(probe.columns(), probeKeyColumn);
+        this.buildKey = Batch.indexOf(build.columns(), buildKeyColumn);
+        ColumnVector.Kind a = ColumnVector.kindOf(probe.columns().get(probeKey).getType());
+        ColumnVector.Kind b = ColumnVector.kindOf(build.columns().get(buildKey).getType());
+        if (a != b) {
+            throw new IllegalArgumentException("[ERROR] 조인 키의 타입이 맞지 않습니다: "
+                    + probe.columns().get(probeKey) + ", " + build.columns().get(buildKey));
+        }
+
+        List<Column> output = new ArrayList<>(probe.columns());
+        Set<String> names = new HashSet<>();
+        for (Column c : output) names.add(c.getName());
+        for (Column c : build.columns()) {
+            String name = buildPrefix + c.getName();
+            if (!names.add(name)) {
+                throw new IllegalArgumentException("[ERROR] 조인 결과 컬럼 이름이 겹칩니다: " + name);
+            }
+            output.add(new Column(name, c.getType(), c.isNullable()));
+        }
+        this.columns = List.copyOf(output);
+    }
+
+    @Override
+    public List<Column> columns() {
+        return columns;
+    }
+
+    @Override
+    public Batch next() {
+        if (rows == null) {
+            buildTable();
+            out = Batch.allocate(columns);
+        }
+        if (done) {
+            return null;
+        }
+        int n = 0;
+        ColumnVector buildKeys = rows.vectors[buildKey];
+        while (n < Batch.CAPACITY) {
+            if (nextMatch >= 0) {
+                int j = nextMatch;
+                nextMatch = chain[j];
+                if (probeBatch.vectors[probeKey].compare(probeRow, buildKeys, j) == 0) {
+                    probeRows[n] = probeRow;
+                    buildRows[n] = j;
+                    n++;
+                }
+                continue;
+            }
+            if (probeBatch == null || probeAt >= probeBatch.count) {
+                // 모은 쌍이 지금 probe 배치를 가리키므로 먼저 내보내고 다음 배치로 간다
+                if (n > 0) break;
+                probeBatch = probe.next();
+                probeAt = 0;
+                if (probeBatch == null) {
+                    done = true;
+                    return null;
+                }
+                continue;
+            }
+            probeRow = probeBatch.selection[probeAt++];
+            ColumnVector keys = probeBatch.vectors[probeKey];
+            if (!keys.nulls[probeRow]) {
+                nextMatch = heads[hash(keys, probeRow) & mask];
+            }
+        }
+
+        int probeColumns = probeBatch.vectors.length;
+        for (int c = 0; c < probeColumns; c++) {
+            ColumnVector to = out.vectors[c];
+            ColumnVector from = probeBatch.vectors[c];
+            for (int t = 0; t < n; t++) {
+                to.copy(t, from, probeRows[t]);
+            }
+        }
+        rows.gather(buildRows, 0, n, out.vectors, probeColumns);
+        out.selectAll(n);
+        return out;
+    }
+
+    @Override
+    public void close() {
+        probe.close();
+        build.close();
+    }
+
+    private void buildTable() {
+        rows = ColumnBuffer.drain(build);
+        int size = Integer.highestOneBit(Math.max(16, rows.size * 2 - 1)) << 1;
+        heads = new int[size];
+        Arrays.fill(heads, -1);
+        mask = size - 1;
+        chain = new int[rows.size];
+        ColumnVector keys = rows.vectors[buildKey];
+        for (int j = 0; j < rows.size; j++) {
+            if (keys.nulls[j]) {
+                chain[j] = -1;
+                continue;
+            }
+            int h = hash(keys, j) & mask;
+            chain[j] = heads[h];
+            heads[h] = j;
+        }
+        if (rows.size == 0) {
+            done = true;
+            probe.close();
+        }
+    }
+
+    private static int hash(ColumnVector v, int i) {
+        return switch (v.kind) {
+            case LONG -> HashAggregate.hash(v.longs[i]);
+            case DOUBLE -> HashAggregate.hash(Double.doubleToLongBits(v.doubles[i]));
+            default -> HashAggregate.hash(v.texts[i].hashCode());
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package util.exec;
+
+import java.util.List;
+import model.Column;
+
+// 앞의 limit 행만 넘긴다. 다 채우면 아래 연산자를 바로 닫아 더 읽지 않는다.
+public final class Limit implements Operator {
+
+    private final Operator child;
+    private long remaining;
+
+    public Limit(Operator child, long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("[ERROR] LIMIT 은 0 이상이어야 합니다: " + limit);
+        }
+        this.child = child;
+        this.remaining = limit;
+    }
+
+    @Override
+    public List<Column> columns() {
+        return child.columns();
+    }
+
+    @Override
+    public Batch next() {
+        if (remaining == 0) {
+            child.close();
+            return null;
+        }
+        Batch b = child.next();
+        if (b == null) {
+            return null;
+        }
+        if (b.count > remaining) {
+            b.count = (int) remaining;
+        }
+        remaining -= b.count;
+        return b;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
@@ -0,0 +1,44 @@
+package util.exec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import model.Column;
+import model.Record;
+
+/*
+ * 당김(pull) 방식 연산자. 위 연산자가 next() 를 부를 때마다 아래에서 배치를 하나씩 받아 처리해 넘긴다.
+ * close 는 아래 연산자까지 닫는다 (Scan 은 쥐고 있던 스냅샷을 놓는다).
+ */
+public interface Operator extends AutoCloseable {
+
+    List<Column> columns();
+
+    // 다음 배치, 끝이면 null
+    Batch next();
+
+    @Override
+    void close();
+
+    // 남은 배치를 모두 읽어 레코드로 바꾸고 닫는다. NULL 값은 레코드에 넣지 않는다.
+    default List<Record> drain() {
+        try {
+            List<Column> columns = columns();
+            List<Record> out = new ArrayList<>();
+            for (Batch b = next(); b != null; b = next()) {
+                for (int k = 0; k < b.count; k++) {
+                    Map<String, String> values = new HashMap<>();
+                    for (int c = 0; c < columns.size(); c++) {
+                        String v = b.text(c, k);
+                        if (v != null) values.put(columns.get(c).getName(), v);
+                    }
+                    out.add(new Record(values));
+                }
+            }
+            return out;
+        } finally {
+            close();
+        }
+    }
+}
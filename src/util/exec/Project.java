@@ -0,0 +1,49 @@
+package util.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.Column;
+
+// 컬럼 고르기. 값을 복사하지 않고 아래 배치의 벡터와 selection 을 그대로 가리킨다.
+public final class Project implements Operator {
+
+    private final Operator child;
+    private final List<Column> columns;
+    private final int[] picks;
+
+    public Project(Operator child, List<String> columnNames) {
+        this.child = child;
+        List<Column> picked = new ArrayList<>(columnNames.size());
+        picks = new int[columnNames.size()];
+        for (int c = 0; c < picks.length; c++) {
+            picks[c] = Batch.indexOf(child.columns(), columnNames.get(c));
+            picked.add(child.columns().get(picks[c]));
+        }
+        this.columns = List.copyOf(picked);
+    }
+
+    @Override
+    public List<Column> columns() {
+        return columns;
+    }
+
+    @Override
+    public Batch next() {
+        Batch b = child.next();
+        if (b == null) {
+            return null;
+        }
+        ColumnVector[] vectors = new ColumnVector[picks.length];
+        for (int c = 0; c < picks.length; c++) {
+            vectors[c] = b.vectors[picks[c]];
+        }
+        Batch out = new Batch(columns, vectors, b.selection);
+        out.count = b.count;
+        return out;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
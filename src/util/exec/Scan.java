@@ -0,0 +1,87 @@
+package util.exec;
+
+import java.util.ArrayList;
+import java.util.List;
+import model.Column;
+import model.RowCursor;
+import model.Schema;
+import model.Table;
+
+/*
+ * 스냅샷 하나에서 보이는 행을 PK 순으로 읽어, 필요한 컬럼만 행 바이트에서 바로 벡터로 푼다 (문자열/Record 를 만들지 않음).
+ * 다 읽거나 close 하면 onClose(스냅샷 놓기)를 한 번 부른다. 배치 하나를 계속 다시 쓴다.
+ */
+public final class Scan implements Operator {
+
+    private final Schema schema;
+    private final List<Column> columns;
+    private final int[] positions;
+    private final ColumnVector.Kind[] kinds;
+    private final RowCursor cursor;
+    private final Batch batch;
+    private Runnable onClose;
+
+    // from/to 는 Table 의 키 경계 (null 이면 열린 끝)
+    public Scan(Table table, List<String> columnNames, String from, boolean fromInc, String to, boolean toInc,
+                long snapTs, Runnable onClose) {
+        this.schema = table.getSchema();
+        List<Column> picked = new ArrayList<>(columnNames.size());
+        positions = new int[columnNames.size()];
+        kinds = new ColumnVector.Kind[columnNames.size()];
+        for (int c = 0; c < positions.length; c++) {
+            Column column = schema.column(columnNames.get(c));
+            picked.add(column);
+            positions[c] = schema.indexOf(column.getName());
+            kinds[c] = ColumnVector.kindOf(column.getType());
+        }
+        this.columns = List.copyOf(picked);
+        this.cursor = table.cursorAt(from, fromInc, to, toInc, snapTs);
+        this.batch = Batch.allocate(columns);
+        this.onClose = onClose;
+    }
+
+    @Override
+    public List<Column> columns() {
+        return columns;
+    }
+
+    @Override
+    public Batch next() {
+        if (onClose == null) {
+            return null;
+        }
+        ColumnVector[] vectors = batch.vectors;
+        int n = 0;
+        while (n < Batch.CAPACITY && cursor.next()) {
+            byte[] row = cursor.row();
+            for (int c = 0; c < positions.length; c++) {
+                ColumnVector v = vectors[c];
+                int i = positions[c];
+                if (schema.isNull(row, i)) {
+                    v.setNull(n);
+                    continue;
+                }
+                v.nulls[n] = false;
+                switch (kinds[c]) {
+                    case LONG -> v.longs[n] = schema.longAt(row, i);
+                    case DOUBLE -> v.doubles[n] = schema.doubleAt(row, i);
+                    default -> v.texts[n] = schema.textAt(row, i);
+                }
+            }
+            n++;
+        }
+        if (n == 0) {
+            close();
+            return null;
+        }
+        batch.selectAll(n);
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        Runnable r = onClose;
+        onClose = null;
+        if (r != null) r.run();
+    }
+}
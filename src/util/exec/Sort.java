@@ -0,0 +1,127 @@
+package util.exec;
+
+import java.util.List;
+import model.Column;
+
+/*
+ * 아래 연산자를 모두 읽어 모은 뒤 행 번호 배열만 정렬(안정, 병합 정렬)하고, 그 순서대로 배치에 모아 넘긴다.
+ * NULL 은 오름차순에서 가장 앞, 내림차순에서 가장 뒤다 (SqlEngine 의 ORDER BY 와 같음).
+ */
+public final class Sort implements Operator {
+
+    private static final int INSERTION_SORT_MAX = 16;
+
+    public static final class Key {
+        final String column;
+        final boolean descending;
+
+        public Key(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowComparator {
+        int compare(int a, int b);
+    }
+
+    private final Operator child;
+    private final int[] keyColumns;
+    private final boolean[] descending;
+    private ColumnBuffer rows;
+    private int[] order;
+    private int emitted;
+    private Batch out;
+
+    public Sort(Operator child, List<Key> keys) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("[ERROR] 정렬 키가 없습니다.");
+        }
+        this.child = child;
+        keyColumns = new int[keys.size()];
+        descending = new boolean[keys.size()];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyColumns[i] = Batch.indexOf(child.columns(), keys.get(i).column);
+            descending[i] = keys.get(i).descending;
+        }
+    }
+
+    @Override
+    public List<Column> columns() {
+        return child.columns();
+    }
+
+    @Override
+    public Batch next() {
+        if (rows == null) {
+            rows = ColumnBuffer.drain(child);
+            order = new int[rows.size];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            sort(order, comparator());
+            out = Batch.allocate(columns());
+        }
+        int n = Math.min(Batch.CAPACITY, rows.size - emitted);
+        if (n <= 0) {
+            return null;
+        }
+        rows.gather(order, emitted, n, out.vectors, 0);
+        emitted += n;
+        out.selectAll(n);
+        return out;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+
+    private RowComparator comparator() {
+        ColumnVector[] vectors = rows.vectors;
+        if (keyColumns.length == 1 && !descending[0]) {
+            ColumnVector v = vectors[keyColumns[0]];
+            return (a, b) -> v.compare(a, v, b);
+        }
+        return (a, b) -> {
+            for (int i = 0; i < keyColumns.length; i++) {
+                ColumnVector v = vectors[keyColumns[i]];
+                int cmp = v.compare(a, v, b);
+                if (cmp != 0) return descending[i] ? -cmp : cmp;
+            }
+            return 0;
+        };
+    }
+
+    private static void sort(int[] a, RowComparator cmp) {
+        mergeSort(a, a.clone(), 0, a.length, cmp);
+    }
+
+    // a[lo..hi) 를 정렬한다. tmp 는 같은 구간에 a 와 같은 값을 담고 있어야 한다.
+    private static void mergeSort(int[] a, int[] tmp, int lo, int hi, RowComparator cmp) {
+        if (hi - lo <= INSERTION_SORT_MAX) {
+            for (int i = lo + 1; i < hi; i++) {
+                int x = a[i];
+                int j = i - 1;
+                while (j >= lo && cmp.compare(a[j], x) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = x;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        // tmp 의 두 반쪽을 정렬한 뒤 a 로 합친다
+        mergeSort(tmp, a, lo, mid, cmp);
+        mergeSort(tmp, a, mid, hi, cmp);
+        int i = lo;
+        int j = mid;
+        for (int k = lo; k < hi; k++) {
+            if (j >= hi || (i < mid && cmp.compare(tmp[i], tmp[j]) <= 0)) {
+                a[k] = tmp[i++];
+            } else {
+                a[k] = tmp[j++];
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package util.sql;
+
+// WHERE 의 "컬럼 연산자 값" 하나. WHERE 는 이것들을 AND 로만 잇는다.
+final class Condition {
+
+    enum Op {
+        EQ("="), NE("<>"), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Op of(Token t) {
+            return switch (t.text) {
+                case "=" -> EQ;
+                case "<>", "!=" -> NE;
+                case "<" -> LT;
+                case "<=" -> LE;
+                case ">" -> GT;
+                case ">=" -> GE;
+                default -> null;
+            };
+        }
+
+        boolean test(int cmp) {
+            return switch (this) {
+                case EQ -> cmp == 0;
+                case NE -> cmp != 0;
+                case LT -> cmp < 0;
+                case LE -> cmp <= 0;
+                case GT -> cmp > 0;
+                case GE -> cmp >= 0;
+            };
+        }
+
+        boolean isLower() {
+            return this == GT || this == GE;
+        }
+
+        boolean isUpper() {
+            return this == LT || this == LE;
+        }
+    }
+
+    final String column;
+    final Op op;
+    final Operand operand;
+
+    Condition(String column, Op op, Operand operand) {
+        this.column = column;
+        this.op = op;
+        this.operand = operand;
+    }
+
+    @Override
+    public String toString() {
+        return column + " " + op.symbol + " " + operand;
+    }
+}
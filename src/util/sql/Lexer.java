@@ -0,0 +1,114 @@
+package util.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+ * SQL 문장을 토큰으로 나눈다. 문자열은 '...'(안의 '' 는 ' 하나), 따옴표 식별자는 "...", 파라미터는 ? 이다.
+ * normalize 는 공백/대소문자/끝의 ; 만 다른 문장이 같은 문자열이 되게 만들어 계획 캐시의 키로 쓴다.
+ */
+final class Lexer {
+
+    static final Set<String> KEYWORDS = Set.of(
+            "SELECT", "FROM", "WHERE", "AND", "ORDER", "BY", "ASC", "DESC", "LIMIT",
+            "INSERT", "INTO", "VALUES", "UPDATE", "SET", "DELETE",
+            "CREATE", "TABLE", "INDEX", "ON", "PRIMARY", "KEY", "NOT", "NULL", "TRUE", "FALSE",
+            "BEGIN", "TRANSACTION", "COMMIT", "ROLLBACK", "ANALYZE", "EXPLAIN");
+
+    private Lexer() {
+    }
+
+    static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int n = sql.length();
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+                while (i < n && sql.charAt(i) != '\n') i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_')) i++;
+                tokens.add(new Token(Token.Type.IDENT, sql.substring(start, i), false, start));
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(sql.charAt(i + 1)))) {
+                int start = i;
+                i = skipNumber(sql, i);
+                tokens.add(new Token(Token.Type.NUMBER, sql.substring(start, i), false, start));
+            } else if (c == '\'' || c == '"') {
+                int start = i;
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= n) {
+                        throw new IllegalArgumentException("[ERROR] 따옴표가 닫히지 않았습니다: " + start + "번째 글자");
+                    }
+                    char d = sql.charAt(i++);
+                    if (d != c) {
+                        sb.append(d);
+                    } else if (i < n && sql.charAt(i) == c) {
+                        sb.append(c);
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                Token.Type type = (c == '\'') ? Token.Type.STRING : Token.Type.IDENT;
+                tokens.add(new Token(type, sb.toString(), c == '"', start));
+            } else if (c == '?') {
+                tokens.add(new Token(Token.Type.PARAM, "?", false, i++));
+            } else if ((c == '<' || c == '>' || c == '!') && i + 1 < n
+                    && (sql.charAt(i + 1) == '=' || (c == '<' && sql.charAt(i + 1) == '>'))) {
+                tokens.add(new Token(Token.Type.SYMBOL, sql.substring(i, i + 2), false, i));
+                i += 2;
+            } else if ("(),;*=<>-+".indexOf(c) >= 0) {
+                tokens.add(new Token(Token.Type.SYMBOL, String.valueOf(c), false, i++));
+            } else {
+                throw new IllegalArgumentException("[ERROR] 알 수 없는 문자입니다: '" + c + "' (" + i + "번째 글자)");
+            }
+        }
+        tokens.add(new Token(Token.Type.END, "", false, n));
+        return tokens;
+    }
+
+    // 키워드는 대문자로, 토큰 사이는 공백 하나로. 식별자는 대소문자를 구분하므로 그대로 둔다.
+    static String normalize(List<Token> tokens) {
+        StringBuilder sb = new StringBuilder();
+        int end = tokens.size() - 1;
+        while (end > 0 && tokens.get(end - 1).is(";")) end--;
+        for (int i = 0; i < end; i++) {
+            Token t = tokens.get(i);
+            if (i > 0) sb.append(' ');
+            switch (t.type) {
+                case STRING -> sb.append('\'').append(t.text.replace("'", "''")).append('\'');
+                case IDENT -> {
+                    String upper = t.text.toUpperCase(Locale.ROOT);
+                    if (t.quoted) {
+                        sb.append('"').append(t.text.replace("\"", "\"\"")).append('"');
+                    } else {
+                        sb.append(KEYWORDS.contains(upper) ? upper : t.text);
+                    }
+                }
+                default -> sb.append(t.text);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int skipNumber(String sql, int i) {
+        int n = sql.length();
+        while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+        if (i < n && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < n && (sql.charAt(j) == '+' || sql.charAt(j) == '-')) j++;
+            if (j < n && Character.isDigit(sql.charAt(j))) {
+                i = j;
+                while (i < n && Character.isDigit(sql.charAt(i))) i++;
+            }
+        }
+        return i;
+    }
+}
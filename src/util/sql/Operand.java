@@ -0,0 +1,37 @@
+package util.sql;
+
+import java.util.List;
+
+// 문장 안의 값. 리터럴(NULL 이면 value 가 null) 또는 index 번째 ? 파라미터(0부터).
+final class Operand {
+
+    final String value;
+    final int parameter;
+
+    private Operand(String value, int parameter) {
+        this.value = value;
+        this.parameter = parameter;
+    }
+
+    static Operand literal(String value) {
+        return new Operand(value, -1);
+    }
+
+    static Operand parameter(int index) {
+        return new Operand(null, index);
+    }
+
+    boolean isParameter() {
+        return parameter >= 0;
+    }
+
+    String resolve(List<String> parameters) {
+        return isParameter() ? parameters.get(parameter) : value;
+    }
+
+    @Override
+    public String toString() {
+        if (isParameter()) return "?" + (parameter + 1);
+        return (value == null) ? "NULL" : "'" + value + "'";
+    }
+}
@@ -0,0 +1,143 @@
+package util.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 논리 계획. 이름/타입을 확인하고 리터럴을 정규화한 문장과, 행을 찾는 방법(access)을 담는다.
+ * 파라미터 값과는 무관하므로 한 번 만든 계획을 캐시에 두고 바인딩만 바꿔 다시 실행한다.
+ * 테이블의 인덱스 목록이나 통계가 바뀌면(Table.planVersion) 캐시된 계획은 다시 만든다.
+ * WHERE 조건은 access 가 쓴 것까지 전부 실행 때 다시 확인한다 (트랜잭션 overlay 와 스냅샷 값 기준).
+ */
+final class Plan {
+
+    enum Access {
+        // 테이블을 읽지 않는 문장 (DDL, INSERT, ANALYZE, BEGIN/COMMIT/ROLLBACK)
+        NONE("없음"),
+        FULL_SCAN("전체 스캔"),
+        // 모든 PK 컬럼이 = 조건
+        PK_LOOKUP("PK 조회"),
+        // 앞쪽 PK 컬럼들이 = 조건이고 다음 PK 컬럼에 범위 조건이 있을 수 있음
+        PK_RANGE("PK 범위"),
+        // 보조 인덱스 하나의 앞쪽 컬럼들이 = 조건
+        INDEX_LOOKUP("인덱스 조회"),
+        // 보조 인덱스 여러 개로 각각 PK 를 얻어 교집합만 읽음
+        INDEX_INTERSECTION("인덱스 교집합");
+
+        final String label;
+
+        Access(String label) {
+            this.label = label;
+        }
+    }
+
+    final Statement statement;
+    final String table;
+    final Access access;
+    // PK_LOOKUP/PK_RANGE 에서 PK 컬럼 순서대로의 = 조건
+    final List<Condition> keyEquals;
+    // PK_RANGE 에서 keyEquals 다음 PK 컬럼의 하한/상한 (없으면 null)
+    final Condition lower;
+    final Condition upper;
+    // INDEX_LOOKUP/INDEX_INTERSECTION 에서 쓰는 인덱스와 그 인덱스들이 덮는 = 조건
+    final List<String> indexes;
+    final List<Condition> indexEquals;
+    // 결과 컬럼. SELECT * 는 테이블 컬럼 전부.
+    final List<String> columns;
+    // 읽은 순서가 이미 ORDER BY 순서라 정렬하지 않아도 되는가
+    final boolean presorted;
+    final int parameterCount;
+    // 비용 추정: access 가 읽을 후보 행 수, WHERE 를 거친 뒤 행 수, 비용. 고르지 않은 경로는 alternatives 에 설명으로 남긴다.
+    final double estimatedCandidates;
+    final double estimatedRows;
+    final double cost;
+    final List<String> alternatives;
+    // 계획할 때의 Table.planVersion (테이블을 읽지 않으면 -1)
+    final int tableVersion;
+    // EXPLAIN: 실행하지 않고 계획과 실제로 읽은 행 수만 보여준다
+    final boolean explain;
+
+    Plan(Statement statement, String table, Access access, List<Condition> keyEquals, Condition lower, Condition upper,
+         List<String> indexes, List<Condition> indexEquals, List<String> columns, boolean presorted, int parameterCount,
+         double estimatedCandidates, double estimatedRows, double cost, List<String> alternatives, int tableVersion,
+         boolean explain) {
+        this.statement = statement;
+        this.table = table;
+        this.access = access;
+        this.keyEquals = keyEquals;
+        this.lower = lower;
+        this.upper = upper;
+        this.indexes = indexes;
+        this.indexEquals = indexEquals;
+        this.columns = columns;
+        this.presorted = presorted;
+        this.parameterCount = parameterCount;
+        this.estimatedCandidates = estimatedCandidates;
+        this.estimatedRows = estimatedRows;
+        this.cost = cost;
+        this.alternatives = alternatives;
+        this.tableVersion = tableVersion;
+        this.explain = explain;
+    }
+
+    static Plan simple(Statement statement, String table, int parameterCount) {
+        return new Plan(statement, table, Access.NONE, List.of(), null, null, List.of(), List.of(), List.of(), false,
+                parameterCount, 0, 0, 0, List.of(), -1, false);
+    }
+
+    Plan explaining() {
+        return new Plan(statement, table, access, keyEquals, lower, upper, indexes, indexEquals, columns, presorted,
+                parameterCount, estimatedCandidates, estimatedRows, cost, alternatives, tableVersion, true);
+    }
+
+    List<Condition> where() {
+        if (statement instanceof Statement.Select s) return s.where;
+        if (statement instanceof Statement.Update u) return u.where;
+        if (statement instanceof Statement.Delete d) return d.where;
+        return List.of();
+    }
+
+    // 고른 경로 설명 (예: 인덱스 조회 idx_name [name = ?1])
+    String accessText() {
+        return switch (access) {
+            case PK_LOOKUP -> access.label + " " + keyEquals;
+            case PK_RANGE -> {
+                List<Condition> range = new ArrayList<>(keyEquals);
+                if (lower != null) range.add(lower);
+                if (upper != null) range.add(upper);
+                yield access.label + " " + range;
+            }
+            case INDEX_LOOKUP, INDEX_INTERSECTION -> access.label + " " + String.join(" & ", indexes) + " " + indexEquals;
+            default -> access.label;
+        };
+    }
+
+    @Override
+    public String toString() {
+        String kind = kind();
+        if (access == Access.NONE) {
+            return kind + ((table == null) ? "" : " " + table);
+        }
+
+        List<String> parts = new ArrayList<>();
+        parts.add(accessText());
+        if (!where().isEmpty()) parts.add("필터 " + where());
+        if (statement instanceof Statement.Select s) {
+            if (!s.orderBy.isEmpty()) parts.add((presorted ? "정렬 생략(PK 순) " : "정렬 ") + s.orderBy);
+            if (s.limit != null) parts.add("LIMIT " + s.limit);
+        }
+        return kind + " " + table + ": " + String.join(", ", parts)
+                + String.format(" (비용 %.1f, 예상 후보 %.0f행, 예상 결과 %.0f행)", cost, estimatedCandidates, estimatedRows);
+    }
+
+    private String kind() {
+        if (statement instanceof Statement.Control c) return c.kind.name();
+        if (statement instanceof Statement.CreateTable) return "CREATE TABLE";
+        if (statement instanceof Statement.CreateIndex) return "CREATE INDEX";
+        if (statement instanceof Statement.Analyze) return "ANALYZE";
+        if (statement instanceof Statement.Insert) return "INSERT";
+        if (statement instanceof Statement.Update) return "UPDATE";
+        if (statement instanceof Statement.Delete) return "DELETE";
+        return "SELECT";
+    }
+}
@@ -0,0 +1,76 @@
+package util.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * 정규화한 문장 문자열 -> 계획. 가장 오래 쓰지 않은 것부터 내보내는 LRU 이다.
+ * 여러 SqlEngine(세션)이 나눠 쓸 수 있고, DDL 을 실행하면 비운다 (새 인덱스를 쓰는 계획이 나올 수 있으므로).
+ */
+public class PlanCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final LinkedHashMap<String, Plan> plans;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public PlanCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PlanCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("[ERROR] 계획 캐시 크기는 1 이상이어야 합니다.");
+        }
+        this.capacity = capacity;
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Plan> eldest) {
+                if (size() <= PlanCache.this.capacity) {
+                    return false;
+                }
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    synchronized Plan get(String text) {
+        Plan plan = plans.get(text);
+        if (plan == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return plan;
+    }
+
+    synchronized void put(String text, Plan plan) {
+        plans.put(text, plan);
+    }
+
+    public synchronized void clear() {
+        plans.clear();
+    }
+
+    public synchronized int size() {
+        return plans.size();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "[PLAN CACHE] 항목 " + plans.size() + "/" + capacity + ", 적중 " + hits + "회, 실패 " + misses
+                + "회, 내보냄 " + evictions + "회";
+    }
+}
@@ -0,0 +1,374 @@
+package util.sql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import model.ColumnStatistics;
+import model.Database;
+import model.Schema;
+import model.SecondaryIndex;
+import model.Table;
+import model.TableStatistics;
+import util.transaction.TransactionManager;
+
+/*
+ * 문장을 테이블 스키마로 확인해 Plan 으로 만든다. 행을 찾는 방법은 비용으로 고른다:
+ * 전체 스캔, PK 조회/범위, 보조 인덱스 하나, 보조 인덱스 여러 개의 교집합 중 가능한 것마다
+ * ANALYZE 통계로 읽을 행 수를 어림해 비용을 매기고 가장 싼 것을 쓴다. ORDER BY 를 위한 정렬 비용도 더한다.
+ * 통계가 없거나 마지막 ANALYZE 뒤로 많이 바뀐 테이블(Table.isStatisticsStale)은 계획하기 전에 ANALYZE 한다.
+ */
+final class Planner {
+
+    // 비용 단위는 PK 순으로 행 하나를 읽는 비용이다
+    private static final double SEQ_ROW = 1.0;
+    private static final double RANDOM_ROW = 2.0;
+    private static final double INDEX_ENTRY = 0.2;
+    private static final double SEEK = 4.0;
+    private static final double SORT_ROW = 0.05;
+    // 값을 모르는(파라미터) 범위 조건과 통계가 없는 컬럼의 선택도
+    private static final double DEFAULT_RANGE = 1.0 / 3;
+    private static final double DEFAULT_EQUALS = 0.005;
+
+    private Planner() {
+    }
+
+    static Plan plan(Statement statement, int parameterCount, Database db, TransactionManager tm) {
+        if (statement instanceof Statement.Explain e) {
+            return plan(e.statement, parameterCount, db, tm).explaining();
+        }
+        if (statement instanceof Statement.Analyze a) {
+            if (a.table != null) mustTable(db, a.table);
+            return Plan.simple(a, a.table, parameterCount);
+        }
+        if (statement instanceof Statement.Select s) {
+            Table table = mustTable(db, s.table);
+            Schema schema = table.getSchema();
+            List<String> columns = s.columns.isEmpty() ? schema.names() : checkColumns(schema, s.columns);
+            for (Statement.OrderKey key : s.orderBy) {
+                schema.column(key.column);
+            }
+            if (s.limit != null && !s.limit.isParameter()) {
+                limitOf(s.limit.value);
+            }
+            Statement.Select checked = new Statement.Select(s.table, columns, normalize(schema, s.where), s.orderBy, s.limit);
+            return withAccess(checked, table, checked.where, columns, s.orderBy, parameterCount, tm);
+        }
+        if (statement instanceof Statement.Update u) {
+            Table table = mustTable(db, u.table);
+            Schema schema = table.getSchema();
+            Map<String, Operand> assignments = new LinkedHashMap<>();
+            for (Map.Entry<String, Operand> e : u.assignments.entrySet()) {
+                assignments.put(e.getKey(), normalize(schema, e.getKey(), e.getValue()));
+            }
+            Statement.Update checked = new Statement.Update(u.table, assignments, normalize(schema, u.where));
+            return withAccess(checked, table, checked.where, List.of(), List.of(), parameterCount, tm);
+        }
+        if (statement instanceof Statement.Delete d) {
+            Table table = mustTable(db, d.table);
+            Statement.Delete checked = new Statement.Delete(d.table, normalize(table.getSchema(), d.where));
+            return withAccess(checked, table, checked.where, List.of(), List.of(), parameterCount, tm);
+        }
+        if (statement instanceof Statement.Insert i) {
+            Schema schema = mustTable(db, i.table).getSchema();
+            List<String> columns = (i.columns == null) ? schema.names() : checkColumns(schema, i.columns);
+            List<List<Operand>> rows = new ArrayList<>();
+            for (List<Operand> row : i.rows) {
+                if (row.size() != columns.size()) {
+                    throw new IllegalArgumentException("[ERROR] 값 개수가 컬럼 개수와 다릅니다: 컬럼 " + columns.size() + "개, 값 " + row.size() + "개");
+                }
+                List<Operand> values = new ArrayList<>(row.size());
+                for (int c = 0; c < row.size(); c++) {
+                    values.add(normalize(schema, columns.get(c), row.get(c)));
+                }
+                rows.add(values);
+            }
+            return Plan.simple(new Statement.Insert(i.table, columns, rows), i.table, parameterCount);
+        }
+        if (statement instanceof Statement.CreateIndex c) {
+            checkColumns(mustTable(db, c.table).getSchema(), c.columns);
+            return Plan.simple(c, c.table, parameterCount);
+        }
+        if (statement instanceof Statement.CreateTable c) {
+            return Plan.simple(c, c.table, parameterCount);
+        }
+        return Plan.simple(statement, null, parameterCount);
+    }
+
+    static int limitOf(String value) {
+        try {
+            int limit = Integer.parseInt(value.trim());
+            if (limit >= 0) {
+                return limit;
+            }
+        } catch (NumberFormatException e) {
+            // 아래에서 같은 오류로 알린다
+        }
+        throw new IllegalArgumentException("[ERROR] LIMIT 은 0 이상의 정수여야 합니다: " + value);
+    }
+
+    private static Plan withAccess(Statement statement, Table table, List<Condition> where, List<String> columns,
+                                   List<Statement.OrderKey> orderBy, int parameterCount, TransactionManager tm) {
+        if (table.isStatisticsStale()) {
+            tm.analyze(table.getName());
+        }
+        // 통계를 먼저 만들고 버전을 읽어야 방금 한 ANALYZE 때문에 캐시된 계획을 또 버리지 않는다
+        int version = table.planVersion();
+        Estimator estimator = new Estimator(table.rowCount(), table.getStatistics());
+        List<String> pk = table.getPrimaryKeyColumns();
+        double rows = estimator.rows(where);
+        double sortRow = orderBy.isEmpty() ? 0 : SORT_ROW * Math.log(Math.max(2, rows)) / Math.log(2);
+
+        List<Candidate> candidates = new ArrayList<>();
+        double n = estimator.n;
+        candidates.add(new Candidate(Plan.Access.FULL_SCAN, n, n * SEQ_ROW));
+
+        List<Condition> keyEquals = new ArrayList<>();
+        for (String column : pk) {
+            Condition eq = findEquals(where, column);
+            if (eq == null) break;
+            keyEquals.add(eq);
+        }
+        if (keyEquals.size() == pk.size()) {
+            Candidate c = new Candidate(Plan.Access.PK_LOOKUP, Math.min(1, n), SEEK + RANDOM_ROW);
+            c.keyEquals = keyEquals;
+            candidates.add(c);
+        } else {
+            Condition lower = null;
+            Condition upper = null;
+            String next = pk.get(keyEquals.size());
+            for (Condition c : where) {
+                if (!c.column.equals(next)) continue;
+                if (lower == null && c.op.isLower()) lower = c;
+                if (upper == null && c.op.isUpper()) upper = c;
+            }
+            if (!keyEquals.isEmpty() || lower != null || upper != null) {
+                List<Condition> used = new ArrayList<>(keyEquals);
+                if (lower != null) used.add(lower);
+                if (upper != null) used.add(upper);
+                double read = estimator.rows(used);
+                Candidate c = new Candidate(Plan.Access.PK_RANGE, read, SEEK + read * SEQ_ROW);
+                c.keyEquals = keyEquals;
+                c.lower = lower;
+                c.upper = upper;
+                candidates.add(c);
+            }
+        }
+
+        // 인덱스마다 앞쪽 컬럼부터 = 조건이 있는 만큼 쓴다. 교집합은 후보가 적은 인덱스부터 비용이 줄어드는 동안 더한다.
+        List<Candidate> lookups = new ArrayList<>();
+        for (SecondaryIndex idx : table.getIndexes()) {
+            if (!idx.isReady()) continue;
+            List<Condition> covered = new ArrayList<>();
+            for (String column : idx.getColumns()) {
+                Condition eq = findEquals(where, column);
+                if (eq == null) break;
+                covered.add(eq);
+            }
+            if (covered.isEmpty()) continue;
+            double read = estimator.rows(covered);
+            Candidate c = new Candidate(Plan.Access.INDEX_LOOKUP, read, SEEK + read * (INDEX_ENTRY + RANDOM_ROW));
+            c.indexes = List.of(idx.getName());
+            c.indexEquals = covered;
+            lookups.add(c);
+        }
+        candidates.addAll(lookups);
+        if (lookups.size() > 1) {
+            lookups.sort(Comparator.comparingDouble(c -> c.candidates));
+            Candidate first = lookups.get(0);
+            List<String> names = new ArrayList<>(first.indexes);
+            List<Condition> equals = new ArrayList<>(first.indexEquals);
+            double probe = SEEK + first.candidates * INDEX_ENTRY;
+            double read = first.candidates;
+            double cost = first.cost;
+            for (Candidate lookup : lookups.subList(1, lookups.size())) {
+                List<Condition> union = new ArrayList<>(equals);
+                for (Condition c : lookup.indexEquals) {
+                    if (!union.contains(c)) union.add(c);
+                }
+                double nextProbe = probe + SEEK + lookup.candidates * INDEX_ENTRY;
+                double nextRead = estimator.rows(union);
+                double nextCost = nextProbe + nextRead * RANDOM_ROW;
+                if (nextCost >= cost) break;
+                names.add(lookup.indexes.get(0));
+                equals = union;
+                probe = nextProbe;
+                read = nextRead;
+                cost = nextCost;
+            }
+            if (names.size() > 1) {
+                Candidate c = new Candidate(Plan.Access.INDEX_INTERSECTION, read, cost);
+                c.indexes = List.copyOf(names);
+                c.indexEquals = List.copyOf(equals);
+                candidates.add(c);
+            }
+        }
+
+        Candidate chosen = null;
+        for (Candidate c : candidates) {
+            c.presorted = isPresorted(c.access, pk, orderBy);
+            c.cost += c.presorted ? 0 : rows * sortRow;
+            if (chosen == null || c.cost < chosen.cost) chosen = c;
+        }
+        List<String> alternatives = new ArrayList<>();
+        for (Candidate c : candidates) {
+            if (c != chosen) alternatives.add(c.toString());
+        }
+        return new Plan(statement, table.getName(), chosen.access, chosen.keyEquals, chosen.lower, chosen.upper,
+                chosen.indexes, chosen.indexEquals, columns, chosen.presorted, parameterCount, chosen.candidates,
+                Math.min(rows, chosen.candidates), chosen.cost, alternatives, version, false);
+    }
+
+    // PK 로 읽은 결과는 PK 순이므로 ORDER BY 가 앞쪽 PK 컬럼 오름차순이면 정렬할 필요가 없다
+    private static boolean isPresorted(Plan.Access access, List<String> pk, List<Statement.OrderKey> orderBy) {
+        if (orderBy.isEmpty() || access == Plan.Access.INDEX_LOOKUP || access == Plan.Access.INDEX_INTERSECTION
+                || orderBy.size() > pk.size()) {
+            return false;
+        }
+        for (int i = 0; i < orderBy.size(); i++) {
+            Statement.OrderKey key = orderBy.get(i);
+            if (key.descending || !key.column.equals(pk.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static Condition findEquals(List<Condition> where, String column) {
+        for (Condition c : where) {
+            if (c.column.equals(column) && c.op == Condition.Op.EQ) return c;
+        }
+        return null;
+    }
+
+    private static List<Condition> normalize(Schema schema, List<Condition> where) {
+        List<Condition> out = new ArrayList<>(where.size());
+        for (Condition c : where) {
+            if (!c.operand.isParameter() && c.operand.value == null) {
+                throw new IllegalArgumentException("[ERROR] NULL 과는 비교할 수 없습니다: " + c.column);
+            }
+            out.add(new Condition(c.column, c.op, normalize(schema, c.column, c.operand)));
+        }
+        return out;
+    }
+
+    // 리터럴은 계획할 때 컬럼 타입으로 다듬어 두고, 파라미터는 실행할 때 다듬는다
+    private static Operand normalize(Schema schema, String column, Operand operand) {
+        schema.column(column);
+        if (operand.isParameter() || operand.value == null) {
+            return operand;
+        }
+        return Operand.literal(schema.normalize(column, operand.value));
+    }
+
+    private static List<String> checkColumns(Schema schema, List<String> columns) {
+        Set<String> seen = new HashSet<>();
+        for (String column : columns) {
+            schema.column(column);
+            if (!seen.add(column)) {
+                throw new IllegalArgumentException("[ERROR] 컬럼 이름이 중복되었습니다: " + column);
+            }
+        }
+        return List.copyOf(columns);
+    }
+
+    private static Table mustTable(Database db, String name) {
+        Table table = db.getTable(name);
+        if (table == null) {
+            throw new IllegalArgumentException("[ERROR] 존재하지 않는 테이블입니다: " + name);
+        }
+        return table;
+    }
+
+    private static final class Candidate {
+        final Plan.Access access;
+        final double candidates;
+        double cost;
+        List<Condition> keyEquals = List.of();
+        Condition lower;
+        Condition upper;
+        List<String> indexes = List.of();
+        List<Condition> indexEquals = List.of();
+        boolean presorted;
+
+        Candidate(Plan.Access access, double candidates, double cost) {
+            this.access = access;
+            this.candidates = candidates;
+            this.cost = cost;
+        }
+
+        @Override
+        public String toString() {
+            return access.label + (indexes.isEmpty() ? "" : " " + String.join(" & ", indexes))
+                    + String.format(" (비용 %.1f, 예상 후보 %.0f행)", cost, candidates);
+        }
+    }
+
+    // 조건을 만족하는 행 수를 통계로 어림한다. 컬럼끼리는 독립으로 보고, 한 컬럼의 리터럴 하한과 상한은 한 구간으로 본다.
+    private static final class Estimator {
+        final double n;
+        private final TableStatistics statistics;
+
+        Estimator(long rowCount, TableStatistics statistics) {
+            this.n = rowCount;
+            this.statistics = statistics;
+        }
+
+        // 테이블이 비어 있지 않으면 적어도 1행
+        double rows(List<Condition> conditions) {
+            if (n == 0) {
+                return 0;
+            }
+            Map<String, List<Condition>> byColumn = new LinkedHashMap<>();
+            for (Condition c : conditions) {
+                byColumn.computeIfAbsent(c.column, k -> new ArrayList<>()).add(c);
+            }
+            double selectivity = 1;
+            for (Map.Entry<String, List<Condition>> e : byColumn.entrySet()) {
+                selectivity *= selectivity(e.getKey(), e.getValue());
+            }
+            return Math.max(1, n * selectivity);
+        }
+
+        private double selectivity(String column, List<Condition> conditions) {
+            ColumnStatistics stats = (statistics == null) ? null : statistics.column(column);
+            Condition lower = null;
+            Condition upper = null;
+            double selectivity = 1;
+            for (Condition c : conditions) {
+                boolean literal = !c.operand.isParameter();
+                if (stats != null && literal && lower == null && c.op.isLower()) {
+                    lower = c;
+                } else if (stats != null && literal && upper == null && c.op.isUpper()) {
+                    upper = c;
+                } else {
+                    selectivity *= selectivity(stats, c);
+                }
+            }
+            if (lower != null && upper != null) {
+                double below = stats.belowFraction(upper.operand.value, upper.op == Condition.Op.LE);
+                double excluded = stats.belowFraction(lower.operand.value, lower.op == Condition.Op.GT);
+                selectivity *= Math.max(0, below - excluded);
+            } else if (lower != null || upper != null) {
+                selectivity *= selectivity(stats, (lower != null) ? lower : upper);
+            }
+            return selectivity;
+        }
+
+        private static double selectivity(ColumnStatistics stats, Condition c) {
+            String value = c.operand.isParameter() ? null : c.operand.value;
+            if (stats == null) {
+                return (c.op == Condition.Op.EQ) ? DEFAULT_EQUALS : (c.op == Condition.Op.NE) ? 1 - DEFAULT_EQUALS : DEFAULT_RANGE;
+            }
+            double nonNull = 1 - stats.nullFraction;
+            return switch (c.op) {
+                case EQ -> stats.equalsFraction(value);
+                case NE -> Math.max(0, nonNull - stats.equalsFraction(value));
+                case LT, LE -> (value == null) ? DEFAULT_RANGE * nonNull : stats.belowFraction(value, c.op == Condition.Op.LE);
+                case GT, GE -> (value == null) ? DEFAULT_RANGE * nonNull
+                        : Math.max(0, nonNull - stats.belowFraction(value, c.op == Condition.Op.GT));
+            };
+        }
+    }
+}
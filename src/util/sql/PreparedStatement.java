@@ -0,0 +1,64 @@
+package util.sql;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * 미리 계획해 둔 문장. 실행할 때는 파싱도 계획도 하지 않고 ? 자리에 값만 넣는다.
+ * bind 로 값을 하나씩 넣거나 execute(값...) 로 한 번에 준다. 만든 SqlEngine 의 세션에서 실행된다.
+ */
+public class PreparedStatement {
+
+    private final SqlEngine engine;
+    private final Plan plan;
+    private final String[] bindings;
+    private final boolean[] bound;
+
+    PreparedStatement(SqlEngine engine, Plan plan) {
+        this.engine = engine;
+        this.plan = plan;
+        this.bindings = new String[plan.parameterCount];
+        this.bound = new boolean[plan.parameterCount];
+    }
+
+    public int parameterCount() {
+        return plan.parameterCount;
+    }
+
+    // index 는 1부터. null 은 NULL 값이다.
+    public PreparedStatement bind(int index, String value) {
+        if (index < 1 || index > bindings.length) {
+            throw new IllegalArgumentException("[ERROR] 파라미터 번호가 범위를 벗어났습니다: " + index);
+        }
+        bindings[index - 1] = value;
+        bound[index - 1] = true;
+        return this;
+    }
+
+    public void clearBindings() {
+        Arrays.fill(bindings, null);
+        Arrays.fill(bound, false);
+    }
+
+    public SqlResult execute() throws IOException {
+        List<String> values = new ArrayList<>(bindings.length);
+        for (int i = 0; i < bindings.length; i++) {
+            if (!bound[i]) {
+                throw new IllegalArgumentException("[ERROR] 값을 넣지 않은 파라미터입니다: ?" + (i + 1));
+            }
+            values.add(bindings[i]);
+        }
+        return engine.execute(plan, values);
+    }
+
+    public SqlResult execute(String... values) throws IOException {
+        return engine.execute(plan, Arrays.asList(values));
+    }
+
+    // 계획 설명 (행을 찾는 방법, 필터, 정렬)
+    public String explain() {
+        return plan.toString();
+    }
+}
@@ -0,0 +1,426 @@
+package util.sql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import model.ColumnType;
+import model.Database;
+import model.Record;
+import model.Schema;
+import model.Table;
+import util.exec.Filter;
+import util.exec.Limit;
+import util.exec.Operator;
+import util.exec.Project;
+import util.exec.Sort;
+import util.transaction.Session;
+import util.transaction.TransactionManager;
+
+/*
+ * SQL 로 데이터베이스를 쓰는 연결 하나. 세션 하나를 쥐고 모든 읽기/쓰기를 TransactionManager 로 보낸다.
+ * 문장은 토큰으로 나눠 정규화한 문자열로 계획 캐시를 먼저 찾고, 없을 때만 파싱/계획한다.
+ * BEGIN 없이 실행한 INSERT/UPDATE/DELETE 는 문장 하나를 트랜잭션 하나로 커밋한다(autocommit).
+ * DDL 은 트랜잭션 밖에서만 실행하고, 카탈로그를 바로 저장한 뒤 계획 캐시를 비운다.
+ * 캐시된 계획이라도 그 뒤로 테이블의 인덱스나 통계가 바뀌었으면(메뉴에서 바꾼 경우 포함) 다시 계획한다.
+ * 트랜잭션 밖에서 전체 스캔하는 SELECT 는 배치 실행기(util.exec)로 필요한 컬럼만 풀어 조건/정렬/LIMIT 을 처리한다.
+ */
+public class SqlEngine implements Closeable {
+
+    private final Database db;
+    private final String dbPath;
+    private final TransactionManager tm;
+    private final Session session;
+    private final boolean ownsSession;
+    private final PlanCache cache;
+
+    // 새 세션과 자기 계획 캐시를 쓴다. close 하면 세션도 닫는다.
+    public SqlEngine(Database db, String dbPath, TransactionManager tm) {
+        this(db, dbPath, tm, tm.openSession(), new PlanCache(), true);
+    }
+
+    // 이미 있는 세션(예: 콘솔 메뉴의 세션)과 공유 계획 캐시를 쓴다
+    public SqlEngine(Database db, String dbPath, TransactionManager tm, Session session, PlanCache cache) {
+        this(db, dbPath, tm, session, cache, false);
+    }
+
+    private SqlEngine(Database db, String dbPath, TransactionManager tm, Session session, PlanCache cache, boolean ownsSession) {
+        this.db = db;
+        this.dbPath = dbPath;
+        this.tm = tm;
+        this.session = session;
+        this.cache = cache;
+        this.ownsSession = ownsSession;
+    }
+
+    public PlanCache planCache() {
+        return cache;
+    }
+
+    public PreparedStatement prepare(String sql) {
+        return new PreparedStatement(this, planOf(sql));
+    }
+
+    public SqlResult execute(String sql, String... parameters) throws IOException {
+        return execute(planOf(sql), Arrays.asList(parameters));
+    }
+
+    @Override
+    public void close() {
+        if (ownsSession && !session.isClosed()) {
+            tm.closeSession(session);
+        }
+    }
+
+    private Plan planOf(String sql) {
+        List<Token> tokens = Lexer.tokenize(sql);
+        String text = Lexer.normalize(tokens);
+        Plan plan = cache.get(text);
+        if (plan == null || isOutdated(plan)) {
+            SqlParser parser = new SqlParser(tokens);
+            Statement statement = parser.parse();
+            plan = Planner.plan(statement, parser.parameterCount(), db, tm);
+            cache.put(text, plan);
+        }
+        return plan;
+    }
+
+    private boolean isOutdated(Plan plan) {
+        if (plan.tableVersion < 0) {
+            return false;
+        }
+        Table table = db.getTable(plan.table);
+        return table == null || table.planVersion() != plan.tableVersion || table.isStatisticsStale();
+    }
+
+    SqlResult execute(Plan plan, List<String> parameters) throws IOException {
+        if (parameters.size() != plan.parameterCount) {
+            throw new IllegalArgumentException("[ERROR] 파라미터 개수가 맞지 않습니다: 필요 " + plan.parameterCount + "개, 받은 값 " + parameters.size() + "개");
+        }
+        Statement statement = plan.statement;
+        if (plan.explain) {
+            return explain(plan, parameters);
+        }
+        if (statement instanceof Statement.Analyze a) {
+            return analyze(a);
+        }
+        if (statement instanceof Statement.Select s) {
+            return select(plan, s, parameters);
+        }
+        if (statement instanceof Statement.Control c) {
+            return control(c);
+        }
+        if (statement instanceof Statement.CreateTable c) {
+            return createTable(c);
+        }
+        if (statement instanceof Statement.CreateIndex c) {
+            return createIndex(c);
+        }
+        if (statement instanceof Statement.Insert i) {
+            return inTransaction(() -> insert(i, parameters));
+        }
+        if (statement instanceof Statement.Update u) {
+            return inTransaction(() -> update(plan, u, parameters));
+        }
+        Statement.Delete d = (Statement.Delete) statement;
+        return inTransaction(() -> delete(plan, d, parameters));
+    }
+
+    private SqlResult select(Plan plan, Statement.Select s, List<String> parameters) {
+        Table table = db.getTable(plan.table);
+        if (plan.access == Plan.Access.FULL_SCAN && !tm.isActive(session)) {
+            return SqlResult.rows(plan.columns, scanSelect(plan, s, table.getSchema(), parameters));
+        }
+        List<Record> rows = matching(plan, table, parameters);
+        if (!s.orderBy.isEmpty() && !plan.presorted) {
+            rows.sort(comparatorOf(table.getSchema(), s.orderBy));
+        }
+        if (s.limit != null) {
+            int limit = Planner.limitOf(String.valueOf(s.limit.resolve(parameters)));
+            if (rows.size() > limit) {
+                rows = new ArrayList<>(rows.subList(0, limit));
+            }
+        }
+        return SqlResult.rows(plan.columns, rows);
+    }
+
+    // 트랜잭션이 없으면 overlay 를 합칠 필요가 없으므로 커밋된 스냅샷을 배치로 읽는다
+    private List<Record> scanSelect(Plan plan, Statement.Select s, Schema schema, List<String> parameters) {
+        Set<String> needed = new LinkedHashSet<>(plan.columns);
+        for (Condition c : s.where) needed.add(c.column);
+        for (Statement.OrderKey key : s.orderBy) needed.add(key.column);
+        Operator op = tm.scan(plan.table, new ArrayList<>(needed));
+        try {
+            for (Condition c : s.where) {
+                op = new Filter(op, c.column, Filter.Op.valueOf(c.op.name()), valueOf(schema, c, parameters));
+            }
+            if (!s.orderBy.isEmpty() && !plan.presorted) {
+                List<Sort.Key> keys = new ArrayList<>();
+                for (Statement.OrderKey key : s.orderBy) {
+                    keys.add(new Sort.Key(key.column, key.descending));
+                }
+                op = new Sort(op, keys);
+            }
+            if (s.limit != null) {
+                op = new Limit(op, Planner.limitOf(String.valueOf(s.limit.resolve(parameters))));
+            }
+            op = new Project(op, plan.columns);
+        } catch (RuntimeException e) {
+            op.close();
+            throw e;
+        }
+        return op.drain();
+    }
+
+    private SqlResult insert(Statement.Insert s, List<String> parameters) {
+        for (List<Operand> row : s.rows) {
+            Map<String, String> values = new HashMap<>();
+            for (int c = 0; c < row.size(); c++) {
+                String v = row.get(c).resolve(parameters);
+                if (v != null) values.put(s.columns.get(c), v);
+            }
+            tm.insert(session, s.table, new Record(values));
+        }
+        return SqlResult.affected(s.rows.size(), "추가 " + s.rows.size() + "건");
+    }
+
+    private SqlResult update(Plan plan, Statement.Update s, List<String> parameters) {
+        Table table = db.getTable(plan.table);
+        List<Record> rows = matching(plan, table, parameters);
+        for (Record r : rows) {
+            Map<String, String> merged = new HashMap<>(r.values());
+            for (Map.Entry<String, Operand> e : s.assignments.entrySet()) {
+                String v = e.getValue().resolve(parameters);
+                if (v == null) {
+                    merged.remove(e.getKey());
+                } else {
+                    merged.put(e.getKey(), v);
+                }
+            }
+            tm.update(session, plan.table, keyTextOf(table, r), new Record(merged));
+        }
+        return SqlResult.affected(rows.size(), "수정 " + rows.size() + "건");
+    }
+
+    private SqlResult delete(Plan plan, Statement.Delete s, List<String> parameters) {
+        Table table = db.getTable(plan.table);
+        List<Record> rows = matching(plan, table, parameters);
+        for (Record r : rows) {
+            tm.delete(session, plan.table, keyTextOf(table, r));
+        }
+        return SqlResult.affected(rows.size(), "삭제 " + rows.size() + "건");
+    }
+
+    private SqlResult control(Statement.Control c) throws IOException {
+        switch (c.kind) {
+            case BEGIN -> {
+                if (tm.isActive(session)) {
+                    throw new IllegalArgumentException("[ERROR] 이미 트랜잭션이 진행중입니다.");
+                }
+                tm.begin(session);
+                return SqlResult.affected(0, "BEGIN");
+            }
+            case COMMIT -> {
+                requireActive();
+                tm.commit(session);
+                return SqlResult.affected(0, "COMMIT");
+            }
+            default -> {
+                requireActive();
+                tm.rollback(session);
+                return SqlResult.affected(0, "ROLLBACK");
+            }
+        }
+    }
+
+    private SqlResult createTable(Statement.CreateTable c) throws IOException {
+        requireNoTransaction();
+        Schema schema = new Schema(c.columns, c.primaryKey);
+        synchronized (db) {
+            if (db.getTable(c.table) != null) {
+                throw new IllegalArgumentException("[ERROR] 이미 존재하는 테이블입니다: " + c.table);
+            }
+            db.addTable(new Table(c.table, schema));
+        }
+        saveCatalog();
+        return SqlResult.affected(0, "테이블 생성 완료: " + c.table + " " + schema);
+    }
+
+    private SqlResult createIndex(Statement.CreateIndex c) throws IOException {
+        requireNoTransaction();
+        int rows = db.getTable(c.table).createIndex(c.index, c.columns);
+        saveCatalog();
+        return SqlResult.affected(rows, "인덱스 생성 완료: " + c.index + " " + c.columns + ", 행 " + rows + "개");
+    }
+
+    private SqlResult analyze(Statement.Analyze a) {
+        List<String> names = (a.table == null) ? new ArrayList<>(new TreeSet<>(db.tableNames())) : List.of(a.table);
+        List<String> lines = new ArrayList<>();
+        for (String name : names) {
+            lines.add("ANALYZE " + name + ": " + tm.analyze(name));
+        }
+        return SqlResult.affected(0, lines.isEmpty() ? "ANALYZE: 테이블이 없습니다" : String.join(System.lineSeparator(), lines));
+    }
+
+    // 계획대로 후보를 읽고 WHERE 까지만 확인해 예상 행 수와 실제 행 수를 나란히 보여준다. 쓰기는 하지 않는다.
+    private SqlResult explain(Plan plan, List<String> parameters) {
+        Table table = db.getTable(plan.table);
+        long start = System.nanoTime();
+        List<Record> candidates = candidates(plan, table, parameters);
+        List<Record> rows = filter(plan, table.getSchema(), candidates, parameters);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        StringBuilder sb = new StringBuilder(plan.toString());
+        String nl = System.lineSeparator();
+        sb.append(nl).append(String.format("  실제: 후보 %d행, 결과 %d행 (예상 %.0f행, %.0f행), %.3fms",
+                candidates.size(), rows.size(), plan.estimatedCandidates, plan.estimatedRows, millis));
+        for (String alternative : plan.alternatives) {
+            sb.append(nl).append("  고르지 않음: ").append(alternative);
+        }
+        return SqlResult.affected(0, sb.toString());
+    }
+
+    // 계획의 방법으로 후보 행을 읽고 WHERE 조건을 모두 다시 확인한다. 돌려주는 목록은 고쳐도 된다.
+    private List<Record> matching(Plan plan, Table table, List<String> parameters) {
+        return filter(plan, table.getSchema(), candidates(plan, table, parameters), parameters);
+    }
+
+    private List<Record> candidates(Plan plan, Table table, List<String> parameters) {
+        Schema schema = table.getSchema();
+        return switch (plan.access) {
+            case PK_LOOKUP -> {
+                Record r = tm.selectById(session, plan.table, joinKey(schema, plan.keyEquals, null, parameters));
+                yield (r == null) ? List.of() : List.of(r);
+            }
+            case PK_RANGE -> {
+                String from = (plan.lower != null || !plan.keyEquals.isEmpty())
+                        ? joinKey(schema, plan.keyEquals, plan.lower, parameters) : null;
+                String to = (plan.upper != null || !plan.keyEquals.isEmpty())
+                        ? joinKey(schema, plan.keyEquals, plan.upper, parameters) : null;
+                boolean fromInc = plan.lower == null || plan.lower.op == Condition.Op.GE;
+                boolean toInc = plan.upper == null || plan.upper.op == Condition.Op.LE;
+                yield tm.findAllByPkBetween(session, plan.table, from, fromInc, to, toInc);
+            }
+            case INDEX_LOOKUP, INDEX_INTERSECTION -> {
+                Map<String, String> equals = new LinkedHashMap<>();
+                for (Condition c : plan.indexEquals) {
+                    equals.put(c.column, valueOf(schema, c, parameters));
+                }
+                yield tm.findAllBy(session, plan.table, equals, plan.indexes);
+            }
+            default -> tm.selectAll(session, plan.table);
+        };
+    }
+
+    private static List<Record> filter(Plan plan, Schema schema, List<Record> candidates, List<String> parameters) {
+
+        List<Condition> where = plan.where();
+        int n = where.size();
+        String[] columns = new String[n];
+        ColumnType[] types = new ColumnType[n];
+        Condition.Op[] ops = new Condition.Op[n];
+        String[] values = new String[n];
+        for (int i = 0; i < n; i++) {
+            Condition c = where.get(i);
+            columns[i] = c.column;
+            types[i] = schema.column(c.column).getType();
+            ops[i] = c.op;
+            values[i] = valueOf(schema, c, parameters);
+        }
+
+        List<Record> out = new ArrayList<>(candidates.size());
+        for (Record r : candidates) {
+            boolean match = true;
+            for (int i = 0; i < n && match; i++) {
+                String v = r.get(columns[i]);
+                match = v != null && ops[i].test(types[i].compare(v, values[i]));
+            }
+            if (match) out.add(r);
+        }
+        return out;
+    }
+
+    // PK 컬럼 순서대로의 값을 TransactionManager 가 받는 PK 문자열로 (복합 PK 는 쉼표로 구분)
+    private static String joinKey(Schema schema, List<Condition> equals, Condition last, List<String> parameters) {
+        List<String> parts = new ArrayList<>(equals.size() + 1);
+        for (Condition c : equals) {
+            parts.add(valueOf(schema, c, parameters));
+        }
+        if (last != null) parts.add(valueOf(schema, last, parameters));
+        return String.join(",", parts);
+    }
+
+    private static String keyTextOf(Table table, Record r) {
+        List<String> parts = new ArrayList<>();
+        for (String column : table.getPrimaryKeyColumns()) {
+            parts.add(r.get(column));
+        }
+        return String.join(",", parts);
+    }
+
+    private static String valueOf(Schema schema, Condition c, List<String> parameters) {
+        if (!c.operand.isParameter()) {
+            return c.operand.value;
+        }
+        String v = parameters.get(c.operand.parameter);
+        if (v == null) {
+            throw new IllegalArgumentException("[ERROR] NULL 과는 비교할 수 없습니다: " + c.column);
+        }
+        return schema.normalize(c.column, v);
+    }
+
+    // NULL 은 가장 앞에 둔다
+    private static Comparator<Record> comparatorOf(Schema schema, List<Statement.OrderKey> orderBy) {
+        Comparator<Record> comparator = null;
+        for (Statement.OrderKey key : orderBy) {
+            ColumnType type = schema.column(key.column).getType();
+            Comparator<String> values = Comparator.nullsFirst(type::compare);
+            Comparator<Record> next = Comparator.comparing(r -> r.get(key.column), values);
+            if (key.descending) next = next.reversed();
+            comparator = (comparator == null) ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private SqlResult inTransaction(Supplier<SqlResult> work) throws IOException {
+        if (tm.isActive(session)) {
+            return work.get();
+        }
+        tm.begin(session);
+        try {
+            SqlResult result = work.get();
+            tm.commit(session);
+            return result;
+        } finally {
+            if (tm.isActive(session)) tm.rollback(session);
+        }
+    }
+
+    private void saveCatalog() throws IOException {
+        cache.clear();
+        if (dbPath != null) {
+            db.saveToFile(dbPath);
+        }
+    }
+
+    private void requireActive() {
+        if (!tm.isActive(session)) {
+            throw new IllegalArgumentException("[ERROR] 시작된 트랜잭션이 없습니다.");
+        }
+    }
+
+    private void requireNoTransaction() {
+        if (tm.isActive(session)) {
+            throw new IllegalArgumentException("[ERROR] 트랜잭션 안에서는 CREATE 문을 실행할 수 없습니다.");
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package util.sql;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import model.Column;
+import model.ColumnType;
+
+/*
+ * 재귀 하강 파서. 지원하는 문장:
+ *   CREATE TABLE t (c 타입 [NOT NULL] [PRIMARY KEY], ..., [PRIMARY KEY (c, ...)])
+ *   CREATE INDEX i ON t (c, ...)
+ *   INSERT INTO t [(c, ...)] VALUES (v, ...), ...
+ *   SELECT * | c, ... FROM t [WHERE 조건 AND ...] [ORDER BY c [ASC|DESC], ...] [LIMIT n]
+ *   UPDATE t SET c = v, ... [WHERE ...]
+ *   DELETE FROM t [WHERE ...]
+ *   BEGIN [TRANSACTION] | COMMIT | ROLLBACK
+ *   ANALYZE [t]
+ *   EXPLAIN SELECT ... | UPDATE ... | DELETE ...
+ * 예약어(Lexer.KEYWORDS)는 큰따옴표로 감싸야 식별자로 쓸 수 있다.
+ */
+final class SqlParser {
+
+    private final List<Token> tokens;
+    private int at;
+    private int parameters;
+
+    SqlParser(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    int parameterCount() {
+        return parameters;
+    }
+
+    Statement parse() {
+        Statement statement = statement();
+        while (accept(";")) {
+            // 끝의 ; 는 무시
+        }
+        if (peek().type != Token.Type.END) {
+            throw error("문장이 끝나야 합니다");
+        }
+        return statement;
+    }
+
+    private Statement statement() {
+        if (accept("EXPLAIN")) {
+            Statement explained = statement();
+            if (!(explained instanceof Statement.Select || explained instanceof Statement.Update
+                    || explained instanceof Statement.Delete)) {
+                throw new IllegalArgumentException("[ERROR] EXPLAIN 은 SELECT, UPDATE, DELETE 에만 쓸 수 있습니다.");
+            }
+            return new Statement.Explain(explained);
+        }
+        if (accept("ANALYZE")) {
+            return new Statement.Analyze(peek().type == Token.Type.IDENT ? identifier() : null);
+        }
+        if (accept("SELECT")) return select();
+        if (accept("INSERT")) return insert();
+        if (accept("UPDATE")) return update();
+        if (accept("DELETE")) return delete();
+        if (accept("CREATE")) {
+            if (accept("TABLE")) return createTable();
+            if (accept("INDEX")) return createIndex();
+            throw error("TABLE 또는 INDEX 가 와야 합니다");
+        }
+        if (accept("BEGIN")) {
+            accept("TRANSACTION");
+            return new Statement.Control(Statement.Control.Kind.BEGIN);
+        }
+        if (accept("COMMIT")) return new Statement.Control(Statement.Control.Kind.COMMIT);
+        if (accept("ROLLBACK")) return new Statement.Control(Statement.Control.Kind.ROLLBACK);
+        throw error("지원하지 않는 문장입니다");
+    }
+
+    private Statement select() {
+        List<String> columns = new ArrayList<>();
+        if (!accept("*")) {
+            columns = identifierList();
+        }
+        expect("FROM");
+        String table = identifier();
+        List<Condition> where = where();
+
+        List<Statement.OrderKey> orderBy = new ArrayList<>();
+        if (accept("ORDER")) {
+            expect("BY");
+            do {
+                String column = identifier();
+                boolean descending = accept("DESC");
+                if (!descending) accept("ASC");
+                orderBy.add(new Statement.OrderKey(column, descending));
+            } while (accept(","));
+        }
+
+        Operand limit = null;
+        if (accept("LIMIT")) {
+            limit = operand();
+        }
+        return new Statement.Select(table, columns, where, orderBy, limit);
+    }
+
+    private Statement insert() {
+        expect("INTO");
+        String table = identifier();
+        List<String> columns = null;
+        if (accept("(")) {
+            columns = identifierList();
+            expect(")");
+        }
+        expect("VALUES");
+        List<List<Operand>> rows = new ArrayList<>();
+        do {
+            expect("(");
+            List<Operand> values = new ArrayList<>();
+            do {
+                values.add(operand());
+            } while (accept(","));
+            expect(")");
+            rows.add(values);
+        } while (accept(","));
+        return new Statement.Insert(table, columns, rows);
+    }
+
+    private Statement update() {
+        String table = identifier();
+        expect("SET");
+        Map<String, Operand> assignments = new LinkedHashMap<>();
+        do {
+            String column = identifier();
+            expect("=");
+            if (assignments.put(column, operand()) != null) {
+                throw new IllegalArgumentException("[ERROR] 같은 컬럼을 두 번 바꿀 수 없습니다: " + column);
+            }
+        } while (accept(","));
+        return new Statement.Update(table, assignments, where());
+    }
+
+    private Statement delete() {
+        expect("FROM");
+        String table = identifier();
+        return new Statement.Delete(table, where());
+    }
+
+    private Statement createTable() {
+        String table = identifier();
+        expect("(");
+        List<Column> columns = new ArrayList<>();
+        List<String> primaryKey = new ArrayList<>();
+        do {
+            if (accept("PRIMARY")) {
+                expect("KEY");
+                if (!primaryKey.isEmpty()) {
+                    throw new IllegalArgumentException("[ERROR] PRIMARY KEY 는 한 번만 정의할 수 있습니다.");
+                }
+                expect("(");
+                primaryKey.addAll(identifierList());
+                expect(")");
+                continue;
+            }
+            String name = identifier();
+            ColumnType type = ColumnType.of(typeName());
+            boolean nullable = true;
+            while (true) {
+                if (accept("NOT")) {
+                    expect("NULL");
+                    nullable = false;
+                } else if (accept("NULL")) {
+                    nullable = true;
+                } else if (accept("PRIMARY")) {
+                    expect("KEY");
+                    primaryKey.add(name);
+                } else {
+                    break;
+                }
+            }
+            columns.add(new Column(name, type, nullable));
+        } while (accept(","));
+        expect(")");
+        if (primaryKey.isEmpty()) {
+            throw new IllegalArgumentException("[ERROR] PRIMARY KEY 가 없습니다.");
+        }
+        return new Statement.CreateTable(table, columns, primaryKey);
+    }
+
+    private Statement createIndex() {
+        String index = identifier();
+        expect("ON");
+        String table = identifier();
+        expect("(");
+        List<String> columns = identifierList();
+        expect(")");
+        return new Statement.CreateIndex(index, table, columns);
+    }
+
+    // VARCHAR(100) 처럼 길이를 붙여도 받아 준다. 길이 제한은 두지 않는다.
+    private String typeName() {
+        Token t = next();
+        if (t.type != Token.Type.IDENT) {
+            throw error(t, "컬럼 타입이 와야 합니다");
+        }
+        if (accept("(")) {
+            if (next().type != Token.Type.NUMBER) {
+                throw error(tokens.get(at - 1), "길이는 숫자여야 합니다");
+            }
+            expect(")");
+        }
+        return t.text;
+    }
+
+    private List<Condition> where() {
+        List<Condition> conditions = new ArrayList<>();
+        if (!accept("WHERE")) {
+            return conditions;
+        }
+        do {
+            String column = identifier();
+            Token t = next();
+            Condition.Op op = (t.type == Token.Type.SYMBOL) ? Condition.Op.of(t) : null;
+            if (op == null) {
+                throw error(t, "비교 연산자가 와야 합니다");
+            }
+            conditions.add(new Condition(column, op, operand()));
+        } while (accept("AND"));
+        return conditions;
+    }
+
+    private Operand operand() {
+        Token t = next();
+        switch (t.type) {
+            case PARAM:
+                return Operand.parameter(parameters++);
+            case STRING:
+                return Operand.literal(t.text);
+            case NUMBER:
+                return Operand.literal(t.text);
+            case SYMBOL:
+                if (t.is("-") || t.is("+")) {
+                    Token number = next();
+                    if (number.type != Token.Type.NUMBER) {
+                        throw error(number, "숫자가 와야 합니다");
+                    }
+                    return Operand.literal(t.is("-") ? "-" + number.text : number.text);
+                }
+                break;
+            case IDENT:
+                if (t.is("NULL")) return Operand.literal(null);
+                if (t.is("TRUE") || t.is("FALSE")) return Operand.literal(t.text.toLowerCase(Locale.ROOT));
+                break;
+            default:
+                break;
+        }
+        throw error(t, "값이 와야 합니다");
+    }
+
+    private List<String> identifierList() {
+        List<String> names = new ArrayList<>();
+        do {
+            names.add(identifier());
+        } while (accept(","));
+        return names;
+    }
+
+    private String identifier() {
+        Token t = next();
+        if (t.type != Token.Type.IDENT) {
+            throw error(t, "이름이 와야 합니다");
+        }
+        if (!t.quoted && Lexer.KEYWORDS.contains(t.text.toUpperCase(Locale.ROOT))) {
+            throw error(t, "예약어는 큰따옴표로 감싸야 이름으로 쓸 수 있습니다");
+        }
+        return t.text;
+    }
+
+    private Token peek() {
+        return tokens.get(at);
+    }
+
+    private Token next() {
+        Token t = tokens.get(at);
+        if (t.type != Token.Type.END) at++;
+        return t;
+    }
+
+    private boolean accept(String word) {
+        if (peek().is(word)) {
+            at++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String word) {
+        if (!accept(word)) {
+            throw error(word + " 가 와야 합니다");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return error(peek(), message);
+    }
+
+    private IllegalArgumentException error(Token t, String message) {
+        return new IllegalArgumentException("[ERROR] " + message + ": " + t + " (" + t.position + "번째 글자)");
+    }
+}
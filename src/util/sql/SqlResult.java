@@ -0,0 +1,37 @@
+package util.sql;
+
+import java.util.List;
+import model.Record;
+
+// 문장 실행 결과. SELECT 는 columns/rows 를, 나머지는 바뀐 행 수(affected)와 메시지를 채운다.
+public class SqlResult {
+
+    public final List<String> columns;
+    public final List<Record> rows;
+    public final int affected;
+    public final String message;
+
+    private SqlResult(List<String> columns, List<Record> rows, int affected, String message) {
+        this.columns = columns;
+        this.rows = rows;
+        this.affected = affected;
+        this.message = message;
+    }
+
+    static SqlResult rows(List<String> columns, List<Record> rows) {
+        return new SqlResult(columns, rows, 0, "rows: " + rows.size());
+    }
+
+    static SqlResult affected(int affected, String message) {
+        return new SqlResult(null, null, affected, message);
+    }
+
+    public boolean hasRows() {
+        return rows != null;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
@@ -0,0 +1,130 @@
+package util.sql;
+
+import java.util.List;
+import java.util.Map;
+import model.Column;
+
+// 파서가 만든 문장 구조. 이름과 값은 아직 스키마로 확인하지 않은 상태이고, Planner 가 확인해 Plan 으로 만든다.
+abstract class Statement {
+
+    static final class CreateTable extends Statement {
+        final String table;
+        final List<Column> columns;
+        final List<String> primaryKey;
+
+        CreateTable(String table, List<Column> columns, List<String> primaryKey) {
+            this.table = table;
+            this.columns = columns;
+            this.primaryKey = primaryKey;
+        }
+    }
+
+    static final class CreateIndex extends Statement {
+        final String index;
+        final String table;
+        final List<String> columns;
+
+        CreateIndex(String index, String table, List<String> columns) {
+            this.index = index;
+            this.table = table;
+            this.columns = columns;
+        }
+    }
+
+    // columns 가 null 이면 테이블 컬럼 순서대로 값을 준 것
+    static final class Insert extends Statement {
+        final String table;
+        final List<String> columns;
+        final List<List<Operand>> rows;
+
+        Insert(String table, List<String> columns, List<List<Operand>> rows) {
+            this.table = table;
+            this.columns = columns;
+            this.rows = rows;
+        }
+    }
+
+    // columns 가 비어 있으면 * , limit 이 null 이면 제한 없음
+    static final class Select extends Statement {
+        final String table;
+        final List<String> columns;
+        final List<Condition> where;
+        final List<OrderKey> orderBy;
+        final Operand limit;
+
+        Select(String table, List<String> columns, List<Condition> where, List<OrderKey> orderBy, Operand limit) {
+            this.table = table;
+            this.columns = columns;
+            this.where = where;
+            this.orderBy = orderBy;
+            this.limit = limit;
+        }
+    }
+
+    static final class Update extends Statement {
+        final String table;
+        final Map<String, Operand> assignments;
+        final List<Condition> where;
+
+        Update(String table, Map<String, Operand> assignments, List<Condition> where) {
+            this.table = table;
+            this.assignments = assignments;
+            this.where = where;
+        }
+    }
+
+    static final class Delete extends Statement {
+        final String table;
+        final List<Condition> where;
+
+        Delete(String table, List<Condition> where) {
+            this.table = table;
+            this.where = where;
+        }
+    }
+
+    // table 이 null 이면 모든 테이블
+    static final class Analyze extends Statement {
+        final String table;
+
+        Analyze(String table) {
+            this.table = table;
+        }
+    }
+
+    // SELECT/UPDATE/DELETE 의 계획과, 그 계획으로 읽은 실제 행 수를 보여준다. 바꾸지는 않는다.
+    static final class Explain extends Statement {
+        final Statement statement;
+
+        Explain(Statement statement) {
+            this.statement = statement;
+        }
+    }
+
+    static final class Control extends Statement {
+        enum Kind {
+            BEGIN, COMMIT, ROLLBACK
+        }
+
+        final Kind kind;
+
+        Control(Kind kind) {
+            this.kind = kind;
+        }
+    }
+
+    static final class OrderKey {
+        final String column;
+        final boolean descending;
+
+        OrderKey(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        @Override
+        public String toString() {
+            return column + (descending ? " DESC" : "");
+        }
+    }
+}
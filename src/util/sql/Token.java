@@ -0,0 +1,31 @@
+package util.sql;
+
+final class Token {
+
+    enum Type {
+        IDENT, NUMBER, STRING, PARAM, SYMBOL, END
+    }
+
+    final Type type;
+    final String text;
+    // 따옴표로 감싼 식별자는 키워드로 보지 않는다
+    final boolean quoted;
+    final int position;
+
+    Token(Type type, String text, boolean quoted, int position) {
+        this.type = type;
+        this.text = text;
+        this.quoted = quoted;
+        this.position = position;
+    }
+
+    boolean is(String word) {
+        return (type == Type.IDENT && !quoted && text.equalsIgnoreCase(word))
+                || (type == Type.SYMBOL && text.equals(word));
+    }
+
+    @Override
+    public String toString() {
+        return (type == Type.END) ? "문장 끝" : text;
+    }
+}
@@ -0,0 +1,157 @@
+package util.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import util.storage.eviction.EvictionPolicy;
+
+// 고정 개수의 프레임에 페이지를 캐시한다. fetch/newPage 로 pin 하고 사용 후 반드시 unpin 한다.
+// PageStore 가 부팅 적재(페이지를 한 번씩 읽기)와 저장(바뀐 행 쓰기) 때만 거쳐 가는 캐시다. 조회는 메모리의 VersionChain 에서
+// 하므로 이 풀을 지나지 않고, hit/miss 카운터도 적재/저장 중의 접근만 센다. 힙 사용량은 풀 크기가 아니라 -Xmx 로 제한된다.
+public class BufferPool {
+
+    public static final class Frame {
+        private final int frameId;
+        private final ByteBuffer buf = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        private int pageId = -1;
+        private int pinCount;
+        private boolean dirty;
+
+        private Frame(int frameId) {
+            this.frameId = frameId;
+        }
+
+        public int pageId() {
+            return pageId;
+        }
+
+        public ByteBuffer buffer() {
+            return buf;
+        }
+    }
+
+    private final PageFile file;
+    private final Frame[] frames;
+    private final Map<Integer, Frame> pageTable = new HashMap<>();
+    private final Deque<Integer> freeFrames = new ArrayDeque<>();
+    private final EvictionPolicy policy;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public BufferPool(PageFile file, int capacity, EvictionPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("[ERROR] 버퍼 풀 크기는 1 이상이어야 합니다.");
+        }
+        this.file = file;
+        this.policy = policy;
+        this.frames = new Frame[capacity];
+        for (int i = 0; i < capacity; i++) {
+            frames[i] = new Frame(i);
+            freeFrames.add(i);
+        }
+    }
+
+    public synchronized Frame fetch(int pageId) throws IOException {
+        Frame frame = pageTable.get(pageId);
+        if (frame != null) {
+            hits++;
+            pin(frame);
+            return frame;
+        }
+
+        misses++;
+        frame = claimFrame();
+        try {
+            file.read(pageId, frame.buf);
+        } catch (IOException | RuntimeException e) {
+            freeFrames.add(frame.frameId);
+            throw e;
+        }
+        install(frame, pageId);
+        return frame;
+    }
+
+    public synchronized Frame newPage() throws IOException {
+        Frame frame = claimFrame();
+        int pageId = file.allocate();
+        for (int i = 0; i < frame.buf.capacity(); i++) frame.buf.put(i, (byte) 0);
+        install(frame, pageId);
+        frame.dirty = true;
+        return frame;
+    }
+
+    public synchronized void unpin(Frame frame, boolean dirty) {
+        if (frame.pinCount <= 0) {
+            throw new IllegalStateException("[ERROR] pin 되지 않은 페이지입니다: " + frame.pageId);
+        }
+        frame.dirty |= dirty;
+        if (--frame.pinCount == 0) {
+            policy.setEvictable(frame.frameId, true);
+        }
+    }
+
+    public synchronized void flushAll() throws IOException {
+        for (Frame frame : frames) {
+            if (frame.pageId >= 0 && frame.dirty) {
+                file.write(frame.pageId, frame.buf);
+                frame.dirty = false;
+            }
+        }
+    }
+
+    public int capacity() {
+        return frames.length;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    private void pin(Frame frame) {
+        frame.pinCount++;
+        policy.recordAccess(frame.frameId);
+        policy.setEvictable(frame.frameId, false);
+    }
+
+    private void install(Frame frame, int pageId) {
+        frame.pageId = pageId;
+        frame.dirty = false;
+        frame.pinCount = 0;
+        pageTable.put(pageId, frame);
+        pin(frame);
+    }
+
+    private Frame claimFrame() throws IOException {
+        Integer free = freeFrames.poll();
+        if (free != null) {
+            return frames[free];
+        }
+
+        int victim = policy.evict();
+        if (victim < 0) {
+            throw new IllegalStateException("[ERROR] 버퍼 풀에 교체 가능한 페이지가 없습니다.");
+        }
+
+        Frame frame = frames[victim];
+        if (frame.dirty) {
+            file.write(frame.pageId, frame.buf);
+        }
+        pageTable.remove(frame.pageId);
+        frame.pageId = -1;
+        evictions++;
+        return frame;
+    }
+}
@@ -0,0 +1,188 @@
+package util.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/*
+ * 메모리에 다 들어가지 않는 (key, payload) 목록을 key 오름차순으로 정렬한다.
+ * 모은 양이 memoryBytes 를 넘으면 정렬해 임시 파일(run)로 내보내고, 마지막에 run 들을 k-way 병합하며 하나씩 돌려준다.
+ * 같은 key 는 넣은 순서를 지킨다. 병합 중 읽기 오류는 UncheckedIOException 으로 던진다.
+ */
+public class ExternalSorter implements Closeable {
+
+    public static final long DEFAULT_MEMORY_BYTES = 64L << 20;
+    // 항목 하나에 붙는 객체/배열 헤더 어림값
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final int RUN_BUFFER = 64 * 1024;
+
+    public static final class Item {
+        public final String key;
+        public final byte[] payload;
+
+        Item(String key, byte[] payload) {
+            this.key = key;
+            this.payload = payload;
+        }
+    }
+
+    private static final Comparator<Item> BY_KEY = Comparator.comparing(i -> i.key);
+
+    private final Path dir;
+    private final long memoryBytes;
+    private final List<Item> buffer = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private final List<DataInputStream> readers = new ArrayList<>();
+    private long buffered;
+    private boolean sorting;
+
+    public ExternalSorter(Path dir) {
+        this(dir, DEFAULT_MEMORY_BYTES);
+    }
+
+    public ExternalSorter(Path dir, long memoryBytes) {
+        if (memoryBytes <= 0) {
+            throw new IllegalArgumentException("[ERROR] 정렬 메모리는 0보다 커야 합니다.");
+        }
+        this.dir = dir;
+        this.memoryBytes = memoryBytes;
+    }
+
+    public void add(String key, byte[] payload) throws IOException {
+        if (sorting) {
+            throw new IllegalStateException("[ERROR] 정렬을 시작한 뒤에는 항목을 더할 수 없습니다.");
+        }
+        buffer.add(new Item(key, payload));
+        buffered += key.length() * 2L + payload.length + ENTRY_OVERHEAD;
+        if (buffered >= memoryBytes) {
+            spill();
+        }
+    }
+
+    public int runCount() {
+        return runs.size();
+    }
+
+    // 한 번만 부를 수 있다. run 이 없으면 메모리에서만 정렬한다.
+    public Iterator<Item> sorted() throws IOException {
+        if (sorting) {
+            throw new IllegalStateException("[ERROR] 정렬 결과는 한 번만 읽을 수 있습니다.");
+        }
+        sorting = true;
+        if (runs.isEmpty()) {
+            buffer.sort(BY_KEY);
+            return buffer.iterator();
+        }
+
+        spill();
+        for (Path run : runs) {
+            readers.add(new DataInputStream(new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER)));
+        }
+        return new Merge();
+    }
+
+    // 임시 파일을 지운다. 정렬 결과를 다 읽은 뒤 부른다.
+    @Override
+    public void close() throws IOException {
+        for (DataInputStream in : readers) {
+            in.close();
+        }
+        readers.clear();
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        buffer.sort(BY_KEY);
+
+        Path run = Files.createTempFile(dir, "sort-", ".run");
+        runs.add(run);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER))) {
+            for (Item item : buffer) {
+                byte[] key = item.key.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(item.payload.length);
+                out.write(item.payload);
+            }
+        }
+        buffer.clear();
+        buffered = 0;
+    }
+
+    private static Item read(DataInputStream in) throws IOException {
+        int keyLen;
+        try {
+            keyLen = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] key = new byte[keyLen];
+        in.readFully(key);
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return new Item(new String(key, StandardCharsets.UTF_8), payload);
+    }
+
+    // run 마다 맨 앞 항목 하나씩만 힙에 올린다. key 가 같으면 먼저 만든 run 이 앞선다.
+    private final class Merge implements Iterator<Item> {
+
+        private final PriorityQueue<Head> heap = new PriorityQueue<>(
+                Comparator.comparing((Head h) -> h.item.key).thenComparingInt(h -> h.run));
+
+        Merge() throws IOException {
+            for (int run = 0; run < readers.size(); run++) {
+                Item first = read(readers.get(run));
+                if (first != null) heap.add(new Head(first, run));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public Item next() {
+            Head head = heap.poll();
+            if (head == null) throw new NoSuchElementException();
+            try {
+                Item following = read(readers.get(head.run));
+                if (following != null) heap.add(new Head(following, head.run));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return head.item;
+        }
+    }
+
+    private static final class Head {
+        final Item item;
+        final int run;
+
+        Head(Item item, int run) {
+            this.item = item;
+            this.run = run;
+        }
+    }
+}
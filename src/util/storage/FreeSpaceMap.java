@@ -0,0 +1,54 @@
+package util.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// 테이블(owner)별로 페이지의 여유 공간을 추적해 insert 시 적당한 페이지를 찾는다.
+public class FreeSpaceMap {
+
+    private final Map<Integer, NavigableMap<Integer, Set<Integer>>> byOwner = new HashMap<>();
+    private final Map<Integer, Integer> freeOf = new HashMap<>();
+    private final Map<Integer, Integer> ownerOf = new HashMap<>();
+
+    public void update(int ownerId, int pageId, int free) {
+        forget(pageId);
+        byOwner.computeIfAbsent(ownerId, k -> new TreeMap<>())
+                .computeIfAbsent(free, k -> new TreeSet<>())
+                .add(pageId);
+        freeOf.put(pageId, free);
+        ownerOf.put(pageId, ownerId);
+    }
+
+    public int findPage(int ownerId, int needed) {
+        NavigableMap<Integer, Set<Integer>> buckets = byOwner.get(ownerId);
+        if (buckets == null) {
+            return -1;
+        }
+
+        var e = buckets.ceilingEntry(needed);
+        if (e == null) {
+            return -1;
+        }
+
+        return e.getValue().iterator().next();
+    }
+
+    private void forget(int pageId) {
+        Integer free = freeOf.remove(pageId);
+        Integer owner = ownerOf.remove(pageId);
+        if (free == null) {
+            return;
+        }
+
+        NavigableMap<Integer, Set<Integer>> buckets = byOwner.get(owner);
+        Set<Integer> pages = buckets.get(free);
+        pages.remove(pageId);
+        if (pages.isEmpty()) {
+            buckets.remove(free);
+        }
+    }
+}
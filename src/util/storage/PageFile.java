@@ -0,0 +1,69 @@
+package util.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class PageFile implements Closeable {
+
+    public static final int PAGE_SIZE = 4096;
+
+    private final FileChannel channel;
+    private int pageCount;
+
+    public PageFile(String path) throws IOException {
+        this.channel = FileChannel.open(Path.of(path),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.pageCount = (int) (channel.size() / PAGE_SIZE);
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public int allocate() {
+        return pageCount++;
+    }
+
+    public void read(int pageId, ByteBuffer dst) throws IOException {
+        validatePageId(pageId);
+        dst.clear();
+        long pos = (long) pageId * PAGE_SIZE;
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, pos + dst.position());
+            if (n < 0) {
+                // 할당만 되고 아직 기록되지 않은 페이지
+                while (dst.hasRemaining()) dst.put((byte) 0);
+            }
+        }
+        dst.flip();
+    }
+
+    public void write(int pageId, ByteBuffer src) throws IOException {
+        validatePageId(pageId);
+        ByteBuffer dup = src.duplicate();
+        dup.clear();
+        long pos = (long) pageId * PAGE_SIZE;
+        while (dup.hasRemaining()) {
+            channel.write(dup, pos + dup.position());
+        }
+    }
+
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void validatePageId(int pageId) {
+        if (pageId < 0 || pageId >= pageCount) {
+            throw new IllegalArgumentException("[ERROR] 잘못된 페이지 번호: " + pageId);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package util.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import model.Column;
+import model.ColumnType;
+import model.Database;
+import model.Record;
+import model.Schema;
+import model.SecondaryIndex;
+import model.Table;
+import util.storage.BufferPool.Frame;
+import util.storage.eviction.EvictionPolicy;
+
+/*
+ * page 0     : 카탈로그 (magic, commitSequence, 체크포인트 LSN, 테이블 정의(컬럼 타입 포함)와 보조 인덱스 정의)
+ * page 1..N  : 테이블 행을 담는 slotted page. 행은 테이블 Schema 의 바이너리 형식 그대로 담는다.
+ * 커밋 시 Table 이 더럽혔다고 표시한 PK 의 행만 다시 쓰고, 바뀐 페이지만 디스크에 기록한다.
+ * 모든 행은 부팅 때 메모리(VersionChain)로 올라오고, 버퍼 풀은 그 적재와 저장 사이에서만 페이지를 잡아 둔다.
+ */
+public class PageStore implements Closeable {
+
+    private static final int MAGIC = 0x4D444231; // "MDB1"
+    private static final int FORMAT_VERSION = 5;
+    // PK 컬럼이 하나뿐이던 형식. 카탈로그의 PK 가 컬럼 이름 하나다.
+    private static final int FORMAT_VERSION_SINGLE_PK = 4;
+    // 컬럼 타입이 없던 형식. 모든 컬럼을 VARCHAR 로 읽고, 행은 (있음 여부, UTF) 를 컬럼마다 이어 붙인 예전 형식이다.
+    private static final int FORMAT_VERSION_UNTYPED = 3;
+    // 보조 인덱스 정의가 없던 형식. 읽을 때 name 컬럼이 있는 테이블에 예전 기본 인덱스(idx_name)를 만들어 준다.
+    private static final int FORMAT_VERSION_NO_INDEXES = 2;
+    private static final String LEGACY_NAME_INDEX = "idx_name";
+    private static final int CATALOG_PAGE = 0;
+    public static final int DEFAULT_POOL_PAGES = 1024;
+    public static final String DEFAULT_EVICTION = "LRU-K";
+
+    private final String path;
+    private final PageFile file;
+    private final BufferPool pool;
+    private final FreeSpaceMap fsm = new FreeSpaceMap();
+    private final Map<String, Integer> tableIds = new HashMap<>();
+    private final Map<String, Map<String, Long>> locations = new HashMap<>();
+    private int nextTableId = 1;
+    // 예전 형식 파일을 읽는 중. 다 읽으면 모든 행을 더럽혔다고 표시해 다음 flush 때 새 형식으로 다시 쓴다.
+    private boolean legacyRows;
+
+    private PageStore(String path, int poolPages, EvictionPolicy policy) throws IOException {
+        this.path = path;
+        this.file = new PageFile(path);
+        this.pool = new BufferPool(file, poolPages, policy);
+        if (file.pageCount() == 0) {
+            file.allocate(); // 카탈로그 페이지 예약
+        }
+    }
+
+    public static PageStore open(String path) throws IOException {
+        return open(path, DEFAULT_POOL_PAGES, DEFAULT_EVICTION);
+    }
+
+    public static PageStore open(String path, int poolPages, String eviction) throws IOException {
+        return new PageStore(path, poolPages, EvictionPolicy.of(eviction, poolPages));
+    }
+
+    public BufferPool bufferPool() {
+        return pool;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    // 페이지 순서로 읽은 행을 테이블마다 PK 순으로 외부 정렬한 뒤 인덱스를 아래에서부터 한 번에 쌓는다
+    public void load(Database db) throws IOException {
+        Map<Integer, Table> byId = readCatalog(db);
+        Path tmpDir = Paths.get(path).toAbsolutePath().getParent();
+        Map<Integer, ExternalSorter> sorters = new HashMap<>();
+        try {
+            for (int pid = CATALOG_PAGE + 1; pid < file.pageCount(); pid++) {
+                Frame frame = pool.fetch(pid);
+                try {
+                    loadPage(pid, new SlottedPage(frame.buffer()), byId, sorters, tmpDir);
+                } finally {
+                    pool.unpin(frame, false);
+                }
+            }
+
+            for (Map.Entry<Integer, ExternalSorter> e : sorters.entrySet()) {
+                loadTable(byId.get(e.getKey()), e.getValue());
+            }
+        } finally {
+            for (ExternalSorter sorter : sorters.values()) {
+                sorter.close();
+            }
+        }
+
+        for (Table table : byId.values()) {
+            if (legacyRows) {
+                table.markAllDirty();
+            } else {
+                table.drainDirtyKeys();
+            }
+        }
+    }
+
+    // 저장 전에 카탈로그에 적을 LSN 까지 로그를 내린다(로그 선행 기록)
+    public interface LogSync {
+        void sync(long lsn) throws IOException;
+    }
+
+    private static final class PendingRow {
+        final Table table;
+        final String key;
+        final byte[] row;
+
+        PendingRow(Table table, String key, byte[] row) {
+            this.table = table;
+            this.key = key;
+            this.row = row;
+        }
+    }
+
+    // 커밋은 db 모니터 안에서 반영되므로, 그 안에서는 LSN 과 바뀐 행, 카탈로그 내용만 복사한다.
+    // 로그 동기화와 페이지 쓰기/fsync 는 모니터 밖에서 해 그동안 커밋과 스냅샷 획득이 멈추지 않는다.
+    // 저장끼리는 이 객체로 줄을 세워 나중에 복사한 행을 먼저 복사한 행이 덮어쓰지 않게 한다. 카탈로그에 적은 LSN 을 돌려준다.
+    public synchronized long flush(Database db, LogSync log) throws IOException {
+        long lsn;
+        byte[] catalog;
+        List<PendingRow> pending = new ArrayList<>();
+        synchronized (db) {
+            lsn = db.lastAppliedLsn();
+            for (String name : db.tableNames()) {
+                Table table = db.getTable(name);
+                for (String key : table.drainDirtyKeys()) {
+                    Record latest = table.selectLatest(key);
+                    pending.add(new PendingRow(table, key, (latest == null) ? null : table.getSchema().encode(latest)));
+                }
+            }
+            catalog = catalogBytes(db, lsn);
+        }
+
+        log.sync(lsn);
+        for (PendingRow p : pending) {
+            String name = p.table.getName();
+            writeRow(p.table, tableIdOf(name), locationsOf(name), p.key, p.row);
+        }
+        pool.flushAll();
+        file.force();
+
+        // 카탈로그는 데이터 페이지가 내려간 뒤에 기록한다
+        ByteBuffer buf = newPageBuffer();
+        buf.put(catalog);
+        file.write(CATALOG_PAGE, buf);
+        file.force();
+        return lsn;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void loadPage(int pid, SlottedPage page, Map<Integer, Table> byId,
+                          Map<Integer, ExternalSorter> sorters, Path tmpDir) throws IOException {
+        Table table = byId.get(page.ownerId());
+        if (table == null) {
+            return;
+        }
+
+        Map<String, Long> locs = locationsOf(table.getName());
+        ExternalSorter sorter = sorters.computeIfAbsent(page.ownerId(), k -> new ExternalSorter(tmpDir));
+        for (int slot = 0; slot < page.slotCount(); slot++) {
+            if (!page.isLive(slot)) continue;
+            byte[] row = page.read(slot);
+            String key = table.keyOf(decodeRow(table, row));
+            sorter.add(key, row);
+            locs.put(key, rid(pid, slot));
+        }
+        fsm.update(page.ownerId(), pid, page.freeSpace());
+    }
+
+    private void loadTable(Table table, ExternalSorter sorter) throws IOException {
+        Iterator<ExternalSorter.Item> items = sorter.sorted();
+        Iterator<Record> rows = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                try {
+                    return decodeRow(table, items.next().payload);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        try {
+            table.loadSorted(rows, 0L);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeRow(Table table, int ownerId, Map<String, Long> locs, String key, byte[] row) throws IOException {
+        Long rid = locs.get(key);
+        if (rid != null) {
+            int pid = pageOf(rid);
+            Frame frame = pool.fetch(pid);
+            try {
+                SlottedPage page = new SlottedPage(frame.buffer());
+                boolean updated = row != null && page.update(slotOf(rid), row);
+                if (!updated) {
+                    page.delete(slotOf(rid));
+                    locs.remove(key);
+                }
+                fsm.update(ownerId, pid, page.freeSpace());
+                if (updated) {
+                    return;
+                }
+            } finally {
+                pool.unpin(frame, true);
+            }
+        }
+
+        if (row == null) {
+            return;
+        }
+        if (row.length > SlottedPage.MAX_RECORD_SIZE) {
+            throw new IllegalArgumentException("[ERROR] 레코드가 페이지 크기를 초과합니다: " + table.keyText(key));
+        }
+
+        int pid = fsm.findPage(ownerId, row.length + SlottedPage.SLOT_SIZE);
+        Frame frame = (pid < 0) ? pool.newPage() : pool.fetch(pid);
+        try {
+            SlottedPage page = (pid < 0)
+                    ? SlottedPage.format(frame.buffer(), ownerId)
+                    : new SlottedPage(frame.buffer());
+            int slot = page.insert(row);
+            locs.put(key, rid(frame.pageId(), slot));
+            fsm.update(ownerId, frame.pageId(), page.freeSpace());
+        } finally {
+            pool.unpin(frame, true);
+        }
+    }
+
+    private Map<Integer, Table> readCatalog(Database db) throws IOException {
+        ByteBuffer buf = newPageBuffer();
+        file.read(CATALOG_PAGE, buf);
+        if (buf.getInt() != MAGIC) {
+            throw new IOException("[ERROR] 데이터 파일 형식이 아닙니다: " + path);
+        }
+        int version = buf.getInt();
+        if (version < FORMAT_VERSION_NO_INDEXES || version > FORMAT_VERSION) {
+            throw new IOException("[ERROR] 데이터 파일 형식이 아닙니다: " + path);
+        }
+        legacyRows = version <= FORMAT_VERSION_UNTYPED;
+
+        db.restoreCommitSequence(buf.getLong());
+        db.markApplied(buf.getLong());
+        nextTableId = buf.getInt();
+        int tableCount = buf.getInt();
+
+        byte[] rest = new byte[buf.remaining()];
+        buf.get(rest);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(rest));
+        Map<Integer, Table> byId = new HashMap<>();
+        for (int i = 0; i < tableCount; i++) {
+            int id = in.readInt();
+            String name = in.readUTF();
+            int columnCount = in.readUnsignedShort();
+            List<String> columns = new ArrayList<>();
+            List<Column> defs = new ArrayList<>();
+            for (int c = 0; c < columnCount; c++) {
+                String column = in.readUTF();
+                columns.add(column);
+                if (!legacyRows) {
+                    defs.add(new Column(column, ColumnType.of(in.readUTF()), in.readBoolean()));
+                }
+            }
+            List<String> pks = new ArrayList<>();
+            int pkCount = (version == FORMAT_VERSION) ? in.readUnsignedShort() : 1;
+            for (int k = 0; k < pkCount; k++) {
+                pks.add(in.readUTF());
+            }
+
+            // 행을 읽기 전이므로 인덱스 생성은 정의만 등록하고, 행은 load 의 bulk load 때 담긴다
+            Table table = legacyRows ? new Table(name, columns, pks.get(0)) : new Table(name, new Schema(defs, pks));
+            if (version != FORMAT_VERSION_NO_INDEXES) {
+                int indexCount = in.readUnsignedShort();
+                for (int x = 0; x < indexCount; x++) {
+                    String indexName = in.readUTF();
+                    int indexColumnCount = in.readUnsignedShort();
+                    List<String> indexColumns = new ArrayList<>();
+                    for (int c = 0; c < indexColumnCount; c++) {
+                        indexColumns.add(in.readUTF());
+                    }
+                    table.createIndex(indexName, indexColumns);
+                }
+            } else if (columns.contains("name")) {
+                table.createIndex(LEGACY_NAME_INDEX, List.of("name"));
+            }
+            db.addTable(table);
+            tableIds.put(name, id);
+            byId.put(id, table);
+        }
+        return byId;
+    }
+
+    private byte[] catalogBytes(Database db, long lsn) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bos);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(db.currentCommitSequence());
+        out.writeLong(lsn);
+
+        List<String> names = new ArrayList<>(db.tableNames());
+        for (String name : names) {
+            tableIdOf(name);
+        }
+        out.writeInt(nextTableId);
+        out.writeInt(names.size());
+        for (String name : names) {
+            Table table = db.getTable(name);
+            out.writeInt(tableIds.get(name));
+            out.writeUTF(name);
+            List<Column> columns = table.getSchema().getColumns();
+            out.writeShort(columns.size());
+            for (Column column : columns) {
+                out.writeUTF(column.getName());
+                out.writeUTF(column.getType().name());
+                out.writeBoolean(column.isNullable());
+            }
+            List<String> pks = table.getPrimaryKeyColumns();
+            out.writeShort(pks.size());
+            for (String pk : pks) {
+                out.writeUTF(pk);
+            }
+            List<SecondaryIndex> indexes = table.getIndexes();
+            out.writeShort(indexes.size());
+            for (SecondaryIndex idx : indexes) {
+                out.writeUTF(idx.getName());
+                out.writeShort(idx.getColumns().size());
+                for (String column : idx.getColumns()) {
+                    out.writeUTF(column);
+                }
+            }
+        }
+
+        byte[] bytes = bos.toByteArray();
+        if (bytes.length > PageFile.PAGE_SIZE) {
+            throw new IllegalStateException("[ERROR] 카탈로그가 한 페이지를 초과합니다.");
+        }
+        return bytes;
+    }
+
+    private int tableIdOf(String name) {
+        return tableIds.computeIfAbsent(name, k -> nextTableId++);
+    }
+
+    private Map<String, Long> locationsOf(String tableName) {
+        return locations.computeIfAbsent(tableName, k -> new HashMap<>());
+    }
+
+    private Record decodeRow(Table table, byte[] row) throws IOException {
+        if (!legacyRows) {
+            return table.getSchema().view(row);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(row));
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String column : table.getColumns()) {
+            if (in.readBoolean()) values.put(column, in.readUTF());
+        }
+        return new Record(values);
+    }
+
+    private static ByteBuffer newPageBuffer() {
+        return ByteBuffer.allocate(PageFile.PAGE_SIZE);
+    }
+
+    private static long rid(int pageId, int slot) {
+        return ((long) pageId << 16) | slot;
+    }
+
+    private static int pageOf(long rid) {
+        return (int) (rid >>> 16);
+    }
+
+    private static int slotOf(long rid) {
+        return (int) (rid & 0xFFFF);
+    }
+}
@@ -0,0 +1,173 @@
+package util.storage;
+
+import java.nio.ByteBuffer;
+
+/*
+ * [page header][slot directory →        ← record data]
+ * header : ownerId(int) | slotCount(short) | freeEnd(short)
+ * slot   : offset(short) | length(short)   (offset == 0 이면 빈 슬롯)
+ */
+public class SlottedPage {
+
+    private static final int OWNER = 0;
+    private static final int SLOT_COUNT = 4;
+    private static final int FREE_END = 6;
+    static final int HEADER_SIZE = 8;
+    static final int SLOT_SIZE = 4;
+
+    public static final int MAX_RECORD_SIZE = PageFile.PAGE_SIZE - HEADER_SIZE - SLOT_SIZE;
+
+    private final ByteBuffer buf;
+
+    public SlottedPage(ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    public static SlottedPage format(ByteBuffer buf, int ownerId) {
+        buf.clear();
+        for (int i = 0; i < buf.capacity(); i++) buf.put(i, (byte) 0);
+        SlottedPage page = new SlottedPage(buf);
+        buf.putInt(OWNER, ownerId);
+        page.setSlotCount(0);
+        page.setFreeEnd(buf.capacity());
+        return page;
+    }
+
+    public ByteBuffer buffer() {
+        return buf;
+    }
+
+    public int ownerId() {
+        return buf.getInt(OWNER);
+    }
+
+    public int slotCount() {
+        return Short.toUnsignedInt(buf.getShort(SLOT_COUNT));
+    }
+
+    public boolean isLive(int slot) {
+        return slot >= 0 && slot < slotCount() && slotOffset(slot) != 0;
+    }
+
+    public byte[] read(int slot) {
+        if (!isLive(slot)) {
+            throw new IllegalArgumentException("[ERROR] 빈 슬롯입니다: " + slot);
+        }
+        byte[] out = new byte[slotLength(slot)];
+        buf.get(slotOffset(slot), out);
+        return out;
+    }
+
+    // 단편화된 공간까지 포함한 여유 공간
+    public int freeSpace() {
+        int used = HEADER_SIZE + slotCount() * SLOT_SIZE;
+        for (int i = 0; i < slotCount(); i++) {
+            used += slotLength(i);
+        }
+        return buf.capacity() - used;
+    }
+
+    public int insert(byte[] data) {
+        int slot = firstFreeSlot();
+        int dirGrowth = (slot == slotCount()) ? SLOT_SIZE : 0;
+        if (freeSpace() < data.length + dirGrowth) {
+            return -1;
+        }
+        if (contiguousFree() < data.length + dirGrowth) {
+            compact();
+        }
+        if (slot == slotCount()) {
+            setSlotCount(slot + 1);
+        }
+        place(slot, data);
+        return slot;
+    }
+
+    public boolean update(int slot, byte[] data) {
+        if (!isLive(slot)) {
+            throw new IllegalArgumentException("[ERROR] 빈 슬롯입니다: " + slot);
+        }
+        int oldLen = slotLength(slot);
+        if (data.length <= oldLen) {
+            buf.put(slotOffset(slot), data);
+            setSlot(slot, slotOffset(slot), data.length);
+            return true;
+        }
+        if (freeSpace() + oldLen < data.length) {
+            return false;
+        }
+        setSlot(slot, 0, 0);
+        if (contiguousFree() < data.length) {
+            compact();
+        }
+        place(slot, data);
+        return true;
+    }
+
+    public void delete(int slot) {
+        if (!isLive(slot)) {
+            return;
+        }
+        setSlot(slot, 0, 0);
+        int n = slotCount();
+        while (n > 0 && slotOffset(n - 1) == 0) n--;
+        setSlotCount(n);
+    }
+
+    private void place(int slot, byte[] data) {
+        int off = freeEnd() - data.length;
+        buf.put(off, data);
+        setFreeEnd(off);
+        setSlot(slot, off, data.length);
+    }
+
+    // 살아있는 레코드를 페이지 끝으로 모아 단편화를 제거한다 (슬롯 번호는 유지)
+    private void compact() {
+        int n = slotCount();
+        byte[][] live = new byte[n][];
+        for (int i = 0; i < n; i++) {
+            if (slotOffset(i) != 0) live[i] = read(i);
+        }
+        setFreeEnd(buf.capacity());
+        for (int i = 0; i < n; i++) {
+            if (live[i] != null) place(i, live[i]);
+        }
+    }
+
+    private int contiguousFree() {
+        return freeEnd() - (HEADER_SIZE + slotCount() * SLOT_SIZE);
+    }
+
+    private int firstFreeSlot() {
+        int n = slotCount();
+        for (int i = 0; i < n; i++) {
+            if (slotOffset(i) == 0) return i;
+        }
+        return n;
+    }
+
+    private int slotOffset(int slot) {
+        return Short.toUnsignedInt(buf.getShort(HEADER_SIZE + slot * SLOT_SIZE));
+    }
+
+    private int slotLength(int slot) {
+        return Short.toUnsignedInt(buf.getShort(HEADER_SIZE + slot * SLOT_SIZE + 2));
+    }
+
+    private void setSlot(int slot, int offset, int length) {
+        buf.putShort(HEADER_SIZE + slot * SLOT_SIZE, (short) offset);
+        buf.putShort(HEADER_SIZE + slot * SLOT_SIZE + 2, (short) length);
+    }
+
+    private void setSlotCount(int n) {
+        buf.putShort(SLOT_COUNT, (short) n);
+    }
+
+    private int freeEnd() {
+        return Short.toUnsignedInt(buf.getShort(FREE_END));
+    }
+
+    private void setFreeEnd(int v) {
+        buf.putShort(FREE_END, (short) v);
+    }
+}
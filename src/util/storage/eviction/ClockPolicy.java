@@ -0,0 +1,50 @@
+package util.storage.eviction;
+
+public class ClockPolicy implements EvictionPolicy {
+
+    private final boolean[] present;
+    private final boolean[] referenced;
+    private final boolean[] evictable;
+    private int hand = 0;
+
+    public ClockPolicy(int capacity) {
+        this.present = new boolean[capacity];
+        this.referenced = new boolean[capacity];
+        this.evictable = new boolean[capacity];
+    }
+
+    @Override
+    public void recordAccess(int frameId) {
+        present[frameId] = true;
+        referenced[frameId] = true;
+    }
+
+    @Override
+    public void setEvictable(int frameId, boolean value) {
+        evictable[frameId] = value;
+    }
+
+    @Override
+    public int evict() {
+        // 두 바퀴 안에 참조 비트가 모두 지워지므로 그 이상 돌 필요가 없다
+        for (int step = 0; step < 2 * present.length; step++) {
+            int frameId = hand;
+            hand = (hand + 1) % present.length;
+            if (!present[frameId] || !evictable[frameId]) continue;
+            if (referenced[frameId]) {
+                referenced[frameId] = false;
+                continue;
+            }
+            remove(frameId);
+            return frameId;
+        }
+        return -1;
+    }
+
+    @Override
+    public void remove(int frameId) {
+        present[frameId] = false;
+        referenced[frameId] = false;
+        evictable[frameId] = false;
+    }
+}
@@ -0,0 +1,22 @@
+package util.storage.eviction;
+
+public interface EvictionPolicy {
+
+    void recordAccess(int frameId);
+
+    void setEvictable(int frameId, boolean evictable);
+
+    // 교체할 프레임 번호, 교체 가능한 프레임이 없으면 -1
+    int evict();
+
+    void remove(int frameId);
+
+    static EvictionPolicy of(String name, int capacity) {
+        return switch (name.toUpperCase()) {
+            case "LRU" -> new LruPolicy();
+            case "CLOCK" -> new ClockPolicy(capacity);
+            case "LRU-2", "LRU_K", "LRU-K" -> new LruKPolicy(2);
+            default -> throw new IllegalArgumentException("[ERROR] 지원하지 않는 교체 정책: " + name);
+        };
+    }
+}
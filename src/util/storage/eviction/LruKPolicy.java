@@ -0,0 +1,69 @@
+package util.storage.eviction;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * backward K-distance 가 가장 큰 프레임을 교체한다.
+ * 접근 횟수가 K 미만인 프레임은 거리를 무한대로 보고, 그중 가장 오래전에 접근한 프레임을 고른다.
+ */
+public class LruKPolicy implements EvictionPolicy {
+
+    private final int k;
+    private final Map<Integer, Deque<Long>> history = new HashMap<>();
+    private final Set<Integer> evictable = new HashSet<>();
+    private long clock = 0;
+
+    public LruKPolicy(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("[ERROR] k >= 1");
+        }
+        this.k = k;
+    }
+
+    @Override
+    public void recordAccess(int frameId) {
+        Deque<Long> h = history.computeIfAbsent(frameId, id -> new ArrayDeque<>(k));
+        if (h.size() == k) h.removeFirst();
+        h.addLast(clock++);
+    }
+
+    @Override
+    public void setEvictable(int frameId, boolean value) {
+        if (value) evictable.add(frameId); else evictable.remove(frameId);
+    }
+
+    @Override
+    public int evict() {
+        int victim = -1;
+        boolean victimInfinite = false;
+        long victimTs = Long.MAX_VALUE;
+
+        for (int frameId : evictable) {
+            Deque<Long> h = history.get(frameId);
+            boolean infinite = h == null || h.size() < k;
+            long ts = (h == null) ? -1 : h.peekFirst();
+            // 무한 거리 우선, 같은 부류 안에서는 기준 시각이 가장 오래된 프레임
+            if (victim < 0 || (infinite && !victimInfinite) || (infinite == victimInfinite && ts < victimTs)) {
+                victim = frameId;
+                victimInfinite = infinite;
+                victimTs = ts;
+            }
+        }
+
+        if (victim >= 0) {
+            remove(victim);
+        }
+        return victim;
+    }
+
+    @Override
+    public void remove(int frameId) {
+        history.remove(frameId);
+        evictable.remove(frameId);
+    }
+}
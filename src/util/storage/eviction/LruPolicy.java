@@ -0,0 +1,42 @@
+package util.storage.eviction;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class LruPolicy implements EvictionPolicy {
+
+    private final LinkedHashSet<Integer> order = new LinkedHashSet<>();
+    private final Set<Integer> evictable = new HashSet<>();
+
+    @Override
+    public void recordAccess(int frameId) {
+        order.remove(frameId);
+        order.add(frameId);
+    }
+
+    @Override
+    public void setEvictable(int frameId, boolean value) {
+        if (value) evictable.add(frameId); else evictable.remove(frameId);
+    }
+
+    @Override
+    public int evict() {
+        Iterator<Integer> it = order.iterator();
+        while (it.hasNext()) {
+            int frameId = it.next();
+            if (evictable.remove(frameId)) {
+                it.remove();
+                return frameId;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void remove(int frameId) {
+        order.remove(frameId);
+        evictable.remove(frameId);
+    }
+}
@@ -0,0 +1,39 @@
+package util.storage.legacy;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+// 직렬화 형식 시절 model.index.BPlusTree. 리프는 next 로 키 순서대로 이어져 있다.
+final class BPlusTree implements Serializable {
+
+    private static final long serialVersionUID = 1744571679331405224L;
+
+    abstract static class Node implements Serializable {
+        private static final long serialVersionUID = -6093148452089510571L;
+
+        ArrayList<Object> keys;
+    }
+
+    static final class LeafNode extends Node {
+        private static final long serialVersionUID = -7924559883193237434L;
+
+        ArrayList<Object> values;
+        LeafNode next;
+    }
+
+    static final class InternalNode extends Node {
+        private static final long serialVersionUID = -1481473196296674782L;
+
+        ArrayList<Node> children;
+    }
+
+    Node root;
+
+    LeafNode firstLeaf() {
+        Node n = root;
+        while (n instanceof InternalNode in) {
+            n = in.children.get(0);
+        }
+        return (LeafNode) n;
+    }
+}
@@ -0,0 +1,13 @@
+package util.storage.legacy;
+
+import java.io.Serializable;
+import java.util.Map;
+
+// 직렬화 형식 시절 model.Database 에서 옮길 필드만 둔 모양. SerializedSnapshot 이 읽을 때만 쓴다.
+final class Database implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    Map<String, Table> tables;
+    long commitSequence;
+}
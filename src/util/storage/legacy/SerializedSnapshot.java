@@ -0,0 +1,94 @@
+package util.storage.legacy;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import model.Record;
+
+/*
+ * 페이지 파일 이전의 데이터 파일: model.Database 를 ObjectOutputStream 으로 통째로 쓴 것.
+ * 예전 클래스는 이제 모양이 달라 그대로 읽을 수 없으므로, 같은 단순 이름/serialVersionUID 에 필요한 필드만 둔 이 패키지의 클래스로 읽는다
+ * (직렬화는 클래스 이름의 패키지 부분을 비교하지 않는다). 행은 PK 마다 살아 있는 마지막 버전만 타입 없는(VARCHAR) 테이블로 옮기고,
+ * 페이지 형식의 예전 파일과 같이 name 컬럼이 있으면 기본 인덱스 idx_name 을 만든다.
+ */
+public final class SerializedSnapshot {
+
+    private static final int STREAM_MAGIC = 0xACED0005;
+    private static final String LEGACY_NAME_INDEX = "idx_name";
+
+    private static final Map<String, Class<?>> CLASSES = Map.of(
+            "model.Database", Database.class,
+            "model.Table", Table.class,
+            "model.VersionChain", VersionChain.class,
+            "model.Version", Version.class,
+            "model.index.BPlusTree", BPlusTree.class,
+            "model.index.BPlusTree$Node", BPlusTree.Node.class,
+            "model.index.BPlusTree$LeafNode", BPlusTree.LeafNode.class,
+            "model.index.BPlusTree$InternalNode", BPlusTree.InternalNode.class);
+
+    private SerializedSnapshot() {
+    }
+
+    public static boolean matches(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(Path.of(path)))) {
+            return in.readInt() == STREAM_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    // path 의 예전 데이터 파일을 읽어 비어 있는 db 에 테이블과 행, commit sequence 를 채운다
+    public static void load(String path, model.Database db) throws IOException {
+        Database legacy;
+        try (ObjectInputStream in = new LegacyInputStream(new BufferedInputStream(Files.newInputStream(Path.of(path))))) {
+            legacy = (Database) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException | IOException e) {
+            throw new IOException("[ERROR] 예전 형식(직렬화) 데이터 파일을 읽을 수 없습니다: " + path + " (" + e + ")", e);
+        }
+
+        db.restoreCommitSequence(legacy.commitSequence);
+        for (Table t : legacy.tables.values()) {
+            model.Table table = new model.Table(t.name, t.columns, t.primaryKeyColumn);
+            if (t.columns.contains("name")) {
+                table.createIndex(LEGACY_NAME_INDEX, List.of("name"));
+            }
+            for (BPlusTree.LeafNode leaf = t.index.firstLeaf(); leaf != null; leaf = leaf.next) {
+                for (Object value : leaf.values) {
+                    Version live = ((VersionChain) value).live();
+                    if (live != null) {
+                        table.insertCommitted(new Record(live.values), live.beginTs);
+                    }
+                }
+            }
+            db.addTable(table);
+        }
+    }
+
+    private static final class LegacyInputStream extends ObjectInputStream {
+
+        LegacyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        // 예전 모델 클래스는 이 패키지의 클래스로 바꾸고, 그 밖에는 JDK 클래스만 허용한다
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            Class<?> shadow = CLASSES.get(desc.getName());
+            if (shadow != null) {
+                return shadow;
+            }
+            if (desc.getName().startsWith("java.") || desc.getName().startsWith("[")) {
+                return super.resolveClass(desc);
+            }
+            throw new ClassNotFoundException(desc.getName());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package util.storage.legacy;
+
+import java.io.Serializable;
+import java.util.List;
+
+// 직렬화 형식 시절 model.Table. 보조 인덱스(idxName)는 행에서 다시 만들므로 옮기지 않는다.
+final class Table implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    String name;
+    List<String> columns;
+    String primaryKeyColumn;
+    BPlusTree index;
+}
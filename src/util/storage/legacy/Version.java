@@ -0,0 +1,14 @@
+package util.storage.legacy;
+
+import java.io.Serializable;
+import java.util.Map;
+
+// 직렬화 형식 시절 model.Version
+final class Version implements Serializable {
+
+    private static final long serialVersionUID = 2469808705621245355L;
+
+    Map<String, String> values;
+    long beginTs;
+    long endTs;
+}
@@ -0,0 +1,20 @@
+package util.storage.legacy;
+
+import java.io.Serializable;
+import java.util.List;
+
+// 직렬화 형식 시절 model.VersionChain. 마지막 버전의 endTs 가 Long.MAX_VALUE 면 살아 있는 행이다.
+final class VersionChain implements Serializable {
+
+    private static final long serialVersionUID = 4361236157851895928L;
+
+    List<Version> vs;
+
+    Version live() {
+        if (vs.isEmpty()) {
+            return null;
+        }
+        Version last = vs.get(vs.size() - 1);
+        return (last.endTs == Long.MAX_VALUE) ? last : null;
+    }
+}
@@ -0,0 +1,171 @@
+package util.transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import model.Column;
+import model.ColumnType;
+import model.Database;
+import model.Record;
+import model.Schema;
+import model.Table;
+import util.wal.Wal;
+
+/*
+ * 같은 이체 부하를 SNAPSHOT 과 SERIALIZABLE 로 돌려 커밋 처리량과 재시도 수를 비교한다.
+ * 트랜잭션 하나: 출금 계좌 주변 PK 구간을 읽고(SSI 구간 읽기 기록), 두 계좌를 PK 로 읽은 뒤 잔액을 옮겨 쓴다.
+ * 충돌(first-committer-wins 또는 SSI 중단)이면 ROLLBACK 하고 처음부터 다시 한다.
+ * 사용: java -cp out util.transaction.IsolationBenchmark [계좌 수=10000] [스레드 수=8] [측정 초=5]
+ * 모드마다 새 DB 와 WAL 로 1초 데운 뒤 측정하고, 끝나면 잔액 합이 처음과 같은지 확인한다.
+ */
+public final class IsolationBenchmark {
+
+    private static final long INITIAL_BALANCE = 1_000;
+    private static final int RANGE = 10;
+
+    private IsolationBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int accounts = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        int seconds = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        double snapshot = run(IsolationLevel.SNAPSHOT, accounts, threads, seconds);
+        double serializable = run(IsolationLevel.SERIALIZABLE, accounts, threads, seconds);
+        System.out.printf("SERIALIZABLE 처리량이 SNAPSHOT 의 %.1f%% (계좌 %,d개, 스레드 %d개)%n",
+                serializable / snapshot * 100, accounts, threads);
+    }
+
+    private static double run(IsolationLevel isolation, int accounts, int threads, int seconds) throws Exception {
+        Path dir = Files.createTempDirectory("isolation-bench");
+        try (Database db = new Database();
+             Wal wal = new Wal(dir.resolve("bench.wal").toString())) {
+            db.addTable(load(accounts));
+            TransactionManager tm = new TransactionManager(db, wal);
+
+            transfer(tm, isolation, accounts, threads, 1);
+            long failuresBefore = tm.serializationFailures();
+            long[] result = transfer(tm, isolation, accounts, threads, seconds);
+            long ssiFailures = tm.serializationFailures() - failuresBefore;
+
+            long total = 0;
+            for (Record r : tm.selectAll(tm.openSession(), "accounts")) {
+                total += Long.parseLong(r.get("balance"));
+            }
+            if (total != INITIAL_BALANCE * accounts) {
+                throw new IllegalStateException("[ERROR] 잔액 합이 달라졌습니다: " + total);
+            }
+
+            double perSecond = result[0] / (double) seconds;
+            System.out.printf("%s: 커밋 %,.0f건/초, 재시도 %,d건 (그중 SSI 중단 %,d건)%n",
+                    isolation, perSecond, result[1], ssiFailures);
+            return perSecond;
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static Table load(int accounts) {
+        Table table = new Table("accounts", new Schema(List.of(
+                Column.notNull("id", ColumnType.INT),
+                Column.notNull("balance", ColumnType.BIGINT)), "id"));
+        table.loadSorted(new Iterator<>() {
+            int id;
+
+            @Override
+            public boolean hasNext() {
+                return id < accounts;
+            }
+
+            @Override
+            public Record next() {
+                Map<String, String> values = new HashMap<>();
+                values.put("id", Integer.toString(id++));
+                values.put("balance", Long.toString(INITIAL_BALANCE));
+                return new Record(values);
+            }
+        }, 0);
+        return table;
+    }
+
+    // 커밋 수와 재시도 수
+    private static long[] transfer(TransactionManager tm, IsolationLevel isolation, int accounts, int threads, int seconds)
+            throws InterruptedException {
+        AtomicLong commits = new AtomicLong();
+        AtomicLong retries = new AtomicLong();
+        Throwable[] failure = new Throwable[1];
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                Session s = tm.openSession();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        int from = random.nextInt(accounts);
+                        int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                        if (transferOnce(tm, s, isolation, from, to, Math.min(from + RANGE, accounts - 1))) {
+                            commits.incrementAndGet();
+                        } else {
+                            retries.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure[0] = e;
+                } finally {
+                    tm.closeSession(s);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) {
+            w.join();
+        }
+        if (failure[0] != null) {
+            throw new IllegalStateException("[ERROR] 작업 스레드 실패: " + failure[0], failure[0]);
+        }
+        return new long[]{commits.get(), retries.get()};
+    }
+
+    private static boolean transferOnce(TransactionManager tm, Session s, IsolationLevel isolation, int from, int to, int rangeEnd)
+            throws IOException {
+        tm.begin(s, isolation);
+        try {
+            long audit = 0;
+            for (Record r : tm.findAllByPkBetween(s, "accounts", Integer.toString(from), true, Integer.toString(rangeEnd), true)) {
+                audit += Long.parseLong(r.get("balance"));
+            }
+            Record a = tm.selectById(s, "accounts", Integer.toString(from));
+            Record b = tm.selectById(s, "accounts", Integer.toString(to));
+            long amount = Math.min(Long.parseLong(a.get("balance")), 1 + audit % 10);
+            tm.update(s, "accounts", a.get("id"), balance(a, -amount));
+            tm.update(s, "accounts", b.get("id"), balance(b, amount));
+            tm.commit(s);
+            return true;
+        } catch (TransactionConflictException e) {
+            tm.rollback(s);
+            return false;
+        }
+    }
+
+    private static Record balance(Record r, long delta) {
+        return new Record(Map.of("id", r.get("id"), "balance", Long.toString(Long.parseLong(r.get("balance")) + delta)));
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
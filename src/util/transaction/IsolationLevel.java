@@ -0,0 +1,10 @@
+package util.transaction;
+
+public enum IsolationLevel {
+    // 조회할 때마다 그 시점까지 커밋된 값을 본다. 쓰기 충돌은 검사하지 않는다(나중 커밋이 덮어씀).
+    READ_COMMITTED,
+    // BEGIN 시점의 스냅샷만 본다. 스냅샷 이후 다른 트랜잭션이 먼저 커밋한 키를 쓰면 커밋이 실패한다(first-committer-wins).
+    SNAPSHOT,
+    // SNAPSHOT 에 더해 읽은 행/구간/조건을 기록하고, 동시 트랜잭션 사이의 읽기-쓰기 의존성이 순환할 수 있으면 커밋이 실패한다(SSI).
+    SERIALIZABLE
+}
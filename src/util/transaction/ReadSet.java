@@ -0,0 +1,91 @@
+package util.transaction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// SERIALIZABLE 트랜잭션이 읽은 범위. 행 단위 PK, PK 구간(전체 조회 포함), 컬럼 = 값 조건으로 기록한다.
+final class ReadSet {
+
+    private static final class Range {
+        final String table;
+        final String from;
+        final boolean fromInc;
+        final String to;
+        final boolean toInc;
+
+        Range(String table, String from, boolean fromInc, String to, boolean toInc) {
+            this.table = table;
+            this.from = from;
+            this.fromInc = fromInc;
+            this.to = to;
+            this.toInc = toInc;
+        }
+
+        boolean contains(String pk) {
+            if (from != null) {
+                int c = pk.compareTo(from);
+                if (c < 0 || (c == 0 && !fromInc)) return false;
+            }
+            if (to != null) {
+                int c = pk.compareTo(to);
+                if (c > 0 || (c == 0 && !toInc)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Predicate {
+        final String table;
+        final String column;
+        final String value;
+
+        Predicate(String table, String column, String value) {
+            this.table = table;
+            this.column = column;
+            this.value = value;
+        }
+
+        boolean matches(Map<String, String> row) {
+            return row != null && Objects.equals(row.get(column), value);
+        }
+    }
+
+    private final Set<String> points = new HashSet<>();
+    private final List<Range> ranges = new ArrayList<>();
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    synchronized void addPoint(String table, String pk) {
+        points.add(key(table, pk));
+    }
+
+    // from/to 가 null 이면 그쪽 끝이 열린 구간
+    synchronized void addRange(String table, String from, boolean fromInc, String to, boolean toInc) {
+        ranges.add(new Range(table, from, fromInc, to, toInc));
+    }
+
+    synchronized void addPredicate(String table, String column, String value) {
+        predicates.add(new Predicate(table, column, value));
+    }
+
+    // 이 읽기 집합이 본(또는 봤어야 할) 행을 w 가 바꾸는가
+    synchronized boolean overlaps(SsiTracker.Write w) {
+        if (points.contains(key(w.table, w.pk))) {
+            return true;
+        }
+        for (Range r : ranges) {
+            if (r.table.equals(w.table) && r.contains(w.pk)) return true;
+        }
+        for (Predicate p : predicates) {
+            if (p.table.equals(w.table) && (p.matches(w.before) || p.matches(w.after))) return true;
+        }
+        return false;
+    }
+
+    private static String key(String table, String pk) {
+        return table + '\u0000' + pk;
+    }
+}
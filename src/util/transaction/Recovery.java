@@ -0,0 +1,212 @@
+package util.transaction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import model.Database;
+import util.wal.Wal;
+import util.wal.WalEntry;
+import util.wal.WalEntry.Op;
+
+/*
+ * WAL 병렬 복구.
+ * 읽기 스레드는 로그를 흘려 읽으며 COMMIT 을 만난 순서대로 커밋 시퀀스를 매기고,
+ * 트랜잭션의 연산을 (테이블, PK) 해시로 고른 작업 스레드 큐에 넘긴다.
+ * 같은 키는 항상 같은 큐로 가므로 키별 적용 순서는 로그 순서와 같다.
+ */
+public final class Recovery {
+
+    public static final int DEFAULT_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = 4096;
+
+    public static final class Report {
+        public final long scanned;
+        public final long transactions;
+        public final long applied;
+        public final long skipped;
+        public final int workers;
+        public final long elapsedMillis;
+
+        private Report(long scanned, long transactions, long applied, long skipped, int workers, long elapsedMillis) {
+            this.scanned = scanned;
+            this.transactions = transactions;
+            this.applied = applied;
+            this.skipped = skipped;
+            this.workers = workers;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[RECOVERY] 로그 %d건 확인, 트랜잭션 %d개 / 연산 %d건 반영 (무시 %d건, 작업 스레드 %d개, %dms)",
+                    scanned, transactions, applied, skipped, workers, elapsedMillis);
+        }
+    }
+
+    private static final class Task {
+        final WalEntry op;
+        final long ts;
+
+        Task(WalEntry op, long ts) {
+            this.op = op;
+            this.ts = ts;
+        }
+    }
+
+    private static final Task STOP = new Task(null, 0L);
+
+    private static final class Worker extends Thread {
+        final Database db;
+        final BlockingQueue<Task> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        long applied;
+        long skipped;
+        Throwable failure;
+
+        Worker(Database db, int no) {
+            super("recovery-" + no);
+            this.db = db;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                try {
+                    task = queue.take();
+                } catch (InterruptedException e) {
+                    failure = e;
+                    continue;
+                }
+                if (task == STOP) {
+                    return;
+                }
+                if (failure != null) {
+                    continue; // 읽기 스레드가 막히지 않도록 큐는 계속 비운다
+                }
+
+                try {
+                    if (TransactionManager.applyOneCommitted(db, task.op, task.ts, true)) {
+                        applied++;
+                    } else {
+                        skipped++;
+                    }
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+        }
+    }
+
+    private Recovery() {
+    }
+
+    public static Report run(Database db, String walPath, int workers) throws IOException {
+        long started = System.nanoTime();
+        long checkpointLsn = db.lastAppliedLsn();
+        Wal.convertLegacyFile(walPath);
+        int n = Math.max(1, workers);
+
+        List<Worker> pool = new ArrayList<>(n);
+        if (n > 1) {
+            for (int i = 0; i < n; i++) {
+                Worker w = new Worker(db, i);
+                pool.add(w);
+                w.start();
+            }
+        }
+
+        Map<Long, List<WalEntry>> open = new HashMap<>();
+        long[] counts = new long[5]; // scanned, transactions, applied, skipped, lastCommitLsn
+        IOException readFailure = null;
+        try {
+            Wal.forEach(walPath, e -> {
+                counts[0]++;
+                if (e.lsn <= checkpointLsn) {
+                    return; // 스냅샷에 이미 반영됨
+                }
+
+                if (e.op == Op.BEGIN) {
+                    open.put(e.txId, new ArrayList<>());
+                } else if (e.op == Op.COMMIT) {
+                    List<WalEntry> ops = open.remove(e.txId);
+                    if (ops == null) {
+                        return;
+                    }
+
+                    long ts = db.nextCommitSequence();
+                    for (WalEntry logged : ops) {
+                        // 키를 바꾼 뒤에 나눠야 예전 형식과 새 형식 레코드가 섞인 로그에서도 같은 행이 같은 큐로 간다
+                        WalEntry op = TransactionManager.withEncodedKey(db, logged);
+                        if (pool.isEmpty()) {
+                            counts[TransactionManager.applyOneCommitted(db, op, ts, true) ? 2 : 3]++;
+                        } else {
+                            dispatch(pool.get(partitionOf(op, pool.size())), new Task(op, ts));
+                        }
+                    }
+                    counts[1]++;
+                    counts[4] = e.lsn;
+                } else {
+                    open.computeIfAbsent(e.txId, k -> new ArrayList<>()).add(e);
+                }
+            });
+        } catch (IOException e) {
+            readFailure = e;
+        } finally {
+            for (Worker w : pool) {
+                dispatch(w, STOP);
+            }
+            for (Worker w : pool) {
+                join(w);
+            }
+        }
+
+        if (readFailure != null) {
+            throw readFailure;
+        }
+        for (Worker w : pool) {
+            if (w.failure != null) {
+                throw new IllegalStateException("[ERROR] WAL 복구 중 오류가 발생했습니다: " + w.failure, w.failure);
+            }
+            counts[2] += w.applied;
+            counts[3] += w.skipped;
+        }
+
+        // 모든 작업 스레드가 끝난 뒤에야 마지막 커밋까지 반영됐다고 볼 수 있다
+        if (counts[1] > 0) {
+            db.markApplied(counts[4]);
+        }
+
+        long elapsed = (System.nanoTime() - started) / 1_000_000;
+        return new Report(counts[0], counts[1], counts[2], counts[3], n, elapsed);
+    }
+
+    static int partitionOf(WalEntry op, int partitions) {
+        int h = 31 * Objects.hashCode(op.table) + Objects.hashCode(op.pk);
+        h ^= (h >>> 16);
+        return Math.floorMod(h, partitions);
+    }
+
+    private static void dispatch(Worker w, Task task) {
+        try {
+            w.queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("[ERROR] WAL 복구가 중단되었습니다.", e);
+        }
+    }
+
+    private static void join(Worker w) {
+        try {
+            w.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("[ERROR] WAL 복구가 중단되었습니다.", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package util.transaction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// 클라이언트 하나의 연결. 한 번에 트랜잭션 하나만 열 수 있고, 한 스레드에서만 사용한다.
+public final class Session {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private final long id = NEXT_ID.getAndIncrement();
+    TransactionManager.Tx tx;
+    boolean closed;
+
+    Session() {
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public boolean isActive() {
+        return tx != null;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,48 @@
+package util.transaction;
+
+import java.util.TreeMap;
+import model.Database;
+
+/*
+ * 진행 중인 읽기 시점 목록. SNAPSHOT/SERIALIZABLE 트랜잭션은 BEGIN 부터 끝날 때까지,
+ * 그 밖의 조회는 한 번 읽는 동안만 등록한다. vacuum 은 horizon() 이하에서 끝난 버전만 회수한다.
+ * 등록과 horizon 계산은 커밋과 같은 db 모니터 아래에서 하므로, 시점을 받은 읽기가 등록되기 전에 회수 기준이 앞질러 가지 않는다.
+ */
+public final class SnapshotRegistry {
+
+    private final Database db;
+    private final TreeMap<Long, Integer> active = new TreeMap<>();
+
+    SnapshotRegistry(Database db) {
+        this.db = db;
+    }
+
+    public long acquire() {
+        synchronized (db) {
+            long ts = db.currentCommitSequence();
+            active.merge(ts, 1, Integer::sum);
+            return ts;
+        }
+    }
+
+    public void release(long ts) {
+        synchronized (db) {
+            active.computeIfPresent(ts, (k, count) -> (count == 1) ? null : count - 1);
+        }
+    }
+
+    public long horizon() {
+        synchronized (db) {
+            long current = db.currentCommitSequence();
+            return active.isEmpty() ? current : Math.min(active.firstKey(), current);
+        }
+    }
+
+    public int activeCount() {
+        synchronized (db) {
+            int n = 0;
+            for (int count : active.values()) n += count;
+            return n;
+        }
+    }
+}
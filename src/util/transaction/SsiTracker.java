@@ -0,0 +1,150 @@
+package util.transaction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import util.transaction.TransactionManager.Tx;
+
+/*
+ * Serializable Snapshot Isolation.
+ * 동시에 실행된 두 트랜잭션 사이에서 R 이 읽은 행을 W 가 바꿨으면 rw-antidependency R -> W 가 생긴다.
+ * SERIALIZABLE 트랜잭션이 들어오는 간선과 나가는 간선을 모두 가지면(pivot) 직렬화 불가능한 순환이 생길 수 있으므로 하나를 중단시킨다.
+ * 커밋하는 쪽이 pivot 이 되거나 이미 커밋된 트랜잭션을 pivot 으로 만들면 커밋하는 쪽을, 진행 중인 트랜잭션을 pivot 으로 만들면 그쪽을 중단시킨다.
+ * 호출은 모두 TransactionManager.commit 의 db 모니터 안(커밋 순서대로)이거나 begin/rollback 에서 온다.
+ */
+final class SsiTracker {
+
+    static final class Write {
+        final String table;
+        final String pk;
+        final Map<String, String> before;
+        final Map<String, String> after;
+
+        Write(String table, String pk, Map<String, String> before, Map<String, String> after) {
+            this.table = table;
+            this.pk = pk;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    private final Set<Tx> active = new HashSet<>();
+    // 진행 중인 SERIALIZABLE 트랜잭션과 겹치는 동안만 보관한다 (commitTs 오름차순)
+    private final ArrayDeque<Tx> committed = new ArrayDeque<>();
+    private long aborts;
+
+    synchronized void begin(Tx tx) {
+        if (tx.reads != null) {
+            active.add(tx);
+        }
+    }
+
+    synchronized void end(Tx tx) {
+        active.remove(tx);
+        prune();
+    }
+
+    // 위험 구조면 TransactionConflictException. 통과하면 간선 표시를 확정한다.
+    synchronized void validate(Tx tx, List<Write> writes) {
+        boolean serializable = tx.reads != null;
+        if (serializable && tx.doomed) {
+            throw abort(tx, "다른 트랜잭션과 직렬화할 수 없습니다");
+        }
+        if (!serializable && active.isEmpty()) {
+            return;
+        }
+
+        // tx 가 읽은 행을, tx 의 스냅샷 이후에 커밋한 트랜잭션이 바꿨다: tx -> c
+        List<Tx> outTargets = new ArrayList<>();
+        if (serializable) {
+            for (Tx c : committed) {
+                if (c.commitTs > tx.snapTs && anyOverlap(tx.reads, c.writes)) {
+                    outTargets.add(c);
+                }
+            }
+        }
+
+        // 동시에 실행 중이었던 SERIALIZABLE 트랜잭션이 읽은 행을 tx 가 바꾼다: s -> tx
+        List<Tx> inSources = new ArrayList<>();
+        for (Tx a : active) {
+            if (a != tx && anyOverlap(a.reads, writes)) {
+                inSources.add(a);
+            }
+        }
+        for (Tx c : committed) {
+            if (c.reads != null && c.commitTs > tx.snapTs && anyOverlap(c.reads, writes)) {
+                inSources.add(c);
+            }
+        }
+
+        if (serializable) {
+            boolean in = tx.inConflict || !inSources.isEmpty();
+            boolean out = tx.outConflict || !outTargets.isEmpty();
+            if (in && out) {
+                throw abort(tx, "읽기-쓰기 의존성 순환 가능성");
+            }
+            for (Tx c : outTargets) {
+                if (c.reads != null && c.outConflict) {
+                    throw abort(tx, "이미 커밋된 트랜잭션과 직렬화할 수 없습니다");
+                }
+            }
+            for (Tx s : inSources) {
+                if (s.commitTs > 0 && s.inConflict) {
+                    throw abort(tx, "이미 커밋된 트랜잭션과 직렬화할 수 없습니다");
+                }
+            }
+        }
+
+        for (Tx c : outTargets) {
+            c.inConflict = true;
+        }
+        for (Tx s : inSources) {
+            s.outConflict = true;
+            if (s.commitTs == 0 && s.inConflict) {
+                s.doomed = true; // 진행 중인 pivot 은 자기 커밋 때 중단된다
+            }
+        }
+        tx.inConflict |= !inSources.isEmpty();
+        tx.outConflict |= !outTargets.isEmpty();
+    }
+
+    synchronized void committed(Tx tx, List<Write> writes, long commitTs) {
+        active.remove(tx);
+        if (!active.isEmpty()) {
+            tx.writes = writes;
+            tx.commitTs = commitTs;
+            committed.addLast(tx);
+        }
+        prune();
+    }
+
+    synchronized long aborts() {
+        return aborts;
+    }
+
+    // 가장 오래된 진행 중 스냅샷보다 먼저 커밋된 트랜잭션은 더 이상 누구와도 동시가 아니다
+    private void prune() {
+        long oldest = Long.MAX_VALUE;
+        for (Tx a : active) {
+            oldest = Math.min(oldest, a.snapTs);
+        }
+        while (!committed.isEmpty() && committed.peekFirst().commitTs <= oldest) {
+            committed.pollFirst();
+        }
+    }
+
+    private TransactionConflictException abort(Tx tx, String reason) {
+        aborts++;
+        return new TransactionConflictException("[ERROR] 직렬화 충돌로 커밋할 수 없습니다(" + reason + "). 다시 시도하세요.");
+    }
+
+    private static boolean anyOverlap(ReadSet reads, List<Write> writes) {
+        for (Write w : writes) {
+            if (reads.overlaps(w)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,11 @@
+package util.transaction;
+
+// 동시 트랜잭션과 충돌해 커밋할 수 없음. 트랜잭션을 ROLLBACK 하고 처음부터 다시 시도해야 한다.
+public class TransactionConflictException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TransactionConflictException(String message) {
+        super(message);
+    }
+}
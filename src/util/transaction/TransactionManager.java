@@ -2,14 +2,19 @@ package util.transaction;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
 import model.Database;
 import model.Record;
 import model.Table;
+import model.TableStatistics;
+import util.exec.Scan;
 import util.wal.Wal;
 import util.wal.WalEntry;
 import util.wal.WalEntry.Op;
@@ -18,118 +23,439 @@ public class TransactionManager {
 
     private final Database db;
     private final Wal wal;
-    private long nextTxId = 1;
-    private Tx current;
+    private final IsolationLevel defaultIsolation;
+    private final SsiTracker ssi = new SsiTracker();
+    private final SnapshotRegistry snapshots;
+    private final AtomicLong nextTxId = new AtomicLong(1);
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Session> threadSession = ThreadLocal.withInitial(this::openSession);
 
     static class Tx {
-        long id;
-        List<WalEntry> ops = new ArrayList<>();
+        final long id;
+        final IsolationLevel isolation;
+        final long snapTs;
+        final List<WalEntry> ops = new ArrayList<>();
+        final WriteSet overlay = new WriteSet();
+        // SERIALIZABLE 에서만 사용. 아래 필드는 SsiTracker 의 잠금 아래에서만 읽고 쓴다.
+        final ReadSet reads;
+        boolean inConflict;
+        boolean outConflict;
+        boolean doomed;
+        long commitTs;
+        List<SsiTracker.Write> writes;
+
+        Tx(long id, IsolationLevel isolation, long snapTs) {
+            this.id = id;
+            this.isolation = isolation;
+            this.snapTs = snapTs;
+            this.reads = (isolation == IsolationLevel.SERIALIZABLE) ? new ReadSet() : null;
+        }
     }
 
     public TransactionManager(Database db, Wal wal) {
+        this(db, wal, IsolationLevel.READ_COMMITTED);
+    }
+
+    public TransactionManager(Database db, Wal wal, IsolationLevel defaultIsolation) {
         this.db = db;
         this.wal = wal;
+        this.defaultIsolation = defaultIsolation;
+        this.snapshots = new SnapshotRegistry(db);
+        db.attachWal(wal);
+    }
+
+    public SnapshotRegistry snapshots() {
+        return snapshots;
+    }
+
+    public Session openSession() {
+        Session session = new Session();
+        sessions.add(session);
+        return session;
+    }
+
+    // 열린 트랜잭션은 버리고 세션을 닫는다
+    public void closeSession(Session session) {
+        if (session.tx != null) {
+            end(session, session.tx);
+        }
+        session.closed = true;
+        sessions.remove(session);
+    }
+
+    public int openSessions() {
+        return sessions.size();
+    }
+
+    // 세션을 명시하지 않는 호출은 현재 스레드에 묶인 세션을 쓴다
+    public Session currentSession() {
+        Session session = threadSession.get();
+        if (session.closed) {
+            session = openSession();
+            threadSession.set(session);
+        }
+        return session;
     }
 
     public boolean isActive() {
-        return current != null;
+        return isActive(currentSession());
     }
 
     public void begin() {
-        if (current != null) {
+        begin(currentSession());
+    }
+
+    public void begin(IsolationLevel isolation) {
+        begin(currentSession(), isolation);
+    }
+
+    public long readTimestamp() {
+        return readTimestamp(currentSession());
+    }
+
+    public void insert(String tableName, Record record) {
+        insert(currentSession(), tableName, record);
+    }
+
+    public void update(String tableName, String pk, Record newRecord) {
+        update(currentSession(), tableName, pk, newRecord);
+    }
+
+    public void delete(String tableName, String pk) {
+        delete(currentSession(), tableName, pk);
+    }
+
+    public void commit() throws IOException {
+        commit(currentSession());
+    }
+
+    public void rollback() {
+        rollback(currentSession());
+    }
+
+    public boolean isActive(Session session) {
+        return session.tx != null;
+    }
+
+    public void begin(Session session) {
+        begin(session, defaultIsolation);
+    }
+
+    public void begin(Session session, IsolationLevel isolation) {
+        ensureOpen(session);
+        if (session.tx != null) {
             throw new IllegalStateException("[ERROR] 이미 트랜잭션이 진행 중입니다.");
         }
 
-        current = new Tx();
-        current.id = nextTxId++;
+        long id = nextTxId.getAndIncrement();
+        if (isolation == IsolationLevel.READ_COMMITTED) {
+            session.tx = new Tx(id, isolation, db.currentCommitSequence());
+            return;
+        }
+        if (isolation == IsolationLevel.SNAPSHOT) {
+            session.tx = new Tx(id, isolation, snapshots.acquire());
+            return;
+        }
+
+        // 스냅샷을 잡는 것과 SSI 추적 등록 사이에 커밋이 끼어들면 그 커밋의 쓰기 집합을 놓친다
+        synchronized (db) {
+            Tx tx = new Tx(id, isolation, snapshots.acquire());
+            ssi.begin(tx);
+            session.tx = tx;
+        }
     }
 
-    public void insert(String tableName, Record record) {
-        ensureActive();
-        Table table = mustTable(tableName);
-        String pkColumn = table.getPrimaryKeyColumn();
-        String pk = record.get(pkColumn);
+    public long serializationFailures() {
+        return ssi.aborts();
+    }
 
-        if (pk == null) {
-            throw new IllegalArgumentException("[ERROR] PK 값이 없습니다.");
+    // 이 세션의 조회가 사용할 시점. SNAPSHOT 트랜잭션 안에서는 BEGIN 때 잡은 스냅샷을 그대로 쓴다.
+    public long readTimestamp(Session session) {
+        Tx tx = session.tx;
+        if (tx != null && tx.isolation != IsolationLevel.READ_COMMITTED) {
+            return tx.snapTs;
         }
+        return db.currentCommitSequence();
+    }
 
-        current.ops.add(new WalEntry(current.id, Op.INSERT, tableName, pk, record.values()));
+    public Record selectById(String tableName, String pk) {
+        return selectById(currentSession(), tableName, pk);
     }
 
-    public void update(String tableName, String pk, Record newRecord) {
-        ensureActive();
+    public List<Record> selectAll(String tableName) {
+        return selectAll(currentSession(), tableName);
+    }
+
+    public List<Record> findAllByPkBetween(String tableName, String from, boolean fromInc, String to, boolean toInc) {
+        return findAllByPkBetween(currentSession(), tableName, from, fromInc, to, toInc);
+    }
+
+    public List<Record> findAllBy(String tableName, String column, String value) {
+        return findAllBy(currentSession(), tableName, column, value);
+    }
+
+    // 읽기 기록은 실제로 읽기 전에 남겨야 동시에 커밋하는 쪽이 놓치지 않는다.
+    // 트랜잭션 안에서는 커밋된 스냅샷 위에 자기 변경(overlay)을 덮어 보여준다.
+    // pk 는 사용자가 입력하는 PK 문자열이다 (복합 PK 는 "3,42"). 안에서는 Table.keyOf 로 만든 키만 쓴다.
+    public Record selectById(Session session, String tableName, String pk) {
         Table table = mustTable(tableName);
-        String primaryKeyColumn = table.getPrimaryKeyColumn();
-        String newPk = newRecord.get(primaryKeyColumn);
+        return selectByKey(session, table, table.keyOf(pk));
+    }
 
-        if (!Objects.equals(pk, newPk)) {
-            throw new IllegalArgumentException("[ERROR] PK는 변경할 수 없습니다.");
+    public List<Record> selectAll(Session session, String tableName) {
+        Table table = mustTable(tableName);
+        ReadSet reads = readSetOf(session);
+        if (reads != null) reads.addRange(tableName, null, true, null, true);
+        List<Record> committed = readAt(session, table::selectAllAt);
+
+        Tx tx = session.tx;
+        return (tx == null) ? committed : tx.overlay.mergeAll(tableName, table::keyOf, committed);
+    }
+
+    // 복합 PK 는 앞쪽 컬럼 값만 줘도 된다 (예: "3" ~ "3" 은 첫 컬럼이 3 인 행 전체)
+    public List<Record> findAllByPkBetween(Session session, String tableName, String fromPk, boolean fromInc, String toPk, boolean toInc) {
+        Table table = mustTable(tableName);
+        String from = (fromPk == null) ? null : table.keyBound(fromPk, true, fromInc);
+        String to = (toPk == null) ? null : table.keyBound(toPk, false, toInc);
+        ReadSet reads = readSetOf(session);
+        if (reads != null) reads.addRange(tableName, from, fromInc, to, toInc);
+        List<Record> committed = readAt(session, ts -> table.findAllByPkBetweenAt(from, fromInc, to, toInc, ts));
+
+        Tx tx = session.tx;
+        return (tx == null) ? committed
+                : tx.overlay.mergeRange(tableName, table::keyOf, committed, from, fromInc, to, toInc);
+    }
+
+    public List<Record> findAllBy(Session session, String tableName, String column, String input) {
+        return findAllBy(session, tableName, Map.of(column, input), null);
+    }
+
+    // 등호 조건을 모두 만족하는 행. indexNames 가 null 이면 테이블이 인덱스를 고르고, 주면 그 인덱스들의 교집합으로 찾는다.
+    // 컬럼 타입에 맞지 않는 값은 어떤 행과도 같지 않으므로 읽지도, 읽기 기록을 남기지도 않는다.
+    // 읽기 기록은 조건 하나만 남긴다. 결과는 그 조건에 맞는 행의 부분집합이므로 충돌 판단이 느슨해지지 않는다.
+    public List<Record> findAllBy(Session session, String tableName, Map<String, String> conditions, List<String> indexNames) {
+        Table table = mustTable(tableName);
+        if (conditions.isEmpty()) {
+            throw new IllegalArgumentException("[ERROR] 검색 조건이 없습니다.");
         }
+        Map<String, String> equals = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : conditions.entrySet()) {
+            String value = table.normalizeValue(e.getKey(), e.getValue());
+            if (value == null) {
+                return new ArrayList<>();
+            }
+            equals.put(e.getKey(), value);
+        }
+        ReadSet reads = readSetOf(session);
+        if (reads != null) {
+            Map.Entry<String, String> first = equals.entrySet().iterator().next();
+            reads.addPredicate(tableName, first.getKey(), first.getValue());
+        }
+        List<Record> committed = readAt(session, ts -> table.findAllByAt(equals, indexNames, ts));
 
-        current.ops.add(new WalEntry(current.id, Op.UPDATE, tableName, pk, newRecord.values()));
+        Tx tx = session.tx;
+        return (tx == null) ? committed
+                : tx.overlay.mergeMatching(tableName, table::keyOf, committed, equals);
     }
 
-    public void delete(String tableName, String pk) {
-        ensureActive();
-        current.ops.add(new WalEntry(current.id, Op.DELETE, tableName, pk, null));
+    // 등록한 스냅샷에서 통계를 만든다. 트랜잭션과 무관하게 그 순간의 커밋된 행을 본다.
+    public TableStatistics analyze(String tableName) {
+        Table table = mustTable(tableName);
+        long ts = snapshots.acquire();
+        try {
+            return table.analyze(ts);
+        } finally {
+            snapshots.release(ts);
+        }
     }
 
-    public void commit() throws IOException {
-        ensureActive();
-        long id = current.id;
+    // 커밋된 최신 스냅샷을 배치로 읽는다. 세션 트랜잭션의 쓰기는 보이지 않는다. 스냅샷은 Scan 을 다 읽거나 닫을 때 놓는다.
+    public Scan scan(String tableName, List<String> columns) {
+        Table table = mustTable(tableName);
+        long ts = snapshots.acquire();
+        try {
+            return new Scan(table, columns, null, true, null, true, ts, () -> snapshots.release(ts));
+        } catch (RuntimeException e) {
+            snapshots.release(ts);
+            throw e;
+        }
+    }
 
-        wal.append(new WalEntry(id, Op.BEGIN, null, null, null));
-        for (WalEntry e : current.ops) {
-            wal.append(e);
+    private Record selectByKey(Session session, Table table, String pk) {
+        String tableName = table.getName();
+        Tx tx = session.tx;
+        if (tx != null && tx.overlay.contains(tableName, pk)) {
+            return tx.overlay.get(tableName, pk);
         }
 
-        wal.append(new WalEntry(id, Op.COMMIT, null, null, null));
+        ReadSet reads = readSetOf(session);
+        if (reads != null) reads.addPoint(tableName, pk);
+        return readAt(session, ts -> table.selectByIdAt(pk, ts));
+    }
 
-        long ts = db.nextCommitSequence();
-        for (WalEntry e : current.ops) {
-            applyOneCommitted(db, e, ts, false);
+    // 값은 테이블 스키마로 검사하고 다듬어서(타입, NOT NULL, 없는 컬럼) 로그와 overlay 에 남긴다
+    public void insert(Session session, String tableName, Record input) {
+        Tx tx = ensureActive(session);
+        Table table = mustTable(tableName);
+        for (String column : table.getPrimaryKeyColumns()) {
+            if (input.get(column) == null) {
+                throw new IllegalArgumentException("[ERROR] PK 값이 없습니다.");
+            }
+        }
+        Record record = table.normalize(input);
+        String pk = table.keyOf(record);
+
+        if (selectByKey(session, table, pk) != null) {
+            throw new IllegalArgumentException("[ERROR] PK 중복");
         }
 
-        current = null;
+        tx.ops.add(new WalEntry(tx.id, Op.INSERT, tableName, pk, record.values()));
+        tx.overlay.put(tableName, pk, record.values());
     }
 
-    public void rollback() {
-        ensureActive();
-        current = null; // 버퍼 폐기
+    public void update(Session session, String tableName, String key, Record input) {
+        Tx tx = ensureActive(session);
+        Table table = mustTable(tableName);
+        String pk = table.keyOf(key);
+        Record newRecord = table.normalize(input);
+
+        if (!pk.equals(table.keyOf(newRecord))) {
+            throw new IllegalArgumentException("[ERROR] PK는 변경할 수 없습니다.");
+        }
+        if (selectByKey(session, table, pk) == null) {
+            throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
+        }
+
+        tx.ops.add(new WalEntry(tx.id, Op.UPDATE, tableName, pk, newRecord.values()));
+        tx.overlay.put(tableName, pk, newRecord.values());
     }
 
-    public static void recover(Database db, List<WalEntry> log) {
-        LinkedHashMap<Long, List<WalEntry>> byTx = new LinkedHashMap<>();
-        Set<Long> committed = new HashSet<>();
+    public void delete(Session session, String tableName, String key) {
+        Tx tx = ensureActive(session);
+        Table table = mustTable(tableName);
+        String pk = table.keyOf(key);
+        if (selectByKey(session, table, pk) == null) {
+            throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
+        }
 
-        for (WalEntry e : log) {
-            if (e.op == Op.BEGIN) {
-                byTx.put(e.txId, new ArrayList<>());
-            } else if (e.op == Op.COMMIT) {
-                committed.add(e.txId);
-            } else {
-                byTx.computeIfAbsent(e.txId, k -> new ArrayList<>()).add(e);
+        tx.ops.add(new WalEntry(tx.id, Op.DELETE, tableName, pk, null));
+        tx.overlay.delete(tableName, pk);
+    }
+
+    public void commit(Session session) throws IOException {
+        Tx tx = ensureActive(session);
+
+        List<WalEntry> batch = new ArrayList<>(tx.ops.size() + 2);
+        batch.add(new WalEntry(tx.id, Op.BEGIN, null, null, null));
+        batch.addAll(tx.ops);
+        batch.add(new WalEntry(tx.id, Op.COMMIT, null, null, null));
+
+        // 로그 기록 순서와 반영 순서가 같아야 체크포인트 LSN 이 의미를 가진다.
+        // 반영은 읽기 시점(currentCommitSequence) 뒤의 시퀀스로 하므로 publish 전까지는 다른 세션에 보이지 않는다.
+        long lsn;
+        long ts;
+        synchronized (db) {
+            List<SsiTracker.Write> writes = validate(tx);
+            ssi.validate(tx, writes);
+            lsn = wal.write(batch);
+            ts = db.reserveCommitSequence();
+            for (WalEntry e : tx.ops) {
+                applyOneCommitted(db, e, ts, false);
             }
+            db.markApplied(lsn);
+            ssi.committed(tx, writes, ts);
+        }
+
+        // fsync 는 모니터 밖에서 다른 세션의 커밋과 묶어서 하고, 디스크에 내려간 뒤에야 커밋을 보이게 한다.
+        // fsync 가 실패하면 WAL 이 이후 기록을 모두 거부하므로 이 커밋은 끝내 보이지 않고, 재시작 시 로그대로 복구된다.
+        try {
+            wal.sync(lsn);
+            db.publish(ts);
+        } finally {
+            end(session, tx);
         }
+    }
+
+    public void rollback(Session session) {
+        end(session, ensureActive(session)); // 버퍼 폐기
+    }
 
-        for (var entry : byTx.entrySet()) {
-            long tx = entry.getKey();
-            if (!committed.contains(tx)) {
-                continue;
+    // 로그를 쓰기 전에 쓰기 집합을 검사한다. 커밋은 db 모니터 안에서 직렬화되므로 검사와 반영 사이에 끼어드는 커밋은 없다.
+    // 키마다 바뀌기 전/후 값을 함께 돌려주어 SSI 가 조건 조회와의 겹침을 판단할 수 있게 한다.
+    private List<SsiTracker.Write> validate(Tx tx) {
+        List<SsiTracker.Write> writes = new ArrayList<>(tx.ops.size());
+        Map<String, Map<String, String>> state = new HashMap<>(); // 값이 null 이면 삭제된(없는) 행
+        for (WalEntry e : tx.ops) {
+            Table table = mustTable(e.table);
+            String key = e.table + '\u0000' + e.pk;
+            if (!state.containsKey(key)) {
+                if (tx.isolation != IsolationLevel.READ_COMMITTED && table.lastCommitTs(e.pk) > tx.snapTs) {
+                    throw new TransactionConflictException(
+                            "[ERROR] 다른 트랜잭션이 먼저 변경한 레코드입니다: " + e.table + "." + table.keyText(e.pk));
+                }
+                Record latest = table.selectLatest(e.pk);
+                state.put(key, (latest == null) ? null : latest.values());
             }
 
-            long ts = db.nextCommitSequence();
-            for (WalEntry e : entry.getValue()) {
-                applyOneCommitted(db, e, ts,true);
+            Map<String, String> before = state.get(key);
+            switch (e.op) {
+                case INSERT -> {
+                    if (before != null) throw new IllegalArgumentException("[ERROR] PK 중복");
+                }
+                case UPDATE, DELETE -> {
+                    if (before == null) throw new IllegalArgumentException("[ERROR] 존재하지 않는 레코드");
+                }
+                default -> {
+                }
             }
+
+            Map<String, String> after = (e.op == Op.DELETE) ? null : e.values;
+            state.put(key, after);
+            writes.add(new SsiTracker.Write(e.table, e.pk, before, after));
+        }
+        return writes;
+    }
+
+    private void end(Session session, Tx tx) {
+        ssi.end(tx);
+        if (tx.isolation != IsolationLevel.READ_COMMITTED) {
+            snapshots.release(tx.snapTs);
         }
+        session.tx = null;
     }
 
-    private void ensureActive() {
-        if (current == null) {
+    // 스냅샷을 쥐지 않은 조회는 읽는 동안만 시점을 등록해 vacuum 이 그 사이에 버전을 치우지 못하게 한다
+    private <T> T readAt(Session session, LongFunction<T> reader) {
+        Tx tx = session.tx;
+        if (tx != null && tx.isolation != IsolationLevel.READ_COMMITTED) {
+            return reader.apply(tx.snapTs);
+        }
+
+        long ts = snapshots.acquire();
+        try {
+            return reader.apply(ts);
+        } finally {
+            snapshots.release(ts);
+        }
+    }
+
+    private static ReadSet readSetOf(Session session) {
+        Tx tx = session.tx;
+        return (tx == null) ? null : tx.reads;
+    }
+
+    private static void ensureOpen(Session session) {
+        if (session.closed) {
+            throw new IllegalStateException("[ERROR] 닫힌 세션입니다: " + session.id());
+        }
+    }
+
+    private static Tx ensureActive(Session session) {
+        ensureOpen(session);
+        if (session.tx == null) {
             throw new IllegalStateException("[ERROR] BEGIN 먼저 호출하세요.");
         }
+        return session.tx;
     }
 
     private Table mustTable(String name) {
@@ -141,24 +467,72 @@ public class TransactionManager {
         return table;
     }
 
-    private static void applyOneCommitted(Database db, WalEntry e, long ts, boolean tolerant) {
+    // 반영했으면 true, 테이블이 없거나 (tolerant 에서) 이미 반영된 연산이라 건너뛰었으면 false.
+    // tolerant 는 체크포인트 도중 데이터 페이지에 먼저 내려간 변경만 건너뛴다: 이미 있는 행의 INSERT, 없는 행의 UPDATE/DELETE.
+    // 그 밖의 오류는 건너뛰지 않고 그대로 던진다. e.pk 는 인코딩한 키여야 한다(로그에서 읽은 레코드는 withEncodedKey 를 거친다).
+    static boolean applyOneCommitted(Database db, WalEntry e, long ts, boolean tolerant) {
         Table t = db.getTable(e.table);
         if (t == null) {
-            return;
+            return false;
         }
 
+        switch (e.op) {
+            case INSERT -> {
+                Record record = new Record(e.values);
+                if (tolerant && t.selectLatest(t.keyOf(record)) != null) return false;
+                t.insertCommitted(record, ts);
+            }
+            case UPDATE -> {
+                if (tolerant && t.selectLatest(e.pk) == null) return false;
+                t.updateCommitted(e.pk, new Record(e.values), ts);
+            }
+            case DELETE -> {
+                if (tolerant && t.selectLatest(e.pk) == null) return false;
+                t.deleteCommitted(e.pk, ts);
+            }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 인코딩 키 이전에 쓴 로그(PK 문자열)의 레코드는 테이블 스키마로 키를 만들어 바꾼다.
+    // 이 테이블의 키로 읽을 수 없는 레코드는 건너뛰지 않고 [ERROR] 로 멈춘다.
+    static WalEntry withEncodedKey(Database db, WalEntry e) {
+        Table t = db.getTable(e.table);
+        if (t == null || e.pk == null) {
+            return e;
+        }
         try {
-            switch (e.op) {
-                case INSERT -> t.insertCommitted(new Record(e.values), ts);
-                case UPDATE -> t.updateCommitted(e.pk, new Record(e.values), ts);
-                case DELETE -> t.deleteCommitted(e.pk, ts);
-                default -> {
-                }
+            if (!e.keyEncoded) {
+                return new WalEntry(e.lsn, e.txId, e.op, e.table, t.keyOf(e.pk), e.values, true);
+            }
+            if (t.keyOf(t.keyText(e.pk)).equals(e.pk)) {
+                return e;
             }
-        } catch (Exception ex) {
-            if (!tolerant) {
-                throw ex;
+        } catch (RuntimeException ex) {
+            throw unreadableKey(e, ex);
+        }
+        throw unreadableKey(e, null);
+    }
+
+    private static IllegalStateException unreadableKey(WalEntry e, RuntimeException cause) {
+        return new IllegalStateException(String.format("[ERROR] WAL 레코드의 PK 를 테이블 %s 의 키로 읽을 수 없습니다: lsn=%d, tx=%d, %s, pk=%s",
+                e.table, e.lsn, e.txId, e.op, printable(e.pk)), cause);
+    }
+
+    // 인코딩한 키는 제어 문자를 담으므로 \xNN 으로 적는다
+    private static String printable(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x20 || c == 0x7F || (c >= 0x80 && c <= 0xFF)) {
+                sb.append(String.format("\\x%02X", (int) c));
+            } else {
+                sb.append(c);
             }
         }
+        return sb.append('"').toString();
     }
 }
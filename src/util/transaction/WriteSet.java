@@ -0,0 +1,121 @@
+package util.transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+import model.Record;
+
+// 트랜잭션이 아직 커밋하지 않은 변경. 테이블별로 PK 키 순서를 유지해 커밋된 스냅샷과 정렬 병합한다.
+final class WriteSet {
+
+    // 삭제 표시. 식별 비교로만 쓴다.
+    private static final Map<String, String> DELETED = Collections.unmodifiableMap(new HashMap<>());
+
+    private final Map<String, TreeMap<String, Map<String, String>>> byTable = new HashMap<>();
+
+    void put(String table, String pk, Map<String, String> values) {
+        rowsOf(table).put(pk, values);
+    }
+
+    void delete(String table, String pk) {
+        rowsOf(table).put(pk, DELETED);
+    }
+
+    boolean contains(String table, String pk) {
+        TreeMap<String, Map<String, String>> rows = byTable.get(table);
+        return rows != null && rows.containsKey(pk);
+    }
+
+    // contains 가 true 일 때만 의미가 있다. 삭제했으면 null.
+    Record get(String table, String pk) {
+        Map<String, String> values = byTable.get(table).get(pk);
+        return (values == DELETED) ? null : new Record(values);
+    }
+
+    // committed 는 PK 오름차순이어야 한다
+    List<Record> mergeAll(String table, Function<Record, String> keyOf, List<Record> committed) {
+        TreeMap<String, Map<String, String>> rows = byTable.get(table);
+        if (rows == null) {
+            return committed;
+        }
+        return merge(committed, keyOf, rows);
+    }
+
+    List<Record> mergeRange(String table, Function<Record, String> keyOf, List<Record> committed,
+                            String from, boolean fromInc, String to, boolean toInc) {
+        TreeMap<String, Map<String, String>> rows = byTable.get(table);
+        if (rows == null) {
+            return committed;
+        }
+
+        NavigableMap<String, Map<String, String>> range = rows;
+        if (from != null) range = range.tailMap(from, fromInc);
+        if (to != null) range = range.headMap(to, toInc);
+        return merge(committed, keyOf, range);
+    }
+
+    // 조건 조회 결과는 순서가 정해져 있지 않으므로 덮어쓴 행을 빼고 조건에 맞는 변경 행을 뒤에 붙인다
+    List<Record> mergeMatching(String table, Function<Record, String> keyOf, List<Record> committed, Map<String, String> equals) {
+        TreeMap<String, Map<String, String>> rows = byTable.get(table);
+        if (rows == null) {
+            return committed;
+        }
+
+        List<Record> out = new ArrayList<>(committed.size());
+        for (Record r : committed) {
+            if (!rows.containsKey(keyOf.apply(r))) out.add(r);
+        }
+        for (Map<String, String> values : rows.values()) {
+            if (values != DELETED && matches(values, equals)) out.add(new Record(values));
+        }
+        return out;
+    }
+
+    private static boolean matches(Map<String, String> values, Map<String, String> equals) {
+        for (Map.Entry<String, String> e : equals.entrySet()) {
+            if (!Objects.equals(values.get(e.getKey()), e.getValue())) return false;
+        }
+        return true;
+    }
+
+    private static List<Record> merge(List<Record> committed, Function<Record, String> keyOf,
+                                      NavigableMap<String, Map<String, String>> rows) {
+        List<Record> out = new ArrayList<>(committed.size() + rows.size());
+        Iterator<Map.Entry<String, Map<String, String>>> it = rows.entrySet().iterator();
+        Map.Entry<String, Map<String, String>> pending = it.hasNext() ? it.next() : null;
+
+        for (Record r : committed) {
+            String pk = keyOf.apply(r);
+            while (pending != null && pending.getKey().compareTo(pk) < 0) {
+                addLive(out, pending.getValue());
+                pending = it.hasNext() ? it.next() : null;
+            }
+            if (pending != null && pending.getKey().equals(pk)) {
+                addLive(out, pending.getValue());
+                pending = it.hasNext() ? it.next() : null;
+            } else {
+                out.add(r);
+            }
+        }
+        while (pending != null) {
+            addLive(out, pending.getValue());
+            pending = it.hasNext() ? it.next() : null;
+        }
+        return out;
+    }
+
+    private static void addLive(List<Record> out, Map<String, String> values) {
+        if (values != DELETED) out.add(new Record(values));
+    }
+
+    private TreeMap<String, Map<String, String>> rowsOf(String table) {
+        return byTable.computeIfAbsent(table, k -> new TreeMap<>());
+    }
+}
@@ -0,0 +1,171 @@
+package util.vacuum;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import model.Database;
+import model.Table;
+import model.VacuumResult;
+import util.transaction.SnapshotRegistry;
+
+/*
+ * 지난 버전 회수. 가장 오래된 진행 중 스냅샷(horizon) 이하에서 끝난 버전과 완전히 삭제된 체인을 지운다.
+ * 테이블마다 지난 버전이 생긴 키만 batchKeys 개씩 나눠 처리하고, 배치 사이에는 쓰기 잠금을 풀어 커밋/조회가 끼어들 수 있게 한다.
+ * 지운 체인이 많이 쌓인 테이블은 회차 끝에 인덱스를 다시 채운다.
+ * 백그라운드 실패는 출력하지 않고 횟수와 마지막 메시지만 남긴다. CLI 가 failures()/lastError() 로 알린다.
+ */
+public class Vacuum implements Closeable {
+
+    public static final int DEFAULT_BATCH_KEYS = 256;
+    public static final long DEFAULT_INTERVAL_MILLIS = 1_000L;
+
+    private final Database db;
+    private final SnapshotRegistry snapshots;
+    private final int batchKeys;
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    private long runs;
+    private long versionsReclaimed;
+    private long chainsReclaimed;
+    private long batches;
+    private long compactions;
+    private long totalPauseNanos;
+    private long maxPauseNanos;
+    private long failures;
+    private String lastError;
+
+    public Vacuum(Database db, SnapshotRegistry snapshots) {
+        this(db, snapshots, DEFAULT_BATCH_KEYS, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public Vacuum(Database db, SnapshotRegistry snapshots, int batchKeys, long intervalMillis) {
+        if (batchKeys < 1) {
+            throw new IllegalArgumentException("[ERROR] vacuum 배치 크기는 1 이상이어야 합니다.");
+        }
+        this.db = db;
+        this.snapshots = snapshots;
+        this.batchKeys = batchKeys;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vacuum");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 한 회차: 시작 시점의 대기 키 수만큼만 처리해 아직 회수할 수 없는 키를 되풀이하지 않는다
+    public void runOnce() {
+        long horizon = snapshots.horizon();
+        List<Table> tables = new ArrayList<>();
+        for (String name : db.tableNames()) {
+            Table table = db.getTable(name);
+            if (table != null) tables.add(table);
+        }
+
+        for (Table table : tables) {
+            int budget = table.vacuumBacklog();
+            while (budget > 0) {
+                long started = System.nanoTime();
+                VacuumResult r = table.vacuum(horizon, Math.min(batchKeys, budget));
+                record(r, System.nanoTime() - started);
+                if (r.keysVisited == 0) break;
+                budget -= r.keysVisited;
+                Thread.yield();
+            }
+
+            long started = System.nanoTime();
+            if (table.compactIfFragmented()) {
+                recordCompaction(System.nanoTime() - started);
+            }
+        }
+
+        synchronized (this) {
+            runs++;
+        }
+    }
+
+    public synchronized long runs() {
+        return runs;
+    }
+
+    public synchronized long versionsReclaimed() {
+        return versionsReclaimed;
+    }
+
+    public synchronized long chainsReclaimed() {
+        return chainsReclaimed;
+    }
+
+    public synchronized long compactions() {
+        return compactions;
+    }
+
+    public synchronized long maxPauseMicros() {
+        return maxPauseNanos / 1_000;
+    }
+
+    public synchronized long avgPauseMicros() {
+        return (batches == 0) ? 0 : totalPauseNanos / batches / 1_000;
+    }
+
+    public synchronized long failures() {
+        return failures;
+    }
+
+    public synchronized String lastError() {
+        return lastError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("[VACUUM] %d회, 버전 %d개 / 체인 %d개 회수, 인덱스 재구성 %d회, 배치 평균 %dus / 최대 %dus, 실패 %d회%s",
+                runs, versionsReclaimed, chainsReclaimed, compactions,
+                (batches == 0) ? 0 : totalPauseNanos / batches / 1_000, maxPauseNanos / 1_000,
+                failures, (lastError == null) ? "" : " (마지막 실패: " + lastError + ")");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private synchronized void record(VacuumResult r, long pauseNanos) {
+        versionsReclaimed += r.versionsReclaimed;
+        chainsReclaimed += r.chainsReclaimed;
+        batches++;
+        totalPauseNanos += pauseNanos;
+        maxPauseNanos = Math.max(maxPauseNanos, pauseNanos);
+    }
+
+    private synchronized void recordCompaction(long pauseNanos) {
+        compactions++;
+        maxPauseNanos = Math.max(maxPauseNanos, pauseNanos);
+    }
+
+    private void runQuietly() {
+        try {
+            runOnce();
+        } catch (RuntimeException e) {
+            recordFailure(e);
+        }
+    }
+
+    private synchronized void recordFailure(RuntimeException e) {
+        failures++;
+        lastError = e.getMessage();
+    }
+}
@@ -0,0 +1,200 @@
+package util.verify;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import model.Database;
+import model.IndexCheckResult;
+import model.SecondaryIndex;
+import model.Table;
+
+/*
+ * 보조 인덱스 검증. 주 인덱스 -> 보조 인덱스(빠진 항목)와 보조 인덱스 -> 주 인덱스(남은 항목) 두 방향을 batchKeys 개씩 훑는다.
+ * 배치마다 테이블 잠금을 잡으므로 커밋이 인덱스를 고치는 도중은 보지 않고, 배치 사이에는 커밋/조회가 끼어들 수 있다.
+ * 주기 실행은 보고만 하고, 출력하지 않고 어긋남을 찾은 회차 수와 실패(횟수, 마지막 메시지)만 남긴다. CLI 가 이를 보고 알린다.
+ * 복구는 runOnce(true) 또는 verify(..., true) 로 직접 요청한다.
+ */
+public class IndexVerifier implements Closeable {
+
+    public static final int DEFAULT_BATCH_KEYS = 512;
+    public static final long DEFAULT_INTERVAL_MILLIS = 10 * 60_000L;
+
+    private final Database db;
+    private final int batchKeys;
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    private long runs;
+    private long rowsChecked;
+    private long entriesChecked;
+    private long missingFound;
+    private long staleFound;
+    private long repaired;
+    private long maintenanceMisses;
+    private long mismatchRuns;
+    private long failures;
+    private String lastError;
+
+    public IndexVerifier(Database db) {
+        this(db, DEFAULT_BATCH_KEYS, DEFAULT_INTERVAL_MILLIS);
+    }
+
+    public IndexVerifier(Database db, int batchKeys, long intervalMillis) {
+        if (batchKeys < 1) {
+            throw new IllegalArgumentException("[ERROR] 인덱스 검증 배치 크기는 1 이상이어야 합니다.");
+        }
+        this.db = db;
+        this.batchKeys = batchKeys;
+        this.intervalMillis = intervalMillis;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "index-verifier");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // 모든 테이블의 준비된 인덱스를 검증하고 이번 회차에 찾은 어긋남 수를 돌려준다
+    public long runOnce(boolean repair) {
+        List<Table> tables = new ArrayList<>();
+        for (String name : db.tableNames()) {
+            Table table = db.getTable(name);
+            if (table != null) tables.add(table);
+        }
+
+        long found = 0;
+        long misses = 0;
+        for (Table table : tables) {
+            found += verifyTable(table, repair);
+            for (SecondaryIndex idx : table.getIndexes()) misses += idx.maintenanceMisses();
+        }
+
+        synchronized (this) {
+            runs++;
+            maintenanceMisses = misses;
+        }
+        return found;
+    }
+
+    public long verifyTable(Table table, boolean repair) {
+        long found = 0;
+        for (SecondaryIndex idx : table.getIndexes()) {
+            if (!idx.isReady()) continue;
+            try {
+                found += verify(table, idx.getName(), repair);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // 검증 중에 삭제되거나 다시 만들어지는 인덱스는 건너뛴다
+            }
+        }
+        return found;
+    }
+
+    // 인덱스 하나를 두 방향으로 끝까지 훑는다
+    public long verify(Table table, String indexName, boolean repair) {
+        long found = 0;
+        String after = null;
+        do {
+            IndexCheckResult r = table.verifyIndexRows(indexName, after, batchKeys, repair);
+            recordRows(r);
+            found += r.missing;
+            after = r.resumeAfter;
+            Thread.yield();
+        } while (after != null);
+
+        do {
+            IndexCheckResult r = table.verifyIndexEntries(indexName, after, batchKeys, repair);
+            recordEntries(r);
+            found += r.stale;
+            after = r.resumeAfter;
+            Thread.yield();
+        } while (after != null);
+        return found;
+    }
+
+    public synchronized long runs() {
+        return runs;
+    }
+
+    public synchronized long missingFound() {
+        return missingFound;
+    }
+
+    public synchronized long staleFound() {
+        return staleFound;
+    }
+
+    public synchronized long repaired() {
+        return repaired;
+    }
+
+    public synchronized long maintenanceMisses() {
+        return maintenanceMisses;
+    }
+
+    // 어긋남을 찾은 주기 실행 회차 수
+    public synchronized long mismatchRuns() {
+        return mismatchRuns;
+    }
+
+    public synchronized long failures() {
+        return failures;
+    }
+
+    public synchronized String lastError() {
+        return lastError;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("[VERIFY] %d회, 행 %d개 / 인덱스 키 %d개 확인, 빠진 항목 %d개, 남은 항목 %d개, 복구 %d개, 유지 중 누락 %d회",
+                runs, rowsChecked, entriesChecked, missingFound, staleFound, repaired, maintenanceMisses);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    private synchronized void recordRows(IndexCheckResult r) {
+        rowsChecked += r.visited;
+        missingFound += r.missing;
+        repaired += r.repaired;
+    }
+
+    private synchronized void recordEntries(IndexCheckResult r) {
+        entriesChecked += r.visited;
+        staleFound += r.stale;
+        repaired += r.repaired;
+    }
+
+    private void runQuietly() {
+        try {
+            if (runOnce(false) > 0) {
+                recordMismatchRun();
+            }
+        } catch (RuntimeException e) {
+            recordFailure(e);
+        }
+    }
+
+    private synchronized void recordMismatchRun() {
+        mismatchRuns++;
+    }
+
+    private synchronized void recordFailure(RuntimeException e) {
+        failures++;
+        lastError = e.getMessage();
+    }
+}
@@ -0,0 +1,75 @@
+package util.wal;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * 세그먼트 이전의 단일 파일 로그를 읽는다. 끝까지 온전히 읽힌 레코드만 돌려준다(찢어진 꼬리는 버림).
+ *  - 직렬화 형식: ObjectOutputStream 으로 WalEntry 를 이어 쓴 파일. LSN 이 없으므로 baseLsn 0 에서 읽은 순서대로 이어진다
+ *  - 바이너리 형식 v1: 파일 헤더(magic, version, baseLsn) 뒤에 WalCodec 레코드. 레코드의 LSN 을 그대로 쓴다
+ */
+final class LegacyWal {
+
+    private static final int STREAM_MAGIC = 0xACED0005;
+    private static final int FILE_MAGIC = 0x4D57414C; // "MWAL"
+    private static final int FILE_VERSION = 1;
+    private static final int FILE_HEADER = 16;
+
+    final long baseLsn;
+    final List<WalEntry> entries;
+
+    private LegacyWal(long baseLsn, List<WalEntry> entries) {
+        this.baseLsn = baseLsn;
+        this.entries = entries;
+    }
+
+    static LegacyWal read(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length == 0) {
+            return new LegacyWal(0L, List.of());
+        }
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        if (bytes.length >= 4 && buf.getInt(0) == STREAM_MAGIC) {
+            return new LegacyWal(0L, readSerialized(file));
+        }
+        if (bytes.length >= FILE_HEADER && buf.getInt(0) == FILE_MAGIC && buf.getInt(4) == FILE_VERSION) {
+            return readBinary(buf);
+        }
+        throw new IOException("[ERROR] 알 수 없는 형식의 WAL 파일입니다: " + file);
+    }
+
+    private static List<WalEntry> readSerialized(Path file) throws IOException {
+        List<WalEntry> out = new ArrayList<>();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file));
+             ObjectInputStream ois = new ObjectInputStream(in)) {
+            while (true) {
+                out.add((WalEntry) ois.readObject());
+            }
+        } catch (EOFException e) {
+            // 파일 끝 또는 기록 도중 끊긴 마지막 엔트리
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("[ERROR] 예전 형식 WAL 을 읽을 수 없습니다: " + file, e);
+        }
+        return out;
+    }
+
+    private static LegacyWal readBinary(ByteBuffer buf) {
+        long baseLsn = buf.getLong(8);
+        List<WalEntry> out = new ArrayList<>();
+        long lastLsn = baseLsn;
+        buf.position(FILE_HEADER);
+        for (WalEntry e = WalCodec.decode(buf); e != null && e.lsn == lastLsn + 1; e = WalCodec.decode(buf)) {
+            out.add(e);
+            lastLsn = e.lsn;
+        }
+        return new LegacyWal(baseLsn, out);
+    }
+}
@@ -1,71 +1,462 @@
 package util.wal;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
+/*
+ * WAL 은 <path>.00000001, <path>.00000002 ... 고정 크기 세그먼트로 나뉜다.
+ * 세그먼트는 만들 때 0 으로 미리 채워(preallocate) 두고 MappedByteBuffer 로 기록하므로, 기록 중에는 파일 크기가 바뀌지 않는다.
+ *
+ * segment header : magic | version | segNo | baseLsn(이 세그먼트 직전 레코드의 LSN) | reserved
+ * record         : WalCodec 참고 (length 0 이면 세그먼트의 끝)
+ *
+ * 읽을 때는 헤더의 segNo/baseLsn 과 레코드의 CRC, LSN 이 모두 이어지는 곳까지만 유효하다.
+ * 체크포인트가 지난 세그먼트는 지우지 않고 다음 번호로 이름을 바꿔 재사용한다(헤더가 맞지 않으므로 읽기에서는 무시된다).
+ *
+ * 그룹 커밋: 트랜잭션 하나의 엔트리를 한 번에 기록하고, fsync 는 대기 중인 커밋들 중 리더 하나가 수행한다.
+ * 리더는 groupWindow 동안(또는 미동기화 바이트가 groupBytes 를 넘을 때까지) 다른 커밋을 모은 뒤 한 번만 fsync 한다.
+ */
 public class Wal implements Closeable {
 
-    private final File file;
-    private final FileOutputStream fos;
-    private final ObjectOutputStream oos;
+    public static final long DEFAULT_GROUP_WINDOW_MICROS = 0L;
+    public static final long DEFAULT_GROUP_BYTES = 64 * 1024;
+    public static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+    private static final int SEGMENT_MAGIC = 0x4D57414C; // "MWAL"
+    private static final int SEGMENT_VERSION = 2;
+    private static final int SEGMENT_HEADER = 32;
+    private static final int MAX_SPARE_SEGMENTS = 2;
+
+    private static final class Segment {
+        final long segNo;
+        final long baseLsn;
+        final FileChannel channel;
+        final MappedByteBuffer map;
+
+        Segment(long segNo, long baseLsn, FileChannel channel, MappedByteBuffer map) {
+            this.segNo = segNo;
+            this.baseLsn = baseLsn;
+            this.channel = channel;
+            this.map = map;
+        }
+    }
+
+    private final String path;
+    private final int segmentBytes;
+    private final long groupWindowNanos;
+    private final long groupBytes;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+
+    private final TreeMap<Long, Long> liveSegments = new TreeMap<>(); // segNo -> baseLsn
+    private final TreeSet<Long> spareSegments = new TreeSet<>();
+    private Segment active;
+    private int position;
+    private int syncedPosition;
+    private long nextLsn;
+    private long syncedLsn;
+    private boolean syncing;
+    // fsync 가 한 번 실패하면 어디까지 내려갔는지 알 수 없고 다시 부른 fsync 의 성공도 믿을 수 없으므로, 이후 기록과 동기화를 모두 거부한다
+    private IOException failure;
 
     public Wal(String path) throws IOException {
-        this.file = new File(path);
-        boolean append = file.exists() && file.length() > 0;
-        this.fos = new FileOutputStream(file, true);
-        this.oos = append ? new AppendableObjectOutputStream(fos) : new ObjectOutputStream(fos);
+        this(path, DEFAULT_GROUP_WINDOW_MICROS, DEFAULT_GROUP_BYTES, DEFAULT_SEGMENT_BYTES);
     }
 
-    public synchronized void append(WalEntry e) throws IOException {
-        oos.writeObject(e);
-        oos.flush();
-        FileChannel ch = fos.getChannel();
-        ch.force(true);
+    public Wal(String path, long groupWindowMicros, long groupBytes, int segmentBytes) throws IOException {
+        this(path, groupWindowMicros, groupBytes, segmentBytes, true);
     }
 
-    public static List<WalEntry> readAll(String path) throws IOException {
-        File f = new File(path);
-        if (!f.exists() || f.length() == 0) {
-            return List.of();
+    private Wal(String path, long groupWindowMicros, long groupBytes, int segmentBytes, boolean convertLegacy) throws IOException {
+        if (segmentBytes < 64 * 1024) {
+            throw new IllegalArgumentException("[ERROR] 세그먼트 크기는 64KB 이상이어야 합니다.");
         }
+        this.path = path;
+        this.segmentBytes = segmentBytes;
+        this.groupWindowNanos = TimeUnit.MICROSECONDS.toNanos(groupWindowMicros);
+        this.groupBytes = groupBytes;
 
-        ArrayList<WalEntry> out = new ArrayList<>();
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(f))) {
-            while (true) {
-                Object obj = ois.readObject();
-                out.add((WalEntry) obj);
+        if (convertLegacy) {
+            convertLegacyFile(path, segmentBytes);
+        }
+        ScanResult scan = scan(path, e -> { });
+        for (long segNo : listSegments(path)) {
+            if (scan.live.containsKey(segNo)) continue;
+            if (segNo > scan.lastSegNo && spareSegments.size() < MAX_SPARE_SEGMENTS) {
+                spareSegments.add(segNo);
+            } else {
+                Files.deleteIfExists(segmentPath(path, segNo));
+            }
+        }
+
+        if (scan.live.isEmpty()) {
+            startSegment(nextSegNo(0L), 0L);
+            this.nextLsn = 1L;
+        } else {
+            liveSegments.putAll(scan.live);
+            long last = scan.lastSegNo;
+            this.active = openSegment(last, scan.live.get(last));
+            this.position = scan.lastEnd;
+            // 찢어진 꼬리 뒤에 남은 바이트가 새 레코드와 이어져 읽히지 않도록 지운다
+            for (int i = position; i < segmentBytes; i++) {
+                if (active.map.get(i) != 0) active.map.put(i, (byte) 0);
+            }
+            active.map.force();
+            this.nextLsn = scan.lastLsn + 1;
+        }
+        this.syncedPosition = position;
+        this.syncedLsn = nextLsn - 1;
+    }
+
+    public long append(WalEntry e) throws IOException {
+        return appendAll(List.of(e));
+    }
+
+    // 마지막 엔트리의 LSN 을 돌려주며, 반환 시점에 entries 가 디스크에 내려가 있음을 보장한다
+    public long appendAll(List<WalEntry> entries) throws IOException {
+        long lsn = write(entries);
+        sync(lsn);
+        return lsn;
+    }
+
+    public synchronized long lastLsn() {
+        return nextLsn - 1;
+    }
+
+    // 마지막 체크포인트 이후 남아 있는 세그먼트 기준의 로그 크기
+    public synchronized long sizeBytes() {
+        return (active.segNo - liveSegments.firstKey()) * (long) segmentBytes + position;
+    }
+
+    // lsn 까지의 레코드만 담긴 (활성 세그먼트가 아닌) 세그먼트를 재사용 목록으로 돌린다
+    public synchronized boolean truncateUpTo(long lsn) throws IOException {
+        boolean recycled = false;
+        while (liveSegments.firstKey() < active.segNo) {
+            long segNo = liveSegments.firstKey();
+            long segLastLsn = liveSegments.higherEntry(segNo).getValue();
+            if (segLastLsn > lsn) {
+                break;
+            }
+            liveSegments.remove(segNo);
+            recycle(segNo);
+            recycled = true;
+        }
+        return recycled;
+    }
+
+    // 로그가 체크포인트보다 뒤처져 있으면(로그 유실 등) 기존 세그먼트를 버리고 lsn 다음부터 새로 시작한다
+    public synchronized void advanceTo(long lsn) throws IOException {
+        if (nextLsn - 1 >= lsn) {
+            return;
+        }
+        long old = active.segNo;
+        active.map.force();
+        active.channel.close();
+        startSegment(nextSegNo(old), lsn);
+        for (long segNo : new ArrayList<>(liveSegments.headMap(active.segNo).keySet())) {
+            liveSegments.remove(segNo);
+            recycle(segNo);
+        }
+        nextLsn = lsn + 1;
+        syncedLsn = lsn;
+    }
+
+    // 디스크 동기화 없이 기록만 하고 마지막 LSN 을 돌려준다. 내구성이 필요하면 sync(lsn) 을 호출한다.
+    public synchronized long write(List<WalEntry> entries) throws IOException {
+        ensureHealthy();
+        for (WalEntry e : entries) {
+            buffer.reset();
+            WalCodec.encode(e, nextLsn, buffer);
+            if (buffer.size() > segmentBytes - SEGMENT_HEADER) {
+                throw new IOException("[ERROR] WAL 레코드가 세그먼트보다 큽니다.");
             }
-        } catch (EOFException e) {
+            if (position + buffer.size() > segmentBytes) {
+                rollover();
+            }
+            active.map.put(position, buffer.toByteArray());
+            position += buffer.size();
+            nextLsn++;
+        }
 
-        } catch (ClassNotFoundException e) {
-            throw new IOException(e);
+        if (unsyncedBytes() >= groupBytes) {
+            notifyAll();
+        }
+        return nextLsn - 1;
+    }
+
+    public void sync(long lsn) throws IOException {
+        synchronized (this) {
+            while (syncedLsn < lsn && syncing) {
+                waitQuietly(0L);
+            }
+            if (syncedLsn >= lsn) {
+                return;
+            }
+            ensureHealthy();
+            syncing = true;
         }
+
+        // 리더
+        try {
+            long target;
+            Segment segment;
+            int from;
+            int to;
+            synchronized (this) {
+                gatherGroup();
+                target = nextLsn - 1;
+                segment = active;
+                from = syncedPosition;
+                to = position;
+            }
+            force(segment, from, to - from);
+            synchronized (this) {
+                syncedLsn = Math.max(syncedLsn, target);
+                if (active == segment) {
+                    syncedPosition = Math.max(syncedPosition, to);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                syncing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    public static List<WalEntry> readAll(String path) throws IOException {
+        ArrayList<WalEntry> out = new ArrayList<>();
+        scan(path, out::add);
         return out;
     }
 
+    // 로그 전체를 메모리에 올리지 않고 유효한 레코드를 순서대로 흘려보낸다
+    public static void forEach(String path, Consumer<WalEntry> sink) throws IOException {
+        scan(path, sink);
+    }
+
     public static void truncate(String path) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(path, false)) {
+        for (long segNo : listSegments(path)) {
+            Files.deleteIfExists(segmentPath(path, segNo));
         }
     }
 
     @Override
-    public void close() throws IOException {
-        oos.close();
-        oos.flush();
+    public synchronized void close() throws IOException {
+        active.map.force();
+        active.channel.close();
+    }
+
+    private void rollover() throws IOException {
+        // 이전 세그먼트는 통째로 내려두고 새 세그먼트로 넘어간다
+        force(active, SEGMENT_HEADER, position - SEGMENT_HEADER);
+        active.channel.close();
+        syncedLsn = nextLsn - 1;
+        startSegment(nextSegNo(active.segNo), nextLsn - 1);
     }
 
-    static class AppendableObjectOutputStream extends ObjectOutputStream {
-        AppendableObjectOutputStream(OutputStream out) throws IOException { super(out); }
-        @Override protected void writeStreamHeader() throws IOException { reset(); }
+    private void force(Segment segment, int from, int length) throws IOException {
+        try {
+            segment.map.force(from, length);
+        } catch (UncheckedIOException e) {
+            synchronized (this) {
+                failure = e.getCause();
+            }
+            throw new IOException("[ERROR] WAL 동기화에 실패했습니다. 이후 기록은 거부하니 다시 시작해 로그로 복구하세요.", e.getCause());
+        }
+    }
+
+    private void ensureHealthy() throws IOException {
+        if (failure != null) {
+            throw new IOException("[ERROR] 앞선 WAL 동기화가 실패해 더 기록할 수 없습니다. 다시 시작해 로그로 복구하세요.", failure);
+        }
+    }
+
+    private void startSegment(long segNo, long baseLsn) throws IOException {
+        Path p = segmentPath(path, segNo);
+        boolean reuse = spareSegments.remove(segNo) && Files.size(p) == segmentBytes;
+        FileChannel ch = FileChannel.open(p,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (!reuse) {
+            preallocate(ch);
+        }
+
+        MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        map.putInt(0, SEGMENT_MAGIC);
+        map.putInt(4, SEGMENT_VERSION);
+        map.putLong(8, segNo);
+        map.putLong(16, baseLsn);
+        map.putLong(24, 0L);
+        // 재사용 세그먼트의 첫 레코드 자리는 지워 두어 헤더만 바뀐 상태에서도 끝이 분명하게 한다
+        for (int i = SEGMENT_HEADER; i < SEGMENT_HEADER + WalCodec.RECORD_HEADER; i++) map.put(i, (byte) 0);
+        map.force();
+
+        active = new Segment(segNo, baseLsn, ch, map);
+        liveSegments.put(segNo, baseLsn);
+        position = SEGMENT_HEADER;
+        syncedPosition = SEGMENT_HEADER;
+    }
+
+    private Segment openSegment(long segNo, long baseLsn) throws IOException {
+        FileChannel ch = FileChannel.open(segmentPath(path, segNo), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(segNo, baseLsn, ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+    }
+
+    private void preallocate(FileChannel ch) throws IOException {
+        ch.truncate(0);
+        ByteBuffer zeros = ByteBuffer.allocate(64 * 1024);
+        for (long pos = 0; pos < segmentBytes; ) {
+            zeros.clear();
+            zeros.limit((int) Math.min(zeros.capacity(), segmentBytes - pos));
+            pos += ch.write(zeros, pos);
+        }
+        ch.force(true);
+    }
+
+    private void recycle(long segNo) throws IOException {
+        Path p = segmentPath(path, segNo);
+        if (spareSegments.size() >= MAX_SPARE_SEGMENTS) {
+            Files.deleteIfExists(p);
+            return;
+        }
+        long target = nextSegNo(active.segNo);
+        while (spareSegments.contains(target)) target++;
+        Files.move(p, segmentPath(path, target), StandardCopyOption.ATOMIC_MOVE);
+        spareSegments.add(target);
+    }
+
+    private long nextSegNo(long segNo) {
+        return segNo + 1;
+    }
+
+    private void gatherGroup() throws IOException {
+        long deadline = System.nanoTime() + groupWindowNanos;
+        while (unsyncedBytes() < groupBytes) {
+            long remain = deadline - System.nanoTime();
+            if (remain <= 0) {
+                return;
+            }
+            waitQuietly(remain);
+        }
+    }
+
+    private long unsyncedBytes() {
+        return position - syncedPosition;
+    }
+
+    private void waitQuietly(long nanos) throws IOException {
+        try {
+            if (nanos <= 0) {
+                wait();
+            } else {
+                TimeUnit.NANOSECONDS.timedWait(this, nanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("[ERROR] WAL 동기화 대기 중 인터럽트", e);
+        }
+    }
+
+    private static final class ScanResult {
+        final TreeMap<Long, Long> live = new TreeMap<>();
+        long lastSegNo;
+        int lastEnd;
+        long lastLsn;
+    }
+
+    private static ScanResult scan(String path, Consumer<WalEntry> sink) throws IOException {
+        ScanResult result = new ScanResult();
+        Long expectedBase = null;
+        for (long segNo : listSegments(path)) {
+            try (FileChannel ch = FileChannel.open(segmentPath(path, segNo), StandardOpenOption.READ)) {
+                MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                if (map.limit() < SEGMENT_HEADER
+                        || map.getInt(0) != SEGMENT_MAGIC || map.getInt(4) != SEGMENT_VERSION
+                        || map.getLong(8) != segNo
+                        || (expectedBase != null && (segNo != result.lastSegNo + 1 || map.getLong(16) != expectedBase))) {
+                    break;
+                }
+
+                long lastLsn = map.getLong(16);
+                map.position(SEGMENT_HEADER);
+                while (true) {
+                    int start = map.position();
+                    WalEntry e = WalCodec.decode(map);
+                    if (e == null || e.lsn != lastLsn + 1) {
+                        // 재사용 세그먼트에 남은 이전 레코드는 CRC 가 맞아도 LSN 이 이어지지 않는다. 찢어진 꼬리처럼 그 앞에서 끝낸다.
+                        map.position(start);
+                        break;
+                    }
+                    lastLsn = e.lsn;
+                    sink.accept(e);
+                }
+
+                result.live.put(segNo, map.getLong(16));
+                result.lastSegNo = segNo;
+                result.lastEnd = map.position();
+                result.lastLsn = lastLsn;
+                expectedBase = lastLsn;
+            }
+        }
+        return result;
+    }
+
+    private static List<Long> listSegments(String path) {
+        File f = new File(path).getAbsoluteFile();
+        File dir = f.getParentFile();
+        Pattern pattern = Pattern.compile(Pattern.quote(f.getName()) + "\\.(\\d{8})");
+        List<Long> out = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return out;
+        }
+        for (String name : names) {
+            var m = pattern.matcher(name);
+            if (m.matches()) out.add(Long.parseLong(m.group(1)));
+        }
+        out.sort(null);
+        return out;
+    }
+
+    private static Path segmentPath(String path, long segNo) {
+        return Path.of(String.format("%s.%08d", path, segNo));
+    }
+
+    // 세그먼트 이전(단일 파일) 형식의 로그를 세그먼트로 옮겨 적은 뒤 <path>.backup 으로 치운다. 복구가 로그를 읽기 전에 불러야 한다.
+    public static void convertLegacyFile(String path) throws IOException {
+        convertLegacyFile(path, DEFAULT_SEGMENT_BYTES);
+    }
+
+    private static void convertLegacyFile(String path, int segmentBytes) throws IOException {
+        Path file = Path.of(path);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        LegacyWal legacy = LegacyWal.read(file);
+        // 옛 파일이 남아 있는데 세그먼트가 있다면 끝나지 못한 변환의 결과이므로 처음부터 다시 옮긴다
+        truncate(path);
+        try (Wal wal = new Wal(path, DEFAULT_GROUP_WINDOW_MICROS, DEFAULT_GROUP_BYTES, segmentBytes, false)) {
+            wal.advanceTo(legacy.baseLsn);
+            if (!legacy.entries.isEmpty()) {
+                wal.sync(wal.write(legacy.entries));
+            }
+        }
+        Files.move(file, Path.of(path + ".backup"), StandardCopyOption.REPLACE_EXISTING);
     }
 }
@@ -0,0 +1,127 @@
+package util.wal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import util.wal.WalEntry.Op;
+
+/*
+ * 커밋마다 fsync 하는 쓰기를 미리 할당한 세그먼트(Wal)와 미리 할당하지 않은 로그로 돌려 처리량을 비교한다.
+ * 미리 할당하지 않은 쪽은 세그먼트 이전 방식 그대로 한 파일 끝에 FileChannel 로 이어 쓰고 force(false) 한다.
+ * 파일이 커질 때마다 크기(메타데이터)도 함께 내려야 하므로 fsync 가 더 무겁다. 같은 WalCodec 레코드를 쓴다.
+ * 사용: java -cp out util.wal.WalBenchmark [커밋 수=5000] [커밋당 연산 수=4] [측정 횟수=3] [디렉터리=임시 디렉터리]
+ * 측정마다 새 파일로 시작하고, Wal 쪽은 세그먼트 생성(0 으로 채우기)까지 시간에 넣는다. 끝나면 Wal 에서 다시 읽은 레코드 수를 확인한다.
+ */
+public final class WalBenchmark {
+
+    private WalBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int commits = (args.length > 0) ? Integer.parseInt(args[0]) : 5_000;
+        int opsPerCommit = (args.length > 1) ? Integer.parseInt(args[1]) : 4;
+        int iterations = (args.length > 2) ? Integer.parseInt(args[2]) : 3;
+        Path dir = (args.length > 3) ? Files.createDirectories(Path.of(args[3])) : Files.createTempDirectory("wal-bench");
+
+        List<List<WalEntry>> batches = batches(commits, opsPerCommit);
+        try {
+            appendOnly(dir, batches);
+            preallocated(dir, batches);
+
+            double appendMillis = measure("미리 할당 안 함", commits, iterations, () -> appendOnly(dir, batches));
+            double preallocatedMillis = measure("미리 할당(Wal)", commits, iterations, () -> preallocated(dir, batches));
+            System.out.printf("미리 할당한 쪽이 %.1f배 빠름 (커밋 %,d개 x 연산 %d개)%n",
+                    appendMillis / preallocatedMillis, commits, opsPerCommit);
+        } finally {
+            if (args.length <= 3) delete(dir);
+        }
+    }
+
+    private interface Work {
+        void run() throws IOException;
+    }
+
+    private static List<List<WalEntry>> batches(int commits, int opsPerCommit) {
+        List<List<WalEntry>> out = new ArrayList<>(commits);
+        for (int tx = 1; tx <= commits; tx++) {
+            List<WalEntry> batch = new ArrayList<>(opsPerCommit + 2);
+            batch.add(new WalEntry(tx, Op.BEGIN, null, null, null));
+            for (int i = 0; i < opsPerCommit; i++) {
+                String id = Integer.toString(tx * opsPerCommit + i);
+                batch.add(new WalEntry(tx, Op.INSERT, "bench", id, Map.of("id", id, "name", "user" + id, "age", "30")));
+            }
+            batch.add(new WalEntry(tx, Op.COMMIT, null, null, null));
+            out.add(batch);
+        }
+        return out;
+    }
+
+    private static void preallocated(Path dir, List<List<WalEntry>> batches) throws IOException {
+        String path = dir.resolve("prealloc.wal").toString();
+        Wal.truncate(path);
+        try (Wal wal = new Wal(path)) {
+            for (List<WalEntry> batch : batches) {
+                wal.sync(wal.write(batch));
+            }
+        }
+        long expected = batches.stream().mapToLong(List::size).sum();
+        long[] read = new long[1];
+        Wal.forEach(path, e -> read[0]++);
+        if (read[0] != expected) {
+            throw new IllegalStateException("[ERROR] 다시 읽은 레코드 수가 다릅니다: " + read[0] + " / " + expected);
+        }
+        Wal.truncate(path);
+    }
+
+    private static void appendOnly(Path dir, List<List<WalEntry>> batches) throws IOException {
+        Path path = dir.resolve("append.wal");
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+        long lsn = 0;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (List<WalEntry> batch : batches) {
+                buffer.reset();
+                for (WalEntry e : batch) {
+                    WalCodec.encode(e, ++lsn, buffer);
+                }
+                ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+                while (bytes.hasRemaining()) {
+                    ch.write(bytes);
+                }
+                ch.force(false);
+            }
+        }
+        Files.delete(path);
+    }
+
+    private static double measure(String name, int commits, int iterations, Work work) throws IOException {
+        double best = Double.MAX_VALUE;
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            work.run();
+            double millis = (System.nanoTime() - start) / 1e6;
+            best = Math.min(best, millis);
+            total += millis;
+        }
+        System.out.printf("%s: 평균 %.1fms, 최소 %.1fms, %,.0f커밋/초%n", name, total / iterations, best, commits / (best / 1000));
+        return best;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
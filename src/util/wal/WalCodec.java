@@ -0,0 +1,155 @@
+package util.wal;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import util.wal.WalEntry.Op;
+
+/*
+ * record  : length(int) | crc32c(int) | payload
+ * payload : lsn(long) | txId(varint) | op(byte) | table(str) | pk(str) | values
+ * op      : Op 순서값 | KEY_ENCODED (pk 가 인코딩한 키. 이 비트가 없는 레코드는 PK 문자열을 담던 때의 로그다)
+ * str     : varint(len + 1) | utf-8   (0 이면 null)
+ * values  : varint(count + 1) | (str, str)*   (0 이면 null)
+ */
+final class WalCodec {
+
+    static final int RECORD_HEADER = 8;
+    static final int MAX_PAYLOAD = 16 * 1024 * 1024;
+
+    private static final int KEY_ENCODED = 0x80;
+    private static final Op[] OPS = Op.values();
+
+    private WalCodec() {
+    }
+
+    static void encode(WalEntry e, long lsn, ByteArrayOutputStream out) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        writeLong(payload, lsn);
+        writeVarLong(payload, e.txId);
+        payload.write(e.op.ordinal() | (e.keyEncoded ? KEY_ENCODED : 0));
+        writeString(payload, e.table);
+        writeString(payload, e.pk);
+        if (e.values == null) {
+            writeVarLong(payload, 0);
+        } else {
+            writeVarLong(payload, e.values.size() + 1L);
+            for (var kv : e.values.entrySet()) {
+                writeString(payload, kv.getKey());
+                writeString(payload, kv.getValue());
+            }
+        }
+
+        byte[] bytes = payload.toByteArray();
+        writeInt(out, bytes.length);
+        writeInt(out, crc(bytes, 0, bytes.length));
+        out.write(bytes, 0, bytes.length);
+    }
+
+    // buf 의 현재 위치에서 레코드 하나를 읽는다. 잘리거나 깨진 레코드(또는 미리 할당된 0 영역)면 null 을 돌려주고 위치는 그대로 둔다.
+    static WalEntry decode(ByteBuffer buf) {
+        int start = buf.position();
+        if (buf.remaining() < RECORD_HEADER) {
+            return null;
+        }
+
+        int length = buf.getInt(start);
+        int crc = buf.getInt(start + 4);
+        if (length <= 0 || length > MAX_PAYLOAD || length > buf.remaining() - RECORD_HEADER) {
+            return null;
+        }
+
+        // 매핑된 버퍼를 복사하지 않고 그대로 검사/해석한다
+        ByteBuffer payload = buf.slice(start + RECORD_HEADER, length);
+        if (crc(payload.duplicate()) != crc) {
+            return null;
+        }
+
+        WalEntry e = decodePayload(payload);
+        buf.position(start + RECORD_HEADER + length);
+        return e;
+    }
+
+    private static WalEntry decodePayload(ByteBuffer p) {
+        long lsn = p.getLong();
+        long txId = readVarLong(p);
+        int opByte = p.get() & 0xFF;
+        Op op = OPS[opByte & ~KEY_ENCODED];
+        String table = readString(p);
+        String pk = readString(p);
+
+        Map<String, String> values = null;
+        long count = readVarLong(p);
+        if (count > 0) {
+            values = new LinkedHashMap<>();
+            for (long i = 1; i < count; i++) {
+                values.put(readString(p), readString(p));
+            }
+        }
+        return new WalEntry(lsn, txId, op, table, pk, values, (opByte & KEY_ENCODED) != 0);
+    }
+
+    private static int crc(byte[] bytes, int off, int len) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, off, len);
+        return (int) crc.getValue();
+    }
+
+    private static int crc(ByteBuffer bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) {
+        if (s == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer p) {
+        long len = readVarLong(p);
+        if (len == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (len - 1)];
+        p.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static long readVarLong(ByteBuffer p) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = p.get();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int v) {
+        out.write(v >>> 24);
+        out.write(v >>> 16);
+        out.write(v >>> 8);
+        out.write(v);
+    }
+
+    private static void writeLong(ByteArrayOutputStream out, long v) {
+        writeInt(out, (int) (v >>> 32));
+        writeInt(out, (int) v);
+    }
+}
@@ -5,19 +5,35 @@ import java.util.Map;
 
 public class WalEntry implements Serializable {
 
+    // 직렬화 형식 WAL(LegacyWal) 을 쓰던 때의 기본값. lsn 이 없던 예전 엔트리도 이 클래스로 읽는다.
+    private static final long serialVersionUID = -7290767759647988491L;
+
     public enum Op { BEGIN, INSERT, UPDATE, DELETE, COMMIT}
 
+    public final long lsn;
     public final long txId;
     public final Op op;
     public final String table;
     public final String pk;
     public final Map<String, String> values;
+    // pk 가 Table.keyOf 로 만든 키인가. 그 전의 로그는 입력한 PK 문자열을 담았다(직렬화 형식 엔트리는 이 필드가 없어 false 로 읽힌다).
+    public final boolean keyEncoded;
 
     public WalEntry(long txId, Op op, String table, String pk, Map<String, String> values) {
+        this(0L, txId, op, table, pk, values, true);
+    }
+
+    public WalEntry(long lsn, long txId, Op op, String table, String pk, Map<String, String> values) {
+        this(lsn, txId, op, table, pk, values, true);
+    }
+
+    public WalEntry(long lsn, long txId, Op op, String table, String pk, Map<String, String> values, boolean keyEncoded) {
+        this.lsn = lsn;
         this.txId = txId;
         this.op = op;
         this.table = table;
         this.pk = pk;
         this.values = values;
+        this.keyEncoded = keyEncoded;
     }
 }
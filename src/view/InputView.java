@@ -3,6 +3,7 @@ package view;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,8 +48,9 @@ public class InputView {
         }
     }
 
-    public String readPrimaryKey(String pkColumn) {
-        return promptNonEmpty("PK(" + pkColumn + ") 입력 ▶ ");
+    // 복합 PK 는 컬럼 순서대로 쉼표로 구분해 입력한다
+    public String readPrimaryKey(List<String> pkColumns) {
+        return promptNonEmpty("PK(" + String.join(",", pkColumns) + ") 입력 ▶ ");
     }
 
     public Map<String, String> readRecordValues(List<String> columns) {
@@ -60,6 +62,21 @@ public class InputView {
         return values;
     }
 
+    public List<String> readColumnList(List<String> allowedColumns) {
+        while (true) {
+            String input = promptNonEmpty("컬럼 (쉼표로 구분, 예: name,age) ▶ ");
+            List<String> out = new ArrayList<>();
+            for (String part : input.split(",")) {
+                if (!part.isBlank()) out.add(part.trim());
+            }
+            if (!out.isEmpty() && allowedColumns.containsAll(out)) {
+                return out;
+            }
+
+            System.out.println("[ERROR] 존재하지 않는 칼럼입니다.");
+        }
+    }
+
     public Map<String, String> readPatchPairs(Set<String> allowedColumns) {
         while (true) {
             System.out.println("수정 값 (예: name=Alice, age=24 ▶ ");
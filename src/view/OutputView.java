@@ -31,7 +31,10 @@ public class OutputView {
     }
 
     public void printRecords(Table table, List<Record> records) {
-        List<String> columns = table.getColumns();
+        printRecords(table.getColumns(), records);
+    }
+
+    public void printRecords(List<String> columns, List<Record> records) {
         int n = columns.size();
         int[] width = new int[n];
         for (int i = 0; i < n; i++) {
@@ -0,0 +1,96 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * 데이터 파일 회귀 테스트. 저장소 루트에서 실행한다(고정 입력 파일을 test/ 아래에서 읽음). 실패하면 AssertionError 로 끝난다.
+ * 사용: java -cp out model.DatabaseTest
+ */
+public final class DatabaseTest {
+
+    // 직렬화 형식 시절 클래스로 쓴 파일: users(id, name, age) 에 (1 Alice 23, 2 Bob 28, 3 Carol 31) -> 1 을 Ash 24 로 -> 3 삭제
+    private static final Path LEGACY_DB = Path.of("test/model/legacy.db");
+
+    private DatabaseTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        convertsSerializedDatabase();
+        refusesUnreadableFile();
+        System.out.println("DatabaseTest 통과");
+    }
+
+    // 예전 파일의 커밋된 행이 페이지 형식으로 옮겨지고, 처음 만들 때의 기본 데이터로 덮이지 않아야 한다
+    private static void convertsSerializedDatabase() throws IOException {
+        Path dir = Files.createTempDirectory("database-test");
+        String path = dir.resolve("db.db").toString();
+        Files.copy(LEGACY_DB, Path.of(path));
+        try {
+            try (Database db = Database.openOrCreate(path, d -> { throw new AssertionError("기존 파일인데 새로 만들었습니다"); })) {
+                checkUsers(db);
+            }
+            check(Files.exists(Path.of(path + ".backup")), "예전 파일의 백업이 없습니다");
+            check(!Files.exists(Path.of(path + ".converting")), "변환 중 파일이 남아 있습니다");
+            // 두 번째부터는 페이지 형식 파일로 열린다
+            try (Database db = Database.openOrCreate(path, null)) {
+                checkUsers(db);
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void checkUsers(Database db) {
+        long snap = db.currentCommitSequence();
+        check(snap == 3, "commit sequence: " + snap);
+        Table users = db.getTable("users");
+        check(users != null, "users 테이블이 없습니다");
+        List<Record> rows = users.selectAllAt(snap);
+        check(rows.size() == 2, "행 수: " + rows.size());
+        Record ash = users.selectByIdAt(users.keyOf("1"), snap);
+        check(ash != null && "Ash".equals(ash.get("name")) && "24".equals(ash.get("age")), "1번 행: " + ash);
+        check(users.selectByIdAt(users.keyOf("3"), snap) == null, "삭제된 3번 행이 보입니다");
+        check(users.getIndexes().stream().anyMatch(idx -> idx.getName().equals("idx_name")), "idx_name 이 없습니다: " + users.getIndexes());
+        check(users.findAllByAt("name", "Bob", snap).size() == 1, "idx_name 으로 Bob 을 찾지 못했습니다");
+    }
+
+    // 읽을 수 없는 파일은 백업으로 치우고 새로 만드는 대신 [ERROR] 로 멈추고 그대로 둔다
+    private static void refusesUnreadableFile() throws IOException {
+        Path dir = Files.createTempDirectory("database-test");
+        Path file = dir.resolve("db.db");
+        byte[] garbage = "not a database file".getBytes();
+        Files.write(file, garbage);
+        try {
+            try {
+                Database.openOrCreate(file.toString(), d -> { }).close();
+                throw new AssertionError("읽을 수 없는 파일을 열었습니다");
+            } catch (IOException e) {
+                check(e.getMessage().startsWith("[ERROR]"), "오류 메시지: " + e.getMessage());
+            }
+            check(Arrays.equals(Files.readAllBytes(file), garbage), "읽을 수 없는 파일이 바뀌었습니다");
+            check(!Files.exists(dir.resolve("db.db.backup")), "읽을 수 없는 파일을 백업으로 치웠습니다");
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * PK 키 인코딩 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * 키(String.compareTo = 부호 없는 바이트 비교) 순서가 값 순서(ColumnType.compare)와 같은지, keyText 로 되돌아오는지,
+ * 복합 PK 의 앞쪽 컬럼 값으로 만든 구간 경계(keyBound, successor)가 그 값으로 시작하는 키만 담는지 확인한다.
+ * 사용: java -cp out model.KeyEncodingTest
+ */
+public final class KeyEncodingTest {
+
+    private KeyEncodingTest() {
+    }
+
+    public static void main(String[] args) {
+        orderAndRoundTrip(ColumnType.INT, List.of(
+                "-2147483648", "-100", "-2", "-1", "0", "1", "2", "10", "255", "256", "2147483647"));
+        orderAndRoundTrip(ColumnType.BIGINT, List.of(
+                "-9223372036854775808", "-4294967296", "-1", "0", "1", "4294967296", "9223372036854775807"));
+        orderAndRoundTrip(ColumnType.DOUBLE, List.of(
+                "-Infinity", "-1.0E300", "-2.5", "-1.0", "-4.9E-324", "-0.0", "0.0", "4.9E-324", "1.0", "2.5",
+                "1.0E300", "Infinity", "NaN"));
+        orderAndRoundTrip(ColumnType.VARCHAR, List.of(
+                "", "\u0000", "\u0000\u0000", "\u0000a", "\u0001", "a", "a\u0000", "a\u0000\u0000", "a\u0000b", "a\u0001",
+                "ab", "b", "ÿ", "ÿ\u0000", "Ā", "é", "가", "가\u0000", "😀"));
+        normalizedInputsShareKey();
+        compositePrefixRanges();
+        System.out.println("KeyEncodingTest 통과");
+    }
+
+    // values 는 어떤 순서여도 된다. 모든 쌍에서 키 비교와 값 비교의 부호가 같아야 하고, 키는 원래 값으로 되돌아와야 한다.
+    private static void orderAndRoundTrip(ColumnType type, List<String> values) {
+        Schema schema = new Schema(List.of(Column.notNull("k", type)), "k");
+        List<String> keys = new ArrayList<>();
+        for (String v : values) {
+            String key = schema.keyOf(v);
+            keys.add(key);
+            check(schema.keyText(key).equals(type.normalize(v)), type + " 되돌리기: " + printable(v) + " -> " + printable(schema.keyText(key)));
+        }
+        for (int i = 0; i < values.size(); i++) {
+            for (int j = 0; j < values.size(); j++) {
+                int byValue = Integer.signum(type.compare(type.normalize(values.get(i)), type.normalize(values.get(j))));
+                int byKey = Integer.signum(keys.get(i).compareTo(keys.get(j)));
+                check(byValue == byKey, type + " 순서: " + printable(values.get(i)) + " vs " + printable(values.get(j))
+                        + " 값 " + byValue + ", 키 " + byKey);
+            }
+        }
+    }
+
+    // 같은 값을 다르게 적은 입력은 같은 키여야 한다
+    private static void normalizedInputsShareKey() {
+        Schema ints = new Schema(List.of(Column.notNull("k", ColumnType.INT)), "k");
+        check(ints.keyOf("024").equals(ints.keyOf("24")), "INT 앞자리 0");
+        check(ints.keyOf("-0").equals(ints.keyOf("0")), "INT -0");
+        Schema doubles = new Schema(List.of(Column.notNull("k", ColumnType.DOUBLE)), "k");
+        check(doubles.keyOf("1").equals(doubles.keyOf("1.0")), "DOUBLE 1 / 1.0");
+        check(!doubles.keyOf("-0.0").equals(doubles.keyOf("0.0")), "DOUBLE -0.0 과 0.0 은 다른 키");
+    }
+
+    // (INT, VARCHAR) 와 (VARCHAR, INT) 복합 PK 에서 첫 컬럼 값 하나로 만든 네 가지 경계가 그 값으로 시작하는 키와 정확히 맞아야 한다.
+    // 입력 문자열은 쉼표로 나눈 뒤 앞뒤 공백/제어 문자를 잘라 내므로, 0x00 이 든 값은 값 목록(keyPrefix)으로 키를 만든다.
+    private static void compositePrefixRanges() {
+        Table byNumber = new Table("by_number", new Schema(List.of(
+                Column.notNull("a", ColumnType.INT), Column.notNull("b", ColumnType.VARCHAR)), List.of("a", "b")));
+        List<List<String>> numberKeys = List.of(List.of("-1", "z"), List.of("2", "ÿ"), List.of("3", ""), List.of("3", "\u0000"),
+                List.of("3", "\u0000ÿ"), List.of("3", "a"), List.of("3", "a\u0000"), List.of("3", "😀"), List.of("4", ""),
+                List.of("-3", "a"), List.of("30", "a"));
+        checkPrefix(byNumber, numberKeys, "3");
+        checkPrefix(byNumber, numberKeys, "-3");
+        checkPrefix(byNumber, numberKeys, "-1");
+
+        Table byText = new Table("by_text", new Schema(List.of(
+                Column.notNull("a", ColumnType.VARCHAR), Column.notNull("b", ColumnType.INT)), List.of("a", "b")));
+        List<List<String>> textKeys = List.of(List.of("", "-5"), List.of("", "7"), List.of("a", "-2147483648"), List.of("a", "0"),
+                List.of("a", "2147483647"), List.of("a\u0000", "0"), List.of("a\u0000\u0000", "1"), List.of("ab", "0"),
+                List.of("a\u0001", "0"), List.of("\u0000", "0"), List.of("b", "0"));
+        checkPrefix(byText, textKeys, "a");
+        checkPrefix(byText, textKeys, "");
+        checkPrefix(byText, textKeys, "a\u0000");
+        checkPrefix(byText, textKeys, "\u0000");
+
+        // 입력 문자열로 만든 경계도 같은 값이어야 한다
+        checkTextBounds(byNumber, "3");
+        checkTextBounds(byNumber, "-3");
+        checkTextBounds(byText, "a");
+        check(byNumber.keyBound("3,a", true, false).equals(byNumber.keyOf("3,a")), "모든 컬럼을 준 경계는 키 그 자체");
+
+        // 같은 구간을 실제 조회로도 확인한다: 첫 컬럼이 3 인 행만 PK 순으로
+        long ts = 1;
+        for (List<String> k : numberKeys) {
+            byNumber.insertCommitted(new Record(Map.of("a", k.get(0), "b", k.get(1))), ts++);
+        }
+        List<String> found = new ArrayList<>();
+        for (Record r : byNumber.findAllByPkBetweenAt(byNumber.keyBound("3", true, true), true,
+                byNumber.keyBound("3", false, true), true, ts)) {
+            found.add(r.get("b"));
+        }
+        check(found.equals(List.of("", "\u0000", "\u0000ÿ", "a", "a\u0000", "😀")), "첫 컬럼 3 구간 조회: " + printable(found.toString()));
+    }
+
+    // Table.keyBound 와 같은 규칙: 아래 포함/위 제외는 접두사, 아래 제외/위 포함은 successor(접두사)
+    private static void checkPrefix(Table table, List<List<String>> keys, String prefix) {
+        Schema schema = table.getSchema();
+        String lower = schema.keyPrefix(List.of(prefix));
+        String upper = KeyEncoding.successor(lower);
+        for (List<String> k : keys) {
+            String key = schema.keyPrefix(k);
+            boolean inside = k.get(0).equals(prefix);
+            String label = table.getName() + " 접두사 " + printable(prefix) + ", 키 " + printable(k.toString());
+            check(schema.keyText(key).equals(schema.getColumns().get(0).getType().normalize(k.get(0)) + "," + k.get(1)),
+                    label + ": 되돌리기 " + printable(schema.keyText(key)));
+            check(inside == (key.compareTo(lower) >= 0 && key.compareTo(upper) <= 0), label + ": [접두사, successor] 안");
+            check(inside == key.startsWith(lower), label + ": 접두사로 시작");
+            check(!key.equals(lower) && !key.equals(upper), label + ": 경계와 같은 키");
+        }
+    }
+
+    private static void checkTextBounds(Table table, String prefix) {
+        String lower = table.getSchema().keyPrefix(List.of(prefix));
+        String upper = KeyEncoding.successor(lower);
+        check(table.keyBound(prefix, true, true).equals(lower), table.getName() + " " + prefix + ": 아래 포함 경계");
+        check(table.keyBound(prefix, false, false).equals(lower), table.getName() + " " + prefix + ": 위 제외 경계");
+        check(table.keyBound(prefix, true, false).equals(upper), table.getName() + " " + prefix + ": 아래 제외 경계");
+        check(table.keyBound(prefix, false, true).equals(upper), table.getName() + " " + prefix + ": 위 포함 경계");
+    }
+
+    private static String printable(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            if (c < 0x20 || c > 0x7e) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
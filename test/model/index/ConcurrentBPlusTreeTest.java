@@ -0,0 +1,141 @@
+package model.index;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * ConcurrentBPlusTree 동시성 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * 쓰기 스레드는 각자 맡은 키 구간에서 넣고 지우고 바로 다시 읽는다. 읽기 스레드는 그동안 바뀌지 않는 음수 키를 훑고 찾는다.
+ * 사용: java -cp out model.index.ConcurrentBPlusTreeTest
+ */
+public final class ConcurrentBPlusTreeTest {
+
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int KEYS_PER_WRITER = 20_000;
+    private static final int FIXED_KEYS = 500;
+
+    private ConcurrentBPlusTreeTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // order 4 는 분할이 자주 일어나 래치 경로를 많이 지난다
+        concurrentInsertDeleteLookup(4);
+        concurrentInsertDeleteLookup(32);
+        System.out.println("ConcurrentBPlusTreeTest 통과");
+    }
+
+    // 끝난 뒤 트리 내용이 스레드마다 남긴 키의 합집합과 같고, 도는 동안 순회는 정렬/중복 없이 고정 키를 모두 봐야 한다
+    private static void concurrentInsertDeleteLookup(int order) throws Exception {
+        ConcurrentBPlusTree<Integer, Integer> tree = new ConcurrentBPlusTree<>(order);
+        for (int i = 1; i <= FIXED_KEYS; i++) {
+            tree.put(-i, -i);
+        }
+
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicBoolean stop = new AtomicBoolean();
+        BitSet[] kept = new BitSet[WRITERS];
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int id = w;
+            kept[w] = new BitSet(KEYS_PER_WRITER);
+            writers.add(new Thread(() -> {
+                Random random = new Random(id);
+                int base = id * KEYS_PER_WRITER;
+                for (int i = 0; i < KEYS_PER_WRITER && failure.get() == null; i++) {
+                    tree.put(base + i, base + i);
+                    kept[id].set(i);
+                    if (!Integer.valueOf(base + i).equals(tree.get(base + i))) {
+                        failure.compareAndSet(null, "넣은 키를 찾지 못함: " + (base + i));
+                    }
+                    if (random.nextInt(3) == 0) {
+                        int d = random.nextInt(i + 1);
+                        Integer removed = tree.remove(base + d);
+                        if ((removed != null) != kept[id].get(d)) {
+                            failure.compareAndSet(null, "지운 결과가 어긋남: " + (base + d));
+                        }
+                        kept[id].clear(d);
+                        if (tree.get(base + d) != null) {
+                            failure.compareAndSet(null, "지운 키가 보임: " + (base + d));
+                        }
+                    }
+                }
+            }));
+        }
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(new Thread(() -> {
+                Random random = new Random();
+                while (!stop.get() && failure.get() == null) {
+                    String problem = scan(tree);
+                    if (problem == null) {
+                        int k = -1 - random.nextInt(FIXED_KEYS);
+                        if (!Integer.valueOf(k).equals(tree.get(k))) problem = "고정 키를 찾지 못함: " + k;
+                    }
+                    if (problem != null) failure.compareAndSet(null, problem);
+                }
+            }));
+        }
+
+        readers.forEach(Thread::start);
+        writers.forEach(Thread::start);
+        for (Thread t : writers) {
+            t.join();
+        }
+        stop.set(true);
+        for (Thread t : readers) {
+            t.join();
+        }
+        check(failure.get() == null, "order " + order + ": " + failure.get());
+
+        int expected = FIXED_KEYS;
+        for (BitSet b : kept) {
+            expected += b.cardinality();
+        }
+        check(tree.size() == expected, "order " + order + ": size " + tree.size() + " / " + expected);
+        IndexCursor<Integer, Integer> cursor = tree.cursor(0, true, null, true);
+        int seen = 0;
+        while (cursor.next()) {
+            int k = cursor.key();
+            check(kept[k / KEYS_PER_WRITER].get(k % KEYS_PER_WRITER), "order " + order + ": 지운 키가 남음 " + k);
+            seen++;
+        }
+        check(seen == expected - FIXED_KEYS, "order " + order + ": 순회 " + seen + " / " + (expected - FIXED_KEYS));
+        for (int w = 0; w < WRITERS; w++) {
+            for (int i = kept[w].nextSetBit(0); i >= 0; i = kept[w].nextSetBit(i + 1)) {
+                int k = w * KEYS_PER_WRITER + i;
+                check(Integer.valueOf(k).equals(tree.get(k)), "order " + order + ": 남긴 키를 찾지 못함 " + k);
+            }
+        }
+    }
+
+    // 전체 순회는 오름차순이고 중복이 없으며 고정 키를 모두 담아야 하고, 고정 키 구간 조회는 정확한 개수를 돌려줘야 한다
+    private static String scan(ConcurrentBPlusTree<Integer, Integer> tree) {
+        IndexCursor<Integer, Integer> cursor = tree.cursor();
+        Integer prev = null;
+        int fixed = 0;
+        while (cursor.next()) {
+            Integer k = cursor.key();
+            if (prev != null && prev >= k) return "순회 순서가 어긋남: " + prev + " -> " + k;
+            if (!k.equals(cursor.value())) return "키와 값이 다름: " + k;
+            if (k < 0) fixed++;
+            prev = k;
+        }
+        if (fixed != FIXED_KEYS) return "순회에서 고정 키 " + fixed + "개";
+
+        int n = 0;
+        cursor = tree.cursor(-400, true, -100, false);
+        while (cursor.next()) n++;
+        return (n == 300) ? null : "구간 조회 " + n + "개";
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package model.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * OrderedIndex 구현들의 구간 조회 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * 사용: java -cp out model.index.OrderedIndexTest
+ */
+public final class OrderedIndexTest {
+
+    private OrderedIndexTest() {
+    }
+
+    public static void main(String[] args) {
+        openEndedRanges(new BPlusTree<>(4));
+        openEndedRanges(new ConcurrentBPlusTree<>(4));
+        openEndedRanges(PackedBPlusTree.forLongs(4));
+        System.out.println("OrderedIndexTest 통과");
+    }
+
+    // null 경계는 열린 끝이므로 한쪽 또는 양쪽이 null 이어도 예외 없이 나머지 경계까지 돌려줘야 한다
+    private static void openEndedRanges(OrderedIndex<Long, Long> index) {
+        String name = index.getClass().getSimpleName();
+        for (long k = 1; k <= 100; k++) {
+            index.put(k, k);
+        }
+
+        check(keys(index.range(null, true, null, true)).size() == 100, name + ": 양쪽 열린 구간");
+        check(keys(index.range(null, true, 10L, false)).equals(sequence(1, 9)), name + ": 아래가 열린 구간");
+        check(keys(index.range(null, false, 10L, true)).equals(sequence(1, 10)), name + ": 아래가 열린 구간(끝 포함)");
+        check(keys(index.range(91L, true, null, true)).equals(sequence(91, 100)), name + ": 위가 열린 구간");
+        check(keys(index.range(91L, false, null, false)).equals(sequence(92, 100)), name + ": 위가 열린 구간(시작 제외)");
+        check(keys(index.range(50L, true, 40L, true)).isEmpty(), name + ": 거꾸로 된 구간");
+    }
+
+    private static List<Long> keys(Iterable<Map.Entry<Long, Long>> entries) {
+        List<Long> out = new ArrayList<>();
+        for (Map.Entry<Long, Long> e : entries) {
+            out.add(e.getKey());
+        }
+        return out;
+    }
+
+    private static List<Long> sequence(long from, long to) {
+        List<Long> out = new ArrayList<>();
+        for (long k = from; k <= to; k++) {
+            out.add(k);
+        }
+        return out;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package util.exec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import model.Column;
+import model.ColumnType;
+import model.Database;
+import model.Record;
+import model.Schema;
+import model.Table;
+import util.sql.PreparedStatement;
+import util.sql.SqlEngine;
+import util.sql.SqlResult;
+import util.transaction.TransactionManager;
+import util.wal.Wal;
+
+/*
+ * 배치 실행기 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * NULL 이 섞인 여러 배치 분량의 행에서 Filter/HashAggregate/HashJoin 결과를 Record 로 직접 센 결과와 비교하고,
+ * 트랜잭션 밖 전체 스캔 SELECT(배치 경로)가 같은 문장을 트랜잭션 안에서 실행한 행 단위 경로와 같은 행을 같은 순서로 내는지 확인한다.
+ * 사용: java -cp out util.exec.BatchExecutorTest
+ */
+public final class BatchExecutorTest {
+
+    private static final long TS = 1;
+    private static final int ROWS = 3 * Batch.CAPACITY - 72;
+
+    private BatchExecutorTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Table items = new Table("items", itemSchema());
+        for (Record r : itemRows()) {
+            items.insertCommitted(r, TS);
+        }
+        Table groups = new Table("groups", new Schema(List.of(
+                Column.notNull("gid", ColumnType.INT),
+                Column.of("grp", ColumnType.INT),
+                Column.of("label", ColumnType.VARCHAR)), "gid"));
+        for (int gid = 0; gid < 40; gid++) {
+            Map<String, String> values = new HashMap<>();
+            values.put("gid", String.valueOf(gid));
+            // 같은 grp 가 여러 번 나오고, items 에 없는 grp(-7, 7)와 NULL 도 있다
+            if (gid % 8 != 0) values.put("grp", String.valueOf(gid % 15 - 7));
+            values.put("label", "g" + gid);
+            groups.insertCommitted(new Record(values), TS);
+        }
+
+        filtersSkipNulls(items);
+        aggregatesSkipNulls(items);
+        joinsSkipNullKeys(items, groups);
+        sqlBatchPathMatchesRowPath();
+        System.out.println("BatchExecutorTest 통과");
+    }
+
+    private static Schema itemSchema() {
+        return new Schema(List.of(
+                Column.notNull("id", ColumnType.INT),
+                Column.of("grp", ColumnType.INT),
+                Column.of("amount", ColumnType.BIGINT),
+                Column.of("price", ColumnType.DOUBLE),
+                Column.of("tag", ColumnType.VARCHAR)), "id");
+    }
+
+    // 컬럼마다 다른 주기로 NULL 을 넣는다. 음수, -0.0/0.0, 빈 문자열도 섞는다.
+    private static List<Record> itemRows() {
+        List<Record> rows = new ArrayList<>();
+        for (int id = 0; id < ROWS; id++) {
+            Map<String, String> values = new HashMap<>();
+            values.put("id", String.valueOf(id));
+            if (id % 11 != 0) values.put("grp", String.valueOf(id * 7 % 13 - 6));
+            if (id % 5 != 0) values.put("amount", String.valueOf(id * 31L % 1000 - 500));
+            if (id % 7 != 0) {
+                String price = (id % 23 == 0) ? "-0.0" : (id % 29 == 0) ? "0.0" : String.valueOf(id * 17 % 2000 / 10.0 - 50);
+                values.put("price", price);
+            }
+            if (id % 9 != 0) values.put("tag", (id % 53 == 0) ? "" : "t" + (id % 17));
+            rows.add(new Record(values));
+        }
+        return rows;
+    }
+
+    private static Operator scan(Table table) {
+        return new Scan(table, table.getColumns(), null, true, null, true, TS, () -> { });
+    }
+
+    // 모든 타입 x 모든 연산자에서 Filter 가 NULL 행을 빼고 ColumnType.compare 와 같은 행을 남기는지
+    private static void filtersSkipNulls(Table items) {
+        List<Record> all = items.selectAllAt(TS);
+        Map<String, List<String>> values = new LinkedHashMap<>();
+        values.put("grp", List.of("-6", "0", "3", "100"));
+        values.put("amount", List.of("-500", "0", "17", "499"));
+        values.put("price", List.of("-0.0", "0.0", "-12.5", "1e2"));
+        values.put("tag", List.of("", "t1", "t16", "u"));
+        for (Map.Entry<String, List<String>> e : values.entrySet()) {
+            String column = e.getKey();
+            ColumnType type = items.getSchema().column(column).getType();
+            for (String value : e.getValue()) {
+                for (Filter.Op op : Filter.Op.values()) {
+                    List<String> expected = new ArrayList<>();
+                    for (Record r : all) {
+                        String v = r.get(column);
+                        if (v != null && op.test(type.compare(v, type.normalize(value)))) expected.add(r.get("id"));
+                    }
+                    List<String> actual = ids(new Filter(scan(items), column, op, value).drain());
+                    check(actual.equals(expected), "Filter " + column + " " + op + " " + value + ": 기대 " + expected.size()
+                            + "행, 실제 " + actual.size() + "행");
+                }
+            }
+        }
+
+        // 겹친 Filter 는 AND 다
+        Operator op = new Filter(new Filter(scan(items), "amount", Filter.Op.GE, "0"), "tag", Filter.Op.NE, "t3");
+        List<String> expected = new ArrayList<>();
+        for (Record r : all) {
+            String amount = r.get("amount");
+            String tag = r.get("tag");
+            if (amount != null && Long.parseLong(amount) >= 0 && tag != null && !tag.equals("t3")) expected.add(r.get("id"));
+        }
+        check(ids(op.drain()).equals(expected), "겹친 Filter");
+    }
+
+    // 집계 함수는 NULL 값을 세지도 더하지도 않고, 그룹 키 NULL 은 NULL 그룹 하나로 모인다
+    private static void aggregatesSkipNulls(Table items) {
+        List<Record> all = items.selectAllAt(TS);
+        List<HashAggregate.Aggregate> aggregates = List.of(
+                HashAggregate.Aggregate.countAll(),
+                new HashAggregate.Aggregate(HashAggregate.Function.COUNT, "amount"),
+                new HashAggregate.Aggregate(HashAggregate.Function.SUM, "amount"),
+                new HashAggregate.Aggregate(HashAggregate.Function.SUM, "price"),
+                new HashAggregate.Aggregate(HashAggregate.Function.AVG, "amount"),
+                new HashAggregate.Aggregate(HashAggregate.Function.AVG, "price"),
+                new HashAggregate.Aggregate(HashAggregate.Function.MIN, "price"),
+                new HashAggregate.Aggregate(HashAggregate.Function.MAX, "price"),
+                new HashAggregate.Aggregate(HashAggregate.Function.MIN, "tag"),
+                new HashAggregate.Aggregate(HashAggregate.Function.MAX, "grp"));
+
+        // 정수 그룹 키(기본형 표), 문자열 그룹 키(HashMap), 그룹 없음
+        checkAggregate(items, all, List.of("grp"), aggregates, r -> r.get("grp"));
+        checkAggregate(items, all, List.of("tag"), aggregates, r -> r.get("tag"));
+        checkAggregate(items, all, List.of("grp", "tag"), aggregates, r -> r.get("grp") + "|" + r.get("tag"));
+        checkAggregate(items, all, List.of(), aggregates, r -> "");
+
+        // 그룹 없이 빈 입력이면 COUNT 는 0, 나머지는 NULL 인 한 행
+        Operator none = new HashAggregate(new Filter(scan(items), "amount", Filter.Op.GT, "1000"), List.of(), aggregates);
+        List<Record> empty = none.drain();
+        check(empty.size() == 1 && "0".equals(empty.get(0).get("count(*)")) && "0".equals(empty.get(0).get("count(amount)"))
+                && empty.get(0).values().size() == 2, "빈 입력 집계: " + empty);
+    }
+
+    private static void checkAggregate(Table items, List<Record> all, List<String> groupBy,
+                                       List<HashAggregate.Aggregate> aggregates, Function<Record, String> groupOf) {
+        Map<String, List<Record>> byGroup = new LinkedHashMap<>();
+        for (Record r : all) {
+            byGroup.computeIfAbsent(groupOf.apply(r), k -> new ArrayList<>()).add(r);
+        }
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Record>> e : byGroup.entrySet()) {
+            expected.put(e.getKey(), expectedAggregates(e.getValue()));
+        }
+
+        Map<String, String> actual = new LinkedHashMap<>();
+        for (Record r : new HashAggregate(scan(items), groupBy, aggregates).drain()) {
+            String group = groupOf.apply(r);
+            check(actual.put(group, actualAggregates(r)) == null, "같은 그룹이 두 번 나왔습니다: " + group);
+        }
+        // 그룹은 처음 나온 순서(PK 순으로 읽은 순서)로 나온다
+        check(new ArrayList<>(actual.keySet()).equals(new ArrayList<>(expected.keySet())), "그룹 " + groupBy + " 순서");
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            check(e.getValue().equals(actual.get(e.getKey())),
+                    "그룹 " + groupBy + "=" + e.getKey() + ": 기대 " + e.getValue() + ", 실제 " + actual.get(e.getKey()));
+        }
+    }
+
+    private static String expectedAggregates(List<Record> rows) {
+        long countAmount = 0;
+        long sumAmount = 0;
+        long countPrice = 0;
+        double sumPrice = 0;
+        String minPrice = null;
+        String maxPrice = null;
+        String minTag = null;
+        String maxGrp = null;
+        for (Record r : rows) {
+            String amount = r.get("amount");
+            if (amount != null) {
+                countAmount++;
+                sumAmount += Long.parseLong(amount);
+            }
+            String price = r.get("price");
+            if (price != null) {
+                countPrice++;
+                sumPrice += Double.parseDouble(price);
+                if (minPrice == null || ColumnType.DOUBLE.compare(price, minPrice) < 0) minPrice = price;
+                if (maxPrice == null || ColumnType.DOUBLE.compare(price, maxPrice) > 0) maxPrice = price;
+            }
+            String tag = r.get("tag");
+            if (tag != null && (minTag == null || ColumnType.VARCHAR.compare(tag, minTag) < 0)) minTag = tag;
+            String grp = r.get("grp");
+            if (grp != null && (maxGrp == null || ColumnType.INT.compare(grp, maxGrp) > 0)) maxGrp = grp;
+        }
+        return String.join("/", String.valueOf(rows.size()), String.valueOf(countAmount),
+                (countAmount == 0) ? "NULL" : String.valueOf(sumAmount),
+                (countPrice == 0) ? "NULL" : format(sumPrice),
+                (countAmount == 0) ? "NULL" : format((double) sumAmount / countAmount),
+                (countPrice == 0) ? "NULL" : format(sumPrice / countPrice),
+                number(minPrice), number(maxPrice), Objects.toString(minTag, "NULL"), Objects.toString(maxGrp, "NULL"));
+    }
+
+    private static String actualAggregates(Record r) {
+        return String.join("/", r.get("count(*)"), r.get("count(amount)"), Objects.toString(r.get("sum(amount)"), "NULL"),
+                number(r.get("sum(price)")), number(r.get("avg(amount)")), number(r.get("avg(price)")),
+                number(r.get("min(price)")), number(r.get("max(price)")), Objects.toString(r.get("min(tag)"), "NULL"),
+                Objects.toString(r.get("max(grp)"), "NULL"));
+    }
+
+    // 조인 결과는 키가 같은 (probe, build) 쌍 전부이고, 어느 쪽이든 키가 NULL 인 행은 맞지 않는다
+    private static void joinsSkipNullKeys(Table items, Table groups) {
+        List<String> expected = new ArrayList<>();
+        for (Record item : items.selectAllAt(TS)) {
+            for (Record group : groups.selectAllAt(TS)) {
+                String a = item.get("grp");
+                String b = group.get("grp");
+                if (a != null && a.equals(b)) expected.add(item.get("id") + ":" + group.get("gid"));
+            }
+        }
+        check(expected.size() > Batch.CAPACITY, "조인 결과가 한 배치보다 많아야 합니다: " + expected.size());
+
+        List<String> itemsProbe = new ArrayList<>();
+        for (Record r : new HashJoin(scan(items), "grp", scan(groups), "grp", "g_").drain()) {
+            check(Objects.equals(r.get("grp"), r.get("g_grp")), "조인 키가 다른 쌍: " + r);
+            // 값은 probe 행과 build 행에서 각각 그대로 옮겨 와야 한다 (tag 는 id 가 9의 배수일 때만 NULL)
+            check(r.get("g_label").equals("g" + r.get("g_gid")), "build 쪽 값이 섞였습니다: " + r);
+            check((r.get("tag") == null) == (Integer.parseInt(r.get("id")) % 9 == 0), "probe 쪽 값이 섞였습니다: " + r);
+            itemsProbe.add(r.get("id") + ":" + r.get("g_gid"));
+        }
+        // probe 쪽 순서를 지키고, 같은 probe 행 안의 build 행 순서는 정하지 않는다
+        check(sorted(itemsProbe).equals(sorted(expected)), "items 로 probe: 기대 " + expected.size() + "쌍, 실제 " + itemsProbe.size() + "쌍");
+        check(probeOrder(itemsProbe).equals(probeOrder(expected)), "items 로 probe 한 순서");
+
+        List<String> groupsProbe = new ArrayList<>();
+        for (Record r : new HashJoin(scan(groups), "grp", scan(items), "grp", "i_").drain()) {
+            groupsProbe.add(r.get("i_id") + ":" + r.get("gid"));
+        }
+        check(sorted(groupsProbe).equals(sorted(expected)), "groups 로 probe: 실제 " + groupsProbe.size() + "쌍");
+
+        Operator noBuild = new Filter(scan(groups), "gid", Filter.Op.LT, "0");
+        check(new HashJoin(scan(items), "grp", noBuild, "grp", "g_").drain().isEmpty(), "빈 build 쪽");
+    }
+
+    // 같은 WHERE/ORDER BY/LIMIT 문장을 트랜잭션 밖(배치 경로)과 안(행 단위 경로)에서 실행해 결과를 비교한다
+    private static void sqlBatchPathMatchesRowPath() throws IOException {
+        Path dir = Files.createTempDirectory("exec-test");
+        String dbPath = dir.resolve("db.db").toString();
+        try (Database db = Database.openOrCreate(dbPath, d -> d.addTable(new Table("items", itemSchema())));
+             Wal wal = new Wal(dir.resolve("db.wal").toString())) {
+            TransactionManager tm = new TransactionManager(db, wal);
+            try (SqlEngine sql = new SqlEngine(db, dbPath, tm)) {
+                PreparedStatement insert = sql.prepare("INSERT INTO items (id, grp, amount, price, tag) VALUES (?, ?, ?, ?, ?)");
+                sql.execute("BEGIN");
+                for (Record r : itemRows()) {
+                    insert.execute(r.get("id"), r.get("grp"), r.get("amount"), r.get("price"), r.get("tag"));
+                }
+                sql.execute("COMMIT");
+
+                String[][] queries = {
+                        {"SELECT * FROM items"},
+                        {"SELECT id, price FROM items WHERE price >= ?", "-0.0"},
+                        {"SELECT id, price FROM items WHERE price < ?", "0.0"},
+                        {"SELECT id, tag FROM items WHERE tag <> ? AND amount > ?", "t4", "-100"},
+                        {"SELECT * FROM items WHERE grp = 3 ORDER BY amount"},
+                        {"SELECT id, amount, price FROM items ORDER BY price DESC, amount LIMIT 700"},
+                        {"SELECT id, grp FROM items WHERE amount <= ? ORDER BY grp DESC LIMIT ?", "250", "1500"},
+                        {"SELECT tag, id FROM items WHERE id >= 0 ORDER BY tag, grp DESC"},
+                        {"SELECT id FROM items WHERE tag = '' LIMIT 3"},
+                        {"SELECT * FROM items WHERE amount > 10000 ORDER BY id"},
+                        {"SELECT id, price FROM items ORDER BY price LIMIT 0"},
+                };
+                for (String[] q : queries) {
+                    String text = q[0];
+                    String[] parameters = Arrays.copyOfRange(q, 1, q.length);
+                    check(sql.prepare(text).explain().contains("전체 스캔"), "전체 스캔 계획이 아닙니다: " + sql.prepare(text).explain());
+                    SqlResult batch = sql.execute(text, parameters);
+                    sql.execute("BEGIN");
+                    SqlResult row = sql.execute(text, parameters);
+                    sql.execute("ROLLBACK");
+                    check(batch.columns.equals(row.columns), text + ": 컬럼 " + batch.columns + " / " + row.columns);
+                    List<Map<String, String>> a = project(batch.rows, batch.columns);
+                    List<Map<String, String>> b = project(row.rows, row.columns);
+                    check(a.equals(b), text + ": 배치 경로 " + a.size() + "행, 행 단위 경로 " + b.size() + "행"
+                            + (a.size() == b.size() ? ", 처음 다른 행 " + firstDifference(a, b) : ""));
+                }
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    // 행 단위 경로는 SELECT 컬럼 밖의 값도 담은 Record 를 돌려주므로 결과 컬럼만 남긴다
+    private static List<Map<String, String>> project(List<Record> rows, List<String> columns) {
+        List<Map<String, String>> out = new ArrayList<>(rows.size());
+        for (Record r : rows) {
+            Map<String, String> values = new HashMap<>();
+            for (String c : columns) {
+                if (r.get(c) != null) values.put(c, r.get(c));
+            }
+            out.add(values);
+        }
+        return out;
+    }
+
+    private static String firstDifference(List<Map<String, String>> a, List<Map<String, String>> b) {
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).equals(b.get(i))) return i + ": " + a.get(i) + " / " + b.get(i);
+        }
+        return "없음";
+    }
+
+    private static List<String> ids(List<Record> rows) {
+        List<String> ids = new ArrayList<>(rows.size());
+        for (Record r : rows) {
+            ids.add(r.get("id"));
+        }
+        return ids;
+    }
+
+    private static List<String> sorted(List<String> values) {
+        List<String> out = new ArrayList<>(values);
+        out.sort(null);
+        return out;
+    }
+
+    // "probe:build" 쌍에서 probe 쪽 번호가 처음 나온 순서
+    private static List<String> probeOrder(List<String> pairs) {
+        List<String> out = new ArrayList<>();
+        for (String p : pairs) {
+            String probe = p.substring(0, p.indexOf(':'));
+            if (out.isEmpty() || !out.get(out.size() - 1).equals(probe)) out.add(probe);
+        }
+        return out;
+    }
+
+    // 더하는 순서가 같아도 경로마다 합/평균의 마지막 자리는 다를 수 있어 소수 넷째 자리까지만 비교한다
+    private static String format(double v) {
+        return String.format("%.4f", v);
+    }
+
+    private static String number(String v) {
+        return (v == null) ? "NULL" : format(Double.parseDouble(v));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package util.sql;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import model.Database;
+import model.Record;
+import model.Table;
+import util.transaction.TransactionManager;
+import util.wal.Wal;
+
+/*
+ * SQL 앞단(SqlEngine) 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * 임시 데이터베이스에 문장을 실행해 파싱, 파라미터 바인딩, 계획 캐시 적중/무효화, autocommit 롤백을 확인한다.
+ * 사용: java -cp out util.sql.SqlEngineTest
+ */
+public final class SqlEngineTest {
+
+    private SqlEngineTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("sql-test");
+        String dbPath = dir.resolve("db.db").toString();
+        try (Database db = Database.openOrCreate(dbPath, d -> { });
+             Wal wal = new Wal(dir.resolve("db.wal").toString())) {
+            TransactionManager tm = new TransactionManager(db, wal);
+            try (SqlEngine sql = new SqlEngine(db, dbPath, tm)) {
+                sql.execute("CREATE TABLE users (id INT PRIMARY KEY, name VARCHAR NOT NULL, age INT)");
+                sql.execute("INSERT INTO users (id, name, age) VALUES (1, 'Alice', 23), (2, 'Bob', 28), (3, 'Carol', NULL)");
+                parses(sql);
+                bindsParameters(sql);
+                reusesAndInvalidatesPlans(sql, db);
+                rollsBackFailedAutocommit(sql);
+            }
+        } finally {
+            delete(dir);
+        }
+        System.out.println("SqlEngineTest 통과");
+    }
+
+    private static void parses(SqlEngine sql) throws IOException {
+        SqlResult all = sql.execute("select * from users order by id");
+        check(all.columns.equals(List.of("id", "name", "age")), "SELECT * 컬럼: " + all.columns);
+        check(ids(all).equals(List.of("1", "2", "3")), "SELECT * 행: " + ids(all));
+        check(all.rows.get(2).get("age") == null, "NULL 로 넣은 값");
+
+        SqlResult some = sql.execute("SELECT name FROM users WHERE age >= 20 AND age < 28 ORDER BY name DESC LIMIT 5;");
+        check(some.columns.equals(List.of("name")) && some.rows.size() == 1 && "Alice".equals(some.rows.get(0).get("name")),
+                "WHERE/ORDER BY/LIMIT: " + some.rows);
+        check(sql.execute("SELECT * FROM users WHERE name = 'O''Brien'").rows.isEmpty(), "따옴표를 겹쳐 쓴 문자열");
+
+        expectError(sql, "SELECT FROM users", "컬럼 목록 없는 SELECT");
+        expectError(sql, "SELECT * FROM users WHERE", "조건 없는 WHERE");
+        expectError(sql, "SELECT * FROM missing", "없는 테이블");
+        expectError(sql, "SELECT nope FROM users", "없는 컬럼");
+        expectError(sql, "SELECT * FROM users WHERE age = 'x'", "타입이 맞지 않는 리터럴");
+        expectError(sql, "INSERT INTO users (id, name) VALUES (9)", "값 개수가 다른 INSERT");
+        expectError(sql, "SELECT * FROM users LIMIT -1", "음수 LIMIT");
+    }
+
+    private static void bindsParameters(SqlEngine sql) throws IOException {
+        PreparedStatement insert = sql.prepare("INSERT INTO users (id, name, age) VALUES (?, ?, ?)");
+        check(insert.parameterCount() == 3, "INSERT 파라미터 수: " + insert.parameterCount());
+        insert.bind(1, "10").bind(2, "D'Arcy").bind(3, null).execute();
+        insert.clearBindings();
+        expectError(() -> insert.bind(1, "11").execute(), "값을 넣지 않은 파라미터");
+        expectError(() -> insert.bind(4, "x"), "범위 밖 파라미터 번호");
+        expectError(() -> sql.execute("SELECT * FROM users WHERE id = ?"), "파라미터 개수가 맞지 않음");
+
+        PreparedStatement byName = sql.prepare("SELECT id, age FROM users WHERE name = ?");
+        SqlResult found = byName.execute("D'Arcy");
+        check(found.rows.size() == 1 && "10".equals(found.rows.get(0).get("id")) && found.rows.get(0).get("age") == null,
+                "바인딩한 문자열(따옴표 포함)과 NULL: " + found.rows);
+        check(byName.execute("Bob").rows.size() == 1, "같은 계획에 다른 값");
+        check(byName.execute("' OR '1'='1").rows.isEmpty(), "바인딩한 값은 SQL 로 읽지 않는다");
+        check(ids(sql.execute("SELECT * FROM users WHERE age > ? ORDER BY id LIMIT ?", "20", "1")).equals(List.of("1")),
+                "LIMIT 파라미터");
+        // 정수 컬럼에 넣는 값은 스키마 타입으로 정규화된다
+        check(ids(sql.execute("SELECT * FROM users WHERE id = ?", "002")).equals(List.of("2")), "정규화한 파라미터");
+        expectError(() -> sql.execute("SELECT * FROM users WHERE id = ?", (String) null), "NULL 과 비교");
+        sql.execute("DELETE FROM users WHERE id = ?", "10");
+    }
+
+    // 같은 문장(공백, 예약어 대소문자, 끝의 ; 만 다름)은 캐시에서 같은 계획을 쓰고, 테이블의 planVersion 이 바뀌면 다시 계획한다
+    private static void reusesAndInvalidatesPlans(SqlEngine sql, Database db) throws IOException {
+        // 행이 적으면 인덱스보다 전체 스캔이 싸므로, 인덱스를 고를 만큼 행을 채우고 통계를 만든다
+        PreparedStatement insert = sql.prepare("INSERT INTO users (id, name, age) VALUES (?, ?, ?)");
+        sql.execute("BEGIN");
+        for (int i = 100; i < 1100; i++) {
+            insert.execute(String.valueOf(i), "user" + i, String.valueOf(i % 50));
+        }
+        sql.execute("COMMIT");
+        sql.execute("ANALYZE users");
+
+        PlanCache cache = sql.planCache();
+        Table users = db.getTable("users");
+        String text = "SELECT * FROM users WHERE name = ?";
+        sql.execute(text, "Alice");
+        Plan first = cachedPlan(cache, text);
+        check(first != null && first.access == Plan.Access.FULL_SCAN, "인덱스 없는 계획: " + first);
+
+        long hits = cache.hits();
+        long misses = cache.misses();
+        sql.execute("  select *  FROM users where name = ? ; ", "Bob");
+        check(cache.hits() == hits + 1 && cache.misses() == misses, "정규화한 문장이 캐시에 적중하지 않았습니다: " + cache);
+        check(cachedPlan(cache, text) == first, "바뀐 것이 없는데 다시 계획했습니다");
+
+        // 메뉴처럼 SQL 밖에서 인덱스를 만들면 캐시는 그대로지만 planVersion 이 바뀌어 다음 실행에서 다시 계획한다
+        int version = users.planVersion();
+        users.createIndex("idx_users_name", List.of("name"));
+        check(users.planVersion() != version, "인덱스를 만들어도 planVersion 이 그대로입니다");
+        check(ids(sql.execute(text, "Bob")).equals(List.of("2")), "인덱스 생성 뒤 결과");
+        Plan indexed = cachedPlan(cache, text);
+        check(indexed != first && indexed.access == Plan.Access.INDEX_LOOKUP && indexed.tableVersion == users.planVersion(),
+                "인덱스 생성 뒤 다시 계획하지 않았습니다: " + indexed);
+
+        // ANALYZE 도 planVersion 을 올린다
+        sql.execute("ANALYZE users");
+        sql.execute(text, "Bob");
+        Plan analyzed = cachedPlan(cache, text);
+        check(analyzed != indexed && analyzed.tableVersion == users.planVersion(), "ANALYZE 뒤 다시 계획하지 않았습니다");
+
+        // SQL 로 실행한 DDL 은 캐시를 비운다
+        sql.execute("CREATE INDEX idx_users_age ON users (age)");
+        check(cache.size() == 0, "CREATE INDEX 뒤 캐시가 남았습니다: " + cache);
+    }
+
+    // BEGIN 없이 실행한 문장은 하나가 트랜잭션 하나여서, 중간에 실패하면 그 문장에서 바꾼 행도 모두 되돌린다
+    private static void rollsBackFailedAutocommit(SqlEngine sql) throws IOException {
+        List<String> before = ids(sql.execute("SELECT * FROM users ORDER BY id"));
+        expectError(sql, "INSERT INTO users (id, name) VALUES (20, 'Dave'), (21, 'Eve'), (1, 'Dup')", "PK 중복 INSERT");
+        check(ids(sql.execute("SELECT * FROM users ORDER BY id")).equals(before), "실패한 INSERT 의 앞쪽 행이 남았습니다");
+        expectError(sql, "UPDATE users SET name = NULL WHERE age > 0", "NOT NULL 컬럼을 NULL 로 UPDATE");
+        check(sql.execute("SELECT * FROM users WHERE name = 'Alice'").rows.size() == 1, "실패한 UPDATE 가 남았습니다");
+        // 실패한 autocommit 문장은 트랜잭션을 열어 둔 채로 두지 않는다
+        expectError(sql, "COMMIT", "autocommit 실패 뒤 열린 트랜잭션");
+
+        // BEGIN 안에서는 실패한 문장만 실패하고 트랜잭션은 계속된다
+        sql.execute("BEGIN");
+        sql.execute("INSERT INTO users (id, name) VALUES (30, 'Frank')");
+        expectError(sql, "INSERT INTO users (id, name) VALUES (1, 'Dup')", "트랜잭션 안의 PK 중복");
+        sql.execute("COMMIT");
+        check(ids(sql.execute("SELECT * FROM users WHERE id = 30")).equals(List.of("30")), "트랜잭션 안의 앞선 INSERT");
+    }
+
+    private static Plan cachedPlan(PlanCache cache, String sql) {
+        return cache.get(Lexer.normalize(Lexer.tokenize(sql)));
+    }
+
+    private static List<String> ids(SqlResult result) {
+        List<String> ids = new ArrayList<>();
+        for (Record r : result.rows) {
+            ids.add(r.get("id"));
+        }
+        return ids;
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static void expectError(SqlEngine sql, String statement, String label) {
+        expectError(() -> sql.execute(statement), label);
+    }
+
+    private static void expectError(Action action, String label) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            check(e.getMessage() != null && e.getMessage().startsWith("[ERROR]"), label + ": 메시지 " + e.getMessage());
+            return;
+        } catch (IOException e) {
+            throw new AssertionError(label + ": " + e, e);
+        }
+        throw new AssertionError(label + ": 오류가 나지 않았습니다");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package util.transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import model.Column;
+import model.ColumnType;
+import model.Database;
+import model.Record;
+import model.Schema;
+import model.Table;
+import util.wal.Wal;
+import util.wal.WalEntry;
+import util.wal.WalEntry.Op;
+
+/*
+ * 복구 회귀 테스트. 저장소 루트에서 실행한다(고정 입력 파일을 test/ 아래에서 읽음). 실패하면 AssertionError 로 끝난다.
+ * 사용: java -cp out util.transaction.RecoveryTest
+ */
+public final class RecoveryTest {
+
+    // 직렬화 형식 시절 database.wal 그대로: (Alice, Bob 삽입) / (1 -> Ash 23 -> Ash 24) / (1 kiwi 중복 삽입)
+    private static final Path LEGACY_WAL = Path.of("test/util/transaction/legacy.wal");
+
+    private RecoveryTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        replaysLegacySerializedWal();
+        convertsTextKeysInSegments();
+        stopsOnUnreadableKey();
+        System.out.println("RecoveryTest 통과");
+    }
+
+    // 예전 형식 로그의 커밋이 복구에 반영되고, 로그는 세그먼트로 옮겨진 뒤에야 치워져야 한다
+    private static void replaysLegacySerializedWal() throws IOException {
+        Path dir = Files.createTempDirectory("recovery-test");
+        String walPath = dir.resolve("db.wal").toString();
+        Files.copy(LEGACY_WAL, Path.of(walPath));
+        try (Database db = Database.openOrCreate(dir.resolve("db.db").toString(), RecoveryTest::users)) {
+            Recovery.Report report = Recovery.run(db, walPath, 2);
+            check(report.transactions == 3, "반영된 트랜잭션: " + report.transactions);
+
+            Table users = db.getTable("users");
+            List<Record> rows = users.selectAllAt(db.currentCommitSequence());
+            check(rows.size() == 2, "행 수: " + rows.size());
+            check("Bob".equals(users.selectByIdAt(users.keyOf("2"), db.currentCommitSequence()).get("name")), "2번 행이 없습니다");
+            Record ash = users.selectByIdAt(users.keyOf("1"), db.currentCommitSequence());
+            check("Ash".equals(ash.get("name")) && "24".equals(ash.get("age")), "1번 행: " + ash.values());
+            check(db.lastAppliedLsn() == 11, "마지막 반영 LSN: " + db.lastAppliedLsn());
+
+            check(!Files.exists(Path.of(walPath)), "예전 로그가 그대로 남아 있습니다");
+            check(Files.exists(Path.of(walPath + ".backup")), "예전 로그의 백업이 없습니다");
+            check(Wal.readAll(walPath).size() == 11, "세그먼트로 옮긴 레코드 수: " + Wal.readAll(walPath).size());
+            try (Wal wal = new Wal(walPath)) {
+                check(wal.lastLsn() == 11, "다시 연 로그의 마지막 LSN: " + wal.lastLsn());
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    // 인코딩 키 이전 빌드가 세그먼트에 남긴 PK 문자열 레코드와 그 뒤에 이어 쓴 새 형식 레코드가 함께 복구되어야 한다.
+    // "1234" 는 INT 키 4바이트와 길이가 같아 모양만으로는 어느 형식인지 알 수 없다.
+    private static void convertsTextKeysInSegments() throws IOException {
+        Path dir = Files.createTempDirectory("recovery-test");
+        String walPath = dir.resolve("db.wal").toString();
+        try (Database db = Database.openOrCreate(dir.resolve("db.db").toString(), RecoveryTest::users)) {
+            Table users = db.getTable("users");
+            try (Wal wal = new Wal(walPath)) {
+                wal.write(List.of(
+                        textKey(1, 1, Op.BEGIN, null, null),
+                        textKey(2, 1, Op.INSERT, "1234", Map.of("id", "1234", "name", "Alice", "age", "23")),
+                        textKey(3, 1, Op.INSERT, "7", Map.of("id", "7", "name", "Bob", "age", "28")),
+                        textKey(4, 1, Op.COMMIT, null, null),
+                        textKey(5, 2, Op.BEGIN, null, null),
+                        textKey(6, 2, Op.UPDATE, "1234", Map.of("id", "1234", "name", "Ash", "age", "24")),
+                        textKey(7, 2, Op.DELETE, "7", null),
+                        textKey(8, 2, Op.COMMIT, null, null)));
+                wal.sync(wal.write(List.of(
+                        new WalEntry(3, Op.BEGIN, null, null, null),
+                        new WalEntry(3, Op.UPDATE, "users", users.keyOf("1234"), Map.of("id", "1234", "name", "Ash", "age", "25")),
+                        new WalEntry(3, Op.COMMIT, null, null, null))));
+            }
+
+            Recovery.Report report = Recovery.run(db, walPath, 4);
+            check(report.transactions == 3 && report.skipped == 0, report.toString());
+            long snap = db.currentCommitSequence();
+            check(users.selectAllAt(snap).size() == 1, "행 수: " + users.selectAllAt(snap).size());
+            Record ash = users.selectByIdAt(users.keyOf("1234"), snap);
+            check(ash != null && "25".equals(ash.get("age")), "1234번 행: " + ((ash == null) ? null : ash.values()));
+            check(users.selectByIdAt(users.keyOf("7"), snap) == null, "지운 7번 행이 남아 있습니다");
+        } finally {
+            delete(dir);
+        }
+    }
+
+    // 키로 읽을 수 없는 레코드는 건너뛰지 않고 그 레코드를 적은 [ERROR] 로 멈춰야 한다
+    private static void stopsOnUnreadableKey() throws IOException {
+        Path dir = Files.createTempDirectory("recovery-test");
+        String walPath = dir.resolve("db.wal").toString();
+        try (Database db = Database.openOrCreate(dir.resolve("db.db").toString(), RecoveryTest::users)) {
+            try (Wal wal = new Wal(walPath)) {
+                wal.sync(wal.write(List.of(
+                        new WalEntry(1, Op.BEGIN, null, null, null),
+                        new WalEntry(1, Op.DELETE, "users", "abc", null),
+                        new WalEntry(1, Op.COMMIT, null, null, null))));
+            }
+
+            String message = null;
+            try {
+                Recovery.run(db, walPath, 2);
+            } catch (IllegalStateException e) {
+                message = e.getMessage();
+            }
+            check(message != null && message.startsWith("[ERROR]") && message.contains("lsn=2") && message.contains("\"abc\""),
+                    "복구가 읽을 수 없는 키를 건너뛰었습니다: " + message);
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static WalEntry textKey(long lsn, long txId, Op op, String pk, Map<String, String> values) {
+        return new WalEntry(lsn, txId, op, (op == Op.BEGIN || op == Op.COMMIT) ? null : "users", pk, values, false);
+    }
+
+    private static void users(Database d) {
+        d.addTable(new Table("users", new Schema(List.of(
+                Column.notNull("id", ColumnType.INT),
+                Column.notNull("name", ColumnType.VARCHAR),
+                Column.of("age", ColumnType.INT)), "id")));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package util.transaction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import model.Column;
+import model.ColumnType;
+import model.Database;
+import model.Record;
+import model.Schema;
+import model.SecondaryIndex;
+import model.Table;
+import util.wal.Wal;
+
+/*
+ * 트랜잭션 매니저 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * 사용: java -cp out util.transaction.TransactionManagerTest
+ */
+public final class TransactionManagerTest {
+
+    private TransactionManagerTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        commitIsInvisibleUntilDurable();
+        snapshotFindsSupersededValuesThroughIndex();
+        writeSkewAbortsOnlyUnderSerializable();
+        System.out.println("TransactionManagerTest 통과");
+    }
+
+    // 반영은 끝났지만 fsync 를 기다리는 커밋은 다른 세션에 보이지 않아야 한다
+    private static void commitIsInvisibleUntilDurable() throws Exception {
+        Path dir = Files.createTempDirectory("tm-test");
+        // 그룹 커밋 창을 길게 두어 커밋하는 쪽이 fsync 앞에서 한동안 기다리게 한다
+        try (Database db = Database.openOrCreate(dir.resolve("db.db").toString(), TransactionManagerTest::users);
+             Wal wal = new Wal(dir.resolve("db.wal").toString(), 1_000_000L, Long.MAX_VALUE, 64 * 1024)) {
+            TransactionManager tm = new TransactionManager(db, wal);
+            Table users = db.getTable("users");
+            String key = users.keyOf("1");
+
+            Throwable[] failure = new Throwable[1];
+            Thread committer = new Thread(() -> {
+                Session s = tm.openSession();
+                try {
+                    tm.begin(s);
+                    tm.insert(s, "users", new Record(Map.of("id", "1", "name", "Alice", "age", "23")));
+                    tm.commit(s);
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            });
+            long started = System.nanoTime();
+            committer.start();
+            while (users.selectLatest(key) == null) {
+                check(committer.isAlive(), "커밋이 반영 전에 끝났습니다: " + failure[0]);
+                Thread.onSpinWait();
+            }
+
+            Session reader = tm.openSession();
+            check(tm.selectById(reader, "users", "1") == null, "fsync 전의 커밋이 보입니다");
+            check(tm.findAllBy(reader, "users", "name", "Alice").isEmpty(), "fsync 전의 커밋이 인덱스 조회로 보입니다");
+            tm.begin(reader, IsolationLevel.SNAPSHOT);
+            long snap = tm.readTimestamp(reader);
+            tm.rollback(reader);
+
+            committer.join();
+            check(failure[0] == null, "커밋 실패: " + failure[0]);
+            check(System.nanoTime() - started >= 500_000_000L, "그룹 커밋 창을 기다리지 않았습니다");
+            check(snap == 0, "fsync 전에 잡은 스냅샷: " + snap);
+            check(tm.selectById(reader, "users", "1") != null, "fsync 뒤에도 커밋이 보이지 않습니다");
+        } finally {
+            delete(dir);
+        }
+    }
+
+    // 스냅샷 뒤에 바뀌거나 지워진 행도 그 스냅샷에서는 보조 인덱스로 찾아야 하고, 지난 값의 항목은 vacuum 이 지운다
+    private static void snapshotFindsSupersededValuesThroughIndex() throws Exception {
+        Path dir = Files.createTempDirectory("tm-test");
+        try (Database db = Database.openOrCreate(dir.resolve("db.db").toString(), TransactionManagerTest::users);
+             Wal wal = new Wal(dir.resolve("db.wal").toString())) {
+            TransactionManager tm = new TransactionManager(db, wal);
+            Table users = db.getTable("users");
+            Session writer = tm.openSession();
+            tm.begin(writer);
+            tm.insert(writer, "users", new Record(Map.of("id", "1", "name", "Alice", "age", "23")));
+            tm.insert(writer, "users", new Record(Map.of("id", "2", "name", "Bob", "age", "28")));
+            tm.commit(writer);
+
+            Session reader = tm.openSession();
+            tm.begin(reader, IsolationLevel.SNAPSHOT);
+            check("Alice".equals(tm.selectById(reader, "users", "1").get("name")), "스냅샷 시작 값");
+
+            tm.begin(writer);
+            tm.update(writer, "users", "1", new Record(Map.of("id", "1", "name", "Ash", "age", "24")));
+            tm.delete(writer, "users", "2");
+            tm.commit(writer);
+
+            check("Alice".equals(tm.selectById(reader, "users", "1").get("name")), "스냅샷이 새 값을 봅니다");
+            check(tm.findAllBy(reader, "users", "name", "Alice").size() == 1, "바뀌기 전 값으로 찾지 못합니다");
+            check(tm.findAllBy(reader, "users", "name", "Bob").size() == 1, "지워지기 전 행을 찾지 못합니다");
+            check(tm.findAllBy(reader, "users", "name", "Ash").isEmpty(), "스냅샷 뒤의 값으로 찾습니다");
+            check(users.vacuum(tm.readTimestamp(reader), 100).versionsReclaimed == 0, "스냅샷이 보는 버전을 회수했습니다");
+            tm.rollback(reader);
+
+            check(tm.findAllBy(writer, "users", "name", "Alice").isEmpty(), "새 스냅샷이 지난 값으로 찾습니다");
+            check(tm.findAllBy(writer, "users", "name", "Ash").size() == 1, "새 값으로 찾지 못합니다");
+            users.vacuum(db.currentCommitSequence(), 100);
+            SecondaryIndex idx = users.getIndexes().get(0);
+            check(idx.keyCount() == 1 && idx.maintenanceMisses() == 0, "vacuum 뒤 인덱스 키 " + idx.keyCount() + "개");
+        } finally {
+            delete(dir);
+        }
+    }
+
+    // 서로 상대가 쓸 행(또는 구간)을 읽고 각자 다른 행을 쓰는 두 트랜잭션: SNAPSHOT 은 둘 다 커밋하고, SERIALIZABLE 은 하나를 되돌린다
+    private static void writeSkewAbortsOnlyUnderSerializable() throws Exception {
+        check(writeSkew(IsolationLevel.SNAPSHOT, false) == 2, "SNAPSHOT 이 행 write skew 를 막았습니다");
+        check(writeSkew(IsolationLevel.SERIALIZABLE, false) == 1, "SERIALIZABLE 이 행 write skew 를 허용했습니다");
+        check(writeSkew(IsolationLevel.SNAPSHOT, true) == 2, "SNAPSHOT 이 구간 write skew 를 막았습니다");
+        check(writeSkew(IsolationLevel.SERIALIZABLE, true) == 1, "SERIALIZABLE 이 구간 write skew 를 허용했습니다");
+    }
+
+    // 당직(age=1) 두 명 중 각자 상대가 당직인지 보고 자기만 빠진다. range 면 PK 구간을 읽고 각자 새 행을 넣는다.
+    // 커밋에 성공한 트랜잭션 수를 돌려준다.
+    private static int writeSkew(IsolationLevel isolation, boolean range) throws Exception {
+        Path dir = Files.createTempDirectory("tm-test");
+        try (Database db = Database.openOrCreate(dir.resolve("db.db").toString(), TransactionManagerTest::users);
+             Wal wal = new Wal(dir.resolve("db.wal").toString())) {
+            TransactionManager tm = new TransactionManager(db, wal);
+            tm.begin();
+            tm.insert("users", new Record(Map.of("id", "1", "name", "Alice", "age", "1")));
+            tm.insert("users", new Record(Map.of("id", "2", "name", "Bob", "age", "1")));
+            tm.commit();
+
+            Session first = tm.openSession();
+            Session second = tm.openSession();
+            tm.begin(first, isolation);
+            tm.begin(second, isolation);
+            if (range) {
+                check(tm.findAllByPkBetween(first, "users", "1", true, "10", true).size() == 2, "첫 트랜잭션 구간 읽기");
+                check(tm.findAllByPkBetween(second, "users", "1", true, "10", true).size() == 2, "둘째 트랜잭션 구간 읽기");
+                tm.insert(first, "users", new Record(Map.of("id", "3", "name", "Carol", "age", "1")));
+                tm.insert(second, "users", new Record(Map.of("id", "4", "name", "Dave", "age", "1")));
+            } else {
+                check("1".equals(tm.selectById(first, "users", "2").get("age")), "첫 트랜잭션이 상대 행을 읽음");
+                check("1".equals(tm.selectById(second, "users", "1").get("age")), "둘째 트랜잭션이 상대 행을 읽음");
+                tm.update(first, "users", "1", new Record(Map.of("id", "1", "name", "Alice", "age", "0")));
+                tm.update(second, "users", "2", new Record(Map.of("id", "2", "name", "Bob", "age", "0")));
+            }
+
+            long abortsBefore = tm.serializationFailures();
+            int committed = commitOrRollback(tm, first) + commitOrRollback(tm, second);
+            if (isolation == IsolationLevel.SERIALIZABLE) {
+                check(tm.serializationFailures() == abortsBefore + 1, "SSI 중단 수가 늘지 않았습니다");
+            }
+            if (!range && committed == 1) {
+                check(tm.findAllBy("users", "age", "1").size() == 1, "되돌린 트랜잭션의 변경이 남았습니다");
+            }
+            return committed;
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static int commitOrRollback(TransactionManager tm, Session session) throws IOException {
+        try {
+            tm.commit(session);
+            return 1;
+        } catch (TransactionConflictException e) {
+            if (tm.isActive(session)) tm.rollback(session);
+            return 0;
+        }
+    }
+
+    private static void users(Database d) {
+        d.addTable(new Table("users", new Schema(List.of(
+                Column.notNull("id", ColumnType.INT),
+                Column.notNull("name", ColumnType.VARCHAR),
+                Column.of("age", ColumnType.INT)), "id")));
+        d.getTable("users").createIndex("idx_name", List.of("name"));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package util.wal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import util.wal.WalEntry.Op;
+
+/*
+ * WAL 회귀 테스트. 실패하면 AssertionError 로 끝난다.
+ * 사용: java -cp out util.wal.WalTest
+ */
+public final class WalTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    private WalTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        reopenOverRecycledSegment();
+        System.out.println("WalTest 통과");
+    }
+
+    // 재사용 세그먼트에 남은 이전 레코드 앞에서 로그가 끝나야, 다시 연 뒤의 기록이 그 뒤에 묻히지 않는다
+    private static void reopenOverRecycledSegment() throws IOException {
+        Path dir = Files.createTempDirectory("wal-test");
+        String path = dir.resolve("db.wal").toString();
+        try {
+            long written;
+            try (Wal wal = open(path)) {
+                for (int i = 0; i < 3000; i++) wal.append(entry(i));
+                check(wal.truncateUpTo(wal.lastLsn()), "체크포인트 뒤 재사용할 세그먼트가 있어야 합니다");
+                // 재사용 세그먼트로 넘어간 뒤 그 앞부분만 새 레코드로 덮는다 (레코드 길이가 같아 뒤에 남은 이전 레코드는 CRC 가 맞는다)
+                int i = 3000;
+                while (wal.sizeBytes() <= SEGMENT_BYTES) wal.append(entry(i++));
+                for (int k = 0; k < 5; k++) wal.append(entry(i++));
+                written = wal.lastLsn();
+            }
+            try (Wal wal = open(path)) {
+                check(wal.lastLsn() == written, "다시 연 뒤 마지막 LSN: " + wal.lastLsn() + ", 기대값 " + written);
+                for (int k = 0; k < 10; k++) wal.append(entry((int) written + k));
+            }
+
+            List<WalEntry> all = Wal.readAll(path);
+            WalEntry last = all.get(all.size() - 1);
+            check(last.lsn == written + 10, "마지막으로 읽힌 LSN: " + last.lsn + ", 기대값 " + (written + 10));
+            try (Wal wal = open(path)) {
+                check(wal.lastLsn() == written + 10, "두 번째로 다시 연 뒤 마지막 LSN: " + wal.lastLsn());
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    private static Wal open(String path) throws IOException {
+        return new Wal(path, 0L, Wal.DEFAULT_GROUP_BYTES, SEGMENT_BYTES);
+    }
+
+    private static WalEntry entry(int i) {
+        String pk = String.format("%08d", i);
+        return new WalEntry(1L, Op.INSERT, "users", pk, Map.of("id", pk));
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}